@@ -0,0 +1,55 @@
+package com.technicaltest.benchmarks;
+
+import com.technicaltest.controllers.request.BrandResponseDTO;
+import com.technicaltest.controllers.request.ResponseDTO;
+import com.technicaltest.repositories.BrandRepository;
+import com.technicaltest.services.BrandService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Measures BrandService.getBrands, served from the brand cache, against reading the brands from the database.
+ *
+ * @author Wilmaryucuma7
+ * @version 1.0
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BrandServiceBenchmark {
+
+    private InventoryContext inventory;
+    private BrandService brandService;
+    private BrandRepository brandRepository;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        inventory = new InventoryContext(0);
+        brandService = inventory.getBean(BrandService.class);
+        brandRepository = inventory.getBean(BrandRepository.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        inventory.close();
+    }
+
+    @Benchmark
+    public ResponseDTO getBrands() {
+        return brandService.getBrands();
+    }
+
+    @Benchmark
+    public List<BrandResponseDTO> findAllBrandsFromDatabase() {
+        return brandRepository.findAll().stream()
+                .map(brandEntity -> new BrandResponseDTO(brandEntity.getId(), brandEntity.getName()))
+                .collect(Collectors.toList());
+    }
+}
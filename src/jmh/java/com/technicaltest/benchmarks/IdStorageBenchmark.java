@@ -0,0 +1,114 @@
+package com.technicaltest.benchmarks;
+
+import com.technicaltest.utils.Ids;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Comparator;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Measures inserting vehicles into an empty file-backed H2 table keyed by random UUIDs stored as VARCHAR(60),
+ * as the IDs used to be, and by time-ordered UUIDs stored as BINARY(16), as they are now, and prints the space
+ * the table and its indexes take afterwards. Random keys land anywhere in the primary key index and in the
+ * (brand, ID) index, time-ordered ones are appended at their end.
+ * H2 stands in for MySQL, where InnoDB clusters the rows on the primary key and copies it into every
+ * secondary index, so the gap is expected to be wider there.
+ *
+ * @author Wilmaryucuma7
+ * @version 1.0
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(1)
+public class IdStorageBenchmark {
+
+    private static final int BATCH_SIZE = 500;
+    private static final int COMMIT_SIZE = 10000;
+    private static final int BRANDS = 6;
+
+    @Param({"5000000"})
+    private int rows;
+
+    @Param({"varchar-random", "binary-time-ordered"})
+    private String keys;
+
+    private Path directory;
+    private Connection connection;
+    private Object[] brandIds;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws IOException, SQLException {
+        directory = Files.createTempDirectory("id-storage");
+        connection = DriverManager.getConnection("jdbc:h2:file:" + directory.resolve("ids") + ";MODE=MySQL", "sa", "");
+        connection.setAutoCommit(false);
+        String type = binary() ? "BINARY(16)" : "VARCHAR(60)";
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE vehicles (vehicle_id " + type + " NOT NULL PRIMARY KEY, " +
+                    "vehicle_model VARCHAR(60), vehicle_license_plate VARCHAR(20), brand_id " + type + " NOT NULL)");
+            statement.execute("CREATE INDEX idx_vehicles_brand_id ON vehicles (brand_id, vehicle_id)");
+        }
+        brandIds = new Object[BRANDS];
+        for (int i = 0; i < BRANDS; i++) {
+            brandIds[i] = newId();
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws IOException, SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet space = statement.executeQuery("SELECT DISK_SPACE_USED('vehicles')")) {
+            space.next();
+            System.out.printf("%n%s: %d rows, table and indexes take %d MB%n", keys, rows, space.getLong(1) >> 20);
+        }
+        connection.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public int insertRows() throws SQLException {
+        try (PreparedStatement insert = connection.prepareStatement("INSERT INTO vehicles (vehicle_id, " +
+                "vehicle_model, vehicle_license_plate, brand_id) VALUES (?, ?, ?, ?)")) {
+            for (int i = 0; i < rows; i++) {
+                insert.setObject(1, newId());
+                insert.setString(2, "Model " + i % 1000);
+                insert.setString(3, "P" + i);
+                insert.setObject(4, brandIds[i % BRANDS]);
+                insert.addBatch();
+                if ((i + 1) % BATCH_SIZE == 0) {
+                    insert.executeBatch();
+                }
+                if ((i + 1) % COMMIT_SIZE == 0) {
+                    connection.commit();
+                }
+            }
+            insert.executeBatch();
+            connection.commit();
+        }
+        return rows;
+    }
+
+    private Object newId() {
+        return binary() ? Ids.toBytes(Ids.newId()) : UUID.randomUUID().toString();
+    }
+
+    private boolean binary() {
+        return keys.startsWith("binary");
+    }
+}
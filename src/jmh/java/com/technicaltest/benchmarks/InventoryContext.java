@@ -0,0 +1,88 @@
+package com.technicaltest.benchmarks;
+
+import com.technicaltest.VehicleInventoryApplication;
+import com.technicaltest.services.VehicleAttributeIndex;
+import com.technicaltest.services.VehicleSearchIndex;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Starts the application without the web server, against an in-memory H2 database seeded with a given
+ * number of vehicles spread over the brands of data.sql. Used by the benchmarks that go through the services.
+ *
+ * @author Wilmaryucuma7
+ * @version 1.0
+ *
+ */
+final class InventoryContext implements AutoCloseable {
+
+    private final ConfigurableApplicationContext context;
+
+    /**
+     * Starts the application and seeds it.
+     *
+     * @param vehicles the number of vehicles
+     * @param properties the properties that override those of application.properties, as "name=value"
+     */
+    InventoryContext(int vehicles, String... properties) {
+        context = new SpringApplicationBuilder(VehicleInventoryApplication.class)
+                .web(WebApplicationType.NONE)
+                .logStartupInfo(false)
+                .properties(
+                        "spring.datasource.url=jdbc:h2:mem:benchmark;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1;IGNORECASE=TRUE",
+                        "spring.jpa.show-sql=false",
+                        "logging.level.root=WARN")
+                .properties(properties)
+                .run();
+        seed(vehicles);
+        // The indexes were built when the context started, before the vehicles existed
+        if (isEnabled("vehicle.search.index.enabled")) {
+            getBean(VehicleSearchIndex.class).rebuild();
+        }
+        if (isEnabled("vehicle.attribute-index.enabled")) {
+            getBean(VehicleAttributeIndex.class).rebuild();
+        }
+    }
+
+    <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    private boolean isEnabled(String property) {
+        return context.getEnvironment().getProperty(property, Boolean.class, true);
+    }
+
+    ApplicationEventPublisher getEventPublisher() {
+        return context;
+    }
+
+    /**
+     * Inserts the vehicles with a single statement. IDs and license plates are unique,
+     * models repeat every 1000 vehicles, years every 25, colors every 7 and brands every 6. The IDs are UUIDs ending with the number of the vehicle,
+     * and the brand IDs are those of data.sql.
+     *
+     * @param vehicles the number of vehicles
+     */
+    private void seed(int vehicles) {
+        if (vehicles == 0) {
+            return;
+        }
+        getBean(JdbcTemplate.class).update("INSERT INTO vehicles (vehicle_id, vehicle_model, vehicle_license_plate, " +
+                "vehicle_color, vehicle_year, vehicle_created_date, brand_id) " +
+                "SELECT X'019000000000700080010000' || CAST(CAST(\"X\" AS INT) AS BINARY(4)), " +
+                "'Model ' || MOD(\"X\", 1000), " +
+                "CHAR(65 + \"X\" / 100000) || LPAD(CAST(MOD(\"X\", 100000) AS VARCHAR), 5, '0'), " +
+                "CASE MOD(\"X\", 7) WHEN 0 THEN 'Red' WHEN 1 THEN 'Blue' WHEN 2 THEN 'White' WHEN 3 THEN 'Black' " +
+                "WHEN 4 THEN 'Gray' WHEN 5 THEN 'Silver' ELSE 'Green' END, '20' || LPAD(CAST(MOD(\"X\", 25) AS VARCHAR), 2, '0'), NOW(), " +
+                "X'019000000000700080000000' || CAST(CAST(1 + MOD(\"X\", 6) AS INT) AS BINARY(4)) " +
+                "FROM SYSTEM_RANGE(0, ?)", vehicles - 1);
+    }
+
+    @Override
+    public void close() {
+        context.close();
+    }
+}
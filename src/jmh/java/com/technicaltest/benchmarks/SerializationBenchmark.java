@@ -0,0 +1,78 @@
+package com.technicaltest.benchmarks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.technicaltest.controllers.request.ResponseDTO;
+import com.technicaltest.controllers.request.VehicleResponseDTO;
+import com.technicaltest.models.BrandEntity;
+import com.technicaltest.models.VehicleEntity;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Measures the Jackson serialization of a ResponseDTO holding a page of vehicles,
+ * as the VehicleResponseDTO projections served today and as the entities served before.
+ *
+ * @author Wilmaryucuma7
+ * @version 1.0
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+    @Param({"10", "100"})
+    private int pageSize;
+
+    private ObjectMapper objectMapper;
+    private ResponseDTO projectionPage;
+    private ResponseDTO entityPage;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // Configured like the mapper Spring Boot gives to the controllers
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+        BrandEntity brand = BrandEntity.builder().id("1").name("Toyota").brandCreatedDate(LocalDateTime.now()).build();
+        projectionPage = page(IntStream.range(0, pageSize)
+                .mapToObj(i -> new VehicleResponseDTO("v" + i, "Model " + i, "A" + (10000 + i), "Red", "2020", brand.getId(), brand.getName()))
+                .collect(Collectors.toList()));
+        entityPage = page(IntStream.range(0, pageSize)
+                .mapToObj(i -> VehicleEntity.builder().id("v" + i).model("Model " + i).licensePlate("A" + (10000 + i))
+                        .color("Red").year("2020").vehicleCreatedDate(LocalDateTime.now()).brandEntity(brand).build())
+                .collect(Collectors.toList()));
+    }
+
+    @Benchmark
+    public byte[] serializeProjectionPage() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(projectionPage);
+    }
+
+    @Benchmark
+    public byte[] serializeEntityPage() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(entityPage);
+    }
+
+    private static ResponseDTO page(List<?> vehicles) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("vehicles", vehicles);
+        response.put("totalPages", 100);
+        response.put("approximateCount", false);
+        return ResponseDTO.builder()
+                .response(response)
+                .error(false)
+                .build();
+    }
+}
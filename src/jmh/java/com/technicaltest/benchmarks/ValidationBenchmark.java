@@ -0,0 +1,53 @@
+package com.technicaltest.benchmarks;
+
+import com.technicaltest.controllers.request.VehicleDTO;
+import org.openjdk.jmh.annotations.*;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validation;
+import javax.validation.Validator;
+import javax.validation.ValidatorFactory;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the bean validation of a VehicleDTO, as done for every created, updated or imported vehicle.
+ *
+ * @author Wilmaryucuma7
+ * @version 1.0
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValidationBenchmark {
+
+    private ValidatorFactory validatorFactory;
+    private Validator validator;
+    private final VehicleDTO validVehicle = new VehicleDTO("Corolla", "ABC123", "Rojo", "2020", "1");
+    private final VehicleDTO invalidVehicle = new VehicleDTO("Corolla#", "1BC12345", "", "1820", "");
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        validator = validatorFactory.getValidator();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        validatorFactory.close();
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<VehicleDTO>> validateValidVehicle() {
+        return validator.validate(validVehicle);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<VehicleDTO>> validateInvalidVehicle() {
+        return validator.validate(invalidVehicle);
+    }
+}
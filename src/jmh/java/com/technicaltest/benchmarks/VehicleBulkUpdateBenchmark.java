@@ -0,0 +1,83 @@
+package com.technicaltest.benchmarks;
+
+import com.technicaltest.controllers.request.ResponseDTO;
+import com.technicaltest.controllers.request.VehicleBulkDTO;
+import com.technicaltest.controllers.request.VehicleResponseDTO;
+import com.technicaltest.services.VehicleBulkService;
+import com.technicaltest.services.VehicleService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Measures changing the color of a batch of vehicles with one JSON Merge Patch per vehicle, which reads every
+ * vehicle before writing it, against a single bulk update, which writes the batch in chunks of one UPDATE each.
+ *
+ * @author Wilmaryucuma7
+ * @version 1.0
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class VehicleBulkUpdateBenchmark {
+
+    private static final int ROWS = 10000;
+    private static final String[] COLORS = {"Red", "Blue"};
+
+    @Param({"100", "1000"})
+    private int batch;
+
+    private InventoryContext inventory;
+    private VehicleService vehicleService;
+    private VehicleBulkService vehicleBulkService;
+    private List<String> ids;
+    private int updates;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        inventory = new InventoryContext(ROWS);
+        vehicleService = inventory.getBean(VehicleService.class);
+        vehicleBulkService = inventory.getBean(VehicleBulkService.class);
+        ids = vehicles(vehicleService.getVehicles(0, batch, "licensePlate", "asc", false)).stream()
+                .map(VehicleResponseDTO::getId)
+                .collect(Collectors.toList());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        inventory.close();
+    }
+
+    @Benchmark
+    public int patchEachVehicle() {
+        Map<String, Object> patch = Collections.singletonMap("color", nextColor());
+        ids.forEach(id -> vehicleService.patchVehicle(id, patch, null));
+        return ids.size();
+    }
+
+    @Benchmark
+    public ResponseDTO updateInBulk() {
+        return vehicleBulkService.updateVehicles(VehicleBulkDTO.builder()
+                .ids(ids)
+                .changes(Collections.singletonMap("color", nextColor()))
+                .build());
+    }
+
+    private String nextColor() {
+        // Every batch changes the color, so every vehicle of it is written
+        return COLORS[updates++ % COLORS.length];
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<VehicleResponseDTO> vehicles(ResponseDTO response) {
+        return (List<VehicleResponseDTO>) ((Map<String, Object>) response.getResponse()).get("vehicles");
+    }
+}
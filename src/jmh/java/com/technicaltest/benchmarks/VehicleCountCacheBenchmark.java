@@ -0,0 +1,60 @@
+package com.technicaltest.benchmarks;
+
+import com.technicaltest.controllers.request.ResponseDTO;
+import com.technicaltest.services.VehicleService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the latency distribution of the first page of the listing and of a search answered by the LIKE query,
+ * with the count cache and without it, when every page runs its COUNT. Sampled, so JMH reports the p99 of each.
+ * The search index is off, so the search always takes the LIKE query and its count.
+ *
+ * @author Wilmaryucuma7
+ * @version 1.0
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class VehicleCountCacheBenchmark {
+
+    private static final int PAGE_SIZE = 10;
+    private static final String SEARCH = "Model 12";
+
+    @Param({"10000", "100000"})
+    private int rows;
+
+    @Param({"true", "false"})
+    private boolean countCache;
+
+    private InventoryContext inventory;
+    private VehicleService vehicleService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        inventory = new InventoryContext(rows,
+                "vehicle.count-cache.enabled=" + countCache,
+                "vehicle.search.index.enabled=false");
+        vehicleService = inventory.getBean(VehicleService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        inventory.close();
+    }
+
+    @Benchmark
+    public ResponseDTO getVehicles() {
+        return vehicleService.getVehicles(0, PAGE_SIZE, "model", "asc", false);
+    }
+
+    @Benchmark
+    public ResponseDTO searchVehicles() {
+        return vehicleService.searchVehicles(SEARCH, 0, PAGE_SIZE, false);
+    }
+}
@@ -0,0 +1,70 @@
+package com.technicaltest.benchmarks;
+
+import com.technicaltest.controllers.request.ResponseDTO;
+import com.technicaltest.controllers.request.VehicleDTO;
+import com.technicaltest.controllers.request.VehicleResponseDTO;
+import com.technicaltest.services.VehicleService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures changing the color of a vehicle with a full update, which sends every field and looks the brand up,
+ * against a JSON Merge Patch holding only the color.
+ *
+ * @author Wilmaryucuma7
+ * @version 1.0
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class VehiclePartialUpdateBenchmark {
+
+    private static final int ROWS = 10000;
+    private static final String[] COLORS = {"Red", "Blue"};
+
+    private InventoryContext inventory;
+    private VehicleService vehicleService;
+    private VehicleResponseDTO vehicle;
+    private int updates;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        inventory = new InventoryContext(ROWS);
+        vehicleService = inventory.getBean(VehicleService.class);
+        vehicle = vehicles(vehicleService.getVehicles(0, 1, "licensePlate", "asc", false)).get(0);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        inventory.close();
+    }
+
+    @Benchmark
+    public ResponseDTO updateColorWithPut() {
+        return vehicleService.updateVehicle(vehicle.getId(), new VehicleDTO(vehicle.getModel(), vehicle.getLicensePlate(),
+                nextColor(), vehicle.getYear(), vehicle.getBrand().getId()));
+    }
+
+    @Benchmark
+    public ResponseDTO updateColorWithPatch() {
+        return vehicleService.patchVehicle(vehicle.getId(), Collections.singletonMap("color", nextColor()), null);
+    }
+
+    private String nextColor() {
+        // Every update changes the color, so every one of them writes
+        return COLORS[updates++ % COLORS.length];
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<VehicleResponseDTO> vehicles(ResponseDTO response) {
+        return (List<VehicleResponseDTO>) ((Map<String, Object>) response.getResponse()).get("vehicles");
+    }
+}
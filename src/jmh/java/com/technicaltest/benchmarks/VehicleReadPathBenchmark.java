@@ -0,0 +1,80 @@
+package com.technicaltest.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.technicaltest.models.VehicleEntity;
+import com.technicaltest.repositories.VehicleRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures reading and serializing one page of vehicles as managed entities in a read-write transaction,
+ * the way the listing worked before, against VehicleResponseDTO projections in a read-only transaction.
+ * Run it with -prof gc to compare the allocation per page.
+ *
+ * @author Wilmaryucuma7
+ * @version 1.0
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class VehicleReadPathBenchmark {
+
+    @Param({"10", "100"})
+    private int pageSize;
+
+    private InventoryContext inventory;
+    private VehicleRepository vehicleRepository;
+    private EntityManager entityManager;
+    private ObjectMapper objectMapper;
+    private TransactionTemplate readWrite;
+    private TransactionTemplate readOnly;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        inventory = new InventoryContext(10000);
+        vehicleRepository = inventory.getBean(VehicleRepository.class);
+        entityManager = inventory.getBean(EntityManager.class);
+        objectMapper = inventory.getBean(ObjectMapper.class);
+        PlatformTransactionManager transactionManager = inventory.getBean(PlatformTransactionManager.class);
+        readWrite = new TransactionTemplate(transactionManager);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        inventory.close();
+    }
+
+    @Benchmark
+    public byte[] entityPage() {
+        return readWrite.execute(status -> write(entityManager
+                .createQuery("SELECT v FROM VehicleEntity v JOIN FETCH v.brandEntity ORDER BY v.model, v.id", VehicleEntity.class)
+                .setMaxResults(pageSize)
+                .getResultList()));
+    }
+
+    @Benchmark
+    public byte[] projectionPage() {
+        return readOnly.execute(status -> write(vehicleRepository.findResponsesBy(
+                PageRequest.of(0, pageSize, Sort.by("model").and(Sort.by("id"))))));
+    }
+
+    private byte[] write(Object page) {
+        try {
+            return objectMapper.writeValueAsBytes(page);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.technicaltest.benchmarks;
+
+import com.technicaltest.controllers.request.ResponseDTO;
+import com.technicaltest.controllers.request.VehicleFilterDTO;
+import com.technicaltest.controllers.request.VehicleResponseDTO;
+import com.technicaltest.repositories.VehicleRepository;
+import com.technicaltest.services.VehicleSearchIndex;
+import com.technicaltest.services.VehicleService;
+import com.technicaltest.utils.PageCursor;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the listing and search of VehicleService for a growing number of vehicles:
+ * offset against keyset pagination on a deep page, the search index against the LIKE query and its COUNT for the
+ * same term, and the faceted search.
+ *
+ * @author Wilmaryucuma7
+ * @version 1.0
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class VehicleServiceBenchmark {
+
+    private static final int PAGE_SIZE = 10;
+    private static final String SEARCH = "Model 12";
+    private static final Pageable SEARCH_PAGE = PageRequest.of(0, PAGE_SIZE, Sort.by("id"));
+    private static final VehicleFilterDTO FACET_FILTER =
+            new VehicleFilterDTO(Set.of("01900000-0000-7000-8000-000000000002"), "2010", "2019", Set.of("Red", "Blue"));
+
+    @Param({"10000", "100000", "1000000"})
+    private int rows;
+
+    private InventoryContext inventory;
+    private VehicleService vehicleService;
+    private VehicleSearchIndex vehicleSearchIndex;
+    private VehicleRepository vehicleRepository;
+    private int deepPage;
+    private String deepCursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        inventory = new InventoryContext(rows);
+        vehicleService = inventory.getBean(VehicleService.class);
+        vehicleSearchIndex = inventory.getBean(VehicleSearchIndex.class);
+        vehicleRepository = inventory.getBean(VehicleRepository.class);
+
+        // Both searches must find the same vehicles for the comparison to hold
+        long indexMatches = vehicleSearchIndex.search(SEARCH).orElseThrow(IllegalStateException::new).size();
+        if (indexMatches != vehicleRepository.countByBrandModelOrLicensePlate(SEARCH)) {
+            throw new IllegalStateException("El indice y la consulta LIKE encuentran vehiculos distintos para " + SEARCH);
+        }
+
+        // The keyset cursor that points to the same page as the offset deepPage, half way through the table
+        deepPage = rows / PAGE_SIZE / 2;
+        List<VehicleResponseDTO> previousPage = vehicles(vehicleService.getVehicles(deepPage - 1, PAGE_SIZE, "model", "asc", false));
+        VehicleResponseDTO last = previousPage.get(previousPage.size() - 1);
+        deepCursor = new PageCursor(PageCursor.order("model", true), last.getModel(), last.getId()).encode();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        inventory.close();
+    }
+
+    @Benchmark
+    public ResponseDTO getVehiclesFirstPage() {
+        return vehicleService.getVehicles(0, PAGE_SIZE, "model", "asc", false);
+    }
+
+    @Benchmark
+    public ResponseDTO getVehiclesDeepPage() {
+        return vehicleService.getVehicles(deepPage, PAGE_SIZE, "model", "asc", false);
+    }
+
+    @Benchmark
+    public ResponseDTO getVehiclesAfterDeepCursor() {
+        return vehicleService.getVehiclesAfter(deepCursor, PAGE_SIZE, "model", "asc", false);
+    }
+
+    @Benchmark
+    public void searchVehiclesWithIndex(Blackhole blackhole) {
+        // The index returns every match, so the first page and the count come from the same lookup
+        List<String> ids = vehicleSearchIndex.search(SEARCH).orElseThrow(IllegalStateException::new);
+        blackhole.consume(vehicleRepository.findResponsesByIdIn(ids.subList(0, Math.min(PAGE_SIZE, ids.size()))));
+        blackhole.consume(ids.size());
+    }
+
+    @Benchmark
+    public void searchVehiclesWithLikeQuery(Blackhole blackhole) {
+        // Called on the repository, so the COUNT is run every time instead of being taken from the count cache
+        blackhole.consume(vehicleRepository.findResponsePageByBrandModelOrLicensePlate(SEARCH, SEARCH_PAGE));
+        blackhole.consume(vehicleRepository.countByBrandModelOrLicensePlate(SEARCH));
+    }
+
+    @Benchmark
+    public ResponseDTO searchVehiclesByFacets() {
+        return vehicleService.searchVehiclesByFacets(FACET_FILTER, 0, PAGE_SIZE, false);
+    }
+
+    @Benchmark
+    public ResponseDTO searchVehiclesByFacetsWithoutFilter() {
+        return vehicleService.searchVehiclesByFacets(new VehicleFilterDTO(), 0, PAGE_SIZE, false);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<VehicleResponseDTO> vehicles(ResponseDTO response) {
+        return (List<VehicleResponseDTO>) ((Map<String, Object>) response.getResponse()).get("vehicles");
+    }
+}
@@ -0,0 +1,89 @@
+package com.technicaltest.benchmarks;
+
+import com.technicaltest.controllers.request.VehicleResponseDTO;
+import com.technicaltest.repositories.VehicleRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures reading one page of vehicles for every allowed sort: the first page, a page at an offset
+ * and the page after a cursor. With the sort indexes each page reads its rows in index order instead
+ * of sorting the whole table, so the first page and the cursor page cost the same at any table size.
+ *
+ * @author Wilmaryucuma7
+ * @version 1.0
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class VehicleSortBenchmark {
+
+    @Param({"1000000"})
+    private int rows;
+
+    @Param({"model", "year", "licensePlate", "brandEntity.name"})
+    private String sortField;
+
+    @Param({"true", "false"})
+    private boolean ascending;
+
+    private InventoryContext inventory;
+    private VehicleRepository vehicleRepository;
+    private TransactionTemplate readOnly;
+    private VehicleResponseDTO cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        inventory = new InventoryContext(rows);
+        vehicleRepository = inventory.getBean(VehicleRepository.class);
+        PlatformTransactionManager transactionManager = inventory.getBean(PlatformTransactionManager.class);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        // The last vehicle of the page in the middle of the table
+        List<VehicleResponseDTO> middle = readOnly.execute(status ->
+                vehicleRepository.findResponsePage(sortField, ascending, rows / 2 - 1, 1));
+        cursor = middle.get(0);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        inventory.close();
+    }
+
+    @Benchmark
+    public List<VehicleResponseDTO> firstPage() {
+        return readOnly.execute(status -> vehicleRepository.findResponsePage(sortField, ascending, 0, 10));
+    }
+
+    @Benchmark
+    public List<VehicleResponseDTO> offsetPage() {
+        return readOnly.execute(status -> vehicleRepository.findResponsePage(sortField, ascending, 1000, 10));
+    }
+
+    @Benchmark
+    public List<VehicleResponseDTO> cursorPage() {
+        return readOnly.execute(status -> vehicleRepository.findResponsePageAfter(sortField, ascending,
+                sortKey(cursor), cursor.getId(), 10));
+    }
+
+    private String sortKey(VehicleResponseDTO vehicle) {
+        switch (sortField) {
+            case "model":
+                return vehicle.getModel();
+            case "year":
+                return vehicle.getYear();
+            case "licensePlate":
+                return vehicle.getLicensePlate();
+            default:
+                return vehicle.getBrand().getName();
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.technicaltest.benchmarks;
+
+import com.technicaltest.controllers.request.VehicleDTO;
+import com.technicaltest.controllers.request.VehicleResponseDTO;
+import com.technicaltest.events.VehicleChangeEvent;
+import com.technicaltest.exceptions.EntityConflictException;
+import com.technicaltest.models.VehicleEntity;
+import com.technicaltest.repositories.VehicleRepository;
+import com.technicaltest.services.BrandService;
+import com.technicaltest.services.VehicleService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.ThreadParams;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.LockModeType;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput of concurrent vehicle updates, each thread changing its own field of a few hot vehicles:
+ * the optimistic updates of VehicleService, which merge the concurrent ones, against the same write made under a
+ * row lock, which makes the threads wait for each other instead. The fewer the hot vehicles, the higher the contention.
+ *
+ * @author Wilmaryucuma7
+ * @version 1.0
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@Threads(3)
+public class VehicleUpdateContentionBenchmark {
+
+    private static final int ROWS = 10000;
+
+    @Param({"1", "64"})
+    private int hotVehicles;
+
+    private InventoryContext inventory;
+    private VehicleService vehicleService;
+    private VehicleRepository vehicleRepository;
+    private BrandService brandService;
+    private ApplicationEventPublisher eventPublisher;
+    private TransactionTemplate transactionTemplate;
+    private EntityManager entityManager;
+    private List<VehicleResponseDTO> vehicles;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        inventory = new InventoryContext(ROWS);
+        vehicleService = inventory.getBean(VehicleService.class);
+        vehicleRepository = inventory.getBean(VehicleRepository.class);
+        brandService = inventory.getBean(BrandService.class);
+        eventPublisher = inventory.getEventPublisher();
+        transactionTemplate = new TransactionTemplate(inventory.getBean(PlatformTransactionManager.class));
+        entityManager = SharedEntityManagerCreator.createSharedEntityManager(inventory.getBean(EntityManagerFactory.class));
+        vehicles = vehicles(vehicleService.getVehicles(0, hotVehicles, "licensePlate", "asc", false).getResponse());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        inventory.close();
+    }
+
+    /**
+     * The field a thread changes, and the updates that could not be merged.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Writer {
+        private int field;
+        private int value;
+        public long conflicts;
+
+        @Setup(Level.Trial)
+        public void setUp(ThreadParams threadParams) {
+            field = threadParams.getThreadIndex() % 3;
+        }
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            conflicts = 0;
+        }
+
+        private void change(VehicleDTO vehicleDTO) {
+            value++;
+            switch (field) {
+                case 0:
+                    vehicleDTO.setModel("Model " + value % 1000);
+                    break;
+                case 1:
+                    vehicleDTO.setColor(value % 2 == 0 ? "Red" : "Blue");
+                    break;
+                default:
+                    vehicleDTO.setYear(String.valueOf(2000 + value % 25));
+                    break;
+            }
+        }
+    }
+
+    @Benchmark
+    public Object optimisticUpdate(Writer writer) {
+        String id = hotVehicle();
+        VehicleDTO vehicleDTO = fieldsOf(vehicleRepository.findById(id).orElseThrow(IllegalStateException::new));
+        writer.change(vehicleDTO);
+        try {
+            return vehicleService.updateVehicle(id, vehicleDTO, null, true);
+        } catch (EntityConflictException e) {
+            writer.conflicts++;
+            return e;
+        }
+    }
+
+    @Benchmark
+    public Object pessimisticUpdate(Writer writer) {
+        String id = hotVehicle();
+        return transactionTemplate.execute(status -> {
+            VehicleEntity vehicleEntity = entityManager.find(VehicleEntity.class, id, LockModeType.PESSIMISTIC_WRITE);
+            VehicleDTO vehicleDTO = fieldsOf(vehicleEntity);
+            writer.change(vehicleDTO);
+            vehicleEntity.setModel(vehicleDTO.getModel());
+            vehicleEntity.setColor(vehicleDTO.getColor());
+            vehicleEntity.setYear(vehicleDTO.getYear());
+            vehicleEntity.setBrandEntity(brandService.findBrandById(vehicleDTO.getBrandId()));
+            entityManager.flush();
+            eventPublisher.publishEvent(VehicleChangeEvent.updated(vehicleEntity));
+            return vehicleEntity;
+        });
+    }
+
+    private String hotVehicle() {
+        return vehicles.get(ThreadLocalRandom.current().nextInt(vehicles.size())).getId();
+    }
+
+    private static VehicleDTO fieldsOf(VehicleEntity vehicleEntity) {
+        return new VehicleDTO(vehicleEntity.getModel(), vehicleEntity.getLicensePlate(), vehicleEntity.getColor(),
+                vehicleEntity.getYear(), vehicleEntity.getBrandEntity().getId());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<VehicleResponseDTO> vehicles(Object response) {
+        return (List<VehicleResponseDTO>) ((Map<String, Object>) response).get("vehicles");
+    }
+}
@@ -0,0 +1,88 @@
+package com.technicaltest;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.JCacheMetrics;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.jcache.MissingCacheStrategy;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.Properties;
+import java.util.UUID;
+
+/**
+ * The Hibernate second-level cache of the vehicles and brands, kept in Caffeine through JCache.
+ * Entities are cached read-write, so a write locks its entry until the transaction commits and the readers
+ * meanwhile go to the database. The vehicles of a brand are cached as a collection of IDs, evicted whenever a
+ * vehicle joins or leaves the brand.
+ * Each region takes its maximum size and time to live from the entity-cache.regions.[region] properties.
+ */
+@Configuration
+public class EntityCacheConfiguration {
+
+    public static final String VEHICLES = "vehicles";
+    public static final String BRANDS = "brands";
+    public static final String BRAND_VEHICLES = "brand-vehicles";
+
+    private final Environment environment;
+    private final boolean enabled;
+
+    public EntityCacheConfiguration(Environment environment, @Value("${entity-cache.enabled:true}") boolean enabled) {
+        this.environment = environment;
+        this.enabled = enabled;
+    }
+
+    @Bean(destroyMethod = "close")
+    public CacheManager entityCacheManager(ObjectProvider<MeterRegistry> meterRegistry) {
+        // One manager per application context, the test contexts must not share the regions
+        CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+                .getCacheManager(URI.create("entity-cache:" + UUID.randomUUID()), getClass().getClassLoader(), new Properties());
+        for (String region : List.of(VEHICLES, BRANDS, BRAND_VEHICLES)) {
+            Cache<Object, Object> cache = cacheManager.createCache(region, regionConfiguration(region));
+            meterRegistry.ifAvailable(registry -> JCacheMetrics.monitor(registry, cache));
+        }
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer entityCacheCustomizer(CacheManager entityCacheManager) {
+        return properties -> {
+            properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, enabled);
+            if (enabled) {
+                properties.put(AvailableSettings.CACHE_REGION_FACTORY, "jcache");
+                properties.put(ConfigSettings.CACHE_MANAGER, entityCacheManager);
+                properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, MissingCacheStrategy.FAIL.getExternalRepresentation());
+                // The vehicles of a brand are mapped by the vehicle side, which Hibernate does not evict by default
+                properties.put(AvailableSettings.AUTO_EVICT_COLLECTION_CACHE, true);
+            }
+        };
+    }
+
+    private CaffeineConfiguration<Object, Object> regionConfiguration(String region) {
+        String prefix = "entity-cache.regions." + region + ".";
+        long maximumSize = environment.getProperty(prefix + "maximum-size", Long.class, 10000L);
+        Duration expireAfterWrite = environment.getProperty(prefix + "expire-after-write", Duration.class, Duration.ofMinutes(10));
+
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        configuration.setMaximumSize(OptionalLong.of(maximumSize));
+        configuration.setExpireAfterWrite(OptionalLong.of(expireAfterWrite.toNanos()));
+        // Hibernate stores immutable disassembled state, copying it on every read and write would be wasted work
+        configuration.setStoreByValue(false);
+        configuration.setStatisticsEnabled(true);
+        return configuration;
+    }
+}
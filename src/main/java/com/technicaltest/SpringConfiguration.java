@@ -1,23 +1,64 @@
 package com.technicaltest;
 
+import com.technicaltest.controllers.ConditionalGetInterceptor;
+import com.technicaltest.services.InventoryVersion;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.resource.EncodedResourceResolver;
 import org.springframework.web.servlet.resource.PathResourceResolver;
 import org.springframework.web.servlet.resource.ResourceResolverChain;
 
 
 import javax.servlet.http.HttpServletRequest;
+import java.time.Duration;
 import java.util.List;
 
 @Configuration
 public class SpringConfiguration implements WebMvcConfigurer {
+    private static final Duration ASSETS_MAX_AGE = Duration.ofDays(365);
+
+    private final InventoryVersion inventoryVersion;
+    private final Duration cacheMaxAge;
+
+    public SpringConfiguration(InventoryVersion inventoryVersion, @Value("${http.cache.max-age:PT0S}") Duration cacheMaxAge) {
+        this.inventoryVersion = inventoryVersion;
+        this.cacheMaxAge = cacheMaxAge;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        CacheControl cacheControl = cacheMaxAge.isZero()
+                ? CacheControl.noCache()
+                : CacheControl.maxAge(cacheMaxAge).mustRevalidate();
+        registry.addInterceptor(new ConditionalGetInterceptor(inventoryVersion, cacheControl));
+    }
+
     @Override
     public void addResourceHandlers(ResourceHandlerRegistry registry) {
+        this.serveAssets(registry, "/assets/**", "classpath:/static/assets/");
         this.serveDirectory(registry, "/", "classpath:/static/");
     }
 
+    /**
+     * Serves the bundles of the SPA. Their names carry a hash of their content, so clients keep them for a year
+     * without revalidating, and the precompressed variant built next to each one is sent to the clients that accept it.
+     * A missing asset is a 404 instead of the index.html fallback, which would otherwise be kept for a year.
+     */
+    private void serveAssets(ResourceHandlerRegistry registry, String pattern, String location) {
+        registry
+                .addResourceHandler(pattern)
+                .addResourceLocations(location)
+                .setCacheControl(immutable(ASSETS_MAX_AGE))
+                .resourceChain(true)
+                .addResolver(new EncodedResourceResolver())
+                .addResolver(new PathResourceResolver());
+    }
+
     private void serveDirectory(ResourceHandlerRegistry registry, String endpoint, String location) {
         // 1
         String[] endpointPatterns = endpoint.endsWith("/")
@@ -27,17 +68,38 @@ public class SpringConfiguration implements WebMvcConfigurer {
                 // 2
                 .addResourceHandler(endpointPatterns)
                 .addResourceLocations(location.endsWith("/") ? location : location + "/")
+                // index.html is revalidated on every load, it names the assets of the current build
+                .setCacheControl(CacheControl.noCache())
                 .resourceChain(false)
                 // 3
                 .addResolver(new PathResourceResolver() {
+                    private volatile Resource index;
+
                     @Override
                     public Resource resolveResource(HttpServletRequest request, String requestPath, List<? extends Resource> locations, ResourceResolverChain chain) {
                         Resource resource = super.resolveResource(request, requestPath, locations, chain);
                         if (resource != null) {
                             return resource;
                         }
-                        return super.resolveResource(request, "/index.html", locations, chain);
+                        // Every route of the SPA falls back to index.html, which is only resolved once
+                        Resource fallback = index;
+                        if (fallback == null) {
+                            fallback = super.resolveResource(request, "/index.html", locations, chain);
+                            index = fallback;
+                        }
+                        return fallback;
                     }
                 });
     }
+
+    private static CacheControl immutable(Duration maxAge) {
+        // CacheControl only has the immutable directive from Spring 6
+        String headerValue = CacheControl.maxAge(maxAge).cachePublic().getHeaderValue() + ", immutable";
+        return new CacheControl() {
+            @Override
+            public String getHeaderValue() {
+                return headerValue;
+            }
+        };
+    }
 }
\ No newline at end of file
@@ -0,0 +1,21 @@
+package com.technicaltest;
+
+import com.technicaltest.datasource.DataSourceContext;
+import com.technicaltest.metrics.StatementCounter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.TaskDecorator;
+
+/**
+ * The task decorator of the executors built by Spring Boot, the MVC async executor and the request executor pool.
+ * It carries the per-request state kept in thread locals, the statement count and the read-your-writes flag,
+ * to the threads that run the tasks of the request.
+ */
+@Configuration
+public class TaskExecutionConfiguration {
+
+    @Bean
+    public TaskDecorator taskDecorator(StatementCounter statementCounter) {
+        return runnable -> statementCounter.decorate(DataSourceContext.decorate(runnable));
+    }
+}
@@ -1,12 +1,17 @@
 package com.technicaltest.advice;
 
 import com.technicaltest.controllers.request.ResponseDTO;
+import com.technicaltest.exceptions.CursorExpiredException;
 import com.technicaltest.exceptions.EntityAlreadyExistsException;
+import com.technicaltest.exceptions.EntityConflictException;
 import com.technicaltest.exceptions.GlobalException;
+import com.technicaltest.exceptions.PreconditionFailedException;
 import org.hibernate.TransactionException;
 import org.springframework.dao.DataAccessException;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
@@ -15,6 +20,9 @@ import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
 import javax.persistence.EntityNotFoundException;
+import javax.validation.ConstraintViolationException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Collectors;
 
 /**
  * This class is responsible for handling exceptions globally across the application.
@@ -45,6 +53,23 @@ public class CustomExceptionHandler {
                     .build(), HttpStatus.BAD_REQUEST);
      }
 
+    /**
+     * Handles validation exceptions when the fields of a partial update are not valid.
+     * @param ex the exception
+     * @return a response entity with a custom error message and HTTP status code
+     */
+    @ExceptionHandler(ConstraintViolationException.class)
+     public ResponseEntity<ResponseDTO> handleConstraintViolation(ConstraintViolationException ex) {
+        String errors = ex.getConstraintViolations().stream()
+                .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                .sorted()
+                .collect(Collectors.joining(", "));
+            return new ResponseEntity<>(ResponseDTO.builder()
+                    .error(true)
+                    .response(errors)
+                    .build(), HttpStatus.BAD_REQUEST);
+     }
+
     /**
      * Handles exceptions when the HTTP request body is not readable.
      * @param ex the exception
@@ -84,6 +109,58 @@ public class CustomExceptionHandler {
                     .build(), HttpStatus.CONFLICT);
         }
 
+    /**
+     * Handles exceptions when an entity was changed by a concurrent update.
+     * @param ex the exception
+     * @return a response entity with a custom error message and HTTP status code
+     */
+     @ExceptionHandler(EntityConflictException.class)
+        public ResponseEntity<ResponseDTO> handleEntityConflictException(EntityConflictException ex) {
+            return new ResponseEntity<>(ResponseDTO.builder()
+                    .error(true)
+                    .response(ex.getMessage())
+                    .build(), HttpStatus.CONFLICT);
+        }
+
+    /**
+     * Handles exceptions when a write lost the race against a concurrent update of the same entity.
+     * @param ex the exception
+     * @return a response entity with a custom error message and HTTP status code
+     */
+     @ExceptionHandler(OptimisticLockingFailureException.class)
+        public ResponseEntity<ResponseDTO> handleOptimisticLockingFailureException(OptimisticLockingFailureException ex) {
+            return new ResponseEntity<>(ResponseDTO.builder()
+                    .error(true)
+                    .response("El registro fue modificado por otro usuario. Por favor, vuelva a cargarlo.")
+                    .build(), HttpStatus.CONFLICT);
+        }
+
+    /**
+     * Handles exceptions when the If-Match header of an update does not hold the current version of the entity.
+     * @param ex the exception
+     * @return a response entity with a custom error message and HTTP status code
+     */
+     @ExceptionHandler(PreconditionFailedException.class)
+        public ResponseEntity<ResponseDTO> handlePreconditionFailedException(PreconditionFailedException ex) {
+            return new ResponseEntity<>(ResponseDTO.builder()
+                    .error(true)
+                    .response(ex.getMessage())
+                    .build(), HttpStatus.PRECONDITION_FAILED);
+        }
+
+    /**
+     * Handles exceptions when a consumer of the changes resumes from a cursor whose changes are no longer kept.
+     * @param ex the exception
+     * @return a response entity with a custom error message and HTTP status code
+     */
+     @ExceptionHandler(CursorExpiredException.class)
+        public ResponseEntity<ResponseDTO> handleCursorExpiredException(CursorExpiredException ex) {
+            return new ResponseEntity<>(ResponseDTO.builder()
+                    .error(true)
+                    .response(ex.getMessage())
+                    .build(), HttpStatus.GONE);
+        }
+
     /**
      * Handles exceptions when an entity is not found in the database.
      * @param ex the exception
@@ -161,6 +238,21 @@ public class CustomExceptionHandler {
                     .build(), HttpStatus.INTERNAL_SERVER_ERROR);
         }
 
+    /**
+     * Handles exceptions when the request executor is full and can not take more requests.
+     * @param ex the exception
+     * @return a response entity with a custom error message and HTTP status code
+     */
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<ResponseDTO> handleRejectedExecutionException(RejectedExecutionException ex) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(ResponseDTO.builder()
+                        .error(true)
+                        .response("El servidor está ocupado. Por favor, inténtelo de nuevo en unos segundos.")
+                        .build());
+    }
+
     /**
      * Handles all other exceptions not explicitly handled by other @ExceptionHandler methods in this class.
      * @param ex the exception
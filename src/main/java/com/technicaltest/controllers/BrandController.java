@@ -2,47 +2,78 @@ package com.technicaltest.controllers;
 
 import com.technicaltest.controllers.request.BrandDTO;
 import com.technicaltest.controllers.request.ResponseDTO;
+import com.technicaltest.services.BrandDeletionService;
 import com.technicaltest.services.BrandService;
+import com.technicaltest.utils.MergePatch;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import javax.validation.Valid;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/v1/brand")
 public class BrandController {
     private final BrandService brandService;
+    private final BrandDeletionService brandDeletionService;
+    private final RequestExecutor requestExecutor;
 
     @Autowired
-    public BrandController(BrandService brandService) {
+    public BrandController(BrandService brandService, BrandDeletionService brandDeletionService,
+                           RequestExecutor requestExecutor) {
         this.brandService = brandService;
+        this.brandDeletionService = brandDeletionService;
+        this.requestExecutor = requestExecutor;
     }
 
     @GetMapping("/get-brands")
-    public ResponseEntity<Object> getBrands() {
-        return new ResponseEntity<>(this.brandService.getBrands(), HttpStatus.OK);
+    @VersionedResponse
+    public CompletableFuture<ResponseEntity<Object>> getBrands() {
+        return requestExecutor.execute(() -> new ResponseEntity<>(this.brandService.getBrands(), HttpStatus.OK));
     }
 
     @PostMapping("/add-brand")
-    public ResponseEntity<ResponseDTO> addBrand(@Valid @RequestBody BrandDTO brandDTO) {
-        return new ResponseEntity<>(brandService.addBrand(brandDTO), HttpStatus.CREATED);
+    public CompletableFuture<ResponseEntity<ResponseDTO>> addBrand(@Valid @RequestBody BrandDTO brandDTO) {
+        return requestExecutor.execute(() -> new ResponseEntity<>(brandService.addBrand(brandDTO), HttpStatus.CREATED));
     }
 
     @GetMapping("/get-brand/{id}")
-    public ResponseEntity<ResponseDTO> getBrandById(@PathVariable String id) {
-        return new ResponseEntity<>(brandService.getBrandById(id), HttpStatus.OK);
+    public CompletableFuture<ResponseEntity<ResponseDTO>> getBrandById(@PathVariable String id,
+                                                                       @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return requestExecutor.execute(() -> EntityTags.tagged(brandService.getBrandById(id), ifNoneMatch));
     }
 
     @PutMapping("/update-brand/{id}")
-    public ResponseEntity<ResponseDTO> updateBrand(@PathVariable String id, @Valid @RequestBody BrandDTO brandDTO) {
+    public CompletableFuture<ResponseEntity<ResponseDTO>> updateBrand(@PathVariable String id, @Valid @RequestBody BrandDTO brandDTO,
+                                                                      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        Long expectedVersion = EntityTags.expectedVersion(ifMatch);
+        return requestExecutor.execute(() -> EntityTags.tagged(brandService.updateBrand(id, brandDTO, expectedVersion)));
+    }
 
-        return new ResponseEntity<>(brandService.updateBrand(id, brandDTO), HttpStatus.OK);
+    @PatchMapping(value = "/{id}", consumes = {MergePatch.MEDIA_TYPE, MediaType.APPLICATION_JSON_VALUE})
+    public CompletableFuture<ResponseEntity<ResponseDTO>> patchBrand(@PathVariable String id, @RequestBody Map<String, Object> patch,
+                                                                     @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        Long expectedVersion = EntityTags.expectedVersion(ifMatch);
+        return requestExecutor.execute(() -> EntityTags.tagged(brandService.patchBrand(id, patch, expectedVersion)));
     }
 
     @DeleteMapping("/delete-brand/{id}")
-    public ResponseEntity<ResponseDTO> deleteBrand(@PathVariable String id) {
-        return new ResponseEntity<>(brandService.deleteBrand(id), HttpStatus.OK);
+    public CompletableFuture<ResponseEntity<ResponseDTO>> deleteBrand(@PathVariable String id) {
+        return requestExecutor.execute(() -> new ResponseEntity<>(brandService.deleteBrand(id), HttpStatus.OK));
+    }
+
+    @PostMapping("/start-brand-deletion/{id}")
+    public CompletableFuture<ResponseEntity<ResponseDTO>> startBrandDeletion(@PathVariable String id) {
+        return requestExecutor.execute(() -> new ResponseEntity<>(brandDeletionService.startDeletion(id), HttpStatus.ACCEPTED));
+    }
+
+    @GetMapping("/get-brand-deletion/{id}")
+    public CompletableFuture<ResponseEntity<ResponseDTO>> getBrandDeletion(@PathVariable String id) {
+        return requestExecutor.execute(() -> new ResponseEntity<>(brandDeletionService.getDeletion(id), HttpStatus.OK));
     }
 }
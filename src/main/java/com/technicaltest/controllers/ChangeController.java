@@ -0,0 +1,44 @@
+package com.technicaltest.controllers;
+
+import com.technicaltest.controllers.request.ResponseDTO;
+import com.technicaltest.services.ChangeFeedService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+@RestController
+@RequestMapping("/api/v1/changes")
+public class ChangeController {
+    private final ChangeFeedService changeFeedService;
+    private final RequestExecutor requestExecutor;
+
+    @Autowired
+    public ChangeController(ChangeFeedService changeFeedService, RequestExecutor requestExecutor) {
+        this.changeFeedService = changeFeedService;
+        this.requestExecutor = requestExecutor;
+    }
+
+    @GetMapping
+    public CompletableFuture<ResponseEntity<ResponseDTO>> getChanges(@RequestParam(required = false) Long since,
+                                                                     @RequestParam(defaultValue = "100") int limit,
+                                                                     @RequestParam(name = "wait", defaultValue = "0") long waitSeconds) {
+        Duration wait = Duration.ofSeconds(Math.max(waitSeconds, 0));
+        // A long poll holds no thread while it waits, the relay completes it when it hands the next changes out
+        return requestExecutor.execute(() -> changeFeedService.getChanges(since, limit, wait))
+                .thenCompose(changes -> changes)
+                .thenApply(changes -> new ResponseEntity<>(changes, HttpStatus.OK));
+    }
+
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamChanges(@RequestParam(required = false) Long since,
+                                    @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        // A reconnecting EventSource resumes after the last event it received
+        return changeFeedService.streamChanges(lastEventId != null ? lastEventId : since);
+    }
+}
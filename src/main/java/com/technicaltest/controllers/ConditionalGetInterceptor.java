@@ -0,0 +1,63 @@
+package com.technicaltest.controllers;
+
+import com.technicaltest.datasource.DataSourceContext;
+import com.technicaltest.services.InventoryVersion;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Answers the conditional GETs of the endpoints annotated with {@link VersionedResponse}.
+ * The ETag is read from the version of the inventory before the handler runs: a request holding it gets a 304 straight
+ * away, without reading or serializing anything, and any other request gets it with the response.
+ * The version and the response are read from the same replica, the request is pinned to the one its first read
+ * picks: a version read from a replica that lags less could otherwise tag older data with a version another instance
+ * already handed out. As the version is read before the data, a response can only be tagged older than it is, which
+ * costs the client a refetch. A client that has just written reads both from the primary database instead.
+ */
+public class ConditionalGetInterceptor implements AsyncHandlerInterceptor {
+
+    private final InventoryVersion inventoryVersion;
+    private final String cacheControl;
+
+    /**
+     * Constructor for ConditionalGetInterceptor.
+     *
+     * @param inventoryVersion the version of the inventory
+     * @param cacheControl the Cache-Control of the versioned responses
+     */
+    public ConditionalGetInterceptor(InventoryVersion inventoryVersion, CacheControl cacheControl) {
+        this.inventoryVersion = inventoryVersion;
+        this.cacheControl = cacheControl.getHeaderValue();
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // The async dispatch of a handler already went through here, its ETag must not be taken again
+        if (!(handler instanceof HandlerMethod) || request.getDispatcherType() != DispatcherType.REQUEST) {
+            return true;
+        }
+        if (!((HandlerMethod) handler).hasMethodAnnotation(VersionedResponse.class)) {
+            return true;
+        }
+        DataSourceContext.pinReplica();
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl);
+        return !new ServletWebRequest(request, response).checkNotModified(inventoryVersion.etag());
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        DataSourceContext.clear();
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        DataSourceContext.clear();
+    }
+}
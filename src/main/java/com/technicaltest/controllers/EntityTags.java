@@ -0,0 +1,91 @@
+package com.technicaltest.controllers;
+
+import com.technicaltest.controllers.request.ResponseDTO;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+/**
+ * The ETags of a single vehicle or brand, made of its version. The single brand endpoint answers with it, so the ETag
+ * a client reads is the one its updates send back. A single vehicle is returned with the name of its brand, so its
+ * read is tagged weakly with both versions, and renaming the brand changes it; its updates take the version of the
+ * body instead. An update whose If-Match header holds a version only succeeds while the entity still has it, and
+ * answers with the ETag of the version it wrote, so a client can chain its edits without reading the entity again.
+ * The listings are tagged with the version of the inventory instead, see {@link VersionedResponse}.
+ */
+final class EntityTags {
+
+    /**
+     * The version no entity has, for the If-Match headers that can never match.
+     */
+    static final long NO_VERSION = -1;
+    private static final String ANY = "*";
+    private static final String QUOTE = "\"";
+    private static final String WEAK = "W/";
+
+    private EntityTags() {
+    }
+
+    /**
+     * Reads the version an If-Match header requires.
+     * If-Match compares tags strongly, so a weak tag, like any tag that is not a version, matches no version.
+     *
+     * @param ifMatch the If-Match header, may be null
+     * @return the version, null if the header is missing or matches any version, or NO_VERSION
+     */
+    static Long expectedVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.trim().equals(ANY)) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        if (tag.length() < 3 || !tag.startsWith(QUOTE) || !tag.endsWith(QUOTE)) {
+            return NO_VERSION;
+        }
+        try {
+            return Long.parseLong(tag.substring(1, tag.length() - 1));
+        } catch (NumberFormatException e) {
+            return NO_VERSION;
+        }
+    }
+
+    /**
+     * Answers a read of a single vehicle or brand with the ETag of its version, or with a 304 when the If-None-Match
+     * header already holds it. If-None-Match compares tags weakly, so the weak form of the tag matches too.
+     * A read that carries the version of a brand is tagged weakly with both versions, a tag If-Match never accepts.
+     *
+     * @param response the response of the read
+     * @param ifNoneMatch the If-None-Match header, may be null
+     * @return the response entity
+     */
+    static ResponseEntity<ResponseDTO> tagged(ResponseDTO response, String ifNoneMatch) {
+        String opaqueTag = response.getBrandVersion() == null
+                ? QUOTE + response.getVersion() + QUOTE
+                : QUOTE + response.getVersion() + "-" + response.getBrandVersion() + QUOTE;
+        String etag = response.getBrandVersion() == null ? opaqueTag : WEAK + opaqueTag;
+        if (ifNoneMatch != null) {
+            for (String tag : ifNoneMatch.split(",")) {
+                String candidate = tag.trim();
+                if (candidate.startsWith(WEAK)) {
+                    candidate = candidate.substring(WEAK.length());
+                }
+                if (candidate.equals(ANY) || candidate.equals(opaqueTag)) {
+                    return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+                }
+            }
+        }
+        return ResponseEntity.status(HttpStatus.OK)
+                .eTag(etag)
+                .body(response);
+    }
+
+    /**
+     * Answers an update with the ETag of the version it wrote.
+     *
+     * @param response the response of the update
+     * @return the response entity
+     */
+    static ResponseEntity<ResponseDTO> tagged(ResponseDTO response) {
+        return ResponseEntity.status(HttpStatus.OK)
+                .eTag(QUOTE + response.getVersion() + QUOTE)
+                .body(response);
+    }
+}
@@ -0,0 +1,91 @@
+package com.technicaltest.controllers;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.task.TaskExecutorBuilder;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Runs the service calls of the REST controllers.
+ * In the blocking mode a call runs on the servlet thread that received the request, as in a plain handler.
+ * In the async mode it runs on a bounded pool sized apart from the servlet threads: when the database slows down
+ * the calls wait in the queue of this pool instead of holding every servlet thread, and once the queue is full
+ * new calls are rejected right away and answered with 503.
+ */
+@Component
+public class RequestExecutor implements DisposableBean {
+
+    public static final String ASYNC = "async";
+    private final ThreadPoolTaskExecutor executor;
+
+    /**
+     * Constructor for RequestExecutor.
+     *
+     * @param mode the execution mode, "blocking" or "async"
+     * @param poolSize the number of threads of the async pool
+     * @param queueCapacity the number of calls the async pool queues before rejecting new ones
+     * @param taskExecutorBuilder the builder of the async pool, with the task decorators of the application
+     * @param meterRegistry the registry of the pool metrics
+     */
+    @Autowired
+    public RequestExecutor(@Value("${request.execution.mode:blocking}") String mode,
+                           @Value("${request.execution.pool-size:20}") int poolSize,
+                           @Value("${request.execution.queue-capacity:1000}") int queueCapacity,
+                           TaskExecutorBuilder taskExecutorBuilder,
+                           MeterRegistry meterRegistry) {
+        this(ASYNC.equalsIgnoreCase(mode) ? taskExecutorBuilder
+                .corePoolSize(poolSize)
+                .maxPoolSize(poolSize)
+                .queueCapacity(queueCapacity)
+                .threadNamePrefix("request-")
+                .build() : null);
+        if (executor != null) {
+            executor.initialize();
+            new ExecutorServiceMetrics(executor.getThreadPoolExecutor(), "request.executor", Tags.empty()).bindTo(meterRegistry);
+        }
+    }
+
+    RequestExecutor(ThreadPoolTaskExecutor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Returns a RequestExecutor that runs every call on the calling thread.
+     *
+     * @return the RequestExecutor
+     */
+    public static RequestExecutor blocking() {
+        return new RequestExecutor(null);
+    }
+
+    /**
+     * Runs a service call in the configured mode.
+     * In the blocking mode the exceptions of the call are thrown by this method, in the async mode they complete
+     * the future exceptionally and Spring MVC hands them to the exception handlers.
+     *
+     * @param call the service call
+     * @return the future result of the call, already completed in the blocking mode
+     * @throws java.util.concurrent.RejectedExecutionException if the async pool and its queue are full
+     */
+    public <T> CompletableFuture<T> execute(Supplier<T> call) {
+        if (executor == null) {
+            return CompletableFuture.completedFuture(call.get());
+        }
+        return CompletableFuture.supplyAsync(call, executor);
+    }
+
+    @Override
+    public void destroy() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+}
@@ -1,59 +1,153 @@
 package com.technicaltest.controllers;
 
 import com.technicaltest.controllers.request.ResponseDTO;
+import com.technicaltest.controllers.request.VehicleBulkDTO;
 import com.technicaltest.controllers.request.VehicleDTO;
+import com.technicaltest.controllers.request.VehicleFilterDTO;
+import com.technicaltest.services.VehicleBulkService;
+import com.technicaltest.services.VehicleExportService;
+import com.technicaltest.services.VehicleImportService;
 import com.technicaltest.services.VehicleService;
+import com.technicaltest.utils.MergePatch;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.validation.Valid;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/v1/vehicle")
 public class VehicleController {
     private final VehicleService vehicleService;
+    private final VehicleImportService vehicleImportService;
+    private final VehicleExportService vehicleExportService;
+    private final VehicleBulkService vehicleBulkService;
+    private final RequestExecutor requestExecutor;
 
-    public VehicleController(VehicleService vehicleService) {
+    public VehicleController(VehicleService vehicleService, VehicleImportService vehicleImportService,
+                             VehicleExportService vehicleExportService, VehicleBulkService vehicleBulkService,
+                             RequestExecutor requestExecutor) {
         this.vehicleService = vehicleService;
+        this.vehicleImportService = vehicleImportService;
+        this.vehicleExportService = vehicleExportService;
+        this.vehicleBulkService = vehicleBulkService;
+        this.requestExecutor = requestExecutor;
     }
 
     @GetMapping("/get-vehicles/{sortField}/{sortDirection}/{currentPage}")
-    public ResponseEntity<ResponseDTO> getVehicles(@PathVariable String sortField, @PathVariable String sortDirection, @PathVariable int currentPage) {
-        if(currentPage < 0){
-            currentPage = 0;
-        }
-        if(sortField.equals("brand"))
-            sortField = "brandEntity.name";
-        return new ResponseEntity<>(this.vehicleService.getVehicles(currentPage, 10, sortField, sortDirection), HttpStatus.OK);
+    @VersionedResponse
+    public CompletableFuture<ResponseEntity<ResponseDTO>> getVehicles(@PathVariable String sortField, @PathVariable String sortDirection, @PathVariable int currentPage,
+                                                                      @RequestParam(defaultValue = "false") boolean approximateCount) {
+        int page = Math.max(currentPage, 0);
+        String field = sortField.equals("brand") ? "brandEntity.name" : sortField;
+        return requestExecutor.execute(() ->
+                new ResponseEntity<>(this.vehicleService.getVehicles(page, 10, field, sortDirection, approximateCount), HttpStatus.OK));
+    }
+
+    @GetMapping("/get-vehicles-cursor/{sortField}/{sortDirection}")
+    @VersionedResponse
+    public CompletableFuture<ResponseEntity<ResponseDTO>> getVehiclesAfter(@PathVariable String sortField, @PathVariable String sortDirection,
+                                                                           @RequestParam(required = false) String cursor,
+                                                                           @RequestParam(defaultValue = "false") boolean withTotal) {
+        String field = sortField.equals("brand") ? "brandEntity.name" : sortField;
+        return requestExecutor.execute(() ->
+                new ResponseEntity<>(this.vehicleService.getVehiclesAfter(cursor, 10, field, sortDirection, withTotal), HttpStatus.OK));
     }
 
     @GetMapping("/search-vehicles/{search}/{currentPage}")
-    public ResponseEntity<ResponseDTO> searchVehicles(@PathVariable String search, @PathVariable int currentPage) {
-        if(currentPage < 0){
-            currentPage = 0;
-        }
-        return new ResponseEntity<>(this.vehicleService.searchVehicles(search,currentPage,10), HttpStatus.OK);
+    @VersionedResponse
+    public CompletableFuture<ResponseEntity<ResponseDTO>> searchVehicles(@PathVariable String search, @PathVariable int currentPage,
+                                                                         @RequestParam(defaultValue = "false") boolean approximateCount) {
+        int page = Math.max(currentPage, 0);
+        return requestExecutor.execute(() ->
+                new ResponseEntity<>(this.vehicleService.searchVehicles(search, page, 10, approximateCount), HttpStatus.OK));
+    }
+
+    @GetMapping("/search-vehicles-cursor/{search}")
+    @VersionedResponse
+    public CompletableFuture<ResponseEntity<ResponseDTO>> searchVehiclesAfter(@PathVariable String search,
+                                                                              @RequestParam(required = false) String cursor,
+                                                                              @RequestParam(defaultValue = "false") boolean withTotal) {
+        return requestExecutor.execute(() ->
+                new ResponseEntity<>(this.vehicleService.searchVehiclesAfter(search, cursor, 10, withTotal), HttpStatus.OK));
+    }
+
+    @GetMapping("/facet-search-vehicles/{currentPage}")
+    @VersionedResponse
+    public CompletableFuture<ResponseEntity<ResponseDTO>> searchVehiclesByFacets(@PathVariable int currentPage,
+                                                                                 @RequestParam(required = false) Set<String> brandId,
+                                                                                 @RequestParam(required = false) String yearFrom,
+                                                                                 @RequestParam(required = false) String yearTo,
+                                                                                 @RequestParam(required = false) Set<String> color,
+                                                                                 @RequestParam(defaultValue = "false") boolean approximateCount) {
+        int page = Math.max(currentPage, 0);
+        VehicleFilterDTO filter = new VehicleFilterDTO(brandId, yearFrom, yearTo, color);
+        return requestExecutor.execute(() ->
+                new ResponseEntity<>(this.vehicleService.searchVehiclesByFacets(filter, page, 10, approximateCount), HttpStatus.OK));
     }
 
     @GetMapping("/get-vehicle/{id}")
-    public ResponseEntity<ResponseDTO> getVehicle(@PathVariable String id) {
-        return new ResponseEntity<>(this.vehicleService.getVehicleById(id), HttpStatus.OK);
+    public CompletableFuture<ResponseEntity<ResponseDTO>> getVehicle(@PathVariable String id,
+                                                                     @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return requestExecutor.execute(() -> EntityTags.tagged(this.vehicleService.getVehicleById(id), ifNoneMatch));
     }
 
     @PostMapping("/add-vehicle")
-    public ResponseEntity<ResponseDTO> addVehicle(@Valid @RequestBody VehicleDTO vehicleDTO) {
-        return new ResponseEntity<>(this.vehicleService.addVehicle(vehicleDTO), HttpStatus.CREATED);
+    public CompletableFuture<ResponseEntity<ResponseDTO>> addVehicle(@Valid @RequestBody VehicleDTO vehicleDTO) {
+        return requestExecutor.execute(() -> new ResponseEntity<>(this.vehicleService.addVehicle(vehicleDTO), HttpStatus.CREATED));
+    }
+
+    // The import reads the request body while it runs, so it stays on the servlet thread
+    @PostMapping(value = "/import-vehicles", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<ResponseDTO> importVehicles(InputStream content) {
+        return new ResponseEntity<>(this.vehicleImportService.importVehicles(content), HttpStatus.OK);
+    }
+
+    @GetMapping("/export-vehicles")
+    public ResponseEntity<StreamingResponseBody> exportVehicles(@RequestParam(defaultValue = "ndjson") String format) {
+        VehicleExportService.Format exportFormat = VehicleExportService.Format.of(format);
+        StreamingResponseBody body = output -> this.vehicleExportService.exportVehicles(exportFormat, output);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=vehicles." + exportFormat.getExtension())
+                .body(body);
     }
 
     @PutMapping("/update-vehicle/{id}")
-    public ResponseEntity<ResponseDTO> updateVehicle(@PathVariable String id, @Valid @RequestBody VehicleDTO vehicleDTO) {
-        return new ResponseEntity<>(this.vehicleService.updateVehicle(id, vehicleDTO), HttpStatus.OK);
+    public CompletableFuture<ResponseEntity<ResponseDTO>> updateVehicle(@PathVariable String id, @Valid @RequestBody VehicleDTO vehicleDTO,
+                                                                        @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                                                        @RequestParam(defaultValue = "false") boolean merge) {
+        Long expectedVersion = EntityTags.expectedVersion(ifMatch);
+        return requestExecutor.execute(() -> EntityTags.tagged(this.vehicleService.updateVehicle(id, vehicleDTO, expectedVersion, merge)));
+    }
+
+    @PatchMapping(value = "/{id}", consumes = {MergePatch.MEDIA_TYPE, MediaType.APPLICATION_JSON_VALUE})
+    public CompletableFuture<ResponseEntity<ResponseDTO>> patchVehicle(@PathVariable String id, @RequestBody Map<String, Object> patch,
+                                                                       @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        Long expectedVersion = EntityTags.expectedVersion(ifMatch);
+        return requestExecutor.execute(() -> EntityTags.tagged(this.vehicleService.patchVehicle(id, patch, expectedVersion)));
     }
 
     @DeleteMapping("/delete-vehicle/{id}")
-    public ResponseEntity<ResponseDTO> deleteVehicle(@PathVariable String id) {
-        return new ResponseEntity<>(this.vehicleService.deleteVehicle(id), HttpStatus.OK);
+    public CompletableFuture<ResponseEntity<ResponseDTO>> deleteVehicle(@PathVariable String id) {
+        return requestExecutor.execute(() -> new ResponseEntity<>(this.vehicleService.deleteVehicle(id), HttpStatus.OK));
+    }
+
+    @PostMapping("/bulk-update-vehicles")
+    public CompletableFuture<ResponseEntity<ResponseDTO>> updateVehicles(@RequestBody VehicleBulkDTO bulkDTO) {
+        return requestExecutor.execute(() -> new ResponseEntity<>(this.vehicleBulkService.updateVehicles(bulkDTO), HttpStatus.OK));
+    }
+
+    @PostMapping("/bulk-delete-vehicles")
+    public CompletableFuture<ResponseEntity<ResponseDTO>> deleteVehicles(@RequestBody VehicleBulkDTO bulkDTO) {
+        return requestExecutor.execute(() -> new ResponseEntity<>(this.vehicleBulkService.deleteVehicles(bulkDTO), HttpStatus.OK));
     }
 
 }
@@ -0,0 +1,18 @@
+package com.technicaltest.controllers;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a GET endpoint whose response only changes when the inventory changes.
+ * The endpoint answers with an ETag made of the version of the inventory, and a request whose If-None-Match
+ * holds the current ETag gets a 304 without running the handler.
+ *
+ * @see ConditionalGetInterceptor
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface VersionedResponse {
+}
@@ -0,0 +1,32 @@
+package com.technicaltest.controllers.request;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class BrandDeletionDTO {
+    private String id;
+    private String brandId;
+
+    /**
+     * RUNNING, COMPLETED or FAILED.
+     */
+    private String status;
+
+    /**
+     * The number of vehicles of the brand when the deletion started.
+     */
+    private long totalVehicles;
+
+    private long deletedVehicles;
+    private Instant startedAt;
+    private Instant finishedAt;
+    private String error;
+}
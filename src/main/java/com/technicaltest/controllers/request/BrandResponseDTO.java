@@ -1,5 +1,6 @@
 package com.technicaltest.controllers.request;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -12,4 +13,14 @@ import lombok.NoArgsConstructor;
 public class BrandResponseDTO {
     private String id;
     private String name;
+
+    /**
+     * The version of the brand, only written by the endpoint that returns a single brand.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long version;
+
+    public BrandResponseDTO(String id, String name) {
+        this(id, name, null);
+    }
 }
@@ -0,0 +1,45 @@
+package com.technicaltest.controllers.request;
+
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * A change of the inventory, as handed out by the outbox relay and streamed by the changes endpoint.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ChangeEventDTO {
+
+    /**
+     * The position of the change in the stream, the cursor a consumer resumes from.
+     */
+    private long sequence;
+
+    /**
+     * VEHICLE or BRAND.
+     */
+    private String entityType;
+
+    private String entityId;
+
+    /**
+     * CREATED, UPDATED or DELETED.
+     */
+    private String type;
+
+    /**
+     * The vehicle or brand after the change, as the endpoints that read a single one return it, or null when it
+     * was deleted. It is written as stored, without being parsed again.
+     */
+    @JsonRawValue
+    private String data;
+
+    private Instant occurredAt;
+}
@@ -0,0 +1,16 @@
+package com.technicaltest.controllers.request;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class FacetCountDTO {
+    private String value;
+    private String label;
+    private long count;
+}
@@ -0,0 +1,18 @@
+package com.technicaltest.controllers.request;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ImportErrorDTO {
+    private int row;
+    private String licensePlate;
+    private List<String> errors;
+}
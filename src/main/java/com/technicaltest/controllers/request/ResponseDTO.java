@@ -1,5 +1,6 @@
 package com.technicaltest.controllers.request;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -12,4 +13,17 @@ import lombok.NoArgsConstructor;
 public class ResponseDTO {
     private Boolean error;
     private Object response;
+
+    /**
+     * The version of the vehicle or brand a write left behind, sent as the ETag of the response rather than in its body.
+     */
+    @JsonIgnore
+    private Long version;
+
+    /**
+     * The version of the brand a single vehicle read carries, which the ETag of the read covers along with the
+     * version of the vehicle, as the vehicle is returned with the name of its brand.
+     */
+    @JsonIgnore
+    private Long brandVersion;
 }
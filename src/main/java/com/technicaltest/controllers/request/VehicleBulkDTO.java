@@ -0,0 +1,31 @@
+package com.technicaltest.controllers.request;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The vehicles a bulk update or a bulk delete applies to, selected either by their IDs or by a filter, never both.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class VehicleBulkDTO {
+    private List<String> ids;
+
+    /**
+     * The facets the vehicles must match. It needs at least one of them, a filter without any would select every vehicle.
+     */
+    private VehicleFilterDTO filter;
+
+    /**
+     * The fields a bulk update sets on every vehicle, read like a JSON Merge Patch of a vehicle.
+     * The license plate is unique to each vehicle, so it can not be one of them.
+     */
+    private Map<String, Object> changes;
+}
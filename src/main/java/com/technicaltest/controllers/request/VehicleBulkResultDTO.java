@@ -0,0 +1,23 @@
+package com.technicaltest.controllers.request;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class VehicleBulkResultDTO {
+
+    /**
+     * The number of vehicles updated or deleted. IDs of vehicles that do not exist are not counted.
+     */
+    private long affectedVehicles;
+
+    /**
+     * The number of transactions the vehicles were processed in.
+     */
+    private int chunks;
+}
@@ -0,0 +1,35 @@
+package com.technicaltest.controllers.request;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Set;
+
+/**
+ * The facets a vehicle search is filtered by. A null or empty set and a null bound do not filter,
+ * values of the same facet are alternatives and different facets must all match.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class VehicleFilterDTO {
+    private Set<String> brandIds;
+
+    /**
+     * The first year of the range, inclusive. Years are compared as the four digits VehicleDTO allows.
+     */
+    private String yearFrom;
+
+    /**
+     * The last year of the range, inclusive.
+     */
+    private String yearTo;
+
+    /**
+     * The colors, compared ignoring case like the database does.
+     */
+    private Set<String> colors;
+}
@@ -1,5 +1,7 @@
 package com.technicaltest.controllers.request;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -16,5 +18,24 @@ public class VehicleResponseDTO {
         private String licensePlate;
         private String color;
         private String year;
+
+        /**
+         * Written as "brandEntity", the name the front end reads the brand from.
+         */
+        @JsonProperty("brandEntity")
         private BrandResponseDTO brand;
+
+        /**
+         * The version of the vehicle, only written by the endpoints that return a single vehicle.
+         */
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        private Long version;
+
+        /**
+         * Constructor used by the JPQL constructor expressions of the VehicleRepository.
+         */
+        public VehicleResponseDTO(String id, String model, String licensePlate, String color, String year,
+                                  String brandId, String brandName) {
+                this(id, model, licensePlate, color, year, new BrandResponseDTO(brandId, brandName), null);
+        }
 }
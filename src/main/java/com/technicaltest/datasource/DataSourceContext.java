@@ -0,0 +1,106 @@
+package com.technicaltest.datasource;
+
+import java.util.function.IntSupplier;
+
+/**
+ * Holds, for the current thread, where its read-only transactions go.
+ * They must use the primary database instead of a replica for the requests of a client that has just written, so it
+ * reads its own writes even if the replicas lag. They can also be pinned to a single replica, so that a request
+ * whose reads must agree with each other does not mix replicas that lag by different amounts.
+ */
+public final class DataSourceContext {
+
+    private static final ThreadLocal<Routing> ROUTING = new ThreadLocal<>();
+
+    private DataSourceContext() {
+    }
+
+    /**
+     * Sends the read-only transactions of the current thread to the primary database.
+     */
+    public static void requirePrimary() {
+        routing().primary = true;
+    }
+
+    /**
+     * @return whether the read-only transactions of the current thread must use the primary database
+     */
+    public static boolean isPrimaryRequired() {
+        Routing routing = ROUTING.get();
+        return routing != null && routing.primary;
+    }
+
+    /**
+     * Sends the read-only transactions of the current thread, and of the tasks it hands out, to the replica the first
+     * of them picks.
+     */
+    public static void pinReplica() {
+        routing().pinned = true;
+    }
+
+    /**
+     * Returns the replica a read-only transaction of the current thread uses.
+     *
+     * @param selection picks a replica, only called once for a thread pinned to a replica
+     * @return the index of the replica
+     */
+    public static int replica(IntSupplier selection) {
+        Routing routing = ROUTING.get();
+        if (routing == null || !routing.pinned) {
+            return selection.getAsInt();
+        }
+        synchronized (routing) {
+            if (routing.replica == null) {
+                routing.replica = selection.getAsInt();
+            }
+            return routing.replica;
+        }
+    }
+
+    /**
+     * Lets the read-only transactions of the current thread use any replica again.
+     */
+    public static void clear() {
+        ROUTING.remove();
+    }
+
+    /**
+     * Carries the state of the submitting thread to a task run on another thread. The task shares it, so a replica
+     * picked by either of them is used by both.
+     *
+     * @param runnable the task
+     * @return the task that runs with the state of the submitting thread
+     */
+    public static Runnable decorate(Runnable runnable) {
+        Routing routing = ROUTING.get();
+        if (routing == null) {
+            return runnable;
+        }
+        return () -> {
+            ROUTING.set(routing);
+            try {
+                runnable.run();
+            } finally {
+                clear();
+            }
+        };
+    }
+
+    private static Routing routing() {
+        Routing routing = ROUTING.get();
+        if (routing == null) {
+            routing = new Routing();
+            ROUTING.set(routing);
+        }
+        return routing;
+    }
+
+    /**
+     * Where the read-only transactions of a request go.
+     */
+    private static final class Routing {
+        private volatile boolean primary;
+        private volatile boolean pinned;
+        private Integer replica;
+    }
+}
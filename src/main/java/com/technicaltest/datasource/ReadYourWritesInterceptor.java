@@ -0,0 +1,62 @@
+package com.technicaltest.datasource;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.util.WebUtils;
+
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.time.Duration;
+
+/**
+ * Lets a client read its own writes while the replicas catch up.
+ * A request that can write marks its client with a cookie that lasts the read-your-writes window, and every request
+ * carrying the cookie reads from the primary database.
+ */
+public class ReadYourWritesInterceptor implements AsyncHandlerInterceptor {
+
+    public static final String COOKIE_NAME = "read-primary";
+
+    private final Duration window;
+
+    /**
+     * Constructor for ReadYourWritesInterceptor.
+     *
+     * @param window how long the client reads from the primary database after a write
+     */
+    public ReadYourWritesInterceptor(Duration window) {
+        this.window = window;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (isWrite(request)) {
+            // Set before the handler runs, the response may already be committed when it returns
+            Cookie cookie = new Cookie(COOKIE_NAME, "1");
+            cookie.setMaxAge((int) window.getSeconds());
+            cookie.setPath("/");
+            cookie.setHttpOnly(true);
+            response.addCookie(cookie);
+            DataSourceContext.requirePrimary();
+        } else if (WebUtils.getCookie(request, COOKIE_NAME) != null) {
+            DataSourceContext.requirePrimary();
+        }
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        DataSourceContext.clear();
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        DataSourceContext.clear();
+    }
+
+    private static boolean isWrite(HttpServletRequest request) {
+        HttpMethod method = HttpMethod.resolve(request.getMethod());
+        return method == HttpMethod.POST || method == HttpMethod.PUT || method == HttpMethod.PATCH || method == HttpMethod.DELETE;
+    }
+}
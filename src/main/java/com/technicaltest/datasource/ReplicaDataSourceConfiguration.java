@@ -0,0 +1,90 @@
+package com.technicaltest.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read replicas, enabled when replica.datasource.urls lists at least one replica.
+ * The primary pool is configured by the spring.datasource properties as before, the replica pools use the same
+ * driver and, unless replica.datasource.username and password are set, the same credentials.
+ * Read-only transactions go to the replicas, everything else to the primary.
+ */
+@Configuration
+@ConditionalOnProperty("replica.datasource.urls")
+public class ReplicaDataSourceConfiguration implements WebMvcConfigurer {
+
+    private final Duration readYourWritesWindow;
+
+    public ReplicaDataSourceConfiguration(@Value("${replica.read-your-writes.window:PT5S}") Duration readYourWritesWindow) {
+        this.readYourWritesWindow = readYourWritesWindow;
+    }
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    public ReplicaRoutingDataSource replicaRoutingDataSource(HikariDataSource primaryDataSource,
+                                                             DataSourceProperties properties,
+                                                             @Value("${replica.datasource.urls}") List<String> urls,
+                                                             @Value("${replica.datasource.username:${spring.datasource.username:}}") String username,
+                                                             @Value("${replica.datasource.password:${spring.datasource.password:}}") String password,
+                                                             @Value("${replica.datasource.maximum-pool-size:10}") int maximumPoolSize,
+                                                             @Value("${replica.datasource.selection:round-robin}") String selection) {
+        List<HikariDataSource> replicas = new ArrayList<>(urls.size());
+        for (String url : urls) {
+            HikariDataSource replica = new HikariDataSource();
+            replica.setPoolName("replica-" + replicas.size());
+            replica.setJdbcUrl(url.trim());
+            replica.setDriverClassName(properties.determineDriverClassName());
+            replica.setUsername(username);
+            replica.setPassword(password);
+            replica.setMaximumPoolSize(maximumPoolSize);
+            replica.setReadOnly(true);
+            replicas.add(replica);
+        }
+        return new ReplicaRoutingDataSource(primaryDataSource, replicas, ReplicaRoutingDataSource.Selection.of(selection));
+    }
+
+    /**
+     * Publishes the HikariCP metrics of the replica pools, as Spring Boot does for the primary pool.
+     */
+    @Bean
+    public MeterBinder replicaPoolMetrics(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return registry -> replicaRoutingDataSource.getReplicas().forEach(replica -> replica.setMetricRegistry(registry));
+    }
+
+    /**
+     * The DataSource of the application, it takes the connection of a transaction on its first statement,
+     * once the transaction is known to be read-only or not.
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        if (!readYourWritesWindow.isZero()) {
+            registry.addInterceptor(new ReadYourWritesInterceptor(readYourWritesWindow));
+        }
+    }
+}
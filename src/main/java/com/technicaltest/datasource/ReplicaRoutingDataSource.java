@@ -0,0 +1,108 @@
+package com.technicaltest.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * DataSource that sends the connections of read-only transactions to one of the replica pools and every other
+ * connection to the primary pool. A thread pinned to a replica by the DataSourceContext keeps the one it picked first. The transaction must be known when the connection is taken, so this DataSource
+ * is used behind a LazyConnectionDataSourceProxy, which takes the connection on the first statement.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements DisposableBean {
+
+    static final String PRIMARY = "primary";
+
+    private final List<HikariDataSource> replicas;
+    private final Selection selection;
+    private final AtomicInteger next = new AtomicInteger();
+
+    /**
+     * How a read-only transaction picks its replica.
+     */
+    public enum Selection {
+        /**
+         * Each read-only transaction takes the replica after the one of the previous transaction.
+         */
+        ROUND_ROBIN,
+        /**
+         * Each read-only transaction takes the replica with the fewest connections in use.
+         */
+        LEAST_LOADED;
+
+        /**
+         * Returns the selection with the given name, such as "round-robin", ignoring case.
+         *
+         * @param name the name of the selection
+         * @return the selection
+         */
+        public static Selection of(String name) {
+            return valueOf(name.trim().replace('-', '_').toUpperCase(Locale.ROOT));
+        }
+    }
+
+    /**
+     * Constructor for ReplicaRoutingDataSource.
+     *
+     * @param primary the pool of the primary database
+     * @param replicas the pools of the replicas, closed with this DataSource
+     * @param selection how a read-only transaction picks its replica
+     */
+    public ReplicaRoutingDataSource(DataSource primary, List<HikariDataSource> replicas, Selection selection) {
+        this.replicas = replicas;
+        this.selection = selection;
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        for (int i = 0; i < replicas.size(); i++) {
+            targets.put(i, replicas.get(i));
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+    }
+
+    List<HikariDataSource> getReplicas() {
+        return replicas;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (replicas.isEmpty() || !TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                || DataSourceContext.isPrimaryRequired()) {
+            return PRIMARY;
+        }
+        return DataSourceContext.replica(this::selectReplica);
+    }
+
+    private int selectReplica() {
+        if (selection == Selection.LEAST_LOADED) {
+            return leastLoadedReplica();
+        }
+        return Math.floorMod(next.getAndIncrement(), replicas.size());
+    }
+
+    private int leastLoadedReplica() {
+        int best = 0;
+        int bestActive = Integer.MAX_VALUE;
+        for (int i = 0; i < replicas.size(); i++) {
+            // The pool is only created with the first connection, an unused replica has no active connections
+            HikariPoolMXBean pool = replicas.get(i).getHikariPoolMXBean();
+            int active = pool == null ? 0 : pool.getActiveConnections();
+            if (active < bestActive) {
+                best = i;
+                bestActive = active;
+            }
+        }
+        return best;
+    }
+
+    @Override
+    public void destroy() {
+        replicas.forEach(HikariDataSource::close);
+    }
+}
@@ -0,0 +1,50 @@
+package com.technicaltest.events;
+
+import com.technicaltest.models.BrandEntity;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * BrandChangeEvent is published by the BrandService every time a brand is created, updated or deleted.
+ * Deleting a brand also removes its vehicles, so listeners must treat a DELETED brand as a bulk vehicle removal.
+ *
+ * @author Wilmaryucuma7
+ * @version 1.0
+ *
+ */
+@Getter
+@AllArgsConstructor
+public class BrandChangeEvent {
+
+    /**
+     * The kind of change applied to the brand.
+     */
+    public enum Type { CREATED, UPDATED, DELETED }
+
+    /**
+     * The kind of change applied to the brand.
+     */
+    private final Type type;
+
+    /**
+     * The ID of the brand that changed.
+     */
+    private final String brandId;
+
+    /**
+     * The state of the brand after the change, or null when the brand was deleted.
+     */
+    private final BrandEntity brand;
+
+    public static BrandChangeEvent created(BrandEntity brand) {
+        return new BrandChangeEvent(Type.CREATED, brand.getId(), brand);
+    }
+
+    public static BrandChangeEvent updated(BrandEntity brand) {
+        return new BrandChangeEvent(Type.UPDATED, brand.getId(), brand);
+    }
+
+    public static BrandChangeEvent deleted(String brandId) {
+        return new BrandChangeEvent(Type.DELETED, brandId, null);
+    }
+}
@@ -0,0 +1,26 @@
+package com.technicaltest.events;
+
+import com.technicaltest.controllers.request.ChangeEventDTO;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * InventoryChangesEvent is published by the listener sink of the outbox relay with every batch of committed changes.
+ * In-process consumers listen to it instead of polling the inventory. A listener that throws makes the relay hand
+ * the batch out again later, so the changes are delivered at least once and should be applied by their sequence.
+ *
+ * @author Wilmaryucuma7
+ * @version 1.0
+ *
+ */
+@Getter
+@AllArgsConstructor
+public class InventoryChangesEvent {
+
+    /**
+     * The changes of the batch, in sequence order.
+     */
+    private final List<ChangeEventDTO> changes;
+}
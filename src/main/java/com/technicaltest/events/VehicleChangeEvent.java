@@ -0,0 +1,50 @@
+package com.technicaltest.events;
+
+import com.technicaltest.models.VehicleEntity;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * VehicleChangeEvent is published by the VehicleService every time a vehicle is created, updated or deleted.
+ * Components that keep derived state about the vehicles table (indexes, caches) listen to it to stay current.
+ *
+ * @author Wilmaryucuma7
+ * @version 1.0
+ *
+ */
+@Getter
+@AllArgsConstructor
+public class VehicleChangeEvent {
+
+    /**
+     * The kind of change applied to the vehicle.
+     */
+    public enum Type { CREATED, UPDATED, DELETED }
+
+    /**
+     * The kind of change applied to the vehicle.
+     */
+    private final Type type;
+
+    /**
+     * The ID of the vehicle that changed.
+     */
+    private final String vehicleId;
+
+    /**
+     * The state of the vehicle after the change, or null when the vehicle was deleted.
+     */
+    private final VehicleEntity vehicle;
+
+    public static VehicleChangeEvent created(VehicleEntity vehicle) {
+        return new VehicleChangeEvent(Type.CREATED, vehicle.getId(), vehicle);
+    }
+
+    public static VehicleChangeEvent updated(VehicleEntity vehicle) {
+        return new VehicleChangeEvent(Type.UPDATED, vehicle.getId(), vehicle);
+    }
+
+    public static VehicleChangeEvent deleted(String vehicleId) {
+        return new VehicleChangeEvent(Type.DELETED, vehicleId, null);
+    }
+}
@@ -0,0 +1,24 @@
+package com.technicaltest.events;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * VehiclesDeletedEvent is published by the BrandDeletionService for every chunk of vehicles it deletes.
+ * Listeners treat it as a VehicleChangeEvent.DELETED for each of the vehicles, applied in one go.
+ *
+ * @author Wilmaryucuma7
+ * @version 1.0
+ *
+ */
+@Getter
+@AllArgsConstructor
+public class VehiclesDeletedEvent {
+
+    /**
+     * The IDs of the deleted vehicles.
+     */
+    private final List<String> vehicleIds;
+}
@@ -0,0 +1,21 @@
+package com.technicaltest.exceptions;
+
+/**
+ * CursorExpiredException is a custom exception class that extends RuntimeException.
+ * It is thrown when a consumer of the changes resumes from a cursor older than the oldest change still kept,
+ * so the changes in between can no longer be streamed and the consumer has to load the inventory again.
+ *
+ * @author Wilmaryucuma7
+ * @version 1.0
+ *
+ */
+public class CursorExpiredException extends RuntimeException {
+    /**
+     * Constructs a new CursorExpiredException with the specified detail message.
+     *
+     * @param message the detail message. The detail message is saved for later retrieval by the Throwable.getMessage() method.
+     */
+    public CursorExpiredException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,20 @@
+package com.technicaltest.exceptions;
+
+/**
+ * EntityConflictException is a custom exception class that extends RuntimeException.
+ * It is thrown when an entity was changed by a concurrent update between the moment it was read and written.
+ *
+ * @author Wilmaryucuma7
+ * @version 1.0
+ *
+ */
+public class EntityConflictException extends RuntimeException {
+    /**
+     * Constructs a new EntityConflictException with the specified detail message.
+     *
+     * @param message the detail message. The detail message is saved for later retrieval by the Throwable.getMessage() method.
+     */
+    public EntityConflictException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,20 @@
+package com.technicaltest.exceptions;
+
+/**
+ * PreconditionFailedException is a custom exception class that extends RuntimeException.
+ * It is thrown when an update names, in its If-Match header, a version of the entity that is no longer the current one.
+ *
+ * @author Wilmaryucuma7
+ * @version 1.0
+ *
+ */
+public class PreconditionFailedException extends RuntimeException {
+    /**
+     * Constructs a new PreconditionFailedException with the specified detail message.
+     *
+     * @param message the detail message. The detail message is saved for later retrieval by the Throwable.getMessage() method.
+     */
+    public PreconditionFailedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,82 @@
+package com.technicaltest.metrics;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Hibernate statement inspector that counts the SQL statements prepared by the current thread.
+ * Counting only happens while a count is attached to the thread, so statements of background work
+ * such as the search index rebuild are not counted. {@link #decorate(Runnable)} attaches the count of the
+ * submitting thread to a task, so the statements of a request are counted on whichever thread they run.
+ */
+public class StatementCounter implements StatementInspector {
+
+    private final ThreadLocal<Count> current = new ThreadLocal<>();
+
+    /**
+     * The number of statements of one request. It is only updated by one thread at a time.
+     */
+    public static final class Count {
+        private long statements;
+
+        public long getStatements() {
+            return statements;
+        }
+    }
+
+    /**
+     * Starts a new count on the current thread.
+     *
+     * @return the count
+     */
+    public Count start() {
+        Count count = new Count();
+        current.set(count);
+        return count;
+    }
+
+    /**
+     * Continues a count on the current thread.
+     *
+     * @param count the count
+     */
+    public void attach(Count count) {
+        current.set(count);
+    }
+
+    /**
+     * Stops counting on the current thread.
+     */
+    public void detach() {
+        current.remove();
+    }
+
+    @Override
+    public String inspect(String sql) {
+        Count count = current.get();
+        if (count != null) {
+            count.statements++;
+        }
+        return sql;
+    }
+
+    /**
+     * Carries the count of the submitting thread to a task run on another thread.
+     *
+     * @param runnable the task
+     * @return the task that counts its statements with the submitting thread
+     */
+    public Runnable decorate(Runnable runnable) {
+        Count count = current.get();
+        if (count == null) {
+            return runnable;
+        }
+        return () -> {
+            attach(count);
+            try {
+                runnable.run();
+            } finally {
+                detach();
+            }
+        };
+    }
+}
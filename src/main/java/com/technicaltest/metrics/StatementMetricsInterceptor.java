@@ -0,0 +1,70 @@
+package com.technicaltest.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Records the number of Hibernate statements each request prepared, tagged like the HTTP server metrics
+ * with the method and the URI pattern, so N+1 loads show up per endpoint.
+ * The count is kept in the request, so a request handled asynchronously is recorded once, on its last dispatch,
+ * with the statements its tasks prepared on the executor threads.
+ */
+public class StatementMetricsInterceptor implements AsyncHandlerInterceptor {
+
+    static final String METRIC_NAME = "hibernate.statements.per.request";
+    private static final String COUNT_ATTRIBUTE = StatementMetricsInterceptor.class.getName() + ".count";
+    private static final String UNKNOWN = "UNKNOWN";
+
+    private final StatementCounter statementCounter;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Constructor for StatementMetricsInterceptor.
+     *
+     * @param statementCounter the counter of the statements of the request thread
+     * @param meterRegistry the registry of the metric
+     */
+    public StatementMetricsInterceptor(StatementCounter statementCounter, MeterRegistry meterRegistry) {
+        this.statementCounter = statementCounter;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        StatementCounter.Count count = (StatementCounter.Count) request.getAttribute(COUNT_ATTRIBUTE);
+        if (count == null) {
+            request.setAttribute(COUNT_ATTRIBUTE, statementCounter.start());
+        } else {
+            // Async dispatch of a request whose handler already started counting
+            statementCounter.attach(count);
+        }
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        statementCounter.detach();
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        statementCounter.detach();
+        StatementCounter.Count count = (StatementCounter.Count) request.getAttribute(COUNT_ATTRIBUTE);
+        request.removeAttribute(COUNT_ATTRIBUTE);
+        if (count == null) {
+            return;
+        }
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        DistributionSummary.builder(METRIC_NAME)
+                .description("Hibernate statements prepared by a request")
+                .tag("method", request.getMethod())
+                .tag("uri", pattern == null ? UNKNOWN : pattern.toString())
+                .register(meterRegistry)
+                .record(count.getStatements());
+    }
+}
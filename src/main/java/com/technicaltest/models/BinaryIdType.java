@@ -0,0 +1,74 @@
+package com.technicaltest.models;
+
+import com.technicaltest.utils.Ids;
+import org.hibernate.type.AbstractSingleColumnStandardBasicType;
+import org.hibernate.type.descriptor.WrapperOptions;
+import org.hibernate.type.descriptor.java.AbstractTypeDescriptor;
+import org.hibernate.type.descriptor.sql.BinaryTypeDescriptor;
+
+/**
+ * Stores the string IDs of the entities as BINARY(16) columns, see {@link Ids}.
+ * It is the type of the ID properties rather than an attribute converter because Hibernate applies the type
+ * everywhere the property is used: in the DTOs built by the queries, in the IDs they select and in the parameters
+ * compared with an ID, which all keep handling strings.
+ */
+public class BinaryIdType extends AbstractSingleColumnStandardBasicType<String> {
+
+    public static final String NAME = "com.technicaltest.models.BinaryIdType";
+
+    public BinaryIdType() {
+        super(BinaryTypeDescriptor.INSTANCE, IdTypeDescriptor.INSTANCE);
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    private static class IdTypeDescriptor extends AbstractTypeDescriptor<String> {
+
+        private static final IdTypeDescriptor INSTANCE = new IdTypeDescriptor();
+
+        private IdTypeDescriptor() {
+            super(String.class);
+        }
+
+        @Override
+        public String toString(String id) {
+            return id;
+        }
+
+        @Override
+        public String fromString(String id) {
+            return id;
+        }
+
+        @Override
+        public <X> X unwrap(String id, Class<X> type, WrapperOptions options) {
+            if (id == null) {
+                return null;
+            }
+            if (byte[].class.equals(type)) {
+                return type.cast(Ids.toBytes(id));
+            }
+            if (String.class.equals(type)) {
+                return type.cast(id);
+            }
+            throw unknownUnwrap(type);
+        }
+
+        @Override
+        public <X> String wrap(X value, WrapperOptions options) {
+            if (value == null) {
+                return null;
+            }
+            if (value instanceof byte[]) {
+                return Ids.fromBytes((byte[]) value);
+            }
+            if (value instanceof String) {
+                return (String) value;
+            }
+            throw unknownWrap(value.getClass());
+        }
+    }
+}
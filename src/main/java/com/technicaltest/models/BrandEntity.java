@@ -1,11 +1,23 @@
 package com.technicaltest.models;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.technicaltest.EntityCacheConfiguration;
+import com.technicaltest.utils.UniqueConstraints;
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.Type;
+import org.springframework.data.domain.Persistable;
 
 import javax.persistence.*;
 import java.time.LocalDateTime;
@@ -16,6 +28,7 @@ import java.util.List;
  * It includes fields that correspond to the columns in the table.
  * It is annotated with @Entity, indicating that it is a JPA entity.
  * Lombok annotations are used to automatically generate getters, setters, constructors, and builder methods.
+ * Brands and the IDs of their vehicles are kept in the read-write second-level cache, see EntityCacheConfiguration.
  *
  * @author Wilmaryucuma7
  * @version 1.0
@@ -26,19 +39,24 @@ import java.util.List;
 @NoArgsConstructor
 @Builder
 @Entity
-@Table(name = "brands")
-public class BrandEntity {
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = EntityCacheConfiguration.BRANDS)
+@Table(name = "brands", uniqueConstraints = @UniqueConstraint(name = UniqueConstraints.BRAND_NAME, columnNames = "brand_name"))
+public class BrandEntity implements Persistable<String> {
     /**
      * The ID of the brand. This field corresponds to the "brand_id" column in the "brands" table.
+     * It is stored as the 16 bytes of its UUID.
      */
     @Id
-    @Column(name = "brand_id", nullable = false, length = 60)
+    @Type(type = BinaryIdType.NAME)
+    @Column(name = "brand_id", nullable = false, columnDefinition = "BINARY(16)")
     private String id;
 
     /**
      * The name of the brand. This field corresponds to the "brand_name" column in the "brands" table.
+     * It is unique, see UniqueConstraints.BRAND_NAME.
      */
-    @Column(unique = true, name = "brand_name", nullable = false, length = 30)
+    @Column(name = "brand_name", nullable = false, length = 30)
     private String name;
 
     /**
@@ -48,11 +66,49 @@ public class BrandEntity {
     @Column(name = "brand_created_date", nullable = false, updatable = false)
     private LocalDateTime brandCreatedDate;
 
+    /**
+     * The version of the brand. This field corresponds to the "brand_version" column in the "brands" table.
+     * Every update increments it, and an update made from an older version fails instead of overwriting the rename
+     * made since. The clients send it back in the If-Match header of their updates.
+     */
+    @Version
+    @ColumnDefault("0")
+    @Column(name = "brand_version", nullable = false)
+    private Long version;
+
     /**
      * The list of vehicles associated with the brand. This field corresponds to the "vehicles" table in the database.
      * It is annotated with @OneToMany, indicating that it is a one-to-many relationship with the VehicleEntity.
+     * The cascade loads and removes the vehicles one by one, so BrandDeletionService deletes them in chunks first.
      */
     @OneToMany(mappedBy = "brandEntity", cascade = CascadeType.REMOVE, orphanRemoval = true)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = EntityCacheConfiguration.BRAND_VEHICLES)
     @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     private List<VehicleEntity> vehicles;
+
+    /**
+     * Whether the brand was loaded from or already stored in the database. A new brand is inserted by save
+     * straight away, instead of being selected first to merge it as Spring Data does with assigned IDs.
+     */
+    @Transient
+    @JsonIgnore
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private boolean persisted;
+
+    @Override
+    @JsonIgnore
+    public boolean isNew() {
+        return !persisted;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markPersisted() {
+        persisted = true;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,93 @@
+package com.technicaltest.models;
+
+import com.technicaltest.utils.UniqueConstraints;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.Type;
+
+import javax.persistence.*;
+import java.time.Instant;
+
+/**
+ * OutboxEventEntity class represents the "outbox_events" table in the database.
+ * Every write of a vehicle or a brand appends one row in the same transaction, see OutboxWriter, so a change is
+ * recorded if and only if it is committed. The OutboxRelay then numbers the committed rows and hands them to the
+ * configured sink, and the changes endpoint streams them to the consumers by that number.
+ *
+ * @author Wilmaryucuma7
+ * @version 1.0
+ *
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Entity
+@Table(name = "outbox_events", uniqueConstraints = @UniqueConstraint(name = UniqueConstraints.OUTBOX_EVENT_SEQUENCE, columnNames = "event_sequence"))
+public class OutboxEventEntity {
+    /**
+     * The ID of the event. This field corresponds to the "event_id" column in the "outbox_events" table.
+     * IDs are ordered by time, so the relay reads the events in about the order they were written.
+     */
+    @Id
+    @Type(type = BinaryIdType.NAME)
+    @Column(name = "event_id", nullable = false, columnDefinition = "BINARY(16)")
+    private String id;
+
+    /**
+     * The position of the event in the stream of changes, or null until the relay hands the event out.
+     * It is given in commit order rather than write order, so a consumer that read up to a position never misses
+     * an event committed later with a smaller ID. Its unique index also finds the events not handed out yet.
+     */
+    @Column(name = "event_sequence")
+    private Long sequence;
+
+    /**
+     * VEHICLE or BRAND.
+     */
+    @Column(name = "event_entity_type", nullable = false, length = 10)
+    private String entityType;
+
+    /**
+     * The ID of the vehicle or brand that changed.
+     */
+    @Type(type = BinaryIdType.NAME)
+    @Column(name = "event_entity_id", nullable = false, columnDefinition = "BINARY(16)")
+    private String entityId;
+
+    /**
+     * CREATED, UPDATED or DELETED.
+     */
+    @Column(name = "event_type", nullable = false, length = 10)
+    private String type;
+
+    /**
+     * The state of the vehicle or brand after the change as JSON, or null when it was deleted.
+     */
+    @Lob
+    @Column(name = "event_payload")
+    private String payload;
+
+    @CreationTimestamp
+    @Column(name = "event_created_date", nullable = false, updatable = false)
+    private Instant createdDate;
+
+    /**
+     * When the relay handed the event out, or null until then.
+     */
+    @Column(name = "event_relayed_date")
+    private Instant relayedDate;
+
+    /**
+     * The version of the event, incremented when the relay hands it out. A second relay that read the event before
+     * the first one committed fails its batch on it instead of handing the event out again.
+     */
+    @Version
+    @ColumnDefault("0")
+    @Column(name = "event_version", nullable = false)
+    private Long version;
+}
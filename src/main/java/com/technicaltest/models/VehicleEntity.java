@@ -1,10 +1,24 @@
 package com.technicaltest.models;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.technicaltest.EntityCacheConfiguration;
+import com.technicaltest.utils.UniqueConstraints;
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.DynamicUpdate;
+import org.hibernate.annotations.Type;
+import org.springframework.data.domain.Persistable;
 
 import javax.persistence.*;
 import java.time.LocalDateTime;
@@ -14,6 +28,11 @@ import java.time.LocalDateTime;
  * It includes fields that correspond to the columns in the table.
  * It is annotated with @Entity, indicating that it is a JPA entity.
  * Lombok annotations are used to automatically generate getters, setters, constructors, and builder methods.
+ * The indexes match the sorts of the listings: each sort column with the ID as tiebreak, and the brand with the ID
+ * for the listings sorted by brand name. The license plate is unique and already has its own index, its constraint is
+ * named so that the services can tell a duplicated license plate from any other failed write.
+ * Vehicles loaded by ID are kept in the read-write second-level cache, see EntityCacheConfiguration.
+ * Updates only set the columns that changed, so a partial update of one field writes that field and the version.
  *
  * @author Wilmaryucuma7
  * @version 1.0
@@ -24,13 +43,22 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @Builder
 @Entity
-@Table(name = "vehicles")
-public class VehicleEntity {
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = EntityCacheConfiguration.VEHICLES)
+@DynamicUpdate
+@Table(name = "vehicles", indexes = {
+        @Index(name = "idx_vehicles_model_id", columnList = "vehicle_model, vehicle_id"),
+        @Index(name = "idx_vehicles_year_id", columnList = "vehicle_year, vehicle_id"),
+        @Index(name = "idx_vehicles_brand_id", columnList = "brand_id, vehicle_id")
+}, uniqueConstraints = @UniqueConstraint(name = UniqueConstraints.VEHICLE_LICENSE_PLATE, columnNames = "vehicle_license_plate"))
+public class VehicleEntity implements Persistable<String> {
     /**
      * The ID of the vehicle. This field corresponds to the "vehicle_id" column in the "vehicles" table.
+     * It is stored as the 16 bytes of its UUID.
      */
     @Id
-    @Column(name = "vehicle_id", nullable = false, length = 60)
+    @Type(type = BinaryIdType.NAME)
+    @Column(name = "vehicle_id", nullable = false, columnDefinition = "BINARY(16)")
     private String id;
 
     /**
@@ -42,7 +70,7 @@ public class VehicleEntity {
     /**
      * The license plate of the vehicle. This field corresponds to the "vehicle_license_plate" column in the "vehicles" table.
      */
-    @Column(name = "vehicle_license_plate", nullable = false, unique = true, length = 6)
+    @Column(name = "vehicle_license_plate", nullable = false, length = 6)
     private String licensePlate;
 
     /**
@@ -64,12 +92,49 @@ public class VehicleEntity {
     @Column(name = "vehicle_created_date", nullable = false, updatable = false)
     private LocalDateTime vehicleCreatedDate;
 
+    /**
+     * The version of the vehicle. This field corresponds to the "vehicle_version" column in the "vehicles" table.
+     * Every update increments it, and an update made from an older version fails instead of overwriting the changes
+     * made since. The clients send it back in the If-Match header of their updates.
+     */
+    @Version
+    @ColumnDefault("0")
+    @Column(name = "vehicle_version", nullable = false)
+    private Long version;
+
     /**
      * The brand of the vehicle. This field corresponds to the "brand_id" column in the "vehicles" table.
      * It is annotated with @ManyToOne, indicating that it is a many-to-one relationship with the BrandEntity.
+     * The brand is loaded lazily, the queries that return vehicles to the client fetch it with a join.
      */
-    @ManyToOne
-    @JoinColumn(name = "brand_id", nullable = false)
+    @ManyToOne(fetch = FetchType.LAZY)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @JoinColumn(name = "brand_id", nullable = false, columnDefinition = "BINARY(16)")
     private BrandEntity brandEntity;
 
+    /**
+     * Whether the vehicle was loaded from or already stored in the database. A new vehicle is inserted by save
+     * straight away, instead of being selected first to merge it as Spring Data does with assigned IDs.
+     */
+    @Transient
+    @JsonIgnore
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private boolean persisted;
+
+    @Override
+    @JsonIgnore
+    public boolean isNew() {
+        return !persisted;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markPersisted() {
+        persisted = true;
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,48 @@
+package com.technicaltest.outbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.technicaltest.controllers.request.ChangeEventDTO;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Appends the changes to a file, one JSON object per line (NDJSON). Each batch is written with a single write and
+ * forced to the disk before the relay commits it, so a batch is never committed without being in the file.
+ */
+public class FileOutboxSink implements OutboxSink {
+
+    private final Path file;
+    private final ObjectWriter writer;
+
+    public FileOutboxSink(Path file, ObjectMapper objectMapper) {
+        this.file = file;
+        this.writer = objectMapper.writerFor(ChangeEventDTO.class);
+    }
+
+    @Override
+    public synchronized void deliver(List<ChangeEventDTO> changes) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND)) {
+            ByteArrayOutputStream lines = new ByteArrayOutputStream();
+            for (ChangeEventDTO change : changes) {
+                lines.write(writer.writeValueAsBytes(change));
+                lines.write('\n');
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(lines.toByteArray());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
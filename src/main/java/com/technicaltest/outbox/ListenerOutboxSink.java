@@ -0,0 +1,24 @@
+package com.technicaltest.outbox;
+
+import com.technicaltest.controllers.request.ChangeEventDTO;
+import com.technicaltest.events.InventoryChangesEvent;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.List;
+
+/**
+ * Hands the changes to the listeners of InventoryChangesEvent in this application, synchronously.
+ */
+public class ListenerOutboxSink implements OutboxSink {
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    public ListenerOutboxSink(ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+    }
+
+    @Override
+    public void deliver(List<ChangeEventDTO> changes) {
+        eventPublisher.publishEvent(new InventoryChangesEvent(changes));
+    }
+}
@@ -0,0 +1,50 @@
+package com.technicaltest.outbox;
+
+import com.technicaltest.controllers.request.ChangeEventDTO;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stands in for a message broker in the same process: a bounded queue the consumers take the changes from.
+ * A batch is queued whole or not at all, so when the consumers fall behind the relay stops and retries the batch
+ * later instead of dropping changes.
+ */
+public class LocalBrokerOutboxSink implements OutboxSink {
+
+    private final BlockingQueue<ChangeEventDTO> queue;
+
+    public LocalBrokerOutboxSink(int capacity) {
+        this.queue = new LinkedBlockingQueue<>(capacity);
+    }
+
+    @Override
+    public synchronized void deliver(List<ChangeEventDTO> changes) {
+        if (queue.remainingCapacity() < changes.size()) {
+            throw new IllegalStateException("La cola de cambios esta llena");
+        }
+        queue.addAll(changes);
+    }
+
+    /**
+     * Takes the next changes from the queue, waiting for the first one if the queue is empty.
+     *
+     * @param maxChanges the maximum number of changes to take
+     * @param timeout how long to wait for the first change
+     * @return the changes taken, in sequence order, empty if none arrived in time
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public List<ChangeEventDTO> poll(int maxChanges, Duration timeout) throws InterruptedException {
+        List<ChangeEventDTO> changes = new ArrayList<>();
+        ChangeEventDTO first = queue.poll(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        if (first != null) {
+            changes.add(first);
+            queue.drainTo(changes, maxChanges - 1);
+        }
+        return changes;
+    }
+}
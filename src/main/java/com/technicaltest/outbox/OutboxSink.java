@@ -0,0 +1,20 @@
+package com.technicaltest.outbox;
+
+import com.technicaltest.controllers.request.ChangeEventDTO;
+
+import java.util.List;
+
+/**
+ * Where the OutboxRelay hands the committed inventory changes out to, see OutboxSinkConfiguration.
+ * A sink runs inside the transaction that numbers the batch: when it throws, the batch is rolled back and handed
+ * out again on the next run, so every change is delivered at least once and in sequence order.
+ */
+public interface OutboxSink {
+
+    /**
+     * Delivers a batch of changes.
+     *
+     * @param changes the changes, in sequence order
+     */
+    void deliver(List<ChangeEventDTO> changes);
+}
@@ -0,0 +1,38 @@
+package com.technicaltest.outbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Paths;
+import java.util.Locale;
+
+/**
+ * Chooses the sink the OutboxRelay hands the changes out to: "listener" publishes them to the listeners of this
+ * application, "file" appends them to an NDJSON file and "broker" queues them in a local broker stand-in.
+ */
+@Configuration
+public class OutboxSinkConfiguration {
+    public static final String LISTENER = "listener";
+    public static final String FILE = "file";
+    public static final String BROKER = "broker";
+
+    @Bean
+    public OutboxSink outboxSink(@Value("${outbox.sink:listener}") String sink,
+                                 @Value("${outbox.file-sink.path:outbox-changes.ndjson}") String filePath,
+                                 @Value("${outbox.broker-sink.capacity:10000}") int brokerCapacity,
+                                 ApplicationEventPublisher eventPublisher, ObjectMapper objectMapper) {
+        switch (sink.toLowerCase(Locale.ROOT)) {
+            case LISTENER:
+                return new ListenerOutboxSink(eventPublisher);
+            case FILE:
+                return new FileOutboxSink(Paths.get(filePath), objectMapper);
+            case BROKER:
+                return new LocalBrokerOutboxSink(brokerCapacity);
+            default:
+                throw new IllegalArgumentException("Destino invalido para los cambios: " + sink);
+        }
+    }
+}
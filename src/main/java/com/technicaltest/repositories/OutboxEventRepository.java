@@ -0,0 +1,78 @@
+package com.technicaltest.repositories;
+
+import com.technicaltest.models.OutboxEventEntity;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * OutboxEventRepository is an interface for generic CRUD operations on the outbox of the inventory changes.
+ *
+ * @author Wilmaryucuma7
+ * @version 1.0
+ *
+ */
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEventEntity, String> {
+
+    /**
+     * Reads the first events the relay has not handed out yet, in ID order.
+     *
+     * @param pageable the size of the batch
+     * @return the events of the batch
+     */
+    @Query("SELECT e FROM OutboxEventEntity e WHERE e.sequence IS NULL ORDER BY e.id")
+    List<OutboxEventEntity> findUnrelayed(Pageable pageable);
+
+    /**
+     * Reads the events handed out after the given position, in order.
+     *
+     * @param sequence the position of the last event the consumer has
+     * @param pageable the maximum number of events
+     * @return the events after the position
+     */
+    @Query("SELECT e FROM OutboxEventEntity e WHERE e.sequence > :sequence ORDER BY e.sequence")
+    List<OutboxEventEntity> findRelayedAfter(@Param("sequence") long sequence, Pageable pageable);
+
+    /**
+     * Reads the position of the last event handed out.
+     *
+     * @return the position, or null if no event is kept
+     */
+    @Query("SELECT MAX(e.sequence) FROM OutboxEventEntity e")
+    Long findLastSequence();
+
+    /**
+     * Counts the changes recorded so far: the ones handed out, whose positions have no gaps and of which the last
+     * is always kept, plus the ones the relay has not handed out yet. Both are read in a single statement, so the relay
+     * handing a batch out does not change the count, only a committed write does.
+     *
+     * @return the number of changes recorded
+     */
+    @Query(value = "SELECT COALESCE(MAX(event_sequence), 0)" +
+            " + (SELECT COUNT(*) FROM outbox_events WHERE event_sequence IS NULL) FROM outbox_events", nativeQuery = true)
+    long countChanges();
+
+    /**
+     * Reads the position of the oldest event still kept.
+     *
+     * @return the position, or null if no event is kept
+     */
+    @Query("SELECT MIN(e.sequence) FROM OutboxEventEntity e")
+    Long findFirstSequence();
+
+    /**
+     * Deletes the events handed out up to the given position in a single statement.
+     *
+     * @param sequence the position of the last event to delete
+     * @return the number of events deleted
+     */
+    @Modifying
+    @Query("DELETE FROM OutboxEventEntity e WHERE e.sequence <= :sequence")
+    int deleteRelayedUpTo(@Param("sequence") long sequence);
+}
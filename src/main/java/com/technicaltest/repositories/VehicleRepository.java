@@ -1,23 +1,204 @@
 package com.technicaltest.repositories;
 
+import com.technicaltest.controllers.request.VehicleResponseDTO;
 import com.technicaltest.models.VehicleEntity;
-import org.springframework.data.domain.Page;
+import com.technicaltest.repositories.projections.VehicleAttributeView;
+import com.technicaltest.repositories.projections.VehicleFacetCount;
+import com.technicaltest.repositories.projections.VehicleSearchView;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
+import java.util.Collection;
 import java.util.List;
-import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface VehicleRepository extends JpaRepository<VehicleEntity, String> {
-    @Query("SELECT v FROM VehicleEntity v WHERE " +
+public interface VehicleRepository extends JpaRepository<VehicleEntity, String>, VehicleRepositoryCustom {
+
+    /**
+     * Selects the vehicles with their brands directly as response DTOs, so the read path does not build
+     * managed entities. The vehicle is aliased as v and its brand as b.
+     * Every vehicle has a brand, so the outer join returns the same rows as an inner one, but it makes the database
+     * read the vehicles first, in the order of the index of the sort, instead of the brands.
+     */
+    String SELECT_RESPONSE = "SELECT new com.technicaltest.controllers.request.VehicleResponseDTO(" +
+            "v.id, v.model, v.licensePlate, v.color, v.year, b.id, b.name) " +
+            "FROM VehicleEntity v LEFT JOIN v.brandEntity b";
+
+    /**
+     * Searches for vehicles by brand, model or license plate, one page at a time.
+     * It does not run a count query, the matches are counted apart by countByBrandModelOrLicensePlate.
+     *
+     * @param search the search term
+     * @param pageable the page to read
+     * @return the matching vehicles of the page
+     */
+    @Query(SELECT_RESPONSE + " WHERE " +
+            "b.name LIKE %:search% OR " +
+            "v.model LIKE %:search% OR " +
+            "v.licensePlate LIKE %:search%")
+    List<VehicleResponseDTO> findResponsePageByBrandModelOrLicensePlate(@Param("search") String search, Pageable pageable);
+
+    /**
+     * Reads one page of vehicles without running a count query.
+     *
+     * @param pageable the page to read
+     * @return the vehicles of the page
+     */
+    @Query(SELECT_RESPONSE)
+    List<VehicleResponseDTO> findResponsesBy(Pageable pageable);
+
+    /**
+     * Finds the vehicles with the given IDs, in no particular order.
+     *
+     * @param ids the IDs of the vehicles
+     * @return the vehicles that exist
+     */
+    @Query(SELECT_RESPONSE + " WHERE v.id IN :ids")
+    List<VehicleResponseDTO> findResponsesByIdIn(@Param("ids") Collection<String> ids);
+
+    /**
+     * Searches by brand, model or license plate the vehicles whose ID comes after the given one, in ID order.
+     * Used by the keyset pagination, it does not run a count query.
+     *
+     * @param search the search term
+     * @param afterId the ID of the last vehicle of the previous page, or an empty string for the first page
+     * @param pageable the size of the page
+     * @return the matching vehicles after the given ID
+     */
+    @Query(SELECT_RESPONSE + " WHERE v.id > :afterId AND (" +
+            "b.name LIKE %:search% OR " +
+            "v.model LIKE %:search% OR " +
+            "v.licensePlate LIKE %:search%) ORDER BY v.id")
+    List<VehicleResponseDTO> findResponsesByBrandModelOrLicensePlateAfter(@Param("search") String search, @Param("afterId") String afterId, Pageable pageable);
+
+    /**
+     * Counts the vehicles that match the search by brand, model or license plate.
+     *
+     * @param search the search term
+     * @return the number of matching vehicles
+     */
+    @Query("SELECT COUNT(v) FROM VehicleEntity v WHERE " +
             "v.brandEntity.name LIKE %:search% OR " +
             "v.model LIKE %:search% OR " +
             "v.licensePlate LIKE %:search%")
-    Page<VehicleEntity> findByBrandModelOrLicensePlate(@Param("search") String search, Pageable pageable);
+    long countByBrandModelOrLicensePlate(@Param("search") String search);
+
+    /**
+     * Counts the vehicles of every combination of brand, year and color in one aggregated query.
+     * The facet counts of the faceted search are summed from these rows.
+     *
+     * @return the number of vehicles of each combination that has any
+     */
+    @Query("SELECT new com.technicaltest.repositories.projections.VehicleFacetCount(b.id, b.name, v.year, v.color, COUNT(v)) " +
+            "FROM VehicleEntity v JOIN v.brandEntity b GROUP BY b.id, b.name, v.year, v.color")
+    List<VehicleFacetCount> countByBrandYearAndColor();
+
+    /**
+     * Returns which of the given license plates are already taken, in a single query.
+     * Used by the bulk import to check a whole chunk of vehicles at once.
+     *
+     * @param licensePlates the license plates to check
+     * @return the license plates that already exist
+     */
+    @Query("SELECT v.licensePlate FROM VehicleEntity v WHERE v.licensePlate IN :licensePlates")
+    List<String> findExistingLicensePlates(@Param("licensePlates") Collection<String> licensePlates);
+
+    /**
+     * Counts the vehicles of a brand.
+     *
+     * @param brandId the ID of the brand
+     * @return the number of vehicles of the brand
+     */
+    @Query("SELECT COUNT(v) FROM VehicleEntity v WHERE v.brandEntity.id = :brandId")
+    long countByBrandId(@Param("brandId") String brandId);
+
+    /**
+     * Reads the IDs of the first vehicles of a brand, in ID order, from the index on the brand and the ID.
+     * Used to delete the vehicles of a brand in chunks.
+     *
+     * @param brandId the ID of the brand
+     * @param pageable the size of the chunk
+     * @return the IDs of the chunk
+     */
+    @Query("SELECT v.id FROM VehicleEntity v WHERE v.brandEntity.id = :brandId ORDER BY v.id")
+    List<String> findIdsByBrandId(@Param("brandId") String brandId, Pageable pageable);
+
+    /**
+     * Deletes the vehicles with the given IDs in a single statement, without loading them.
+     * Hibernate evicts the cached vehicles and vehicle collections afterwards.
+     *
+     * @param ids the IDs of the vehicles
+     * @return the number of vehicles deleted
+     */
+    @Modifying
+    @Query("DELETE FROM VehicleEntity v WHERE v.id IN :ids")
+    int deleteByIdIn(@Param("ids") Collection<String> ids);
+
+    /**
+     * Reads which of the given IDs belong to a vehicle, in ID order, from the primary key.
+     *
+     * @param ids the IDs to check
+     * @return the IDs of the vehicles that exist
+     */
+    @Query("SELECT v.id FROM VehicleEntity v WHERE v.id IN :ids ORDER BY v.id")
+    List<String> findIdsByIdIn(@Param("ids") Collection<String> ids);
+
+    /**
+     * Loads the vehicles with the given IDs together with their brands in a single statement.
+     * Used to re-read a chunk after a bulk update, which evicts the vehicles from the second-level cache, so the
+     * chunk is neither read from it nor put back into it.
+     *
+     * @param ids the IDs of the vehicles
+     * @return the vehicles that exist
+     */
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheMode", value = "IGNORE"))
+    @Query("SELECT v FROM VehicleEntity v JOIN FETCH v.brandEntity WHERE v.id IN :ids")
+    List<VehicleEntity> findAllWithBrandByIdIn(@Param("ids") Collection<String> ids);
+
+    /**
+     * Reads the searchable columns of the vehicles that come after the given ID, in ID order.
+     * Used to build the search index in chunks without an OFFSET scan.
+     *
+     * @param afterId the last ID of the previous chunk, or an empty string for the first chunk
+     * @param pageable the size of the chunk
+     * @return the next chunk of vehicles
+     */
+    @Query("SELECT v.id AS id, v.model AS model, v.licensePlate AS licensePlate, v.brandEntity.id AS brandId " +
+            "FROM VehicleEntity v WHERE v.id > :afterId ORDER BY v.id")
+    List<VehicleSearchView> findSearchViewsAfter(@Param("afterId") String afterId, Pageable pageable);
+
+    /**
+     * Streams the filterable columns of every vehicle, in ID order.
+     * The rows are read from a forward-only cursor in chunks of the fetch size, so the stream has to be consumed
+     * inside a transaction and closed afterwards. Used to build the attribute index without loading any entity.
+     *
+     * @return the stream of vehicles
+     */
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "5000"))
+    @Query("SELECT v.id AS id, v.year AS year, v.color AS color, v.brandEntity.id AS brandId " +
+            "FROM VehicleEntity v ORDER BY v.id")
+    Stream<VehicleAttributeView> streamAttributeViews();
 
-    boolean existsByLicensePlate(String licensePlate);
+    /**
+     * Streams every vehicle with its brand, in ID order.
+     * The rows are read from a forward-only cursor in chunks of the fetch size and the entities are loaded read-only,
+     * so the stream has to be consumed inside a transaction and closed afterwards. The second-level cache is left
+     * alone, a full scan would otherwise evict the vehicles the reads use with ones read once. Hibernate only applies
+     * the cache mode while the cursor is opened, so the caller also sets it on the persistence context.
+     *
+     * @return the stream of vehicles
+     */
+    @QueryHints({
+            @QueryHint(name = "org.hibernate.fetchSize", value = "1000"),
+            @QueryHint(name = "org.hibernate.readOnly", value = "true"),
+            @QueryHint(name = "org.hibernate.cacheMode", value = "IGNORE")})
+    @Query("SELECT v FROM VehicleEntity v JOIN FETCH v.brandEntity ORDER BY v.id")
+    Stream<VehicleEntity> streamAllWithBrand();
 }
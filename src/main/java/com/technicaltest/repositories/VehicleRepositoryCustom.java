@@ -0,0 +1,77 @@
+package com.technicaltest.repositories;
+
+import com.technicaltest.controllers.request.VehicleFilterDTO;
+import com.technicaltest.controllers.request.VehicleResponseDTO;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Queries of the VehicleRepository that can not be expressed as derived or annotated queries,
+ * they are implemented in VehicleRepositoryImpl.
+ *
+ * @author Wilmaryucuma7
+ * @version 1.0
+ *
+ */
+public interface VehicleRepositoryCustom {
+
+    /**
+     * Reads the vehicles that come after the given (sort key, ID) pair in the requested order, as response DTOs.
+     * The seek uses the sort column and the ID as tiebreak, so its cost does not depend on how deep the page is.
+     *
+     * @param sortField the field to sort by, one of the fields allowed by the VehicleService
+     * @param ascending whether the order is ascending
+     * @param lastKey the sort key of the last vehicle of the previous page, or null for the first page
+     * @param lastId the ID of the last vehicle of the previous page, or null for the first page
+     * @param limit the maximum number of vehicles to read
+     * @return the vehicles after the given position
+     */
+    List<VehicleResponseDTO> findResponsePageAfter(String sortField, boolean ascending, String lastKey, String lastId, int limit);
+
+    /**
+     * Reads one page of vehicles in the requested order, as response DTOs, without running a count query.
+     * The vehicles are read in the order of an index of the sort field, with the ID as tiebreak.
+     *
+     * @param sortField the field to sort by, one of the fields allowed by the VehicleService
+     * @param ascending whether the order is ascending
+     * @param offset the number of vehicles before the page
+     * @param limit the maximum number of vehicles to read
+     * @return the vehicles of the page
+     */
+    List<VehicleResponseDTO> findResponsePage(String sortField, boolean ascending, int offset, int limit);
+
+    /**
+     * Reads one page of the vehicles that match the filter, in ID order, as response DTOs.
+     *
+     * @param filter the brands, year range and colors to filter by
+     * @param offset the number of matching vehicles before the page
+     * @param limit the maximum number of vehicles to read
+     * @return the matching vehicles of the page
+     */
+    List<VehicleResponseDTO> findResponsePageByFilter(VehicleFilterDTO filter, int offset, int limit);
+
+    /**
+     * Reads the IDs of the vehicles that match the filter and come after the given ID, in ID order.
+     * Used to update or delete the matching vehicles in chunks without an OFFSET scan.
+     *
+     * @param filter the brands, year range and colors to filter by
+     * @param afterId the last ID of the previous chunk, or an empty string for the first chunk
+     * @param limit the maximum number of IDs to read
+     * @return the IDs of the next chunk
+     */
+    List<String> findIdsByFilterAfter(VehicleFilterDTO filter, String afterId, int limit);
+
+    /**
+     * Sets the same values on the vehicles with the given IDs in a single statement, without loading them.
+     * The versions of the vehicles are bumped too, so an update made from a version read before fails its check.
+     * Hibernate evicts the cached vehicles afterwards.
+     *
+     * @param ids the IDs of the vehicles
+     * @param fields the new values by attribute of the VehicleEntity, one of model, color, year and brandEntity
+     * @return the number of vehicles updated
+     * @throws IllegalArgumentException if an attribute can not be set in bulk
+     */
+    int updateByIdIn(Collection<String> ids, Map<String, Object> fields);
+}
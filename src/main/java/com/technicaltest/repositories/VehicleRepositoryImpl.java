@@ -0,0 +1,226 @@
+package com.technicaltest.repositories;
+
+import com.technicaltest.controllers.request.VehicleFilterDTO;
+import com.technicaltest.controllers.request.VehicleResponseDTO;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+import javax.persistence.TypedQuery;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Implementation of the VehicleRepositoryCustom queries, Spring Data merges it into the VehicleRepository.
+ * Every sort is read in the order of an index declared on the VehicleEntity, so a page never sorts the whole table.
+ *
+ * @author Wilmaryucuma7
+ * @version 1.0
+ *
+ */
+public class VehicleRepositoryImpl implements VehicleRepositoryCustom {
+
+    private static final String BRAND_NAME = "brandEntity.name";
+
+    /**
+     * The JPQL path of every vehicle column the vehicles can be sorted by.
+     * The brand name lives in another table and is sorted brand by brand instead.
+     */
+    private static final Map<String, String> SORT_PATHS = Map.of(
+            "model", "v.model",
+            "year", "v.year",
+            "licensePlate", "v.licensePlate");
+
+    /**
+     * The attributes a bulk update can set. The license plate is unique to each vehicle and the ID never changes.
+     */
+    private static final Set<String> UPDATABLE_FIELDS = Set.of("model", "color", "year", "brandEntity");
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<VehicleResponseDTO> findResponsePageAfter(String sortField, boolean ascending, String lastKey, String lastId, int limit) {
+        if (BRAND_NAME.equals(sortField)) {
+            return findResponsePageByBrand(ascending, lastKey, lastId, 0, limit);
+        }
+        return findResponsePageBy(sortPath(sortField), ascending, lastKey, lastId, 0, limit);
+    }
+
+    @Override
+    public List<VehicleResponseDTO> findResponsePage(String sortField, boolean ascending, int offset, int limit) {
+        if (BRAND_NAME.equals(sortField)) {
+            return findResponsePageByBrand(ascending, null, null, offset, limit);
+        }
+        return findResponsePageBy(sortPath(sortField), ascending, null, null, offset, limit);
+    }
+
+    @Override
+    public List<VehicleResponseDTO> findResponsePageByFilter(VehicleFilterDTO filter, int offset, int limit) {
+        Map<String, Object> parameters = new HashMap<>();
+        List<String> conditions = filterConditions(filter, parameters);
+        String jpql = VehicleRepository.SELECT_RESPONSE +
+                (conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions)) + " ORDER BY v.id";
+        TypedQuery<VehicleResponseDTO> query = entityManager.createQuery(jpql, VehicleResponseDTO.class);
+        parameters.forEach(query::setParameter);
+        return query.setFirstResult(offset).setMaxResults(limit).getResultList();
+    }
+
+    @Override
+    public List<String> findIdsByFilterAfter(VehicleFilterDTO filter, String afterId, int limit) {
+        Map<String, Object> parameters = new HashMap<>();
+        List<String> conditions = filterConditions(filter, parameters);
+        conditions.add("v.id > :afterId");
+        parameters.put("afterId", afterId);
+        String jpql = "SELECT v.id FROM VehicleEntity v WHERE " + String.join(" AND ", conditions) + " ORDER BY v.id";
+        TypedQuery<String> query = entityManager.createQuery(jpql, String.class);
+        parameters.forEach(query::setParameter);
+        return query.setMaxResults(limit).getResultList();
+    }
+
+    @Override
+    public int updateByIdIn(Collection<String> ids, Map<String, Object> fields) {
+        StringBuilder jpql = new StringBuilder("UPDATE VehicleEntity v SET v.version = v.version + 1");
+        fields.keySet().forEach(field -> {
+            if (!UPDATABLE_FIELDS.contains(field)) {
+                throw new IllegalArgumentException("Campo invalido para modificar: " + field);
+            }
+            jpql.append(", v.").append(field).append(" = :").append(field);
+        });
+        Query query = entityManager.createQuery(jpql.append(" WHERE v.id IN :ids").toString());
+        fields.forEach(query::setParameter);
+        return query.setParameter("ids", ids).executeUpdate();
+    }
+
+    /**
+     * Turns the facets of a filter into JPQL conditions on the vehicle "v", adding their values to the parameters.
+     */
+    private static List<String> filterConditions(VehicleFilterDTO filter, Map<String, Object> parameters) {
+        List<String> conditions = new ArrayList<>();
+        if (filter.getBrandIds() != null && !filter.getBrandIds().isEmpty()) {
+            conditions.add("v.brandEntity.id IN :brandIds");
+            parameters.put("brandIds", filter.getBrandIds());
+        }
+        if (filter.getYearFrom() != null) {
+            conditions.add("v.year >= :yearFrom");
+            parameters.put("yearFrom", filter.getYearFrom());
+        }
+        if (filter.getYearTo() != null) {
+            conditions.add("v.year <= :yearTo");
+            parameters.put("yearTo", filter.getYearTo());
+        }
+        if (filter.getColors() != null && !filter.getColors().isEmpty()) {
+            conditions.add("v.color IN :colors");
+            parameters.put("colors", filter.getColors());
+        }
+        return conditions;
+    }
+
+    private static String sortPath(String sortField) {
+        String path = SORT_PATHS.get(sortField);
+        if (path == null) {
+            throw new IllegalArgumentException("Campo invalido para ordenar: " + sortField);
+        }
+        return path;
+    }
+
+    /**
+     * Reads a page sorted by a vehicle column, with a seek after the given position or an offset.
+     * The license plate is unique, so it needs no tiebreak and its unique index is enough.
+     */
+    private List<VehicleResponseDTO> findResponsePageBy(String path, boolean ascending, String lastKey, String lastId, int offset, int limit) {
+        boolean unique = path.equals(SORT_PATHS.get("licensePlate"));
+        String comparison = ascending ? ">" : "<";
+        String direction = ascending ? "ASC" : "DESC";
+
+        StringBuilder jpql = new StringBuilder(VehicleRepository.SELECT_RESPONSE);
+        if (lastId != null && unique) {
+            jpql.append(" WHERE ").append(path).append(' ').append(comparison).append(" :lastKey");
+        } else if (lastId != null) {
+            // (key, id) > (:lastKey, :lastId) written out, JPQL has no row value comparison.
+            // The leading key >= :lastKey bounds the index range, the rest only filters the first key
+            jpql.append(" WHERE ").append(path).append(' ').append(comparison).append("= :lastKey")
+                    .append(" AND (").append(path).append(' ').append(comparison).append(" :lastKey")
+                    .append(" OR v.id ").append(comparison).append(" :lastId)");
+        }
+        jpql.append(" ORDER BY ").append(path).append(' ').append(direction);
+        if (!unique) {
+            jpql.append(", v.id ").append(direction);
+        }
+
+        TypedQuery<VehicleResponseDTO> query = entityManager.createQuery(jpql.toString(), VehicleResponseDTO.class);
+        if (lastId != null) {
+            query.setParameter("lastKey", lastKey);
+        }
+        if (lastId != null && !unique) {
+            query.setParameter("lastId", lastId);
+        }
+        return query.setFirstResult(offset).setMaxResults(limit).getResultList();
+    }
+
+    /**
+     * Reads a page sorted by brand name. The brands are walked in name order, and the vehicles of each brand
+     * are read in ID order from the (brand, ID) index until the page is full. A brand that falls entirely
+     * before the offset is only counted on the same index.
+     */
+    private List<VehicleResponseDTO> findResponsePageByBrand(boolean ascending, String lastKey, String lastId, int offset, int limit) {
+        List<VehicleResponseDTO> page = new ArrayList<>(limit);
+        if (lastId != null) {
+            // The rest of the brand of the last vehicle, then the brands after it
+            for (String brandId : findBrandIds("b.name = :name", lastKey, ascending)) {
+                page.addAll(findResponsePageOfBrand(brandId, ascending, lastId, 0, limit));
+            }
+        }
+        String after = lastId == null ? null : "b.name " + (ascending ? ">" : "<") + " :name";
+        long skip = offset;
+        for (String brandId : findBrandIds(after, lastKey, ascending)) {
+            if (page.size() >= limit) {
+                break;
+            }
+            if (skip > 0) {
+                long vehicles = countByBrand(brandId);
+                if (skip >= vehicles) {
+                    skip -= vehicles;
+                    continue;
+                }
+            }
+            page.addAll(findResponsePageOfBrand(brandId, ascending, null, (int) skip, limit - page.size()));
+            skip = 0;
+        }
+        return page;
+    }
+
+    private List<String> findBrandIds(String condition, String name, boolean ascending) {
+        String jpql = "SELECT b.id FROM BrandEntity b" + (condition == null ? "" : " WHERE " + condition) +
+                " ORDER BY b.name " + (ascending ? "ASC" : "DESC");
+        TypedQuery<String> query = entityManager.createQuery(jpql, String.class);
+        if (condition != null) {
+            query.setParameter("name", name);
+        }
+        return query.getResultList();
+    }
+
+    private List<VehicleResponseDTO> findResponsePageOfBrand(String brandId, boolean ascending, String lastId, int offset, int limit) {
+        String direction = ascending ? "ASC" : "DESC";
+        // Ordered by the brand as well, which is fixed, so the order matches the (brand, ID) index
+        String jpql = VehicleRepository.SELECT_RESPONSE + " WHERE v.brandEntity.id = :brandId" +
+                (lastId == null ? "" : " AND v.id " + (ascending ? ">" : "<") + " :lastId") +
+                " ORDER BY v.brandEntity.id " + direction + ", v.id " + direction;
+        TypedQuery<VehicleResponseDTO> query = entityManager.createQuery(jpql, VehicleResponseDTO.class)
+                .setParameter("brandId", brandId);
+        if (lastId != null) {
+            query.setParameter("lastId", lastId);
+        }
+        return query.setFirstResult(offset).setMaxResults(limit).getResultList();
+    }
+
+    private long countByBrand(String brandId) {
+        return entityManager.createQuery("SELECT COUNT(v) FROM VehicleEntity v WHERE v.brandEntity.id = :brandId", Long.class)
+                .setParameter("brandId", brandId)
+                .getSingleResult();
+    }
+}
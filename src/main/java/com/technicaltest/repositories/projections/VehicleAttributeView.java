@@ -0,0 +1,20 @@
+package com.technicaltest.repositories.projections;
+
+/**
+ * VehicleAttributeView is a closed projection of the VehicleEntity with only the columns the attribute index
+ * filters by.
+ *
+ * @author Wilmaryucuma7
+ * @version 1.0
+ *
+ */
+public interface VehicleAttributeView {
+
+    String getId();
+
+    String getYear();
+
+    String getColor();
+
+    String getBrandId();
+}
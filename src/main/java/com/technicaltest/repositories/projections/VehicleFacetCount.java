@@ -0,0 +1,28 @@
+package com.technicaltest.repositories.projections;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * VehicleFacetCount is the number of vehicles that share a brand, a year and a color.
+ * There are far fewer of these combinations than vehicles, so the counts of every facet under any filter
+ * are summed from them in memory instead of being counted again in the database.
+ *
+ * @author Wilmaryucuma7
+ * @version 1.0
+ *
+ */
+@Getter
+@AllArgsConstructor
+public class VehicleFacetCount {
+
+    private final String brandId;
+
+    private final String brandName;
+
+    private final String year;
+
+    private final String color;
+
+    private final long count;
+}
@@ -0,0 +1,20 @@
+package com.technicaltest.repositories.projections;
+
+/**
+ * VehicleSearchView is a closed projection of the VehicleEntity with only the columns the search index needs.
+ * It avoids loading the brand association and the unused columns while the index is being built.
+ *
+ * @author Wilmaryucuma7
+ * @version 1.0
+ *
+ */
+public interface VehicleSearchView {
+
+    String getId();
+
+    String getModel();
+
+    String getLicensePlate();
+
+    String getBrandId();
+}
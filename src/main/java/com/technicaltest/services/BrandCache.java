@@ -0,0 +1,62 @@
+package com.technicaltest.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.technicaltest.controllers.request.BrandResponseDTO;
+import com.technicaltest.events.BrandChangeEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * In-process cache of the list returned by the brands endpoint, dropped by the brand change events the BrandService
+ * publishes on every write. Single brands are not held here: the brands region of the second-level cache already
+ * answers the lookups by ID and, unlike a shared entity, hands every session a managed copy of its own.
+ */
+@Service
+public class BrandCache {
+    private static final String ALL = "all";
+
+    private final Cache<String, List<BrandResponseDTO>> brandList;
+
+    /**
+     * Constructor for BrandCache.
+     *
+     * @param expireAfterWrite the time after which the list is read again from the database
+     * @param meterRegistry the registry the cache statistics are published to
+     */
+    @Autowired
+    public BrandCache(@Value("${brand.cache.expire-after-write:PT10M}") Duration expireAfterWrite,
+                      MeterRegistry meterRegistry) {
+        this.brandList = Caffeine.newBuilder().maximumSize(1).expireAfterWrite(expireAfterWrite).recordStats().build();
+        CaffeineCacheMetrics.monitor(meterRegistry, brandList, "brands.all");
+    }
+
+    /**
+     * Returns the list of every brand, loading it on a miss. The list is shared by the requests, so it is read-only.
+     *
+     * @param loader the database lookup used on a miss
+     * @return the list of brands
+     */
+    public List<BrandResponseDTO> getAll(Supplier<List<BrandResponseDTO>> loader) {
+        return brandList.get(ALL, key -> Collections.unmodifiableList(loader.get()));
+    }
+
+    /**
+     * Drops the cached list after a brand was created, updated or deleted.
+     *
+     * @param event the brand change
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBrandChange(BrandChangeEvent event) {
+        brandList.invalidateAll();
+    }
+}
@@ -0,0 +1,257 @@
+package com.technicaltest.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.technicaltest.controllers.request.BrandDeletionDTO;
+import com.technicaltest.controllers.request.ResponseDTO;
+import com.technicaltest.events.BrandChangeEvent;
+import com.technicaltest.events.VehiclesDeletedEvent;
+import com.technicaltest.repositories.BrandRepository;
+import com.technicaltest.repositories.VehicleRepository;
+import com.technicaltest.utils.Ids;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.task.TaskExecutorBuilder;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityNotFoundException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Deletes brands together with their vehicles.
+ * Removing a brand through the cascade of BrandEntity.vehicles would load every vehicle of the brand and delete
+ * them one statement at a time in a single transaction. Instead the vehicles are deleted in chunks: each chunk
+ * reads the first IDs of the brand from the index on the brand and the ID and deletes them by primary key in one
+ * statement, in its own transaction, so neither the heap nor the locks grow with the size of the brand.
+ * The brand is deleted last, the cascade then only meets the vehicles added while the chunks ran.
+ * A deletion can also run in the background, its progress is kept for a while after it finishes.
+ */
+@Service
+public class BrandDeletionService implements DisposableBean {
+
+    public static final String DELETION_DOES_NOT_EXIST = "La eliminacion no existe";
+    public static final String DELETION_FAILED = "No se pudo eliminar la marca";
+    static final String RUNNING = "RUNNING";
+    static final String COMPLETED = "COMPLETED";
+    static final String FAILED = "FAILED";
+
+    private final VehicleRepository vehicleRepository;
+    private final BrandRepository brandRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TaskExecutor executor;
+    private final int chunkSize;
+    private final Clock clock;
+    private final Counter deletedVehicles;
+    private final Map<String, Job> runningByBrand = new ConcurrentHashMap<>();
+    private final Cache<String, Job> finished;
+
+    /**
+     * Constructor for BrandDeletionService.
+     *
+     * @param vehicleRepository the vehicle repository
+     * @param brandRepository the brand repository
+     * @param transactionManager the transaction manager of the chunks
+     * @param eventPublisher the publisher of the vehicle and brand change events
+     * @param taskExecutorBuilder the builder of the pool of the background deletions
+     * @param meterRegistry the registry of the deleted vehicles counter
+     * @param chunkSize the number of vehicles deleted per transaction
+     * @param retention how long a finished background deletion can still be queried
+     */
+    @Autowired
+    public BrandDeletionService(VehicleRepository vehicleRepository, BrandRepository brandRepository,
+                                PlatformTransactionManager transactionManager, ApplicationEventPublisher eventPublisher,
+                                TaskExecutorBuilder taskExecutorBuilder, MeterRegistry meterRegistry,
+                                @Value("${brand.delete.chunk-size:1000}") int chunkSize,
+                                @Value("${brand.delete.retention:PT1H}") Duration retention) {
+        this(vehicleRepository, brandRepository, transactionManager, eventPublisher,
+                backgroundExecutor(taskExecutorBuilder), meterRegistry, chunkSize, retention, Clock.systemUTC());
+    }
+
+    BrandDeletionService(VehicleRepository vehicleRepository, BrandRepository brandRepository,
+                         PlatformTransactionManager transactionManager, ApplicationEventPublisher eventPublisher,
+                         TaskExecutor executor, MeterRegistry meterRegistry, int chunkSize, Duration retention,
+                         Clock clock) {
+        this.vehicleRepository = vehicleRepository;
+        this.brandRepository = brandRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
+        this.executor = executor;
+        this.chunkSize = chunkSize;
+        this.clock = clock;
+        this.deletedVehicles = meterRegistry.counter("brand.delete.vehicles");
+        this.finished = Caffeine.newBuilder().expireAfterWrite(retention).build();
+    }
+
+    /**
+     * Deletes a brand and its vehicles, returning once every chunk is deleted.
+     *
+     * @param brandId the ID of the brand, which the caller has checked exists
+     * @return the finished deletion
+     */
+    public BrandDeletionDTO deleteBrand(String brandId) {
+        Job job = newJob(brandId);
+        run(job);
+        if (job.failure != null) {
+            throw job.failure;
+        }
+        return job.toDTO();
+    }
+
+    /**
+     * Starts deleting a brand and its vehicles in the background. If the brand is already being deleted in the
+     * background, that deletion is returned instead of starting another one.
+     *
+     * @param brandId the ID of the brand
+     * @return a ResponseDTO containing the deletion, whose ID is used to follow its progress
+     * @throws EntityNotFoundException if the brand does not exist
+     */
+    public ResponseDTO startDeletion(String brandId) {
+        if (!brandRepository.existsById(brandId)) {
+            throw new EntityNotFoundException(BrandService.DELETE_BRAND_NOT_FOUND);
+        }
+        Job job = newJob(brandId);
+        Job running = runningByBrand.putIfAbsent(brandId, job);
+        if (running != null) {
+            job = running;
+        } else {
+            Job started = job;
+            executor.execute(() -> {
+                run(started);
+                finished.put(started.id, started);
+                runningByBrand.remove(brandId, started);
+            });
+        }
+        return ResponseDTO.builder()
+                .response(job.toDTO())
+                .error(false)
+                .build();
+    }
+
+    /**
+     * Returns the progress of a background deletion.
+     *
+     * @param id the ID of the deletion
+     * @return a ResponseDTO containing the deletion
+     * @throws EntityNotFoundException if there is no such deletion, or it finished longer ago than the retention
+     */
+    public ResponseDTO getDeletion(String id) {
+        Job job = finished.getIfPresent(id);
+        if (job == null) {
+            job = runningByBrand.values().stream()
+                    .filter(running -> running.id.equals(id))
+                    .findFirst()
+                    .orElseThrow(() -> new EntityNotFoundException(DELETION_DOES_NOT_EXIST));
+        }
+        return ResponseDTO.builder()
+                .response(job.toDTO())
+                .error(false)
+                .build();
+    }
+
+    @Override
+    public void destroy() {
+        if (executor instanceof ThreadPoolTaskExecutor) {
+            ((ThreadPoolTaskExecutor) executor).shutdown();
+        }
+    }
+
+    private static ThreadPoolTaskExecutor backgroundExecutor(TaskExecutorBuilder taskExecutorBuilder) {
+        // One deletion at a time, the others wait in the queue rather than compete for the same locks
+        ThreadPoolTaskExecutor executor = taskExecutorBuilder
+                .corePoolSize(1)
+                .maxPoolSize(1)
+                .threadNamePrefix("brand-delete-")
+                .build();
+        executor.initialize();
+        return executor;
+    }
+
+    private Job newJob(String brandId) {
+        return new Job(Ids.newId(), brandId, vehicleRepository.countByBrandId(brandId), clock.instant());
+    }
+
+    /**
+     * Deletes the vehicles of the brand chunk by chunk, then the brand. Every chunk publishes the deletion of its
+     * vehicles in one event once it commits, so the caches, the indexes and the outbox follow a long deletion as it
+     * goes, and a deletion that fails halfway leaves them in step with the database. Deleting the brand again resumes
+     * from there.
+     */
+    private void run(Job job) {
+        try {
+            int deleted;
+            do {
+                deleted = transactionTemplate.execute(status -> {
+                    List<String> ids = vehicleRepository.findIdsByBrandId(job.brandId, PageRequest.of(0, chunkSize));
+                    if (ids.isEmpty()) {
+                        return 0;
+                    }
+                    int count = vehicleRepository.deleteByIdIn(ids);
+                    eventPublisher.publishEvent(new VehiclesDeletedEvent(ids));
+                    return count;
+                });
+                job.deletedVehicles += deleted;
+                deletedVehicles.increment(deleted);
+            } while (deleted == chunkSize);
+
+            transactionTemplate.executeWithoutResult(status -> {
+                brandRepository.findById(job.brandId).ifPresent(brandRepository::delete);
+                eventPublisher.publishEvent(BrandChangeEvent.deleted(job.brandId));
+            });
+            job.finish(COMPLETED, clock.instant());
+        } catch (RuntimeException e) {
+            job.failure = e;
+            job.finish(FAILED, clock.instant());
+        }
+    }
+
+    private static final class Job {
+        private final String id;
+        private final String brandId;
+        private final long totalVehicles;
+        private final Instant startedAt;
+        private volatile long deletedVehicles;
+        private volatile String status = RUNNING;
+        private volatile Instant finishedAt;
+        private volatile RuntimeException failure;
+
+        private Job(String id, String brandId, long totalVehicles, Instant startedAt) {
+            this.id = id;
+            this.brandId = brandId;
+            this.totalVehicles = totalVehicles;
+            this.startedAt = startedAt;
+        }
+
+        private void finish(String status, Instant finishedAt) {
+            this.finishedAt = finishedAt;
+            this.status = status;
+        }
+
+        private BrandDeletionDTO toDTO() {
+            return BrandDeletionDTO.builder()
+                    .id(id)
+                    .brandId(brandId)
+                    .status(status)
+                    .totalVehicles(totalVehicles)
+                    .deletedVehicles(deletedVehicles)
+                    .startedAt(startedAt)
+                    .finishedAt(finishedAt)
+                    .error(FAILED.equals(status) ? DELETION_FAILED : null)
+                    .build();
+        }
+    }
+}
@@ -3,37 +3,69 @@ package com.technicaltest.services;
 import com.technicaltest.controllers.request.BrandDTO;
 import com.technicaltest.controllers.request.BrandResponseDTO;
 import com.technicaltest.controllers.request.ResponseDTO;
+import com.technicaltest.events.BrandChangeEvent;
 import com.technicaltest.exceptions.EntityAlreadyExistsException;
+import com.technicaltest.exceptions.EntityConflictException;
+import com.technicaltest.exceptions.PreconditionFailedException;
 import com.technicaltest.models.BrandEntity;
 import com.technicaltest.repositories.BrandRepository;
 import com.technicaltest.utils.Constants;
+import com.technicaltest.utils.Ids;
+import com.technicaltest.utils.MergePatch;
+import com.technicaltest.utils.UniqueConstraints;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityNotFoundException;
+import javax.validation.ConstraintViolationException;
+import javax.validation.Validator;
 import java.util.List;
-import java.util.Optional;
-import java.util.UUID;
+import java.util.Map;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
  * Service class for managing brands.
  */
 @Service
+@Timed(value = "brand.service", description = "Brand service calls", histogram = true)
 public class BrandService {
     public static final String UPDATE_BRAND_NOT_FOUND = "Error al actualizar, marca no encontrada";
     public static final String DELETE_BRAND_NOT_FOUND = "Error al eliminar, marca no encontrada";
+    public static final String BRAND_ALREADY_EXISTS = "Ya existe una marca con ese nombre";
+    public static final String BRAND_VERSION_CHANGED = "La marca cambio desde que fue leida, vuelva a cargarla";
+    public static final String BRAND_CHANGED_CONCURRENTLY = "La marca fue modificada por otro usuario al mismo tiempo";
+    private static final String NAME = "name";
 
     private final BrandRepository brandRepository;
+    private final BrandCache brandCache;
+    private final BrandDeletionService brandDeletionService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Validator validator;
 
     /**
      * Constructor for BrandService.
      *
      * @param brandRepository the brand repository
+     * @param brandCache the in-process cache of the brand list
+     * @param brandDeletionService the service deleting brands and their vehicles in chunks
+     * @param eventPublisher the publisher of brand change events
+     * @param validator the validator of the fields of the partial updates
      */
     @Autowired
-    public BrandService(BrandRepository brandRepository) {
+    public BrandService(BrandRepository brandRepository, BrandCache brandCache,
+                        BrandDeletionService brandDeletionService, ApplicationEventPublisher eventPublisher,
+                        Validator validator) {
         this.brandRepository = brandRepository;
+        this.brandCache = brandCache;
+        this.brandDeletionService = brandDeletionService;
+        this.eventPublisher = eventPublisher;
+        this.validator = validator;
     }
 
     /**
@@ -41,17 +73,16 @@ public class BrandService {
      *
      * @return a ResponseDTO containing a list of all brands
      */
+    @Transactional(readOnly = true)
     public ResponseDTO getBrands() {
-        // Retrieve all BrandEntity objects from the repository
-        List<BrandEntity> brandEntities = brandRepository.findAll();
-
-        // Convert each BrandEntity to a BrandResponseDTO
-        List<BrandResponseDTO> brands = brandEntities.stream()
+        // Retrieve all BrandEntity objects from the cache, or from the repository on a miss,
+        // and convert each BrandEntity to a BrandResponseDTO
+        List<BrandResponseDTO> brands = brandCache.getAll(() -> brandRepository.findAll().stream()
                 .map(brandEntity -> BrandResponseDTO.builder()
                         .id(brandEntity.getId())
                         .name(brandEntity.getName())
                         .build())
-                .collect(Collectors.toList());
+                .collect(Collectors.toList()));
 
         // Build and return a ResponseDTO containing the list of BrandResponseDTOs
         return ResponseDTO.builder()
@@ -66,21 +97,24 @@ public class BrandService {
      * @param id the ID of the brand
      * @return a ResponseDTO containing the brand
      */
+    @Transactional(readOnly = true)
     public ResponseDTO getBrandById(String id) {
-        BrandEntity brandEntity = brandRepository.findById(id).orElseThrow(() -> new EntityNotFoundException("La marca no existe"));
+        BrandEntity brandEntity = findBrandById(id);
         BrandResponseDTO brand = BrandResponseDTO.builder()
                 .id(brandEntity.getId())
                 .name(brandEntity.getName())
+                .version(brandEntity.getVersion())
                 .build();
 
         return ResponseDTO.builder()
                 .response(brand)
                 .error(false)
+                .version(brandEntity.getVersion())
                 .build();
     }
 
     /**
-     * Finds a brand by its ID.
+     * Finds a brand by its ID, from the second-level cache when possible.
      *
      * @param id the ID of the brand
      * @return the BrandEntity
@@ -91,28 +125,24 @@ public class BrandService {
 
     /**
      * Adds a new brand.
+     * The brand is inserted straight away, a duplicated name is rejected by its unique constraint.
      *
      * @param brandDTO the brand to add
      * @return a ResponseDTO indicating success
+     * @throws EntityAlreadyExistsException if a brand with the same name exists
      */
+    @Transactional
     public ResponseDTO addBrand(BrandDTO brandDTO) {
 
-        // Check if a brand with the same name already exists in the repository
-        Optional<BrandEntity> existingBrand = brandRepository.findByName(brandDTO.getName());
-
-        // If a brand with the same name exists, throw an exception
-        if (existingBrand.isPresent()) {
-            throw new EntityAlreadyExistsException("Ya existe una marca con ese nombre");
-        }
-
         // Create a new BrandEntity object with the details from the BrandDTO
         BrandEntity brandEntity = BrandEntity.builder()
-                .id(UUID.randomUUID().toString())
+                .id(Ids.newId())
                 .name(brandDTO.getName())
                 .build();
 
-        // Save the new BrandEntity to the repository
-        brandRepository.save(brandEntity);
+        // Insert the new BrandEntity, flushing so a duplicated name is reported here
+        saveAndFlush(brandEntity);
+        eventPublisher.publishEvent(BrandChangeEvent.created(brandEntity));
 
         // Return a ResponseDTO indicating success
         return ResponseDTO.builder()
@@ -122,25 +152,78 @@ public class BrandService {
     }
 
     /**
-     * Updates a brand.
+     * Updates a brand, overwriting it whatever its version.
      *
      * @param id the ID of the brand to update
      * @param brandDTO the updated brand
-     * @return a ResponseDTO indicating success
+     * @return a ResponseDTO indicating success, holding the new version of the brand
+     * @throws EntityAlreadyExistsException if another brand has the new name
      */
+    @Transactional
     public ResponseDTO updateBrand(String id, BrandDTO brandDTO) {
+        return updateBrand(id, brandDTO, null);
+    }
+
+    /**
+     * Updates a brand. A concurrent update committed between the read and the write makes it fail on the version
+     * of the brand instead of being overwritten.
+     *
+     * @param id the ID of the brand to update
+     * @param brandDTO the updated brand
+     * @param expectedVersion the version the brand must still have, or null to update any version
+     * @return a ResponseDTO indicating success, holding the new version of the brand
+     * @throws PreconditionFailedException if the brand no longer has the expected version
+     * @throws EntityConflictException if the brand was updated concurrently
+     * @throws EntityAlreadyExistsException if another brand has the new name
+     */
+    @Transactional
+    public ResponseDTO updateBrand(String id, BrandDTO brandDTO, Long expectedVersion) {
+        return writeBrand(id, expectedVersion, brandEntity -> brandEntity.setName(brandDTO.getName()));
+    }
+
+    /**
+     * Updates the fields of a brand present in a JSON Merge Patch, validating only those.
+     * A patch that changes nothing writes nothing and keeps the version of the brand.
+     *
+     * @param id the ID of the brand to update
+     * @param patch the fields to change
+     * @param expectedVersion the version the brand must still have, or null to update any version
+     * @return a ResponseDTO indicating success, holding the new version of the brand
+     * @throws IllegalArgumentException if the patch holds a field a brand does not have
+     * @throws ConstraintViolationException if a field of the patch is not valid
+     * @throws PreconditionFailedException if the brand no longer has the expected version
+     * @throws EntityConflictException if the brand was updated concurrently
+     * @throws EntityAlreadyExistsException if another brand has the new name
+     */
+    @Transactional
+    public ResponseDTO patchBrand(String id, Map<String, Object> patch, Long expectedVersion) {
+        Map<String, String> fields = MergePatch.read(patch, BrandDTO.class, validator);
+        return writeBrand(id, expectedVersion, brandEntity -> {
+            if (fields.containsKey(NAME)) {
+                brandEntity.setName(fields.get(NAME));
+            }
+        });
+    }
+
+    private ResponseDTO writeBrand(String id, Long expectedVersion, Consumer<BrandEntity> changes) {
         BrandEntity brandEntity = brandRepository.findById(id).orElseThrow(() -> new EntityNotFoundException(UPDATE_BRAND_NOT_FOUND));
-        brandEntity.setName(brandDTO.getName());
-        brandRepository.save(brandEntity);
+        if (expectedVersion != null && !expectedVersion.equals(brandEntity.getVersion())) {
+            throw new PreconditionFailedException(BRAND_VERSION_CHANGED);
+        }
+        changes.accept(brandEntity);
+        saveAndFlush(brandEntity);
+        eventPublisher.publishEvent(BrandChangeEvent.updated(brandEntity));
 
         return ResponseDTO.builder()
                 .response(Constants.SUCCESS)
                 .error(false)
+                .version(brandEntity.getVersion())
                 .build();
     }
 
     /**
-     * Deletes a brand.
+     * Deletes a brand and its vehicles.
+     * The vehicles are deleted in chunks, each in its own transaction, see BrandDeletionService.
      *
      * @param id the ID of the brand to delete
      * @return a ResponseDTO indicating success
@@ -149,11 +232,31 @@ public class BrandService {
         if (!brandRepository.existsById(id)) {
             throw new EntityNotFoundException(DELETE_BRAND_NOT_FOUND);
         }
-        brandRepository.deleteById(id);
+        brandDeletionService.deleteBrand(id);
         return ResponseDTO.builder()
                 .response(Constants.SUCCESS)
                 .error(false)
                 .build();
 
     }
-}
\ No newline at end of file
+
+    /**
+     * Writes a brand and flushes it, reporting a duplicated name as an EntityAlreadyExistsException.
+     *
+     * @param brandEntity the brand to write
+     * @throws EntityAlreadyExistsException if the name belongs to another brand
+     * @throws EntityConflictException if the brand was updated concurrently
+     */
+    private void saveAndFlush(BrandEntity brandEntity) {
+        try {
+            brandRepository.saveAndFlush(brandEntity);
+        } catch (OptimisticLockingFailureException e) {
+            throw new EntityConflictException(BRAND_CHANGED_CONCURRENTLY);
+        } catch (DataIntegrityViolationException e) {
+            if (UniqueConstraints.isViolated(e, UniqueConstraints.BRAND_NAME)) {
+                throw new EntityAlreadyExistsException(BRAND_ALREADY_EXISTS);
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package com.technicaltest.services;
+
+import com.technicaltest.controllers.request.ChangeEventDTO;
+import com.technicaltest.controllers.request.ResponseDTO;
+import com.technicaltest.exceptions.CursorExpiredException;
+import com.technicaltest.models.OutboxEventEntity;
+import com.technicaltest.repositories.OutboxEventRepository;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.task.TaskExecutorBuilder;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * Streams the inventory changes handed out by the OutboxRelay to the consumers that would otherwise page through
+ * the whole inventory to find them. A consumer keeps the sequence of the last change it read as its cursor and asks
+ * for the changes after it, either in pages, waiting for the next changes when there are none yet (long poll), or
+ * as a stream of server-sent events. The relay wakes the waiting consumers up whenever it hands a batch out.
+ */
+@Service
+public class ChangeFeedService implements DisposableBean {
+
+    public static final String CURSOR_EXPIRED = "Los cambios posteriores al cursor ya no se conservan, vuelva a cargar el inventario";
+    static final int MAX_LIMIT = 1000;
+    private static final String CHANGES = "changes";
+    private static final String NEXT_CURSOR = "nextCursor";
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final TransactionTemplate readTransaction;
+    private final TaskExecutor executor;
+    private final Duration maxWait;
+    private final long streamTimeout;
+    private final Set<CompletableFuture<Void>> waiters = ConcurrentHashMap.newKeySet();
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Constructor for ChangeFeedService.
+     *
+     * @param outboxEventRepository the outbox repository
+     * @param transactionManager the transaction manager of the reads
+     * @param taskExecutorBuilder the builder of the pool that reads the changes for the waiting consumers
+     * @param maxWait the longest a long poll waits for the next changes
+     * @param streamTimeout how long a stream of server-sent events stays open, the client reconnects afterwards
+     */
+    @Autowired
+    public ChangeFeedService(OutboxEventRepository outboxEventRepository, PlatformTransactionManager transactionManager,
+                             TaskExecutorBuilder taskExecutorBuilder,
+                             @Value("${changes.max-wait:PT30S}") Duration maxWait,
+                             @Value("${changes.stream-timeout:PT30M}") Duration streamTimeout) {
+        this(outboxEventRepository, transactionManager, feedExecutor(taskExecutorBuilder), maxWait, streamTimeout);
+    }
+
+    ChangeFeedService(OutboxEventRepository outboxEventRepository, PlatformTransactionManager transactionManager,
+                      TaskExecutor executor, Duration maxWait, Duration streamTimeout) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+        this.executor = executor;
+        this.maxWait = maxWait;
+        this.streamTimeout = streamTimeout.toMillis();
+    }
+
+    /**
+     * Returns the changes after a cursor, waiting up to the given time for the next ones when there are none yet.
+     *
+     * @param since the sequence of the last change the consumer has, or null to start from the oldest change kept
+     * @param limit the maximum number of changes
+     * @param wait how long to wait for the next changes, capped at the configured maximum
+     * @return a future ResponseDTO containing the changes and the cursor to resume from
+     * @throws CursorExpiredException if the changes after the cursor are no longer kept
+     */
+    public CompletableFuture<ResponseDTO> getChanges(Long since, int limit, Duration wait) {
+        int pageSize = Math.min(Math.max(limit, 1), MAX_LIMIT);
+        // Registered before reading, so a batch handed out between the read and the wait still wakes it up
+        CompletableFuture<Void> waiter = new CompletableFuture<>();
+        waiters.add(waiter);
+        List<ChangeEventDTO> changes;
+        try {
+            changes = read(since, pageSize);
+        } catch (RuntimeException e) {
+            waiters.remove(waiter);
+            throw e;
+        }
+        long timeout = Math.min(wait.toMillis(), maxWait.toMillis());
+        if (!changes.isEmpty() || timeout <= 0) {
+            waiters.remove(waiter);
+            return CompletableFuture.completedFuture(response(changes, since));
+        }
+        return waiter.completeOnTimeout(null, timeout, TimeUnit.MILLISECONDS)
+                .whenComplete((result, failure) -> waiters.remove(waiter))
+                .thenApplyAsync(woken -> response(read(since, pageSize), since), executor);
+    }
+
+    /**
+     * Streams the changes after a cursor as server-sent events, the sequence of every change being its event ID.
+     * The changes already kept are sent first, then every batch the relay hands out. A stream whose cursor expired
+     * ends with an "expired" event.
+     *
+     * @param since the sequence of the last change the consumer has, or null to start from the oldest change kept
+     * @return the emitter of the stream
+     */
+    public SseEmitter streamChanges(Long since) {
+        SseEmitter emitter = new SseEmitter(streamTimeout);
+        Subscriber subscriber = new Subscriber(emitter, since);
+        subscribers.add(subscriber);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(failure -> subscribers.remove(subscriber));
+        subscriber.schedule();
+        return emitter;
+    }
+
+    /**
+     * Wakes the waiting consumers up after the relay handed a batch out.
+     */
+    void onRelayed() {
+        waiters.forEach(waiter -> waiter.complete(null));
+        subscribers.forEach(Subscriber::schedule);
+    }
+
+    @Override
+    public void destroy() {
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+        if (executor instanceof ThreadPoolTaskExecutor) {
+            ((ThreadPoolTaskExecutor) executor).shutdown();
+        }
+    }
+
+    private static ThreadPoolTaskExecutor feedExecutor(TaskExecutorBuilder taskExecutorBuilder) {
+        ThreadPoolTaskExecutor executor = taskExecutorBuilder
+                .corePoolSize(2)
+                .maxPoolSize(2)
+                .threadNamePrefix("changes-")
+                .build();
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Reads the changes after a cursor. The sequences have no gaps, so when the first change read is not the one
+     * right after the cursor, or there is none, the oldest change kept tells whether the cursor expired.
+     */
+    private List<ChangeEventDTO> read(Long since, int limit) {
+        long after = since == null ? 0 : since;
+        return readTransaction.execute(status -> {
+            List<OutboxEventEntity> events = outboxEventRepository.findRelayedAfter(after, PageRequest.of(0, limit));
+            if (since != null && (events.isEmpty() || events.get(0).getSequence() != after + 1)) {
+                Long first = outboxEventRepository.findFirstSequence();
+                if (first != null && first > after + 1) {
+                    throw new CursorExpiredException(CURSOR_EXPIRED);
+                }
+            }
+            return events.stream().map(ChangeFeedService::toDTO).collect(Collectors.toList());
+        });
+    }
+
+    private static ResponseDTO response(List<ChangeEventDTO> changes, Long since) {
+        Map<String, Object> response = new HashMap<>();
+        response.put(CHANGES, changes);
+        response.put(NEXT_CURSOR, changes.isEmpty()
+                ? since
+                : Long.valueOf(changes.get(changes.size() - 1).getSequence()));
+        return ResponseDTO.builder()
+                .response(response)
+                .error(false)
+                .build();
+    }
+
+    static ChangeEventDTO toDTO(OutboxEventEntity event) {
+        return ChangeEventDTO.builder()
+                .sequence(event.getSequence())
+                .entityType(event.getEntityType())
+                .entityId(event.getEntityId())
+                .type(event.getType())
+                .data(event.getPayload())
+                .occurredAt(event.getCreatedDate())
+                .build();
+    }
+
+    /**
+     * A consumer of the stream of server-sent events. Its sends run on the feed pool one at a time, a wake up that
+     * comes while one is scheduled is folded into it.
+     */
+    private final class Subscriber {
+        private final SseEmitter emitter;
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private Long cursor;
+
+        private Subscriber(SseEmitter emitter, Long cursor) {
+            this.emitter = emitter;
+            this.cursor = cursor;
+        }
+
+        private void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                executor.execute(this::send);
+            }
+        }
+
+        private synchronized void send() {
+            scheduled.set(false);
+            try {
+                List<ChangeEventDTO> changes;
+                do {
+                    changes = read(cursor, MAX_LIMIT);
+                    for (ChangeEventDTO change : changes) {
+                        emitter.send(SseEmitter.event()
+                                .id(String.valueOf(change.getSequence()))
+                                .name(CHANGES)
+                                .data(change, MediaType.APPLICATION_JSON));
+                        cursor = change.getSequence();
+                    }
+                } while (changes.size() == MAX_LIMIT);
+            } catch (CursorExpiredException e) {
+                subscribers.remove(this);
+                try {
+                    emitter.send(SseEmitter.event().name("expired").data(e.getMessage()));
+                    emitter.complete();
+                } catch (IOException | IllegalStateException closed) {
+                    emitter.completeWithError(closed);
+                }
+            } catch (IOException | IllegalStateException closed) {
+                // The client went away, the emitter callbacks remove it
+                subscribers.remove(this);
+                emitter.completeWithError(closed);
+            }
+        }
+    }
+}
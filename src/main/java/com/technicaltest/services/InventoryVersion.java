@@ -0,0 +1,42 @@
+package com.technicaltest.services;
+
+import com.technicaltest.repositories.OutboxEventRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * The version of the inventory behind the read endpoints: the number of changes committed so far.
+ * Every write records its change in the outbox in its own transaction, so the version is shared by all the instances
+ * and moves exactly when a write commits, whichever instance made it. An ETag made of it changes whenever a response
+ * may have changed, so a client holding the current ETag can be answered without reading the inventory.
+ */
+@Component
+public class InventoryVersion {
+
+    private static final String PREFIX = "\"inventory-";
+
+    private final OutboxEventRepository outboxEventRepository;
+
+    /**
+     * Constructor for InventoryVersion.
+     *
+     * @param outboxEventRepository the outbox repository the changes are counted in
+     */
+    @Autowired
+    public InventoryVersion(OutboxEventRepository outboxEventRepository) {
+        this.outboxEventRepository = outboxEventRepository;
+    }
+
+    /**
+     * Returns a strong ETag made of the current version. It is read in a read-only transaction, from whichever
+     * database the read-only transactions of the current thread use, so the caller pins the thread to one replica
+     * when the version must not be newer than the data read after it.
+     *
+     * @return the quoted ETag
+     */
+    @Transactional(readOnly = true)
+    public String etag() {
+        return PREFIX + outboxEventRepository.countChanges() + '"';
+    }
+}
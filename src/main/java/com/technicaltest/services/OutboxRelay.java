@@ -0,0 +1,142 @@
+package com.technicaltest.services;
+
+import com.technicaltest.controllers.request.ChangeEventDTO;
+import com.technicaltest.models.OutboxEventEntity;
+import com.technicaltest.outbox.OutboxSink;
+import com.technicaltest.repositories.OutboxEventRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Hands the changes recorded in the outbox out to the configured OutboxSink, in batches.
+ * Each batch reads the first rows not handed out yet, numbers them after the last sequence, delivers them to the
+ * sink and commits, all in one transaction. Rows are only visible once the write that recorded them commits, so
+ * the sequence follows the commit order and a consumer never skips a change committed after it read.
+ * A batch that fails is rolled back and handed out again on the next run. A second relay running at the same time
+ * reads the same rows and numbers them alike, the version of the rows makes its numbering fail when it is flushed,
+ * before it delivers anything, instead of handing the same changes out twice. Still only one instance should have
+ * the relay enabled. Afterwards the oldest changes are deleted, keeping the configured number of them for the
+ * consumers of the changes endpoint.
+ */
+@Service
+public class OutboxRelay {
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final OutboxSink outboxSink;
+    private final ChangeFeedService changeFeedService;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int batchSize;
+    private final long retainedEvents;
+    private final Clock clock;
+    private final Counter relayedEvents;
+    private final Counter failedBatches;
+
+    /**
+     * Constructor for OutboxRelay.
+     *
+     * @param outboxEventRepository the outbox repository
+     * @param outboxSink the sink the changes are handed out to
+     * @param changeFeedService the feed whose waiting consumers are woken up after every batch
+     * @param transactionManager the transaction manager of the batches
+     * @param meterRegistry the registry of the relay counters
+     * @param enabled whether this instance hands the changes out
+     * @param batchSize the number of changes handed out per transaction
+     * @param retainedEvents the number of changes kept after they are handed out, at least one
+     */
+    @Autowired
+    public OutboxRelay(OutboxEventRepository outboxEventRepository, OutboxSink outboxSink,
+                       ChangeFeedService changeFeedService, PlatformTransactionManager transactionManager,
+                       MeterRegistry meterRegistry,
+                       @Value("${outbox.relay.enabled:true}") boolean enabled,
+                       @Value("${outbox.relay.batch-size:500}") int batchSize,
+                       @Value("${outbox.retained-events:100000}") long retainedEvents) {
+        this(outboxEventRepository, outboxSink, changeFeedService, transactionManager, meterRegistry, enabled,
+                batchSize, retainedEvents, Clock.systemUTC());
+    }
+
+    OutboxRelay(OutboxEventRepository outboxEventRepository, OutboxSink outboxSink, ChangeFeedService changeFeedService,
+                PlatformTransactionManager transactionManager, MeterRegistry meterRegistry, boolean enabled,
+                int batchSize, long retainedEvents, Clock clock) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.outboxSink = outboxSink;
+        this.changeFeedService = changeFeedService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        // The last change is always kept, the next sequences are numbered after it
+        this.retainedEvents = Math.max(retainedEvents, 1);
+        this.clock = clock;
+        this.relayedEvents = meterRegistry.counter("outbox.relay.events");
+        this.failedBatches = meterRegistry.counter("outbox.relay.failures");
+    }
+
+    /**
+     * Hands out every change recorded so far, batch by batch, then deletes the changes no longer kept.
+     */
+    @Scheduled(fixedDelayString = "${outbox.relay.interval:PT1S}")
+    public void relay() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            int relayed;
+            do {
+                relayed = relayBatch();
+            } while (relayed == batchSize);
+            purge();
+        } catch (RuntimeException e) {
+            // The batch was rolled back, the next run hands it out again
+            failedBatches.increment();
+        }
+    }
+
+    private int relayBatch() {
+        List<ChangeEventDTO> changes = transactionTemplate.execute(status -> {
+            List<OutboxEventEntity> events = outboxEventRepository.findUnrelayed(PageRequest.of(0, batchSize));
+            if (events.isEmpty()) {
+                return Collections.<ChangeEventDTO>emptyList();
+            }
+            Long last = outboxEventRepository.findLastSequence();
+            long sequence = last == null ? 0 : last;
+            Instant relayedDate = clock.instant();
+            List<ChangeEventDTO> batch = new ArrayList<>(events.size());
+            for (OutboxEventEntity event : events) {
+                event.setSequence(++sequence);
+                event.setRelayedDate(relayedDate);
+                batch.add(ChangeFeedService.toDTO(event));
+            }
+            // Fails on the version of the rows if another relay handed them out meanwhile
+            outboxEventRepository.flush();
+            outboxSink.deliver(batch);
+            return batch;
+        });
+        if (!changes.isEmpty()) {
+            relayedEvents.increment(changes.size());
+            changeFeedService.onRelayed();
+        }
+        return changes.size();
+    }
+
+    private void purge() {
+        transactionTemplate.executeWithoutResult(status -> {
+            Long last = outboxEventRepository.findLastSequence();
+            if (last != null && last > retainedEvents) {
+                outboxEventRepository.deleteRelayedUpTo(last - retainedEvents);
+            }
+        });
+    }
+}
@@ -0,0 +1,110 @@
+package com.technicaltest.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.technicaltest.controllers.request.BrandResponseDTO;
+import com.technicaltest.controllers.request.VehicleResponseDTO;
+import com.technicaltest.events.BrandChangeEvent;
+import com.technicaltest.events.VehicleChangeEvent;
+import com.technicaltest.events.VehiclesDeletedEvent;
+import com.technicaltest.models.BrandEntity;
+import com.technicaltest.models.OutboxEventEntity;
+import com.technicaltest.models.VehicleEntity;
+import com.technicaltest.utils.Ids;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+
+/**
+ * Appends a row to the outbox for every change of a vehicle or a brand.
+ * It listens to the change events as they are published, while the transaction of the write is still open, so the
+ * row is inserted in that transaction and committed or rolled back together with the change. The rows carry the
+ * state after the change, read from the entity the event holds, and are handed out later by the OutboxRelay.
+ */
+@Service
+public class OutboxWriter {
+
+    public static final String VEHICLE = "VEHICLE";
+    public static final String BRAND = "BRAND";
+
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * Constructor for OutboxWriter.
+     *
+     * @param entityManager the entity manager used to insert the rows
+     * @param objectMapper the mapper used to write the state of the entities
+     * @param transactionManager the transaction manager of the changes published outside of a transaction
+     */
+    public OutboxWriter(EntityManager entityManager, ObjectMapper objectMapper, PlatformTransactionManager transactionManager) {
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Records a created, updated or deleted vehicle.
+     *
+     * @param event the vehicle change
+     */
+    @EventListener
+    public void onVehicleChange(VehicleChangeEvent event) {
+        VehicleEntity vehicle = event.getVehicle();
+        append(VEHICLE, event.getVehicleId(), event.getType().name(), vehicle == null ? null : toResponse(vehicle));
+    }
+
+    /**
+     * Records the deletion of every vehicle of a chunk, in the transaction that deleted them.
+     *
+     * @param event the deleted vehicles
+     */
+    @EventListener
+    public void onVehiclesDeleted(VehiclesDeletedEvent event) {
+        transactionTemplate.executeWithoutResult(status -> event.getVehicleIds()
+                .forEach(id -> append(VEHICLE, id, VehicleChangeEvent.Type.DELETED.name(), null)));
+    }
+
+    /**
+     * Records a created, updated or deleted brand.
+     *
+     * @param event the brand change
+     */
+    @EventListener
+    public void onBrandChange(BrandChangeEvent event) {
+        BrandEntity brand = event.getBrand();
+        append(BRAND, event.getBrandId(), event.getType().name(),
+                brand == null ? null : new BrandResponseDTO(brand.getId(), brand.getName(), brand.getVersion()));
+    }
+
+    private void append(String entityType, String entityId, String type, Object data) {
+        OutboxEventEntity event = OutboxEventEntity.builder()
+                .id(Ids.newId())
+                .entityType(entityType)
+                .entityId(entityId)
+                .type(type)
+                .payload(data == null ? null : write(data))
+                .build();
+        // Joins the transaction of the write, a change published outside of one is recorded in its own
+        transactionTemplate.executeWithoutResult(status -> entityManager.persist(event));
+    }
+
+    private String write(Object data) {
+        try {
+            return objectMapper.writeValueAsString(data);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static VehicleResponseDTO toResponse(VehicleEntity vehicle) {
+        BrandEntity brand = vehicle.getBrandEntity();
+        return new VehicleResponseDTO(vehicle.getId(), vehicle.getModel(), vehicle.getLicensePlate(), vehicle.getColor(),
+                vehicle.getYear(), brand == null ? null : new BrandResponseDTO(brand.getId(), brand.getName()),
+                vehicle.getVersion());
+    }
+}
@@ -0,0 +1,532 @@
+package com.technicaltest.services;
+
+import com.technicaltest.controllers.request.FacetCountDTO;
+import com.technicaltest.controllers.request.VehicleFilterDTO;
+import com.technicaltest.events.BrandChangeEvent;
+import com.technicaltest.events.VehicleChangeEvent;
+import com.technicaltest.events.VehiclesDeletedEvent;
+import com.technicaltest.models.VehicleEntity;
+import com.technicaltest.repositories.BrandRepository;
+import com.technicaltest.repositories.VehicleRepository;
+import com.technicaltest.repositories.projections.VehicleAttributeView;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * In-memory index of the brand, year and color of every vehicle, the filters of the faceted search.
+ * Each vehicle gets an ordinal, and each distinct value of the three columns a compressed bitmap of the ordinals of
+ * the vehicles that have it. A filter is then an OR of the bitmaps of the selected values of each facet and an AND
+ * across facets, and the count of a facet value is the cardinality of its bitmap AND the filters of the other facets,
+ * without reading the database. Only the vehicles of the page are loaded, by ID.
+ * The index is built once the application is ready and kept current through the vehicle and brand change events.
+ * Ordinals follow the ID order of the vehicles loaded at startup, vehicles created since are appended after them.
+ * A removed vehicle leaves its slot in the ordinal table empty until the empty slots outnumber the vehicles, then the
+ * ordinals are renumbered without them, in the same order.
+ */
+@Service
+public class VehicleAttributeIndex {
+
+    /**
+     * Estimated heap taken by the ID of an indexed vehicle: the string, its slot in the ordinal table and its entry
+     * in the ordinal map. The bitmaps are measured, the IDs are not.
+     */
+    static final long ID_ENTRY_BYTES = 144;
+
+    /**
+     * Heap taken by the empty slot a removed vehicle leaves in the ordinal table until the next compaction.
+     */
+    static final long EMPTY_SLOT_BYTES = 8;
+
+    /**
+     * The fewest empty slots worth a compaction, below it renumbering costs more than the slots take.
+     */
+    static final int MIN_COMPACTION_SLOTS = 1024;
+
+    private final VehicleRepository vehicleRepository;
+    private final BrandRepository brandRepository;
+    private final TransactionTemplate readOnly;
+    private final boolean enabled;
+    private final int loadChunkSize;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ArrayList<String> ids = new ArrayList<>();
+    private final Map<String, Integer> ordinals = new HashMap<>();
+    private final RoaringBitmap live = new RoaringBitmap();
+    private final Map<String, RoaringBitmap> byBrand = new HashMap<>();
+    private final NavigableMap<String, RoaringBitmap> byYear = new TreeMap<>();
+    private final Map<String, RoaringBitmap> byColor = new HashMap<>();
+    private final Map<String, String> colorLabels = new HashMap<>();
+    private final Map<String, String> brandNames = new HashMap<>();
+    private final Set<String> removedWhileLoading = new HashSet<>();
+    private int emptySlots;
+    private volatile boolean loading;
+    private volatile boolean ready;
+
+    /**
+     * Constructor for VehicleAttributeIndex.
+     *
+     * @param vehicleRepository the vehicle repository used to build the index
+     * @param brandRepository the brand repository used to build the index
+     * @param transactionManager the transaction manager the vehicles are streamed in
+     * @param meterRegistry the registry of the footprint metrics
+     * @param enabled whether the index is built at all
+     * @param loadChunkSize the number of streamed vehicles added to the index at a time
+     */
+    @Autowired
+    public VehicleAttributeIndex(VehicleRepository vehicleRepository,
+                                 BrandRepository brandRepository,
+                                 PlatformTransactionManager transactionManager,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${vehicle.attribute-index.enabled:true}") boolean enabled,
+                                 @Value("${vehicle.attribute-index.load-chunk-size:5000}") int loadChunkSize) {
+        this.vehicleRepository = vehicleRepository;
+        this.brandRepository = brandRepository;
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setReadOnly(true);
+        this.enabled = enabled;
+        this.loadChunkSize = loadChunkSize;
+        Gauge.builder("vehicle.attribute.index.size", this, index -> index.footprint().getVehicles())
+                .description("Vehicles in the attribute index")
+                .register(meterRegistry);
+        Gauge.builder("vehicle.attribute.index.bitmap.bytes", this, index -> index.footprint().getBitmapBytes())
+                .description("Serialized size of the bitmaps of the attribute index")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("vehicle.attribute.index.id.bytes", this, index -> index.footprint().getIdBytes())
+                .description("Estimated heap taken by the IDs of the attribute index")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Builds the index once the application has started, while it is building the faceted search uses the database.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (enabled) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Discards the current content and loads every brand and vehicle from the database.
+     * The vehicles are streamed from a single cursor in ID order and added a chunk at a time.
+     */
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            ready = false;
+            loading = true;
+            clear();
+            brandRepository.findAll().forEach(brand -> brandNames.put(brand.getId(), brand.getName()));
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        readOnly.executeWithoutResult(status -> {
+            try (Stream<VehicleAttributeView> views = vehicleRepository.streamAttributeViews()) {
+                List<VehicleAttributeView> chunk = new ArrayList<>(loadChunkSize);
+                views.forEach(view -> {
+                    chunk.add(view);
+                    if (chunk.size() == loadChunkSize) {
+                        addLoaded(chunk);
+                        chunk.clear();
+                    }
+                });
+                addLoaded(chunk);
+            }
+        });
+
+        lock.writeLock().lock();
+        try {
+            removedWhileLoading.clear();
+            loading = false;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Tells whether the index is complete and can answer filters.
+     *
+     * @return true when the index has been built
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Filters the vehicles and counts the vehicles of every value of each facet under the filters of the other facets.
+     *
+     * @param filter the brands, year range and colors to filter by
+     * @param offset the number of matching vehicles before the page
+     * @param limit the maximum number of IDs of the page
+     * @return the matches, or empty when the index is not built
+     */
+    public Optional<Matches> filter(VehicleFilterDTO filter, int offset, int limit) {
+        if (!ready) {
+            return Optional.empty();
+        }
+
+        lock.readLock().lock();
+        try {
+            RoaringBitmap brands = filter.getBrandIds() == null || filter.getBrandIds().isEmpty()
+                    ? live : union(filter.getBrandIds().stream().map(byBrand::get));
+            RoaringBitmap years = filter.getYearFrom() == null && filter.getYearTo() == null
+                    ? live : union(yearsBetween(filter.getYearFrom(), filter.getYearTo()).values().stream());
+            RoaringBitmap colors = filter.getColors() == null || filter.getColors().isEmpty()
+                    ? live : union(filter.getColors().stream().map(color -> byColor.get(color.toLowerCase(Locale.ROOT))));
+            RoaringBitmap hits = RoaringBitmap.and(RoaringBitmap.and(brands, years), colors);
+
+            List<String> page = new ArrayList<>();
+            for (long i = offset; i < Math.min((long) offset + limit, hits.getLongCardinality()); i++) {
+                page.add(ids.get(hits.select((int) i)));
+            }
+
+            Map<String, FacetCountDTO> brandCounts = new HashMap<>();
+            RoaringBitmap yearsAndColors = RoaringBitmap.and(years, colors);
+            byBrand.forEach((brandId, bitmap) -> addCount(brandCounts, brandId,
+                    brandNames.getOrDefault(brandId, brandId), RoaringBitmap.andCardinality(bitmap, yearsAndColors)));
+            Map<String, FacetCountDTO> yearCounts = new HashMap<>();
+            RoaringBitmap brandsAndColors = RoaringBitmap.and(brands, colors);
+            byYear.forEach((year, bitmap) -> addCount(yearCounts, year, year,
+                    RoaringBitmap.andCardinality(bitmap, brandsAndColors)));
+            Map<String, FacetCountDTO> colorCounts = new HashMap<>();
+            RoaringBitmap brandsAndYears = RoaringBitmap.and(brands, years);
+            byColor.forEach((color, bitmap) -> addCount(colorCounts, color, colorLabels.get(color),
+                    RoaringBitmap.andCardinality(bitmap, brandsAndYears)));
+
+            return Optional.of(new Matches(hits.getLongCardinality(), page, brandCounts, yearCounts, colorCounts));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Reports the memory the index takes.
+     *
+     * @return the footprint of the index
+     */
+    public Footprint footprint() {
+        lock.readLock().lock();
+        try {
+            long bitmapBytes = live.getLongSizeInBytes();
+            for (Map<String, RoaringBitmap> bitmaps : List.of(byBrand, byYear, byColor)) {
+                for (RoaringBitmap bitmap : bitmaps.values()) {
+                    bitmapBytes += bitmap.getLongSizeInBytes();
+                }
+            }
+            return new Footprint(ordinals.size(), emptySlots, byBrand.size(), byYear.size(), byColor.size(),
+                    bitmapBytes, ordinals.size() * ID_ENTRY_BYTES + emptySlots * EMPTY_SLOT_BYTES);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds or updates a vehicle in the index.
+     *
+     * @param vehicle the vehicle to index
+     */
+    public void put(VehicleEntity vehicle) {
+        String brandId = vehicle.getBrandEntity() != null ? vehicle.getBrandEntity().getId() : null;
+
+        lock.writeLock().lock();
+        try {
+            Integer ordinal = ordinals.get(vehicle.getId());
+            if (ordinal == null) {
+                add(vehicle.getId(), brandId, vehicle.getYear(), vehicle.getColor());
+                return;
+            }
+            unset(ordinal);
+            set(ordinal, brandId, vehicle.getYear(), vehicle.getColor());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a vehicle from the index.
+     *
+     * @param id the ID of the vehicle to remove
+     */
+    public void remove(String id) {
+        removeAll(Collections.singletonList(id));
+    }
+
+    /**
+     * Removes vehicles from the index under a single write lock.
+     *
+     * @param vehicleIds the IDs of the vehicles to remove
+     */
+    public void removeAll(Collection<String> vehicleIds) {
+        lock.writeLock().lock();
+        try {
+            for (String id : vehicleIds) {
+                if (loading) {
+                    removedWhileLoading.add(id);
+                }
+                Integer ordinal = ordinals.remove(id);
+                if (ordinal != null) {
+                    unset(ordinal);
+                    live.remove(ordinal);
+                    ids.set(ordinal, null);
+                    emptySlots++;
+                }
+            }
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a brand together with all of its vehicles, mirroring the cascade in the database.
+     *
+     * @param brandId the ID of the brand to remove
+     */
+    public void removeBrand(String brandId) {
+        lock.writeLock().lock();
+        try {
+            brandNames.remove(brandId);
+            RoaringBitmap vehicles = byBrand.get(brandId);
+            if (vehicles == null) {
+                return;
+            }
+            for (int ordinal : vehicles.toArray()) {
+                if (loading) {
+                    removedWhileLoading.add(ids.get(ordinal));
+                }
+                ordinals.remove(ids.get(ordinal));
+                unset(ordinal);
+                live.remove(ordinal);
+                ids.set(ordinal, null);
+                emptySlots++;
+            }
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Keeps the index current after a vehicle is written, once the surrounding transaction (if any) has committed.
+     *
+     * @param event the vehicle change
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onVehicleChange(VehicleChangeEvent event) {
+        if (!enabled) {
+            return;
+        }
+        if (event.getType() == VehicleChangeEvent.Type.DELETED) {
+            remove(event.getVehicleId());
+        } else {
+            put(event.getVehicle());
+        }
+    }
+
+    /**
+     * Removes a chunk of deleted vehicles, once the surrounding transaction (if any) has committed.
+     *
+     * @param event the deleted vehicles
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onVehiclesDeleted(VehiclesDeletedEvent event) {
+        if (enabled) {
+            removeAll(event.getVehicleIds());
+        }
+    }
+
+    /**
+     * Keeps the brand names current and removes the vehicles of a deleted brand.
+     *
+     * @param event the brand change
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBrandChange(BrandChangeEvent event) {
+        if (!enabled) {
+            return;
+        }
+        if (event.getType() == BrandChangeEvent.Type.DELETED) {
+            removeBrand(event.getBrandId());
+        } else {
+            lock.writeLock().lock();
+            try {
+                brandNames.put(event.getBrand().getId(), event.getBrand().getName());
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    private void addLoaded(List<VehicleAttributeView> chunk) {
+        lock.writeLock().lock();
+        try {
+            for (VehicleAttributeView view : chunk) {
+                if (!ordinals.containsKey(view.getId()) && !removedWhileLoading.contains(view.getId())
+                        && brandNames.containsKey(view.getBrandId())) {
+                    add(view.getId(), view.getBrandId(), view.getYear(), view.getColor());
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void clear() {
+        ids.clear();
+        ordinals.clear();
+        live.clear();
+        byBrand.clear();
+        byYear.clear();
+        byColor.clear();
+        colorLabels.clear();
+        brandNames.clear();
+        removedWhileLoading.clear();
+        emptySlots = 0;
+    }
+
+    private void add(String id, String brandId, String year, String color) {
+        int ordinal = ids.size();
+        ids.add(id);
+        ordinals.put(id, ordinal);
+        live.add(ordinal);
+        set(ordinal, brandId, year, color);
+    }
+
+    private void set(int ordinal, String brandId, String year, String color) {
+        String colorKey = color.toLowerCase(Locale.ROOT);
+        colorLabels.putIfAbsent(colorKey, color);
+        byBrand.computeIfAbsent(brandId, key -> new RoaringBitmap()).add(ordinal);
+        byYear.computeIfAbsent(year, key -> new RoaringBitmap()).add(ordinal);
+        byColor.computeIfAbsent(colorKey, key -> new RoaringBitmap()).add(ordinal);
+    }
+
+    /**
+     * Clears the ordinal from the bitmaps of its values. The values of a vehicle are not kept, they are found
+     * among the few bitmaps of each column, and the bitmaps left empty are dropped.
+     */
+    private void unset(int ordinal) {
+        for (Map<String, RoaringBitmap> bitmaps : List.of(byBrand, byYear, byColor)) {
+            bitmaps.values().removeIf(bitmap -> bitmap.checkedRemove(ordinal) && bitmap.isEmpty());
+        }
+        colorLabels.keySet().retainAll(byColor.keySet());
+    }
+
+    /**
+     * Renumbers the vehicles without the empty slots once they outnumber the vehicles. The vehicles keep their order,
+     * so the pages of a filter do not change, and every bitmap is rebuilt with the new ordinals.
+     */
+    private void compactIfNeeded() {
+        if (emptySlots < MIN_COMPACTION_SLOTS || emptySlots < ordinals.size()) {
+            return;
+        }
+        int[] renumbered = new int[ids.size()];
+        List<String> liveIds = new ArrayList<>(ordinals.size());
+        for (int ordinal = 0; ordinal < ids.size(); ordinal++) {
+            String id = ids.get(ordinal);
+            if (id != null) {
+                renumbered[ordinal] = liveIds.size();
+                ordinals.put(id, liveIds.size());
+                liveIds.add(id);
+            }
+        }
+        ids.clear();
+        ids.addAll(liveIds);
+        ids.trimToSize();
+        live.clear();
+        live.add(0L, liveIds.size());
+        for (Map<String, RoaringBitmap> bitmaps : List.of(byBrand, byYear, byColor)) {
+            bitmaps.replaceAll((value, bitmap) -> renumber(bitmap, renumbered));
+        }
+        emptySlots = 0;
+    }
+
+    private static RoaringBitmap renumber(RoaringBitmap bitmap, int[] renumbered) {
+        int[] ordinals = bitmap.toArray();
+        for (int i = 0; i < ordinals.length; i++) {
+            ordinals[i] = renumbered[ordinals[i]];
+        }
+        return RoaringBitmap.bitmapOf(ordinals);
+    }
+
+    private NavigableMap<String, RoaringBitmap> yearsBetween(String from, String to) {
+        if (from != null && to != null) {
+            return from.compareTo(to) > 0 ? Collections.emptyNavigableMap() : byYear.subMap(from, true, to, true);
+        }
+        return from != null ? byYear.tailMap(from, true) : byYear.headMap(to, true);
+    }
+
+    private static RoaringBitmap union(Stream<RoaringBitmap> bitmaps) {
+        return RoaringBitmap.or(bitmaps.filter(Objects::nonNull).iterator());
+    }
+
+    private static void addCount(Map<String, FacetCountDTO> counts, String value, String label, long count) {
+        if (count > 0) {
+            counts.put(value, new FacetCountDTO(value, label, count));
+        }
+    }
+
+    /**
+     * The vehicles that match a filter and the facet counts under it.
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class Matches {
+        private final long total;
+
+        /**
+         * The IDs of the vehicles of the requested page, in the order of the index.
+         */
+        private final List<String> ids;
+
+        private final Map<String, FacetCountDTO> brands;
+        private final Map<String, FacetCountDTO> years;
+        private final Map<String, FacetCountDTO> colors;
+    }
+
+    /**
+     * The memory taken by the index.
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class Footprint {
+        private final long vehicles;
+
+        /**
+         * The slots left empty by removed vehicles, reclaimed by the next compaction.
+         */
+        private final int emptySlots;
+
+        private final int brandValues;
+        private final int yearValues;
+        private final int colorValues;
+
+        /**
+         * The serialized size of the bitmaps, close to the heap they take.
+         */
+        private final long bitmapBytes;
+
+        /**
+         * The estimated heap taken by the IDs, their empty slots and the map from ID to ordinal.
+         */
+        private final long idBytes;
+    }
+}
@@ -0,0 +1,195 @@
+package com.technicaltest.services;
+
+import com.technicaltest.controllers.request.ResponseDTO;
+import com.technicaltest.controllers.request.VehicleBulkDTO;
+import com.technicaltest.controllers.request.VehicleBulkResultDTO;
+import com.technicaltest.controllers.request.VehicleDTO;
+import com.technicaltest.controllers.request.VehicleFilterDTO;
+import com.technicaltest.events.VehicleChangeEvent;
+import com.technicaltest.repositories.VehicleRepository;
+import com.technicaltest.utils.MergePatch;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityNotFoundException;
+import javax.validation.ConstraintViolationException;
+import javax.validation.Validator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collectors;
+
+/**
+ * Updates and deletes many vehicles at once, selected by their IDs or by a filter.
+ * Writing the vehicles one request at a time reads every one of them before writing it. Instead the selected
+ * vehicles are processed in chunks, in ID order: each chunk reads the IDs of its vehicles, writes all of them with a
+ * single UPDATE or DELETE statement and commits in its own transaction, so neither the heap nor the locks grow with
+ * the number of vehicles. Every chunk publishes the changes of its vehicles once it commits, so a bulk write that
+ * fails halfway leaves the caches and indexes in step with the database.
+ */
+@Service
+public class VehicleBulkService {
+
+    public static final String INVALID_SELECTION = "Seleccione los vehiculos por sus IDs o por un filtro con al menos un criterio";
+    public static final String NO_CHANGES = "Indique al menos un campo a modificar";
+    private static final String LICENSE_PLATE = "licensePlate";
+    private static final String BRAND_ID = "brandId";
+    private static final String BRAND_ENTITY = "brandEntity";
+
+    private final VehicleRepository vehicleRepository;
+    private final BrandService brandService;
+    private final Validator validator;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int chunkSize;
+
+    /**
+     * Constructor for VehicleBulkService.
+     *
+     * @param vehicleRepository the vehicle repository
+     * @param brandService the brand service
+     * @param validator the validator of the changes
+     * @param transactionManager the transaction manager of the chunks
+     * @param eventPublisher the publisher of vehicle change events
+     * @param chunkSize the number of vehicles written per transaction
+     */
+    @Autowired
+    public VehicleBulkService(VehicleRepository vehicleRepository, BrandService brandService, Validator validator,
+                              PlatformTransactionManager transactionManager, ApplicationEventPublisher eventPublisher,
+                              @Value("${vehicle.bulk.chunk-size:1000}") int chunkSize) {
+        this.vehicleRepository = vehicleRepository;
+        this.brandService = brandService;
+        this.validator = validator;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Sets the same fields on every selected vehicle. The updated vehicles are loaded again, a chunk at a time,
+     * to publish their new state.
+     *
+     * @param bulkDTO the selected vehicles and the fields to set
+     * @return a ResponseDTO containing the number of vehicles updated
+     * @throws IllegalArgumentException if the selection is not valid, there is no field to set or a field can not
+     *                                  be set in bulk
+     * @throws ConstraintViolationException if a value breaks the constraints of its field
+     * @throws EntityNotFoundException if the new brand does not exist
+     */
+    public ResponseDTO updateVehicles(VehicleBulkDTO bulkDTO) {
+        checkSelection(bulkDTO);
+        Map<String, Object> fields = fieldsOf(bulkDTO.getChanges());
+        return inChunks(bulkDTO, ids -> {
+            int updated = vehicleRepository.updateByIdIn(ids, fields);
+            vehicleRepository.findAllWithBrandByIdIn(ids)
+                    .forEach(vehicle -> eventPublisher.publishEvent(VehicleChangeEvent.updated(vehicle)));
+            return updated;
+        });
+    }
+
+    /**
+     * Deletes every selected vehicle.
+     *
+     * @param bulkDTO the selected vehicles
+     * @return a ResponseDTO containing the number of vehicles deleted
+     * @throws IllegalArgumentException if the selection is not valid
+     */
+    public ResponseDTO deleteVehicles(VehicleBulkDTO bulkDTO) {
+        checkSelection(bulkDTO);
+        return inChunks(bulkDTO, ids -> {
+            int deleted = vehicleRepository.deleteByIdIn(ids);
+            ids.forEach(id -> eventPublisher.publishEvent(VehicleChangeEvent.deleted(id)));
+            return deleted;
+        });
+    }
+
+    private static void checkSelection(VehicleBulkDTO bulkDTO) {
+        List<String> ids = bulkDTO.getIds();
+        VehicleFilterDTO filter = bulkDTO.getFilter();
+        if ((ids == null) == (filter == null)
+                || ids != null && (ids.isEmpty() || ids.contains(null))
+                || filter != null && !hasCriteria(filter)) {
+            throw new IllegalArgumentException(INVALID_SELECTION);
+        }
+    }
+
+    private static boolean hasCriteria(VehicleFilterDTO filter) {
+        return filter.getBrandIds() != null && !filter.getBrandIds().isEmpty()
+                || filter.getYearFrom() != null
+                || filter.getYearTo() != null
+                || filter.getColors() != null && !filter.getColors().isEmpty();
+    }
+
+    /**
+     * Reads the changes like a merge patch of a vehicle and maps them to the attributes of the VehicleEntity.
+     * The new brand is looked up once for every vehicle.
+     */
+    private Map<String, Object> fieldsOf(Map<String, Object> changes) {
+        if (changes == null || changes.isEmpty()) {
+            throw new IllegalArgumentException(NO_CHANGES);
+        }
+        if (changes.containsKey(LICENSE_PLATE)) {
+            throw new IllegalArgumentException("Campo invalido para modificar: " + LICENSE_PLATE);
+        }
+        Map<String, Object> fields = new LinkedHashMap<>();
+        MergePatch.read(changes, VehicleDTO.class, validator).forEach((field, value) -> {
+            if (field.equals(BRAND_ID)) {
+                fields.put(BRAND_ENTITY, brandService.findBrandById(value));
+            } else {
+                fields.put(field, value);
+            }
+        });
+        return fields;
+    }
+
+    /**
+     * Writes the selected vehicles chunk by chunk. A chunk holds the next IDs after the last one of the previous
+     * chunk, either of the requested IDs, narrowed to the vehicles that exist, or of the vehicles matching the
+     * filter. The selection ends with the first chunk that comes back short.
+     */
+    private ResponseDTO inChunks(VehicleBulkDTO bulkDTO, ToIntFunction<List<String>> write) {
+        NavigableSet<String> requested = bulkDTO.getIds() == null ? null : new TreeSet<>(bulkDTO.getIds());
+        long affected = 0;
+        int chunks = 0;
+        String afterId = "";
+        Chunk chunk;
+        do {
+            String from = afterId;
+            chunk = transactionTemplate.execute(status -> {
+                List<String> selected = requested != null
+                        ? requested.tailSet(from, false).stream().limit(chunkSize).collect(Collectors.toList())
+                        : vehicleRepository.findIdsByFilterAfter(bulkDTO.getFilter(), from, chunkSize);
+                List<String> ids = requested != null && !selected.isEmpty()
+                        ? vehicleRepository.findIdsByIdIn(selected)
+                        : selected;
+                return new Chunk(selected, ids.isEmpty() ? 0 : write.applyAsInt(ids));
+            });
+            if (!chunk.selected.isEmpty()) {
+                affected += chunk.written;
+                chunks++;
+                afterId = chunk.selected.get(chunk.selected.size() - 1);
+            }
+        } while (chunk.selected.size() == chunkSize);
+        return ResponseDTO.builder()
+                .response(new VehicleBulkResultDTO(affected, chunks))
+                .error(false)
+                .build();
+    }
+
+    private static final class Chunk {
+        private final List<String> selected;
+        private final int written;
+
+        private Chunk(List<String> selected, int written) {
+            this.selected = selected;
+            this.written = written;
+        }
+    }
+}
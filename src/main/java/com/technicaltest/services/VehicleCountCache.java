@@ -0,0 +1,267 @@
+package com.technicaltest.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.technicaltest.events.BrandChangeEvent;
+import com.technicaltest.events.VehicleChangeEvent;
+import com.technicaltest.events.VehiclesDeletedEvent;
+import com.technicaltest.models.VehicleEntity;
+import com.technicaltest.repositories.VehicleRepository;
+import com.technicaltest.utils.SearchTerms;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of the total number of vehicles behind the paged listings, so the COUNT(*) is not paid on every page.
+ * Counts are keyed by the query kind and the normalized search term. The count of all vehicles is adjusted in place
+ * when vehicles are created or deleted, the search counts are marked stale, and stale entries are refreshed in the
+ * background. A caller that accepts an approximate count gets a stale entry immediately instead of waiting for a recount.
+ * A recount only replaces the entry it read: a vehicle written while counting may be missing from the count, so when
+ * the entry was adjusted or marked stale meanwhile the new count is dropped and the adjusted entry is kept.
+ */
+@Service
+public class VehicleCountCache {
+    private static final String ALL = "all";
+    private static final String SEARCH = "search:";
+
+    private final VehicleRepository vehicleRepository;
+    private final Cache<String, Entry> cache;
+    private final Duration ttl;
+    private final boolean enabled;
+    private final Clock clock;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter approximateHits;
+    private final AtomicLong writes = new AtomicLong();
+
+    /**
+     * Constructor for VehicleCountCache.
+     *
+     * @param vehicleRepository the vehicle repository used to count
+     * @param meterRegistry the registry of the hit rate metrics
+     * @param maximumSize the maximum number of cached counts
+     * @param ttl the age after which a count is stale
+     * @param enabled whether the counts are cached at all, when not every request counts
+     */
+    @Autowired
+    public VehicleCountCache(VehicleRepository vehicleRepository,
+                             MeterRegistry meterRegistry,
+                             @Value("${vehicle.count-cache.maximum-size:1000}") long maximumSize,
+                             @Value("${vehicle.count-cache.ttl:PT30S}") Duration ttl,
+                             @Value("${vehicle.count-cache.enabled:true}") boolean enabled) {
+        this(vehicleRepository, meterRegistry, maximumSize, ttl, enabled, Clock.systemUTC());
+    }
+
+    VehicleCountCache(VehicleRepository vehicleRepository, MeterRegistry meterRegistry, long maximumSize, Duration ttl,
+                      boolean enabled, Clock clock) {
+        this.vehicleRepository = vehicleRepository;
+        this.ttl = ttl;
+        this.enabled = enabled;
+        this.clock = clock;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterAccess(ttl.multipliedBy(10))
+                .build();
+        this.hits = meterRegistry.counter("vehicle.count.cache.requests", "result", "hit");
+        this.misses = meterRegistry.counter("vehicle.count.cache.requests", "result", "miss");
+        this.approximateHits = meterRegistry.counter("vehicle.count.cache.requests", "result", "approximate");
+        Gauge.builder("vehicle.count.cache.size", cache, Cache::estimatedSize).register(meterRegistry);
+    }
+
+    /**
+     * Counts all vehicles.
+     *
+     * @param approximate whether a stale count can be returned without waiting for a recount
+     * @return the count
+     */
+    public Count countAll(boolean approximate) {
+        return count(ALL, null, approximate);
+    }
+
+    /**
+     * Counts the vehicles that match the search by brand, model or license plate.
+     *
+     * @param search the search term
+     * @param approximate whether a stale count can be returned without waiting for a recount
+     * @return the count
+     */
+    public Count countSearch(String search, boolean approximate) {
+        return count(SEARCH + SearchTerms.normalize(search), search, approximate);
+    }
+
+    /**
+     * Recounts every stale entry, so that the approximate counts do not drift for long.
+     */
+    @Scheduled(fixedDelayString = "${vehicle.count-cache.refresh-interval:PT10S}")
+    public void refreshStale() {
+        cache.asMap().forEach((key, entry) -> {
+            if (isStale(entry)) {
+                recount(key, entry, entry.search);
+            }
+        });
+    }
+
+    /**
+     * Adjusts the cached counts after a vehicle is written.
+     * Creations and deletions move the count of all vehicles by one, a created vehicle also moves the counts of the
+     * searches it matches. The search counts a deletion or an update may have changed are marked stale.
+     *
+     * @param event the vehicle change
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onVehicleChange(VehicleChangeEvent event) {
+        writes.incrementAndGet();
+        switch (event.getType()) {
+            case CREATED:
+                cache.asMap().computeIfPresent(ALL, (key, entry) -> entry.adjust(1));
+                cache.asMap().replaceAll((key, entry) ->
+                        key.startsWith(SEARCH) && matches(event.getVehicle(), key.substring(SEARCH.length())) ? entry.adjust(1) : entry);
+                break;
+            case DELETED:
+                cache.asMap().computeIfPresent(ALL, (key, entry) -> entry.adjust(-1));
+                markSearchesStale();
+                break;
+            default:
+                markSearchesStale();
+        }
+    }
+
+    /**
+     * Moves the count of all vehicles by the size of a chunk of deleted vehicles and marks the search counts stale.
+     *
+     * @param event the deleted vehicles
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onVehiclesDeleted(VehiclesDeletedEvent event) {
+        writes.incrementAndGet();
+        int deleted = event.getVehicleIds().size();
+        cache.asMap().computeIfPresent(ALL, (key, entry) -> entry.adjust(-deleted));
+        markSearchesStale();
+    }
+
+    /**
+     * Marks the cached counts a brand change may have changed as stale.
+     * Renaming a brand changes the searches it matches, deleting it also deletes its vehicles.
+     *
+     * @param event the brand change
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBrandChange(BrandChangeEvent event) {
+        writes.incrementAndGet();
+        if (event.getType() == BrandChangeEvent.Type.DELETED) {
+            cache.asMap().replaceAll((key, entry) -> entry.markStale());
+        } else if (event.getType() == BrandChangeEvent.Type.UPDATED) {
+            markSearchesStale();
+        }
+    }
+
+    private Count count(String key, String search, boolean approximate) {
+        if (!enabled) {
+            return new Count(query(search), false);
+        }
+        Entry entry = cache.getIfPresent(key);
+        if (entry != null && !isStale(entry)) {
+            hits.increment();
+            return new Count(entry.count, false);
+        }
+        if (entry != null && approximate) {
+            approximateHits.increment();
+            return new Count(entry.count, true);
+        }
+        misses.increment();
+        return new Count(recount(key, entry, search), false);
+    }
+
+    /**
+     * Counts again and stores the count, unless the entry read before counting changed in the meantime.
+     *
+     * @param key the key of the count
+     * @param read the entry read before counting, or null if there was none
+     * @param search the search term, or null for the count of all vehicles
+     * @return the new count
+     */
+    private long recount(String key, Entry read, String search) {
+        long writesBefore = writes.get();
+        long count = query(search);
+        cache.asMap().compute(key, (k, current) -> {
+            if (current == null) {
+                // There was no entry to adjust, a write while counting only shows in the write counter
+                return new Entry(count, clock.millis(), writes.get() != writesBefore, search, 0);
+            }
+            if (read != null && current.generation == read.generation) {
+                return new Entry(count, clock.millis(), false, search, current.generation);
+            }
+            return current;
+        });
+        return count;
+    }
+
+    private long query(String search) {
+        return search == null ? vehicleRepository.count() : vehicleRepository.countByBrandModelOrLicensePlate(search);
+    }
+
+    private boolean isStale(Entry entry) {
+        return entry.stale || clock.millis() - entry.computedAt > ttl.toMillis();
+    }
+
+    private void markSearchesStale() {
+        cache.asMap().replaceAll((key, entry) -> key.startsWith(SEARCH) ? entry.markStale() : entry);
+    }
+
+    private static boolean matches(VehicleEntity vehicle, String term) {
+        return SearchTerms.normalize(vehicle.getModel()).contains(term)
+                || SearchTerms.normalize(vehicle.getLicensePlate()).contains(term)
+                || (vehicle.getBrandEntity() != null && SearchTerms.normalize(vehicle.getBrandEntity().getName()).contains(term));
+    }
+
+    /**
+     * A count returned by the cache.
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class Count {
+        private final long value;
+
+        /**
+         * Whether the count is older than the TTL and may not be exact.
+         */
+        private final boolean approximate;
+    }
+
+    @AllArgsConstructor
+    private static final class Entry {
+        private final long count;
+        private final long computedAt;
+        private final boolean stale;
+
+        /**
+         * The search term as requested, it is counted again with it. Null for the count of all vehicles.
+         */
+        private final String search;
+
+        /**
+         * Bumped by every adjustment, so a recount can tell whether the entry changed while it was counting.
+         */
+        private final long generation;
+
+        private Entry adjust(long delta) {
+            return new Entry(Math.max(0, count + delta), computedAt, stale, search, generation + 1);
+        }
+
+        private Entry markStale() {
+            return new Entry(count, computedAt, true, search, generation + 1);
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.technicaltest.services;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.technicaltest.controllers.request.VehicleDTO;
+import com.technicaltest.models.VehicleEntity;
+import com.technicaltest.repositories.VehicleRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.CacheRetrieveMode;
+import javax.persistence.CacheStoreMode;
+import javax.persistence.EntityManager;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+/**
+ * Service class for exporting the whole vehicle inventory.
+ * The vehicles are streamed from a database cursor and written one by one, and the persistence context
+ * is cleared as the export goes, so the memory used does not depend on the number of vehicles. The export neither
+ * reads nor fills the second-level cache, a full scan would evict the vehicles that are actually read often.
+ * The NDJSON rows have the shape of the VehicleDTO, so an export can be imported again as it is.
+ */
+@Service
+public class VehicleExportService {
+
+    /**
+     * Number of vehicles written between two clears of the persistence context, the fetch size of the stream.
+     */
+    private static final int CLEAR_INTERVAL = 1000;
+    private static final String CSV_HEADER = "id,model,licensePlate,color,year,createdDate,brandId,brandName";
+    private final VehicleRepository vehicleRepository;
+    private final EntityManager entityManager;
+    private final ObjectWriter rowWriter;
+
+    /**
+     * The formats the inventory can be exported in.
+     */
+    public enum Format {
+        NDJSON("application/x-ndjson", "ndjson"),
+        CSV("text/csv;charset=UTF-8", "csv");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        /**
+         * Returns the format with the given name, ignoring case.
+         *
+         * @param name the name of the format
+         * @return the format
+         */
+        public static Format of(String name) {
+            try {
+                return valueOf(name.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Formato invalido para exportar: " + name);
+            }
+        }
+    }
+
+    /**
+     * Constructor for VehicleExportService.
+     *
+     * @param vehicleRepository the vehicle repository
+     * @param entityManager the entity manager whose persistence context is cleared during the export
+     * @param objectMapper the mapper used to write the NDJSON rows as VehicleDTOs
+     */
+    @Autowired
+    public VehicleExportService(VehicleRepository vehicleRepository, EntityManager entityManager, ObjectMapper objectMapper) {
+        this.vehicleRepository = vehicleRepository;
+        this.entityManager = entityManager;
+        this.rowWriter = objectMapper.writerFor(VehicleDTO.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    /**
+     * Writes every vehicle with its brand to the output, in ID order.
+     *
+     * @param format the format of the export
+     * @param output the stream the vehicles are written to, it is flushed but not closed
+     * @throws IOException if the output can not be written
+     */
+    @Transactional(readOnly = true)
+    public void exportVehicles(Format format, OutputStream output) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        JsonGenerator generator = rowWriter.createGenerator(writer);
+        if (format == Format.CSV) {
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+        }
+
+        // The cache mode hint of the stream only holds while its cursor is opened, the vehicles are loaded as the
+        // export goes, so the whole persistence context bypasses the second-level cache
+        entityManager.setProperty("javax.persistence.cache.retrieveMode", CacheRetrieveMode.BYPASS);
+        entityManager.setProperty("javax.persistence.cache.storeMode", CacheStoreMode.BYPASS);
+        try (Stream<VehicleEntity> vehicles = vehicleRepository.streamAllWithBrand()) {
+            Iterator<VehicleEntity> iterator = vehicles.iterator();
+            int written = 0;
+            while (iterator.hasNext()) {
+                VehicleEntity vehicle = iterator.next();
+                if (format == Format.CSV) {
+                    writeCsvRow(writer, vehicle);
+                } else {
+                    rowWriter.writeValue(generator, toDTO(vehicle));
+                    generator.writeRaw('\n');
+                }
+                if (++written % CLEAR_INTERVAL == 0) {
+                    // The rows already written are not needed anymore, drop them from the persistence context
+                    entityManager.clear();
+                }
+            }
+        }
+        generator.flush();
+        writer.flush();
+    }
+
+    private static VehicleDTO toDTO(VehicleEntity vehicle) {
+        return new VehicleDTO(vehicle.getModel(), vehicle.getLicensePlate(), vehicle.getColor(), vehicle.getYear(),
+                vehicle.getBrandEntity().getId());
+    }
+
+    private static void writeCsvRow(Writer writer, VehicleEntity vehicle) throws IOException {
+        writer.write(csvField(vehicle.getId()));
+        writer.write(',');
+        writer.write(csvField(vehicle.getModel()));
+        writer.write(',');
+        writer.write(csvField(vehicle.getLicensePlate()));
+        writer.write(',');
+        writer.write(csvField(vehicle.getColor()));
+        writer.write(',');
+        writer.write(csvField(vehicle.getYear()));
+        writer.write(',');
+        writer.write(csvField(vehicle.getVehicleCreatedDate() == null ? null : vehicle.getVehicleCreatedDate().toString()));
+        writer.write(',');
+        writer.write(csvField(vehicle.getBrandEntity().getId()));
+        writer.write(',');
+        writer.write(csvField(vehicle.getBrandEntity().getName()));
+        writer.write('\n');
+    }
+
+    /**
+     * Quotes a CSV field when it contains a separator, a quote or a line break.
+     *
+     * @param value the value of the field
+     * @return the field as written in the CSV
+     */
+    private static String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
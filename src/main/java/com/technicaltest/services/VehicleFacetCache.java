@@ -0,0 +1,195 @@
+package com.technicaltest.services;
+
+import com.technicaltest.events.BrandChangeEvent;
+import com.technicaltest.events.VehicleChangeEvent;
+import com.technicaltest.events.VehiclesDeletedEvent;
+import com.technicaltest.models.VehicleEntity;
+import com.technicaltest.repositories.VehicleRepository;
+import com.technicaltest.repositories.projections.VehicleFacetCount;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache of the number of vehicles of every combination of brand, year and color, which the faceted search sums
+ * its facet counts from. The combinations are counted with one aggregated query over the whole table, so they are
+ * kept like the listing counts: a created vehicle is added in place, the other changes mark them stale, and stale
+ * counts are recounted in the background. A caller that accepts approximate counts gets stale ones immediately
+ * instead of waiting for a recount.
+ */
+@Service
+public class VehicleFacetCache {
+
+    private final VehicleRepository vehicleRepository;
+    private final Duration ttl;
+    private final Clock clock;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter approximateHits;
+    private volatile Snapshot snapshot;
+
+    /**
+     * Constructor for VehicleFacetCache.
+     *
+     * @param vehicleRepository the vehicle repository used to count
+     * @param meterRegistry the registry of the hit rate metrics
+     * @param ttl the age after which the counts are stale
+     */
+    @Autowired
+    public VehicleFacetCache(VehicleRepository vehicleRepository,
+                             MeterRegistry meterRegistry,
+                             @Value("${vehicle.facet-cache.ttl:PT30S}") Duration ttl) {
+        this(vehicleRepository, meterRegistry, ttl, Clock.systemUTC());
+    }
+
+    VehicleFacetCache(VehicleRepository vehicleRepository, MeterRegistry meterRegistry, Duration ttl, Clock clock) {
+        this.vehicleRepository = vehicleRepository;
+        this.ttl = ttl;
+        this.clock = clock;
+        this.hits = meterRegistry.counter("vehicle.facet.cache.requests", "result", "hit");
+        this.misses = meterRegistry.counter("vehicle.facet.cache.requests", "result", "miss");
+        this.approximateHits = meterRegistry.counter("vehicle.facet.cache.requests", "result", "approximate");
+    }
+
+    /**
+     * Returns the number of vehicles of every combination of brand, year and color.
+     *
+     * @param approximate whether stale counts can be returned without waiting for a recount
+     * @return the counts
+     */
+    public Counts counts(boolean approximate) {
+        Snapshot current = snapshot;
+        if (current != null && !isStale(current)) {
+            hits.increment();
+            return current.counts(false);
+        }
+        if (current != null && approximate) {
+            approximateHits.increment();
+            return current.counts(true);
+        }
+        misses.increment();
+        return load().counts(false);
+    }
+
+    /**
+     * Recounts the combinations when they are stale, so that the approximate counts do not drift for long.
+     */
+    @Scheduled(fixedDelayString = "${vehicle.facet-cache.refresh-interval:PT10S}")
+    public void refreshStale() {
+        Snapshot current = snapshot;
+        if (current != null && isStale(current)) {
+            load();
+        }
+    }
+
+    /**
+     * Adds a created vehicle to the count of its combination. An update or a deletion may have moved a vehicle out
+     * of a combination the event does not tell, so they mark the counts stale.
+     *
+     * @param event the vehicle change
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onVehicleChange(VehicleChangeEvent event) {
+        Snapshot current = snapshot;
+        if (current == null) {
+            return;
+        }
+        VehicleEntity vehicle = event.getVehicle();
+        if (event.getType() == VehicleChangeEvent.Type.CREATED && vehicle.getBrandEntity() != null) {
+            current.add(new VehicleFacetCount(vehicle.getBrandEntity().getId(), vehicle.getBrandEntity().getName(),
+                    vehicle.getYear(), vehicle.getColor(), 1));
+        } else {
+            current.stale = true;
+        }
+    }
+
+    /**
+     * Marks the counts stale, the event does not tell the combinations the deleted vehicles were counted in.
+     *
+     * @param event the deleted vehicles
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onVehiclesDeleted(VehiclesDeletedEvent event) {
+        Snapshot current = snapshot;
+        if (current != null) {
+            current.stale = true;
+        }
+    }
+
+    /**
+     * Marks the counts stale when a brand is renamed or deleted, which changes the labels or the vehicles counted.
+     *
+     * @param event the brand change
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBrandChange(BrandChangeEvent event) {
+        Snapshot current = snapshot;
+        if (current != null && event.getType() != BrandChangeEvent.Type.CREATED) {
+            current.stale = true;
+        }
+    }
+
+    private Snapshot load() {
+        Snapshot loaded = new Snapshot(clock.millis());
+        vehicleRepository.countByBrandYearAndColor().forEach(loaded::add);
+        snapshot = loaded;
+        return loaded;
+    }
+
+    private boolean isStale(Snapshot snapshot) {
+        return snapshot.stale || clock.millis() - snapshot.computedAt > ttl.toMillis();
+    }
+
+    /**
+     * The counts returned by the cache.
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class Counts {
+        private final List<VehicleFacetCount> combinations;
+
+        /**
+         * Whether the counts are older than the TTL and may not be exact.
+         */
+        private final boolean approximate;
+    }
+
+    private static final class Snapshot {
+        private final long computedAt;
+
+        /**
+         * The counts by brand ID, year and lower case color. Colors are grouped ignoring case like the database does.
+         */
+        private final Map<List<String>, VehicleFacetCount> combinations = new ConcurrentHashMap<>();
+        private volatile boolean stale;
+
+        private Snapshot(long computedAt) {
+            this.computedAt = computedAt;
+        }
+
+        private void add(VehicleFacetCount count) {
+            List<String> key = List.of(count.getBrandId(), count.getYear(), count.getColor().toLowerCase(Locale.ROOT));
+            combinations.merge(key, count, (current, added) ->
+                    new VehicleFacetCount(current.getBrandId(), current.getBrandName(), current.getYear(),
+                            current.getColor(), current.getCount() + added.getCount()));
+        }
+
+        private Counts counts(boolean approximate) {
+            return new Counts(new ArrayList<>(combinations.values()), approximate);
+        }
+    }
+}
@@ -0,0 +1,300 @@
+package com.technicaltest.services;
+
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.technicaltest.controllers.request.ImportErrorDTO;
+import com.technicaltest.controllers.request.ResponseDTO;
+import com.technicaltest.controllers.request.VehicleDTO;
+import com.technicaltest.events.VehicleChangeEvent;
+import com.technicaltest.models.BrandEntity;
+import com.technicaltest.models.VehicleEntity;
+import com.technicaltest.repositories.VehicleRepository;
+import com.technicaltest.utils.Ids;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityNotFoundException;
+import javax.persistence.PersistenceException;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Service class for importing vehicles in bulk.
+ * The vehicles are read one at a time from a JSON array or an NDJSON stream and stored in chunks:
+ * every chunk checks its license plates with a single query and is inserted in one transaction,
+ * so Hibernate can send the inserts as JDBC batches.
+ */
+@Service
+public class VehicleImportService {
+
+    public static final String DUPLICATED_LICENSE_PLATE = "Ya existe un vehiculo con esa placa";
+    public static final String BRAND_DOES_NOT_EXIST = "La marca no existe";
+    public static final String INVALID_ROW = "La fila no es un vehiculo valido";
+    public static final String ROW_NOT_SAVED = "No se pudo guardar el vehiculo";
+    private static final String IMPORTED = "imported";
+    private static final String FAILED = "failed";
+    private static final String ERRORS = "errors";
+    private final VehicleRepository vehicleRepository;
+    private final BrandService brandService;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int chunkSize;
+
+    /**
+     * Constructor for VehicleImportService.
+     *
+     * @param vehicleRepository the vehicle repository
+     * @param brandService the brand service
+     * @param validator the bean validator of the vehicles
+     * @param objectMapper the mapper used to read the vehicles
+     * @param entityManager the entity manager used to insert the vehicles
+     * @param transactionManager the transaction manager of the chunks
+     * @param eventPublisher the publisher of vehicle change events
+     * @param chunkSize the number of vehicles stored per transaction
+     */
+    @Autowired
+    public VehicleImportService(VehicleRepository vehicleRepository, BrandService brandService, Validator validator,
+                                ObjectMapper objectMapper, EntityManager entityManager,
+                                PlatformTransactionManager transactionManager, ApplicationEventPublisher eventPublisher,
+                                @Value("${vehicle.import.chunk-size:1000}") int chunkSize) {
+        this.vehicleRepository = vehicleRepository;
+        this.brandService = brandService;
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Imports the vehicles of a JSON array or an NDJSON stream.
+     * Invalid rows, duplicated license plates and unknown brands are reported per row and do not stop the import.
+     * A row that is not well-formed JSON ends the import, the rows before it are kept.
+     *
+     * @param content the JSON array or NDJSON stream of vehicles
+     * @return a ResponseDTO containing the number of imported and failed rows and the errors of each failed row
+     */
+    public ResponseDTO importVehicles(InputStream content) {
+        ImportResult result = new ImportResult();
+        List<ImportRow> chunk = new ArrayList<>(chunkSize);
+        int row = 0;
+
+        try (MappingIterator<VehicleDTO> rows = objectMapper.readerFor(VehicleDTO.class).readValues(content)) {
+            while (rows.hasNextValue()) {
+                try {
+                    chunk.add(new ImportRow(row, rows.nextValue()));
+                } catch (JsonMappingException e) {
+                    // The row is well-formed but does not map to a vehicle, the iterator skips it
+                    result.fail(row, null, Collections.singletonList(INVALID_ROW));
+                }
+                row++;
+                if (chunk.size() == chunkSize) {
+                    importChunk(chunk, result);
+                    chunk.clear();
+                }
+            }
+        } catch (IOException e) {
+            result.fail(row, null, Collections.singletonList(INVALID_ROW));
+        }
+        importChunk(chunk, result);
+        result.errors.sort(Comparator.comparingInt(ImportErrorDTO::getRow));
+
+        Map<String, Object> response = new HashMap<>();
+        response.put(IMPORTED, result.imported);
+        response.put(FAILED, result.errors.size());
+        response.put(ERRORS, result.errors);
+        return ResponseDTO.builder()
+                .response(response)
+                .error(false)
+                .build();
+    }
+
+    /**
+     * Validates and stores one chunk of rows.
+     *
+     * @param chunk the rows of the chunk
+     * @param result the result of the import so far
+     */
+    private void importChunk(List<ImportRow> chunk, ImportResult result) {
+        List<ImportRow> validRows = chunk.stream()
+                .filter(importRow -> isValid(importRow, result))
+                .collect(Collectors.toList());
+        if (validRows.isEmpty()) {
+            return;
+        }
+
+        // One query for the license plates of the whole chunk
+        Set<String> existingPlates = vehicleRepository.findExistingLicensePlates(validRows.stream()
+                        .map(importRow -> importRow.vehicle.getLicensePlate())
+                        .collect(Collectors.toSet()))
+                .stream()
+                .map(VehicleImportService::plateKey)
+                .collect(Collectors.toSet());
+
+        List<ImportRow> newRows = new ArrayList<>(validRows.size());
+        for (ImportRow importRow : validRows) {
+            VehicleDTO vehicle = importRow.vehicle;
+            Optional<BrandEntity> brand = result.brands.computeIfAbsent(vehicle.getBrandId(), this::findBrand);
+            if (existingPlates.contains(plateKey(vehicle.getLicensePlate())) || !result.licensePlates.add(plateKey(vehicle.getLicensePlate()))) {
+                result.fail(importRow, DUPLICATED_LICENSE_PLATE);
+            } else if (!brand.isPresent()) {
+                result.fail(importRow, BRAND_DOES_NOT_EXIST);
+            } else {
+                importRow.brand = brand.get();
+                newRows.add(importRow);
+            }
+        }
+
+        if (persist(newRows)) {
+            result.imported += newRows.size();
+            return;
+        }
+
+        // The chunk clashed with a concurrent write, store its rows one by one to find the failing ones
+        for (ImportRow importRow : newRows) {
+            if (persist(Collections.singletonList(importRow))) {
+                result.imported++;
+            } else {
+                result.fail(importRow, ROW_NOT_SAVED);
+            }
+        }
+    }
+
+    /**
+     * Validates the constraints of the VehicleDTO of a row, failing the row when they are not met.
+     *
+     * @param importRow the row
+     * @param result the result of the import so far
+     * @return whether the row is valid
+     */
+    private boolean isValid(ImportRow importRow, ImportResult result) {
+        if (importRow.vehicle == null) {
+            result.fail(importRow.row, null, Collections.singletonList(INVALID_ROW));
+            return false;
+        }
+        Set<ConstraintViolation<VehicleDTO>> violations = validator.validate(importRow.vehicle);
+        if (violations.isEmpty()) {
+            return true;
+        }
+        result.fail(importRow.row, importRow.vehicle.getLicensePlate(), violations.stream()
+                .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                .sorted()
+                .collect(Collectors.toList()));
+        return false;
+    }
+
+    /**
+     * Inserts the vehicles of some rows in a single transaction.
+     * The entities are built from the rows on every attempt, the ones of a rolled-back transaction already carry
+     * a version and would be taken for detached vehicles.
+     * The entity manager is cleared afterwards so the persistence context does not grow with the import.
+     *
+     * @param rows the rows to insert
+     * @return whether the transaction was committed
+     */
+    private boolean persist(List<ImportRow> rows) {
+        if (rows.isEmpty()) {
+            return true;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                List<VehicleEntity> vehicles = rows.stream()
+                        .map(importRow -> toEntity(importRow.vehicle, importRow.brand))
+                        .collect(Collectors.toList());
+                vehicles.forEach(entityManager::persist);
+                // Published in the transaction so the changes are recorded in the outbox with the vehicles
+                vehicles.forEach(vehicle -> eventPublisher.publishEvent(VehicleChangeEvent.created(vehicle)));
+                entityManager.flush();
+                entityManager.clear();
+            });
+            return true;
+        } catch (PersistenceException | DataAccessException e) {
+            entityManager.clear();
+            return false;
+        }
+    }
+
+    /**
+     * Looks a brand up once per import, the brand service reads it from the brand cache.
+     *
+     * @param brandId the ID of the brand
+     * @return the brand, or empty if it does not exist
+     */
+    private Optional<BrandEntity> findBrand(String brandId) {
+        try {
+            return Optional.of(brandService.findBrandById(brandId));
+        } catch (EntityNotFoundException e) {
+            return Optional.empty();
+        }
+    }
+
+    private static VehicleEntity toEntity(VehicleDTO vehicleDTO, BrandEntity brandEntity) {
+        return VehicleEntity.builder()
+                .id(Ids.newId())
+                .color(vehicleDTO.getColor())
+                .licensePlate(vehicleDTO.getLicensePlate())
+                .model(vehicleDTO.getModel())
+                .year(vehicleDTO.getYear())
+                .brandEntity(brandEntity)
+                .build();
+    }
+
+    /**
+     * License plates are unique regardless of case, as in the database collation.
+     */
+    private static String plateKey(String licensePlate) {
+        return licensePlate.toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * A row of the import with its position in the content.
+     */
+    private static class ImportRow {
+        private final int row;
+        private final VehicleDTO vehicle;
+        private BrandEntity brand;
+
+        private ImportRow(int row, VehicleDTO vehicle) {
+            this.row = row;
+            this.vehicle = vehicle;
+        }
+    }
+
+    /**
+     * The state of an import: the rows stored and failed so far, the license plates already used
+     * by the import and the brands already looked up.
+     */
+    private static class ImportResult {
+        private int imported;
+        private final List<ImportErrorDTO> errors = new ArrayList<>();
+        private final Set<String> licensePlates = new HashSet<>();
+        private final Map<String, Optional<BrandEntity>> brands = new HashMap<>();
+
+        private void fail(ImportRow importRow, String error) {
+            fail(importRow.row, importRow.vehicle.getLicensePlate(), Collections.singletonList(error));
+        }
+
+        private void fail(int row, String licensePlate, List<String> rowErrors) {
+            errors.add(ImportErrorDTO.builder()
+                    .row(row)
+                    .licensePlate(licensePlate)
+                    .errors(rowErrors)
+                    .build());
+        }
+    }
+}
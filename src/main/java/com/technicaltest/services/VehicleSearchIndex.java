@@ -0,0 +1,525 @@
+package com.technicaltest.services;
+
+import com.technicaltest.events.BrandChangeEvent;
+import com.technicaltest.events.VehicleChangeEvent;
+import com.technicaltest.events.VehiclesDeletedEvent;
+import com.technicaltest.models.BrandEntity;
+import com.technicaltest.models.VehicleEntity;
+import com.technicaltest.repositories.BrandRepository;
+import com.technicaltest.repositories.VehicleRepository;
+import com.technicaltest.repositories.projections.VehicleSearchView;
+import com.technicaltest.utils.SearchTerms;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory trigram index over the model, license plate and brand name of every vehicle.
+ * It serves the vehicle search without the leading wildcard LIKE query, which no B-tree index can answer.
+ * The index is built once the application is ready and kept current through the vehicle and brand change events.
+ * Terms shorter than a trigram can not be looked up, for those the caller falls back to the database query.
+ */
+@Service
+public class VehicleSearchIndex {
+    static final int GRAM_LENGTH = 3;
+
+    private final VehicleRepository vehicleRepository;
+    private final BrandRepository brandRepository;
+    private final boolean enabled;
+    private final int loadChunkSize;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final List<Document> documents = new ArrayList<>();
+    private final Map<String, Integer> ordinals = new HashMap<>();
+    private final Map<String, Postings> gramPostings = new HashMap<>();
+    private final Map<String, Postings> brandPostings = new HashMap<>();
+    private final Map<String, String> brandNames = new HashMap<>();
+    private final Set<String> removedWhileLoading = new HashSet<>();
+    private long postingEntries;
+    private long staleEntries;
+    private volatile boolean loading;
+    private volatile boolean ready;
+
+    /**
+     * Constructor for VehicleSearchIndex.
+     *
+     * @param vehicleRepository the vehicle repository used to build the index
+     * @param brandRepository the brand repository used to build the index
+     * @param enabled whether the index is built at all
+     * @param loadChunkSize the number of vehicles read per query while building the index
+     */
+    @Autowired
+    public VehicleSearchIndex(VehicleRepository vehicleRepository,
+                              BrandRepository brandRepository,
+                              @Value("${vehicle.search.index.enabled:true}") boolean enabled,
+                              @Value("${vehicle.search.index.load-chunk-size:5000}") int loadChunkSize) {
+        this.vehicleRepository = vehicleRepository;
+        this.brandRepository = brandRepository;
+        this.enabled = enabled;
+        this.loadChunkSize = loadChunkSize;
+    }
+
+    /**
+     * Builds the index once the application has started, while it is building the searches use the database.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (enabled) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Discards the current content and loads every brand and vehicle from the database.
+     * Vehicles are read by id in chunks so the whole table is never held by a single query.
+     */
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            ready = false;
+            loading = true;
+            clear();
+            brandRepository.findAll().forEach(brand -> brandNames.put(brand.getId(), SearchTerms.normalize(brand.getName())));
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        String lastId = "";
+        List<VehicleSearchView> chunk;
+        do {
+            chunk = vehicleRepository.findSearchViewsAfter(lastId, PageRequest.of(0, loadChunkSize));
+            lock.writeLock().lock();
+            try {
+                for (VehicleSearchView view : chunk) {
+                    if (!ordinals.containsKey(view.getId()) && !removedWhileLoading.contains(view.getId())
+                            && brandNames.containsKey(view.getBrandId())) {
+                        add(new Document(view.getId(), view.getModel(), view.getLicensePlate(), view.getBrandId()));
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            if (!chunk.isEmpty()) {
+                lastId = chunk.get(chunk.size() - 1).getId();
+            }
+        } while (chunk.size() == loadChunkSize);
+
+        lock.writeLock().lock();
+        try {
+            removedWhileLoading.clear();
+            loading = false;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Tells whether the index is complete and can answer searches.
+     *
+     * @return true when the index has been built
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Returns the number of vehicles in the index.
+     *
+     * @return the number of indexed vehicles
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return ordinals.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the vehicles whose brand name, model or license plate contains the search term,
+     * with the same case and accent insensitive semantics as the LIKE query.
+     *
+     * @param search the search term
+     * @param offset the number of matches, in ascending ID order, to skip
+     * @param limit the maximum number of matches to return
+     * @return the matches, or empty when the index can not answer the term
+     */
+    public Optional<Matches> search(String search, int offset, int limit) {
+        return page(search, "", offset, limit);
+    }
+
+    /**
+     * Finds the vehicles whose brand name, model or license plate contains the search term and whose ID comes after
+     * the given one, with the same case and accent insensitive semantics as the LIKE query.
+     *
+     * @param search the search term
+     * @param afterId the ID the page starts after, an empty string for the first page
+     * @param limit the maximum number of matches to return
+     * @return the matches, or empty when the index can not answer the term
+     */
+    public Optional<Matches> searchAfter(String search, String afterId, int limit) {
+        return page(search, afterId, 0, limit);
+    }
+
+    /**
+     * Only the IDs up to the end of the page are ordered: the smallest ones are kept in a heap the size of the page
+     * instead of sorting every match, so a search costs the same whatever the number of matches it skips or leaves out.
+     */
+    private Optional<Matches> page(String search, String afterId, int offset, int limit) {
+        String term = SearchTerms.normalize(search);
+        if (!ready || term.length() < GRAM_LENGTH) {
+            return Optional.empty();
+        }
+
+        lock.readLock().lock();
+        try {
+            BitSet hits = hits(term);
+            int total = hits.cardinality();
+            int end = (int) Math.min((long) offset + limit, total);
+            if (offset >= end) {
+                return Optional.of(new Matches(total, Collections.emptyList()));
+            }
+
+            PriorityQueue<String> smallest = new PriorityQueue<>(end, Comparator.reverseOrder());
+            for (int ordinal = hits.nextSetBit(0); ordinal >= 0; ordinal = hits.nextSetBit(ordinal + 1)) {
+                String id = documents.get(ordinal).id;
+                if (id.compareTo(afterId) <= 0) {
+                    continue;
+                }
+                if (smallest.size() < end) {
+                    smallest.add(id);
+                } else if (id.compareTo(smallest.peek()) < 0) {
+                    smallest.poll();
+                    smallest.add(id);
+                }
+            }
+
+            List<String> ids = new ArrayList<>(smallest);
+            Collections.sort(ids);
+            return Optional.of(new Matches(total, ids.subList(Math.min(offset, ids.size()), ids.size())));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private BitSet hits(String term) {
+        BitSet hits = new BitSet(documents.size());
+
+        Postings candidates = smallestPostings(term);
+        for (int i = 0; i < candidates.size; i++) {
+            Document document = documents.get(candidates.values[i]);
+            if (document != null && document.matchesFields(term)) {
+                hits.set(candidates.values[i]);
+            }
+        }
+
+        brandNames.forEach((brandId, name) -> {
+            Postings postings = brandPostings.get(brandId);
+            if (postings == null || !name.contains(term)) {
+                return;
+            }
+            for (int i = 0; i < postings.size; i++) {
+                Document document = documents.get(postings.values[i]);
+                if (document != null && brandId.equals(document.brandId)) {
+                    hits.set(postings.values[i]);
+                }
+            }
+        });
+        return hits;
+    }
+
+    /**
+     * Adds or replaces a vehicle in the index.
+     *
+     * @param vehicle the vehicle to index
+     */
+    public void put(VehicleEntity vehicle) {
+        String brandId = vehicle.getBrandEntity() != null ? vehicle.getBrandEntity().getId() : null;
+        Document document = new Document(vehicle.getId(), vehicle.getModel(), vehicle.getLicensePlate(), brandId);
+
+        lock.writeLock().lock();
+        try {
+            Integer ordinal = ordinals.get(document.id);
+            if (ordinal == null) {
+                add(document);
+                return;
+            }
+
+            Document previous = documents.get(ordinal);
+            Set<String> previousGrams = previous.grams();
+            Set<String> grams = document.grams();
+            for (String gram : grams) {
+                if (!previousGrams.contains(gram)) {
+                    gramPostings.computeIfAbsent(gram, key -> new Postings()).add(ordinal);
+                    postingEntries++;
+                }
+            }
+            previousGrams.removeAll(grams);
+            staleEntries += previousGrams.size();
+            if (!Objects.equals(previous.brandId, document.brandId)) {
+                brandPostings.computeIfAbsent(document.brandId, key -> new Postings()).add(ordinal);
+                postingEntries++;
+                staleEntries++;
+            }
+            documents.set(ordinal, document);
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a vehicle from the index.
+     *
+     * @param id the ID of the vehicle to remove
+     */
+    public void remove(String id) {
+        removeAll(Collections.singletonList(id));
+    }
+
+    /**
+     * Removes vehicles from the index under a single write lock.
+     *
+     * @param ids the IDs of the vehicles to remove
+     */
+    public void removeAll(Collection<String> ids) {
+        lock.writeLock().lock();
+        try {
+            for (String id : ids) {
+                if (loading) {
+                    removedWhileLoading.add(id);
+                }
+                Integer ordinal = ordinals.remove(id);
+                if (ordinal != null) {
+                    Document document = documents.set(ordinal, null);
+                    staleEntries += document.grams().size() + 1L;
+                }
+            }
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds or renames a brand, the vehicles of the brand are matched by the new name from now on.
+     *
+     * @param brand the brand to index
+     */
+    public void putBrand(BrandEntity brand) {
+        lock.writeLock().lock();
+        try {
+            brandNames.put(brand.getId(), SearchTerms.normalize(brand.getName()));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a brand together with all of its vehicles, mirroring the cascade in the database.
+     *
+     * @param brandId the ID of the brand to remove
+     */
+    public void removeBrand(String brandId) {
+        lock.writeLock().lock();
+        try {
+            brandNames.remove(brandId);
+            Postings postings = brandPostings.remove(brandId);
+            if (postings == null) {
+                return;
+            }
+            for (int i = 0; i < postings.size; i++) {
+                Document document = documents.get(postings.values[i]);
+                if (document != null && brandId.equals(document.brandId)) {
+                    ordinals.remove(document.id);
+                    documents.set(postings.values[i], null);
+                    staleEntries += document.grams().size();
+                }
+            }
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Keeps the index current after a vehicle is written, once the surrounding transaction (if any) has committed.
+     *
+     * @param event the vehicle change
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onVehicleChange(VehicleChangeEvent event) {
+        if (!enabled) {
+            return;
+        }
+        if (event.getType() == VehicleChangeEvent.Type.DELETED) {
+            remove(event.getVehicleId());
+        } else {
+            put(event.getVehicle());
+        }
+    }
+
+    /**
+     * Removes a chunk of deleted vehicles, once the surrounding transaction (if any) has committed.
+     *
+     * @param event the deleted vehicles
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onVehiclesDeleted(VehiclesDeletedEvent event) {
+        if (enabled) {
+            removeAll(event.getVehicleIds());
+        }
+    }
+
+    /**
+     * Keeps the index current after a brand is written, once the surrounding transaction (if any) has committed.
+     *
+     * @param event the brand change
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBrandChange(BrandChangeEvent event) {
+        if (!enabled) {
+            return;
+        }
+        if (event.getType() == BrandChangeEvent.Type.DELETED) {
+            removeBrand(event.getBrandId());
+        } else {
+            putBrand(event.getBrand());
+        }
+    }
+
+    private void clear() {
+        documents.clear();
+        ordinals.clear();
+        gramPostings.clear();
+        brandPostings.clear();
+        brandNames.clear();
+        removedWhileLoading.clear();
+        postingEntries = 0;
+        staleEntries = 0;
+    }
+
+    private void add(Document document) {
+        int ordinal = documents.size();
+        documents.add(document);
+        ordinals.put(document.id, ordinal);
+        for (String gram : document.grams()) {
+            gramPostings.computeIfAbsent(gram, key -> new Postings()).add(ordinal);
+            postingEntries++;
+        }
+        brandPostings.computeIfAbsent(document.brandId, key -> new Postings()).add(ordinal);
+        postingEntries++;
+    }
+
+    private Postings smallestPostings(String term) {
+        Postings smallest = null;
+        for (int start = 0; start + GRAM_LENGTH <= term.length(); start++) {
+            Postings postings = gramPostings.get(term.substring(start, start + GRAM_LENGTH));
+            if (postings == null) {
+                return Postings.EMPTY;
+            }
+            if (smallest == null || postings.size < smallest.size) {
+                smallest = postings;
+            }
+        }
+        return smallest;
+    }
+
+    /**
+     * Updates and removals leave stale postings behind, they are filtered out on every search.
+     * Once they outnumber the live ones the postings are rebuilt from the live documents.
+     */
+    private void compactIfNeeded() {
+        if (staleEntries < 1024 || staleEntries * 2 < postingEntries) {
+            return;
+        }
+        List<Document> live = documents.stream().filter(Objects::nonNull).collect(Collectors.toList());
+        Map<String, String> brands = new HashMap<>(brandNames);
+        Set<String> removed = new HashSet<>(removedWhileLoading);
+        clear();
+        brandNames.putAll(brands);
+        removedWhileLoading.addAll(removed);
+        live.forEach(this::add);
+    }
+
+    /**
+     * The vehicles that match a search term.
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class Matches {
+
+        /**
+         * The number of vehicles that match the term, whatever the page.
+         */
+        private final long total;
+
+        /**
+         * The IDs of the vehicles of the requested page, in ascending order.
+         */
+        private final List<String> ids;
+    }
+
+    /**
+     * The normalized searchable fields of a single vehicle.
+     */
+    private static final class Document {
+        private final String id;
+        private final String model;
+        private final String licensePlate;
+        private final String brandId;
+
+        private Document(String id, String model, String licensePlate, String brandId) {
+            this.id = id;
+            this.model = SearchTerms.normalize(model);
+            this.licensePlate = SearchTerms.normalize(licensePlate);
+            this.brandId = brandId;
+        }
+
+        private boolean matchesFields(String term) {
+            return model.contains(term) || licensePlate.contains(term);
+        }
+
+        private Set<String> grams() {
+            Set<String> grams = new HashSet<>();
+            addGrams(model, grams);
+            addGrams(licensePlate, grams);
+            return grams;
+        }
+
+        private static void addGrams(String value, Set<String> grams) {
+            for (int start = 0; start + GRAM_LENGTH <= value.length(); start++) {
+                grams.add(value.substring(start, start + GRAM_LENGTH));
+            }
+        }
+    }
+
+    /**
+     * A growable list of document ordinals.
+     */
+    private static final class Postings {
+        private static final Postings EMPTY = new Postings();
+
+        private int[] values = new int[4];
+        private int size;
+
+        private void add(int ordinal) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = ordinal;
+        }
+    }
+}
@@ -1,25 +1,51 @@
 package com.technicaltest.services;
 
+import com.technicaltest.controllers.request.BrandResponseDTO;
+import com.technicaltest.controllers.request.FacetCountDTO;
 import com.technicaltest.controllers.request.ResponseDTO;
 import com.technicaltest.controllers.request.VehicleDTO;
+import com.technicaltest.controllers.request.VehicleFilterDTO;
+import com.technicaltest.controllers.request.VehicleResponseDTO;
+import com.technicaltest.events.VehicleChangeEvent;
+import com.technicaltest.exceptions.EntityConflictException;
+import com.technicaltest.exceptions.PreconditionFailedException;
 import com.technicaltest.models.VehicleEntity;
 import com.technicaltest.repositories.VehicleRepository;
+import com.technicaltest.repositories.projections.VehicleFacetCount;
 import com.technicaltest.utils.Constants;
+import com.technicaltest.utils.Ids;
+import com.technicaltest.utils.MergePatch;
+import com.technicaltest.utils.PageCursor;
+import com.technicaltest.utils.UniqueConstraints;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DataIntegrityViolationException;
-import org.springframework.data.domain.Page;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import javax.persistence.EntityNotFoundException;
+import javax.validation.ConstraintViolationException;
+import javax.validation.Validator;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * Service class for managing vehicles.
+ * The read methods select VehicleResponseDTO projections in read-only transactions,
+ * so no entity is built, tracked or flushed to answer them.
  */
 @Service
+@Timed(value = "vehicle.service", description = "Vehicle service calls", histogram = true)
 public class VehicleService {
 
     public static final String MODEL = "model";
@@ -27,38 +53,125 @@ public class VehicleService {
     public static final String BRAND_ENTITY_NAME = "brandEntity.name";
     public static final String LICENSE_PLATE = "licensePlate";
     public static final String VEHICLE_DOES_NOT_EXIST = "El vehiculo no existe";
+    public static final String LICENSE_PLATE_ALREADY_EXISTS = "Ya existe un vehiculo con esa placa";
+    public static final String VEHICLE_VERSION_CHANGED = "El vehiculo cambio desde que fue leido, vuelva a cargarlo";
+    public static final String VEHICLE_CHANGED_CONCURRENTLY = "El vehiculo fue modificado por otro usuario al mismo tiempo";
+    static final int MERGE_ATTEMPTS = 3;
     private static final String VEHICLES = "vehicles";
     private static final String TOTAL_PAGES = "totalPages";
+    private static final String TOTAL_ELEMENTS = "totalElements";
+    private static final String NEXT_CURSOR = "nextCursor";
+    private static final String APPROXIMATE_COUNT = "approximateCount";
+    private static final String FACETS = "facets";
+    private static final String BRANDS = "brands";
+    private static final String YEARS = "years";
+    private static final String COLORS = "colors";
+    private static final String COLOR = "color";
+    private static final String BRAND_ID = "brandId";
+
+    /**
+     * The fields of a vehicle an update can change, compared one by one to merge concurrent updates.
+     */
+    private static final List<Field> FIELDS = Arrays.asList(
+            new Field(VehicleDTO::getModel, VehicleDTO::setModel),
+            new Field(VehicleDTO::getLicensePlate, VehicleDTO::setLicensePlate),
+            new Field(VehicleDTO::getColor, VehicleDTO::setColor),
+            new Field(VehicleDTO::getYear, VehicleDTO::setYear),
+            new Field(VehicleDTO::getBrandId, VehicleDTO::setBrandId));
+
     private final VehicleRepository vehicleRepository;
     private final BrandService brandService;
+    private final VehicleSearchIndex vehicleSearchIndex;
+    private final VehicleCountCache vehicleCountCache;
+    private final VehicleFacetCache vehicleFacetCache;
+    private final VehicleAttributeIndex vehicleAttributeIndex;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final Validator validator;
 
     /**
      * Constructor for VehicleService.
      *
      * @param vehicleRepository the vehicle repository
      * @param brandService the brand service
+     * @param vehicleSearchIndex the in-memory search index
+     * @param vehicleCountCache the cache of the listing counts
+     * @param vehicleFacetCache the cache of the facet counts
+     * @param vehicleAttributeIndex the in-memory index of the facet attributes
+     * @param eventPublisher the publisher of vehicle change events
+     * @param transactionManager the transaction manager of the update attempts
+     * @param validator the validator of the fields of the partial updates
      */
     @Autowired
-    public VehicleService(VehicleRepository vehicleRepository, BrandService brandService) {
+    public VehicleService(VehicleRepository vehicleRepository, BrandService brandService,
+                          VehicleSearchIndex vehicleSearchIndex, VehicleCountCache vehicleCountCache,
+                          VehicleFacetCache vehicleFacetCache, VehicleAttributeIndex vehicleAttributeIndex,
+                          ApplicationEventPublisher eventPublisher, PlatformTransactionManager transactionManager,
+                          Validator validator) {
         this.vehicleRepository = vehicleRepository;
         this.brandService = brandService;
+        this.vehicleSearchIndex = vehicleSearchIndex;
+        this.vehicleCountCache = vehicleCountCache;
+        this.vehicleFacetCache = vehicleFacetCache;
+        this.vehicleAttributeIndex = vehicleAttributeIndex;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.validator = validator;
     }
 
     /**
      * Retrieves all vehicles with pagination and sorting.
+     * The total number of pages comes from the count cache instead of a COUNT(*) per page.
      *
      * @param page the page number
      * @param size the page size
      * @param sortField the field to sort by
      * @param sortDirection the direction to sort (asc or desc)
+     * @param approximateCount whether a cached count older than its TTL can be used without waiting for a recount
      * @return a ResponseDTO containing a list of all vehicles
      */
-    public ResponseDTO getVehicles(int page, int size, String sortField, String sortDirection) {
+    @Transactional(readOnly = true)
+    public ResponseDTO getVehicles(int page, int size, String sortField, String sortDirection, boolean approximateCount) {
         validateSortField(sortField);
-        Page<VehicleEntity> vehiclePage = orderAndPageVehicles(page, size, sortField, sortDirection);
+        List<VehicleResponseDTO> vehicles = orderAndPageVehicles(page, size, sortField, sortDirection);
+        VehicleCountCache.Count count = vehicleCountCache.countAll(approximateCount);
         Map<String, Object> response = new HashMap<>();
-        response.put(VEHICLES, vehiclePage.getContent());
-        response.put(TOTAL_PAGES, vehiclePage.getTotalPages() - 1);
+        response.put(VEHICLES, vehicles);
+        response.put(TOTAL_PAGES, totalPages(count.getValue(), size));
+        response.put(APPROXIMATE_COUNT, count.isApproximate());
+        return ResponseDTO.builder()
+                .response(response)
+                .error(false)
+                .build();
+    }
+
+    /**
+     * Retrieves one page of vehicles with keyset pagination and sorting.
+     * The page is read with a seek on the sort key and the ID instead of an OFFSET,
+     * and the count query only runs when the total is requested.
+     *
+     * @param cursor the continuation token returned with the previous page, or null for the first page
+     * @param size the page size
+     * @param sortField the field to sort by
+     * @param sortDirection the direction to sort (asc or desc)
+     * @param withTotal whether to count the vehicles
+     * @return a ResponseDTO containing the page of vehicles and the token of the next page
+     */
+    @Transactional(readOnly = true)
+    public ResponseDTO getVehiclesAfter(String cursor, int size, String sortField, String sortDirection, boolean withTotal) {
+        validateSortField(sortField);
+        boolean ascending = sortDirection.equalsIgnoreCase("asc");
+        String order = PageCursor.order(sortField, ascending);
+        PageCursor pageCursor = cursor == null ? null : PageCursor.decode(cursor, order);
+        List<VehicleResponseDTO> vehicles = vehicleRepository.findResponsePageAfter(sortField, ascending,
+                pageCursor == null ? null : pageCursor.getKey(),
+                pageCursor == null ? null : pageCursor.getId(),
+                size + 1);
+
+        Map<String, Object> response = keysetPage(vehicles, size, order, vehicle -> sortKey(vehicle, sortField));
+        if (withTotal) {
+            addTotals(response, vehicleCountCache.countAll(false).getValue(), size);
+        }
         return ResponseDTO.builder()
                 .response(response)
                 .error(false)
@@ -84,27 +197,79 @@ public class VehicleService {
      * @param size the page size
      * @param sortField the field to sort by
      * @param sortDirection the direction to sort (asc or desc)
-     * @return a Page of VehicleEntity
+     * @return the vehicles of the page
      */
-    private Page<VehicleEntity> orderAndPageVehicles(int page, int size, String sortField, String sortDirection) {
-        System.out.println(page);
-        PageRequest pageRequest = createPageRequest(page, size, sortField, sortDirection);
-        return vehicleRepository.findAll(pageRequest);
+    private List<VehicleResponseDTO> orderAndPageVehicles(int page, int size, String sortField, String sortDirection) {
+        int offset = (int) Math.min((long) page * size, Integer.MAX_VALUE);
+        return vehicleRepository.findResponsePage(sortField, sortDirection.equalsIgnoreCase("asc"), offset, size);
     }
 
     /**
-     * Creates a PageRequest for pagination and sorting.
+     * Returns the value of the sort field of a vehicle, as stored in the keyset cursor.
      *
-     * @param page the page number
-     * @param size the page size
+     * @param vehicle the vehicle
      * @param sortField the field to sort by
-     * @param sortDirection the direction to sort (asc or desc)
-     * @return a PageRequest
+     * @return the value of the sort field
+     */
+    private String sortKey(VehicleResponseDTO vehicle, String sortField) {
+        switch (sortField) {
+            case MODEL:
+                return vehicle.getModel();
+            case YEAR:
+                return vehicle.getYear();
+            case BRAND_ENTITY_NAME:
+                return vehicle.getBrand().getName();
+            default:
+                return vehicle.getLicensePlate();
+        }
+    }
+
+    /**
+     * Builds the response of a keyset page. The vehicles are read with one extra row,
+     * when it is present there is a next page and its cursor points to the last returned vehicle.
+     *
+     * @param vehicles the vehicles of the page plus, if there is a next page, one more
+     * @param size the page size
+     * @param order the order of the page, stored in the cursor
+     * @param sortKey the function that extracts the sort key stored in the cursor
+     * @return the response map
+     */
+    private Map<String, Object> keysetPage(List<VehicleResponseDTO> vehicles, int size, String order,
+                                           Function<VehicleResponseDTO, String> sortKey) {
+        boolean hasNext = vehicles.size() > size;
+        List<VehicleResponseDTO> content = hasNext ? vehicles.subList(0, size) : vehicles;
+
+        Map<String, Object> response = new HashMap<>();
+        response.put(VEHICLES, content);
+        response.put(NEXT_CURSOR, hasNext ? nextCursor(content.get(content.size() - 1), order, sortKey) : null);
+        return response;
+    }
+
+    private String nextCursor(VehicleResponseDTO last, String order, Function<VehicleResponseDTO, String> sortKey) {
+        return new PageCursor(order, sortKey.apply(last), last.getId()).encode();
+    }
+
+    /**
+     * Adds the total number of vehicles and of pages to a keyset page response.
+     *
+     * @param response the response map
+     * @param total the total number of vehicles
+     * @param size the page size
+     */
+    private void addTotals(Map<String, Object> response, long total, int size) {
+        response.put(TOTAL_ELEMENTS, total);
+        response.put(TOTAL_PAGES, totalPages(total, size));
+    }
+
+    /**
+     * Returns the index of the last page, which is what the front end expects as total pages.
+     *
+     * @param total the total number of vehicles
+     * @param size the page size
+     * @return the index of the last page, -1 when there are no vehicles
      */
-    private PageRequest createPageRequest(int page, int size, String sortField, String sortDirection) {
-        Sort sort = Sort.by(sortField);
-        sort = sortDirection.equalsIgnoreCase("asc") ? sort.ascending() : sort.descending();
-        return PageRequest.of(page, size, sort);
+    private int totalPages(long total, int size) {
+        return (int) ((total + size - 1) / size) - 1;
     }
 
     /**
@@ -113,27 +278,38 @@ public class VehicleService {
      * @param search the search term
      * @param page the page number
      * @param size the page size
+     * @param approximateCount whether a cached count older than its TTL can be used without waiting for a recount
      * @return a ResponseDTO containing the search results
      */
-    public ResponseDTO searchVehicles(String search, int page, int size) {
-        System.out.println(page);
-
+    @Transactional(readOnly = true)
+    public ResponseDTO searchVehicles(String search, int page, int size, boolean approximateCount) {
+        // Create a Pageable object with the provided page number and size, ordered by ID so that
+        // the index and the database return the same pages
+        Pageable pageable = PageRequest.of(page, size, Sort.by("id"));
 
-        // Create a Pageable object with the provided page number and size
-        Pageable pageable = PageRequest.of(page, size);
-
-        // Use the vehicle repository to search for vehicles by brand, model, or license plate
-        // The search results are paged according to the Pageable object
-        Page<VehicleEntity> vehiclePage = vehicleRepository.findByBrandModelOrLicensePlate(search, pageable);
+        // Look the term up in the search index, terms it can not answer fall back to the LIKE query
+        // and take the number of matches from the count cache
+        int offset = (int) Math.min(pageable.getOffset(), Integer.MAX_VALUE);
+        Optional<VehicleSearchIndex.Matches> matches = vehicleSearchIndex.search(search, offset, size);
+        List<VehicleResponseDTO> vehicles;
+        VehicleCountCache.Count count;
+        if (matches.isPresent()) {
+            vehicles = findAllInOrder(matches.get().getIds());
+            count = new VehicleCountCache.Count(matches.get().getTotal(), false);
+        } else {
+            vehicles = vehicleRepository.findResponsePageByBrandModelOrLicensePlate(search, pageable);
+            count = vehicleCountCache.countSearch(search, approximateCount);
+        }
 
         // Create a Map to hold the response data
         Map<String, Object> response = new HashMap<>();
 
         // Add the list of found vehicles to the response
-        response.put(VEHICLES, vehiclePage.getContent());
+        response.put(VEHICLES, vehicles);
 
-        // Add the total number of pages to the response
-        response.put(TOTAL_PAGES, vehiclePage.getTotalPages() - 1 );
+        // Add the total number of pages to the response, and whether it comes from an approximate count
+        response.put(TOTAL_PAGES, totalPages(count.getValue(), size));
+        response.put(APPROXIMATE_COUNT, count.isApproximate());
 
         // Build and return a ResponseDTO containing the response data
         return ResponseDTO.builder()
@@ -142,35 +318,196 @@ public class VehicleService {
                 .build();
     }
 
+    /**
+     * Searches for vehicles by brand, model, or license plate with keyset pagination.
+     * The matches are ordered by ID and the page starts right after the ID stored in the cursor.
+     *
+     * @param search the search term
+     * @param cursor the continuation token returned with the previous page, or null for the first page
+     * @param size the page size
+     * @param withTotal whether to count the matching vehicles
+     * @return a ResponseDTO containing the page of vehicles and the token of the next page
+     */
+    @Transactional(readOnly = true)
+    public ResponseDTO searchVehiclesAfter(String search, String cursor, int size, boolean withTotal) {
+        String afterId = cursor == null ? "" : PageCursor.decode(cursor, PageCursor.ID_ORDER).getId();
+
+        Optional<VehicleSearchIndex.Matches> matches = vehicleSearchIndex.searchAfter(search, afterId, size + 1);
+        List<VehicleResponseDTO> vehicles;
+        if (matches.isPresent()) {
+            vehicles = findAllInOrder(matches.get().getIds());
+        } else {
+            vehicles = vehicleRepository.findResponsesByBrandModelOrLicensePlateAfter(search, afterId, PageRequest.of(0, size + 1));
+        }
+
+        Map<String, Object> response = keysetPage(vehicles, size, PageCursor.ID_ORDER, vehicle -> null);
+        if (withTotal) {
+            long total = matches.isPresent()
+                    ? matches.get().getTotal()
+                    : vehicleCountCache.countSearch(search, false).getValue();
+            addTotals(response, total, size);
+        }
+        return ResponseDTO.builder()
+                .response(response)
+                .error(false)
+                .build();
+    }
+
+    /**
+     * Filters the vehicles by brand, year range and color, and counts the vehicles of every value of each facet.
+     * The count of a value applies the filters of the other facets only, so it is the number of vehicles the search
+     * would return with that value selected too. Once the attribute index is built, it answers the filter and the
+     * exact counts and only the vehicles of the page are loaded by ID. Until then the counts and the total are summed
+     * in memory from the cached counts of every brand, year and color combination, and the page is read by the filter.
+     *
+     * @param filter the brands, year range and colors to filter by
+     * @param page the page number
+     * @param size the page size
+     * @param approximateCount whether cached counts older than their TTL can be used without waiting for a recount
+     * @return a ResponseDTO containing the page of vehicles, the total pages and the facet counts
+     */
+    @Transactional(readOnly = true)
+    public ResponseDTO searchVehiclesByFacets(VehicleFilterDTO filter, int page, int size, boolean approximateCount) {
+        int offset = (int) Math.min((long) page * size, Integer.MAX_VALUE);
+        Optional<VehicleAttributeIndex.Matches> matches = vehicleAttributeIndex.filter(filter, offset, size);
+        if (matches.isPresent()) {
+            return facetResponse(findAllInOrder(matches.get().getIds()), matches.get().getBrands(),
+                    matches.get().getYears(), matches.get().getColors(), matches.get().getTotal(), size, false);
+        }
+
+        VehicleFacetCache.Counts counts = vehicleFacetCache.counts(approximateCount);
+        Map<String, FacetCountDTO> brands = new HashMap<>();
+        Map<String, FacetCountDTO> years = new HashMap<>();
+        Map<String, FacetCountDTO> colors = new HashMap<>();
+        long total = 0;
+        for (VehicleFacetCount combination : counts.getCombinations()) {
+            boolean brand = matchesBrand(filter, combination.getBrandId());
+            boolean year = matchesYear(filter, combination.getYear());
+            boolean color = matchesColor(filter, combination.getColor());
+            if (year && color) {
+                addToFacet(brands, combination.getBrandId(), combination.getBrandName(), combination.getCount());
+            }
+            if (brand && color) {
+                addToFacet(years, combination.getYear(), combination.getYear(), combination.getCount());
+            }
+            if (brand && year) {
+                addToFacet(colors, combination.getColor().toLowerCase(Locale.ROOT), combination.getColor(), combination.getCount());
+            }
+            if (brand && year && color) {
+                total += combination.getCount();
+            }
+        }
+
+        // An exact total of zero needs no query, an approximate one may be missing vehicles created since
+        List<VehicleResponseDTO> vehicles = total == 0 && !counts.isApproximate()
+                ? Collections.emptyList()
+                : vehicleRepository.findResponsePageByFilter(filter, offset, size);
+        return facetResponse(vehicles, brands, years, colors, total, size, counts.isApproximate());
+    }
+
+    private ResponseDTO facetResponse(List<VehicleResponseDTO> vehicles, Map<String, FacetCountDTO> brands,
+                                      Map<String, FacetCountDTO> years, Map<String, FacetCountDTO> colors,
+                                      long total, int size, boolean approximate) {
+        Map<String, Object> facets = new HashMap<>();
+        facets.put(BRANDS, sortedByLabel(brands));
+        facets.put(YEARS, sortedByLabel(years));
+        facets.put(COLORS, sortedByLabel(colors));
+
+        Map<String, Object> response = new HashMap<>();
+        response.put(VEHICLES, vehicles);
+        response.put(FACETS, facets);
+        addTotals(response, total, size);
+        response.put(APPROXIMATE_COUNT, approximate);
+        return ResponseDTO.builder()
+                .response(response)
+                .error(false)
+                .build();
+    }
+
+    private static boolean matchesBrand(VehicleFilterDTO filter, String brandId) {
+        return filter.getBrandIds() == null || filter.getBrandIds().isEmpty() || filter.getBrandIds().contains(brandId);
+    }
+
+    private static boolean matchesYear(VehicleFilterDTO filter, String year) {
+        return (filter.getYearFrom() == null || year.compareTo(filter.getYearFrom()) >= 0)
+                && (filter.getYearTo() == null || year.compareTo(filter.getYearTo()) <= 0);
+    }
+
+    private static boolean matchesColor(VehicleFilterDTO filter, String color) {
+        return filter.getColors() == null || filter.getColors().isEmpty()
+                || filter.getColors().stream().anyMatch(selected -> selected.equalsIgnoreCase(color));
+    }
+
+    private static void addToFacet(Map<String, FacetCountDTO> facet, String value, String label, long count) {
+        FacetCountDTO facetCount = facet.computeIfAbsent(value, key -> new FacetCountDTO(key, label, 0));
+        facetCount.setCount(facetCount.getCount() + count);
+    }
+
+    private static List<FacetCountDTO> sortedByLabel(Map<String, FacetCountDTO> facet) {
+        return facet.values().stream()
+                .sorted(Comparator.comparing(FacetCountDTO::getLabel, String.CASE_INSENSITIVE_ORDER))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Loads the vehicles with the given IDs, in the order of the IDs.
+     *
+     * @param ids the IDs of the vehicles
+     * @return the vehicles that still exist
+     */
+    private List<VehicleResponseDTO> findAllInOrder(List<String> ids) {
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Map<String, VehicleResponseDTO> vehiclesById = vehicleRepository.findResponsesByIdIn(ids).stream()
+                .collect(Collectors.toMap(VehicleResponseDTO::getId, Function.identity()));
+        return ids.stream()
+                .map(vehiclesById::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
     /**
      * Retrieves a vehicle by its ID.
+     * The vehicle and its brand are loaded as entities, so a vehicle read again is served from the second-level
+     * cache without any statement.
      *
      * @param id the ID of the vehicle
      * @return a ResponseDTO containing the vehicle
      */
+    @Transactional(readOnly = true)
     public ResponseDTO getVehicleById(String id) {
+        VehicleEntity vehicle = vehicleRepository.findById(id).orElseThrow(() -> new EntityNotFoundException(VEHICLE_DOES_NOT_EXIST));
         return ResponseDTO.builder()
-                .response(vehicleRepository.findById(id).orElseThrow(() -> new EntityNotFoundException(VEHICLE_DOES_NOT_EXIST)))
+                .response(VehicleResponseDTO.builder()
+                        .id(vehicle.getId())
+                        .model(vehicle.getModel())
+                        .licensePlate(vehicle.getLicensePlate())
+                        .color(vehicle.getColor())
+                        .year(vehicle.getYear())
+                        .brand(new BrandResponseDTO(vehicle.getBrandEntity().getId(), vehicle.getBrandEntity().getName()))
+                        .version(vehicle.getVersion())
+                        .build())
                 .error(false)
+                .version(vehicle.getVersion())
+                .brandVersion(vehicle.getBrandEntity().getVersion())
                 .build();
     }
 
     /**
      * Adds a new vehicle.
+     * The vehicle is inserted straight away, a duplicated license plate is rejected by its unique constraint,
+     * which also holds against concurrent writes.
      *
      * @param vehicleDTO the vehicle to add
      * @return a ResponseDTO indicating success
+     * @throws DataIntegrityViolationException if a vehicle with the same license plate exists
      */
+    @Transactional
     public ResponseDTO addVehicle(VehicleDTO vehicleDTO) {
-        // Check if a vehicle with the same license plate already exists in the repository
-        if(vehicleRepository.existsByLicensePlate(vehicleDTO.getLicensePlate())){
-            // If a vehicle with the same license plate exists, throw an exception
-            throw new DataIntegrityViolationException("Ya existe un vehiculo con esa placa");
-        }
-
         // Create a new VehicleEntity object with the details from the VehicleDTO
         VehicleEntity vehicleEntity = VehicleEntity.builder()
-                .id(UUID.randomUUID().toString())
+                .id(Ids.newId())
                 .color(vehicleDTO.getColor())
                 .licensePlate(vehicleDTO.getLicensePlate())
                 .model(vehicleDTO.getModel())
@@ -178,8 +515,9 @@ public class VehicleService {
                 .brandEntity(brandService.findBrandById(vehicleDTO.getBrandId()))
                 .build();
 
-        // Save the new VehicleEntity to the repository
-        vehicleRepository.save((vehicleEntity));
+        // Insert the new VehicleEntity, flushing so a duplicated license plate is reported here
+        saveAndFlush(vehicleEntity);
+        eventPublisher.publishEvent(VehicleChangeEvent.created(vehicleEntity));
 
         // Return a ResponseDTO indicating success
         return ResponseDTO.builder()
@@ -189,47 +527,212 @@ public class VehicleService {
     }
 
     /**
-     * Updates a vehicle.
+     * Updates a vehicle, overwriting it whatever its version.
      *
      * @param id the ID of the vehicle to update
      * @param vehicleDTO the updated vehicle
-     * @return a ResponseDTO indicating success
+     * @return a ResponseDTO indicating success, holding the new version of the vehicle
      */
     public ResponseDTO updateVehicle(String id, VehicleDTO vehicleDTO) {
-        VehicleEntity vehicleEntity = vehicleRepository.findById(id).orElseThrow(() -> new EntityNotFoundException(VEHICLE_DOES_NOT_EXIST));
+        return updateVehicle(id, vehicleDTO, null, false);
+    }
 
-        if(vehicleRepository.existsByLicensePlate(vehicleDTO.getLicensePlate()) && !vehicleEntity.getLicensePlate().equals(vehicleDTO.getLicensePlate())){
-            throw new DataIntegrityViolationException("Ya existe un vehiculo con esa placa");
+    /**
+     * Updates a vehicle.
+     * The vehicle is read and written in one transaction. When a concurrent update commits in between, the write
+     * fails on the version of the vehicle instead of overwriting it. With merge, the update is then tried again on
+     * top of the concurrent one, as long as the two did not change the same field to different values.
+     *
+     * @param id the ID of the vehicle to update
+     * @param vehicleDTO the updated vehicle
+     * @param expectedVersion the version the vehicle must still have, or null to update any version
+     * @param merge whether to merge the update with concurrent ones instead of failing
+     * @return a ResponseDTO indicating success, holding the new version of the vehicle
+     * @throws PreconditionFailedException if the vehicle no longer has the expected version
+     * @throws EntityConflictException if a concurrent update could not be merged
+     * @throws DataIntegrityViolationException if another vehicle has the new license plate
+     */
+    public ResponseDTO updateVehicle(String id, VehicleDTO vehicleDTO, Long expectedVersion, boolean merge) {
+        AtomicReference<VehicleDTO> readFields = new AtomicReference<>();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> writeVehicle(id, vehicleDTO, expectedVersion, readFields));
+            } catch (OptimisticLockingFailureException e) {
+                if (!merge || attempt == MERGE_ATTEMPTS) {
+                    throw new EntityConflictException(VEHICLE_CHANGED_CONCURRENTLY);
+                }
+            }
+        }
+    }
+
+    /**
+     * Updates the fields of a vehicle present in a JSON Merge Patch, validating only those.
+     * The vehicle is read from the second-level cache, its brand is only looked up when the patch moves it to
+     * another one, and the vehicle is mapped with @DynamicUpdate, so the UPDATE sets only the changed columns.
+     * A patch that changes nothing writes nothing and keeps the version of the vehicle.
+     *
+     * @param id the ID of the vehicle to update
+     * @param patch the fields to change
+     * @param expectedVersion the version the vehicle must still have, or null to update any version
+     * @return a ResponseDTO indicating success, holding the new version of the vehicle
+     * @throws IllegalArgumentException if the patch holds a field a vehicle does not have
+     * @throws ConstraintViolationException if a field of the patch is not valid
+     * @throws PreconditionFailedException if the vehicle no longer has the expected version
+     * @throws EntityConflictException if the vehicle was updated concurrently
+     * @throws DataIntegrityViolationException if another vehicle has the new license plate
+     */
+    @Transactional
+    public ResponseDTO patchVehicle(String id, Map<String, Object> patch, Long expectedVersion) {
+        Map<String, String> fields = MergePatch.read(patch, VehicleDTO.class, validator);
+        VehicleEntity vehicleEntity = vehicleRepository.findById(id).orElseThrow(() -> new EntityNotFoundException(VEHICLE_DOES_NOT_EXIST));
+        if (expectedVersion != null && !expectedVersion.equals(vehicleEntity.getVersion())) {
+            throw new PreconditionFailedException(VEHICLE_VERSION_CHANGED);
         }
 
-        vehicleEntity.setColor(vehicleDTO.getColor());
-        vehicleEntity.setLicensePlate(vehicleDTO.getLicensePlate());
-        vehicleEntity.setModel(vehicleDTO.getModel());
-        vehicleEntity.setYear(vehicleDTO.getYear());
-        vehicleEntity.setBrandEntity(brandService.findBrandById(vehicleDTO.getBrandId()));
+        fields.forEach((field, value) -> {
+            switch (field) {
+                case MODEL:
+                    vehicleEntity.setModel(value);
+                    break;
+                case LICENSE_PLATE:
+                    vehicleEntity.setLicensePlate(value);
+                    break;
+                case COLOR:
+                    vehicleEntity.setColor(value);
+                    break;
+                case YEAR:
+                    vehicleEntity.setYear(value);
+                    break;
+                case BRAND_ID:
+                    if (!value.equals(vehicleEntity.getBrandEntity().getId())) {
+                        vehicleEntity.setBrandEntity(brandService.findBrandById(value));
+                    }
+                    break;
+                default:
+                    break;
+            }
+        });
 
-        vehicleRepository.save(vehicleEntity);
+        try {
+            saveAndFlush(vehicleEntity);
+        } catch (OptimisticLockingFailureException e) {
+            throw new EntityConflictException(VEHICLE_CHANGED_CONCURRENTLY);
+        }
+        eventPublisher.publishEvent(VehicleChangeEvent.updated(vehicleEntity));
 
         return ResponseDTO.builder()
                 .response(Constants.SUCCESS)
                 .error(false)
+                .version(vehicleEntity.getVersion())
                 .build();
     }
+
     /**
      * Deletes a vehicle.
      *
      * @param id the ID of the vehicle to delete
      * @return a ResponseDTO indicating success
      */
+    @Transactional
     public ResponseDTO deleteVehicle(String id) {
         if(!vehicleRepository.existsById(id)){
             throw new EntityNotFoundException(VEHICLE_DOES_NOT_EXIST);
         }
         vehicleRepository.deleteById(id);
+        eventPublisher.publishEvent(VehicleChangeEvent.deleted(id));
+        return ResponseDTO.builder()
+                .response(Constants.SUCCESS)
+                .error(false)
+                .build();
+    }
+
+    /**
+     * Writes a vehicle and flushes it, reporting a duplicated license plate with the message clients expect.
+     *
+     * @param vehicleEntity the vehicle to write
+     * @throws DataIntegrityViolationException if the license plate belongs to another vehicle
+     */
+    private void saveAndFlush(VehicleEntity vehicleEntity) {
+        try {
+            vehicleRepository.saveAndFlush(vehicleEntity);
+        } catch (DataIntegrityViolationException e) {
+            if (UniqueConstraints.isViolated(e, UniqueConstraints.VEHICLE_LICENSE_PLATE)) {
+                throw new DataIntegrityViolationException(LICENSE_PLATE_ALREADY_EXISTS);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * One attempt of an update. The first attempt checks the expected version and remembers the fields it read,
+     * the retries apply on the vehicle read again only the fields the update changed from those.
+     */
+    private ResponseDTO writeVehicle(String id, VehicleDTO vehicleDTO, Long expectedVersion,
+                                     AtomicReference<VehicleDTO> readFields) {
+        VehicleEntity vehicleEntity = vehicleRepository.findById(id).orElseThrow(() -> new EntityNotFoundException(VEHICLE_DOES_NOT_EXIST));
+        VehicleDTO current = fieldsOf(vehicleEntity);
+
+        VehicleDTO updated = vehicleDTO;
+        if (readFields.compareAndSet(null, current)) {
+            if (expectedVersion != null && !expectedVersion.equals(vehicleEntity.getVersion())) {
+                throw new PreconditionFailedException(VEHICLE_VERSION_CHANGED);
+            }
+        } else {
+            updated = merge(readFields.get(), current, vehicleDTO);
+        }
+
+        vehicleEntity.setColor(updated.getColor());
+        vehicleEntity.setLicensePlate(updated.getLicensePlate());
+        vehicleEntity.setModel(updated.getModel());
+        vehicleEntity.setYear(updated.getYear());
+        vehicleEntity.setBrandEntity(brandService.findBrandById(updated.getBrandId()));
+
+        saveAndFlush(vehicleEntity);
+        eventPublisher.publishEvent(VehicleChangeEvent.updated(vehicleEntity));
+
         return ResponseDTO.builder()
                 .response(Constants.SUCCESS)
                 .error(false)
+                .version(vehicleEntity.getVersion())
                 .build();
     }
 
-}
\ No newline at end of file
+    /**
+     * Merges an update with the concurrent updates committed since the vehicle was first read.
+     *
+     * @param read the fields when the update first read the vehicle
+     * @param current the fields now
+     * @param updated the fields the update sets
+     * @return the current fields with those the update changed
+     * @throws EntityConflictException if a field was changed by both to different values
+     */
+    private static VehicleDTO merge(VehicleDTO read, VehicleDTO current, VehicleDTO updated) {
+        VehicleDTO merged = new VehicleDTO();
+        for (Field field : FIELDS) {
+            String value = field.getter.apply(updated);
+            boolean changedHere = !Objects.equals(value, field.getter.apply(read));
+            boolean changedThere = !Objects.equals(field.getter.apply(current), field.getter.apply(read));
+            if (changedHere && changedThere && !Objects.equals(value, field.getter.apply(current))) {
+                throw new EntityConflictException(VEHICLE_CHANGED_CONCURRENTLY);
+            }
+            field.setter.accept(merged, changedHere ? value : field.getter.apply(current));
+        }
+        return merged;
+    }
+
+    private static VehicleDTO fieldsOf(VehicleEntity vehicleEntity) {
+        return new VehicleDTO(vehicleEntity.getModel(), vehicleEntity.getLicensePlate(), vehicleEntity.getColor(),
+                vehicleEntity.getYear(), vehicleEntity.getBrandEntity().getId());
+    }
+
+    private static final class Field {
+        private final Function<VehicleDTO, String> getter;
+        private final BiConsumer<VehicleDTO, String> setter;
+
+        private Field(Function<VehicleDTO, String> getter, BiConsumer<VehicleDTO, String> setter) {
+            this.getter = getter;
+            this.setter = setter;
+        }
+    }
+
+}
@@ -0,0 +1,87 @@
+package com.technicaltest.utils;
+
+import java.nio.ByteBuffer;
+import java.security.SecureRandom;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Generates and converts the IDs of the vehicles and brands. IDs are time-ordered UUIDs (version 7) handled as their
+ * canonical string form in the application and stored as 16 bytes in the database. New rows are appended at the end
+ * of the primary key index instead of at random places in it, and every index and foreign key holding an ID shrinks
+ * from 36 characters to 16 bytes.
+ * Byte order and canonical string order are the same, so ID keysets compare alike in Java and in the database.
+ */
+public class Ids {
+
+    /**
+     * The bytes every string that is not a UUID is stored as. No row has this ID, so a lookup by a malformed ID finds
+     * nothing, and the empty string used as the start of an ID keyset comes before every ID.
+     */
+    private static final byte[] NONE = new byte[16];
+
+    private static final Random RANDOM = new SecureRandom();
+
+    private Ids() {
+    }
+
+    /**
+     * Generates a new ID: a version 7 UUID made of the current Unix time in milliseconds followed by random bits.
+     *
+     * @return the canonical string form of the ID
+     */
+    public static String newId() {
+        return newId(System.currentTimeMillis());
+    }
+
+    static String newId(long millis) {
+        byte[] bytes = new byte[16];
+        RANDOM.nextBytes(bytes);
+        for (int i = 0; i < 6; i++) {
+            bytes[i] = (byte) (millis >>> (40 - 8 * i));
+        }
+        bytes[6] = (byte) (bytes[6] & 0x0f | 0x70);
+        bytes[8] = (byte) (bytes[8] & 0x3f | 0x80);
+        return fromBytes(bytes);
+    }
+
+    /**
+     * Converts an ID to the bytes stored in the database.
+     *
+     * @param id the canonical string form of a UUID, in either case
+     * @return the 16 bytes of the UUID, or 16 zero bytes when the string is not a UUID
+     */
+    public static byte[] toBytes(String id) {
+        UUID uuid = parse(id);
+        if (uuid == null) {
+            return NONE.clone();
+        }
+        return ByteBuffer.allocate(16)
+                .putLong(uuid.getMostSignificantBits())
+                .putLong(uuid.getLeastSignificantBits())
+                .array();
+    }
+
+    /**
+     * Converts the bytes stored in the database to an ID.
+     *
+     * @param bytes the 16 bytes of the UUID
+     * @return the canonical string form of the UUID
+     */
+    public static String fromBytes(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new UUID(buffer.getLong(), buffer.getLong()).toString();
+    }
+
+    private static UUID parse(String id) {
+        // UUID.fromString also accepts shortened groups such as 1-1-1-1-1, only the canonical form is an ID
+        if (id == null || id.length() != 36) {
+            return null;
+        }
+        try {
+            return UUID.fromString(id);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.technicaltest.utils;
+
+import org.springframework.beans.BeanUtils;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.ConstraintViolationException;
+import javax.validation.Validator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Reads the JSON Merge Patch documents (RFC 7396) of the partial updates. A patch holds only the fields it changes,
+ * so each field is validated alone against the constraints it has in the DTO of the full update. As every field of
+ * a vehicle or a brand is required, a field set to null, which a merge patch uses to remove it, is rejected too.
+ */
+public class MergePatch {
+    public static final String MEDIA_TYPE = "application/merge-patch+json";
+
+    private MergePatch() {
+    }
+
+    /**
+     * Reads and validates the fields of a patch.
+     *
+     * @param patch the patch, as parsed from its JSON
+     * @param type the DTO of the full update, whose properties are the fields a patch can change
+     * @param validator the validator of the constraints of the DTO
+     * @return the fields of the patch with their new values, in the order of the patch
+     * @throws IllegalArgumentException if a field is not one of the DTO or its value is an object or an array
+     * @throws ConstraintViolationException if a value breaks the constraints of its field
+     */
+    public static Map<String, String> read(Map<String, Object> patch, Class<?> type, Validator validator) {
+        Map<String, String> fields = new LinkedHashMap<>();
+        Set<ConstraintViolation<?>> violations = new HashSet<>();
+        patch.forEach((field, value) -> {
+            if (BeanUtils.getPropertyDescriptor(type, field) == null || field.equals("class")) {
+                throw new IllegalArgumentException("Campo invalido para modificar: " + field);
+            }
+            if (value instanceof Map || value instanceof Iterable) {
+                throw new IllegalArgumentException("Valor invalido para el campo: " + field);
+            }
+            String text = value == null ? null : value.toString();
+            violations.addAll(validator.validateValue(type, field, text));
+            fields.put(field, text);
+        });
+        if (!violations.isEmpty()) {
+            throw new ConstraintViolationException(violations);
+        }
+        return fields;
+    }
+}
@@ -0,0 +1,93 @@
+package com.technicaltest.utils;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque continuation token for keyset pagination.
+ * It carries the order the page was read in, the sort key and the ID of the last row of a page, the next page starts
+ * right after that pair. The key and the ID only point to a row in that order, so a cursor is rejected with any other.
+ */
+@Getter
+@AllArgsConstructor
+public class PageCursor {
+    /**
+     * The order of the pages that are sorted by ID only, like the search results.
+     */
+    public static final String ID_ORDER = "id:asc";
+
+    private static final char SEPARATOR = '\n';
+
+    /**
+     * The sort field and direction the page was read with, see {@link #order(String, boolean)}.
+     */
+    private final String order;
+
+    /**
+     * The value of the sort field in the last row of the page, or null when the rows are ordered by ID only.
+     */
+    private final String key;
+
+    /**
+     * The ID of the last row of the page.
+     */
+    private final String id;
+
+    /**
+     * Returns the order of the pages sorted by a field, as stored in their cursors.
+     *
+     * @param sortField the field to sort by
+     * @param ascending whether the field is sorted in ascending order
+     * @return the order
+     */
+    public static String order(String sortField, boolean ascending) {
+        return sortField + (ascending ? ":asc" : ":desc");
+    }
+
+    /**
+     * Encodes the cursor as a URL safe token.
+     *
+     * @return the token
+     */
+    public String encode() {
+        String value = order + SEPARATOR + (key == null ? "" : key) + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a token produced by {@link #encode()}.
+     *
+     * @param token the token
+     * @return the cursor
+     * @throws IllegalArgumentException if the token is not a valid cursor
+     */
+    public static PageCursor decode(String token) {
+        String value = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        // The order never holds the separator and the ID is last, so the key may hold anything
+        int orderEnd = value.indexOf(SEPARATOR);
+        int keyEnd = value.lastIndexOf(SEPARATOR);
+        if (orderEnd <= 0 || keyEnd == orderEnd || keyEnd == value.length() - 1) {
+            throw new IllegalArgumentException("Cursor invalido: " + token);
+        }
+        return new PageCursor(value.substring(0, orderEnd), value.substring(orderEnd + 1, keyEnd), value.substring(keyEnd + 1));
+    }
+
+    /**
+     * Decodes a token produced by {@link #encode()} for a page read in the given order.
+     *
+     * @param token the token
+     * @param order the order of the requested page
+     * @return the cursor
+     * @throws IllegalArgumentException if the token is not a valid cursor or was issued for another order
+     */
+    public static PageCursor decode(String token, String order) {
+        PageCursor cursor = decode(token);
+        if (!cursor.order.equals(order)) {
+            throw new IllegalArgumentException("El cursor corresponde a otro ordenamiento: " + cursor.order);
+        }
+        return cursor;
+    }
+}
@@ -0,0 +1,30 @@
+package com.technicaltest.utils;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Normalizes text the same way the database collation compares it, case and accent insensitive,
+ * so that in-memory matching returns the same rows as the LIKE queries.
+ */
+public class SearchTerms {
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+
+    private SearchTerms() {
+    }
+
+    /**
+     * Normalizes a value for case and accent insensitive comparisons.
+     *
+     * @param value the value to normalize, may be null
+     * @return the normalized value, or an empty string when the value is null
+     */
+    public static String normalize(String value) {
+        if (value == null) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(value, Normalizer.Form.NFD);
+        return DIACRITICS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+}
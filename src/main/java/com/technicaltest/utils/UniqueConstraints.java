@@ -0,0 +1,37 @@
+package com.technicaltest.utils;
+
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.util.Locale;
+
+/**
+ * Tells which unique constraint a failed write violated, so the services can insert straight away
+ * and let the database reject duplicates instead of checking for them first.
+ */
+public class UniqueConstraints {
+    public static final String VEHICLE_LICENSE_PLATE = "uk_vehicles_license_plate";
+    public static final String BRAND_NAME = "uk_brands_name";
+    public static final String OUTBOX_EVENT_SEQUENCE = "uk_outbox_events_sequence";
+
+    private UniqueConstraints() {
+    }
+
+    /**
+     * Checks whether a write failed on the given constraint. The dialects report the name the way the database
+     * does, MySQL prefixes it with the table and H2 upper cases it, so the name is looked for in what they report.
+     *
+     * @param exception the exception of the failed write
+     * @param constraintName the name of the constraint
+     * @return whether the constraint was violated
+     */
+    public static boolean isViolated(DataIntegrityViolationException exception, String constraintName) {
+        for (Throwable cause = exception; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException) {
+                String violated = ((ConstraintViolationException) cause).getConstraintName();
+                return violated != null && violated.toLowerCase(Locale.ROOT).contains(constraintName);
+            }
+        }
+        return false;
+    }
+}
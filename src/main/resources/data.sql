@@ -1 +1 @@
-INSERT ignore INTO brands (brand_id, brand_name, brand_created_date) VALUES (1, 'Toyota', now()), (2, 'Ferrari', now()), (3, 'Pagani', now()), (4, 'Lamborgini', now()), (5, 'Tesla', now()), (6, 'Twingo', now());
\ No newline at end of file
+INSERT ignore INTO brands (brand_id, brand_name, brand_created_date) VALUES (X'01900000000070008000000000000001', 'Toyota', now()), (X'01900000000070008000000000000002', 'Ferrari', now()), (X'01900000000070008000000000000003', 'Pagani', now()), (X'01900000000070008000000000000004', 'Lamborgini', now()), (X'01900000000070008000000000000005', 'Tesla', now()), (X'01900000000070008000000000000006', 'Twingo', now());
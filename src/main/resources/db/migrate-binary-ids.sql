@@ -0,0 +1,170 @@
+-- Moves an existing MySQL vehicle_inventory_db from VARCHAR(60) IDs to the BINARY(16) ones of com.technicaltest.utils.Ids.
+-- Run it with the application stopped, before starting the version that stores binary IDs, from the mysql client:
+--     mysql vehicle_inventory_db < migrate-binary-ids.sql
+-- MySQL commits every ALTER TABLE on its own, so take a backup first. Every step checks the schema before it runs,
+-- so a run that stopped halfway is resumed by running the script again, and a migrated database is left as it is.
+--
+-- IDs that are UUIDs keep their value, so the links clients hold still work. The brands '1' to '6' of data.sql
+-- take the UUIDs data.sql now inserts, and any other ID that is not a UUID gets a new one.
+-- Vehicles whose brand does not exist can not be migrated: they are reported and nothing is changed until they are
+-- fixed or deleted.
+
+DROP PROCEDURE IF EXISTS migrate_binary_ids;
+DROP FUNCTION IF EXISTS migrate_column_type;
+
+DELIMITER //
+
+-- The type of a column of the current database, or NULL if it does not exist
+CREATE FUNCTION migrate_column_type(table_name_in VARCHAR(64), column_name_in VARCHAR(64)) RETURNS VARCHAR(64)
+    READS SQL DATA
+BEGIN
+    RETURN (SELECT data_type FROM information_schema.columns
+            WHERE table_schema = DATABASE() AND table_name = table_name_in AND column_name = column_name_in);
+END //
+
+CREATE PROCEDURE migrate_binary_ids()
+BEGIN
+    DECLARE missing BIGINT DEFAULT 0;
+
+    -- 1. Stops before any change when a vehicle points to a brand that does not exist
+    IF migrate_column_type('vehicles', 'brand_id') = 'varchar' AND migrate_column_type('brands', 'brand_id') = 'varchar' THEN
+        SELECT COUNT(*) INTO missing FROM vehicles v LEFT JOIN brands b ON b.brand_id = v.brand_id WHERE b.brand_id IS NULL;
+        IF missing > 0 THEN
+            SELECT v.vehicle_id, v.brand_id AS missing_brand_id
+            FROM vehicles v LEFT JOIN brands b ON b.brand_id = v.brand_id WHERE b.brand_id IS NULL;
+            SET @message = CONCAT(missing, ' vehiculos tienen una marca que no existe, corrijalos o eliminelos antes de migrar');
+            SIGNAL SQLSTATE '45000' SET MESSAGE_TEXT = @message;
+        END IF;
+    END IF;
+
+    -- 2. Adds the binary columns next to the VARCHAR ones and fills the rows not filled yet, so a rerun keeps the
+    -- UUIDs already given to the IDs that are not UUIDs
+    IF migrate_column_type('brands', 'brand_id') = 'varchar' AND migrate_column_type('brands', 'brand_bin') IS NULL THEN
+        ALTER TABLE brands ADD COLUMN brand_bin BINARY(16);
+    END IF;
+    IF migrate_column_type('vehicles', 'vehicle_id') = 'varchar' AND migrate_column_type('vehicles', 'vehicle_bin') IS NULL THEN
+        ALTER TABLE vehicles ADD COLUMN vehicle_bin BINARY(16);
+    END IF;
+    IF migrate_column_type('vehicles', 'brand_id') = 'varchar' AND migrate_column_type('vehicles', 'brand_bin') IS NULL THEN
+        ALTER TABLE vehicles ADD COLUMN brand_bin BINARY(16);
+    END IF;
+
+    IF migrate_column_type('brands', 'brand_id') = 'varchar' THEN
+        UPDATE brands SET brand_bin = CASE
+            WHEN brand_id IN ('1', '2', '3', '4', '5', '6') THEN UUID_TO_BIN(CONCAT('01900000-0000-7000-8000-00000000000', brand_id))
+            WHEN IS_UUID(brand_id) THEN UUID_TO_BIN(brand_id)
+            ELSE UUID_TO_BIN(UUID())
+        END
+        WHERE brand_bin IS NULL;
+    END IF;
+    IF migrate_column_type('vehicles', 'vehicle_id') = 'varchar' THEN
+        UPDATE vehicles SET vehicle_bin = IF(IS_UUID(vehicle_id), UUID_TO_BIN(vehicle_id), UUID_TO_BIN(UUID()))
+        WHERE vehicle_bin IS NULL;
+    END IF;
+    IF migrate_column_type('vehicles', 'brand_id') = 'varchar' AND migrate_column_type('brands', 'brand_id') = 'varchar' THEN
+        UPDATE vehicles v JOIN brands b ON b.brand_id = v.brand_id
+        SET v.brand_bin = b.brand_bin
+        WHERE v.brand_bin IS NULL;
+    END IF;
+
+    -- 3. Checks that every vehicle got its binary IDs before the VARCHAR ones are dropped
+    SET missing = 0;
+    IF migrate_column_type('vehicles', 'vehicle_id') = 'varchar' THEN
+        SELECT COUNT(*) INTO missing FROM vehicles WHERE vehicle_bin IS NULL;
+    END IF;
+    IF missing = 0 AND migrate_column_type('vehicles', 'brand_id') = 'varchar' THEN
+        SELECT COUNT(*) INTO missing FROM vehicles WHERE brand_bin IS NULL;
+    END IF;
+    IF missing > 0 THEN
+        SET @message = CONCAT(missing, ' vehiculos no tienen sus IDs binarios, revise sus marcas antes de migrar');
+        SIGNAL SQLSTATE '45000' SET MESSAGE_TEXT = @message;
+    END IF;
+
+    -- 4. Drops the foreign key, then every secondary index holding a VARCHAR ID, whatever its name: dropping a
+    -- column only removes it from a multi-column index, and a database created by an older version has other ones
+    IF migrate_column_type('vehicles', 'brand_id') = 'varchar' THEN
+        SET @ddl = NULL;
+        SELECT CONCAT('ALTER TABLE vehicles ', GROUP_CONCAT(CONCAT('DROP FOREIGN KEY `', constraint_name, '`')))
+        INTO @ddl
+        FROM information_schema.referential_constraints
+        WHERE constraint_schema = DATABASE() AND table_name = 'vehicles';
+        IF @ddl IS NOT NULL THEN
+            PREPARE step FROM @ddl;
+            EXECUTE step;
+            DEALLOCATE PREPARE step;
+        END IF;
+    END IF;
+
+    SET @ddl = NULL;
+    SELECT CONCAT('ALTER TABLE vehicles ', GROUP_CONCAT(DISTINCT CONCAT('DROP INDEX `', s.index_name, '`')))
+    INTO @ddl
+    FROM information_schema.statistics s
+    JOIN information_schema.columns c
+        ON c.table_schema = s.table_schema AND c.table_name = s.table_name AND c.column_name = s.column_name
+    WHERE s.table_schema = DATABASE() AND s.table_name = 'vehicles' AND s.index_name <> 'PRIMARY'
+        AND s.column_name IN ('vehicle_id', 'brand_id') AND c.data_type = 'varchar';
+    IF @ddl IS NOT NULL THEN
+        PREPARE step FROM @ddl;
+        EXECUTE step;
+        DEALLOCATE PREPARE step;
+    END IF;
+
+    -- 5. Swaps the columns of the vehicles
+    IF migrate_column_type('vehicles', 'vehicle_id') = 'varchar' THEN
+        ALTER TABLE vehicles DROP PRIMARY KEY, DROP COLUMN vehicle_id;
+    END IF;
+    IF migrate_column_type('vehicles', 'brand_id') = 'varchar' THEN
+        ALTER TABLE vehicles DROP COLUMN brand_id;
+    END IF;
+    IF migrate_column_type('vehicles', 'vehicle_bin') IS NOT NULL THEN
+        ALTER TABLE vehicles RENAME COLUMN vehicle_bin TO vehicle_id;
+    END IF;
+    IF migrate_column_type('vehicles', 'brand_bin') IS NOT NULL THEN
+        ALTER TABLE vehicles RENAME COLUMN brand_bin TO brand_id;
+    END IF;
+
+    -- 6. Swaps the column of the brands
+    IF migrate_column_type('brands', 'brand_id') = 'varchar' THEN
+        ALTER TABLE brands DROP PRIMARY KEY, DROP COLUMN brand_id;
+    END IF;
+    IF migrate_column_type('brands', 'brand_bin') IS NOT NULL THEN
+        ALTER TABLE brands RENAME COLUMN brand_bin TO brand_id;
+    END IF;
+    IF NOT EXISTS (SELECT 1 FROM information_schema.statistics
+                   WHERE table_schema = DATABASE() AND table_name = 'brands' AND index_name = 'PRIMARY') THEN
+        ALTER TABLE brands MODIFY brand_id BINARY(16) NOT NULL, ADD PRIMARY KEY (brand_id);
+    END IF;
+
+    -- 7. Rebuilds the keys and indexes of the vehicles
+    IF NOT EXISTS (SELECT 1 FROM information_schema.statistics
+                   WHERE table_schema = DATABASE() AND table_name = 'vehicles' AND index_name = 'PRIMARY') THEN
+        ALTER TABLE vehicles
+            MODIFY vehicle_id BINARY(16) NOT NULL,
+            MODIFY brand_id BINARY(16) NOT NULL,
+            ADD PRIMARY KEY (vehicle_id);
+    END IF;
+    IF NOT EXISTS (SELECT 1 FROM information_schema.statistics
+                   WHERE table_schema = DATABASE() AND table_name = 'vehicles' AND index_name = 'idx_vehicles_model_id') THEN
+        ALTER TABLE vehicles ADD INDEX idx_vehicles_model_id (vehicle_model, vehicle_id);
+    END IF;
+    IF NOT EXISTS (SELECT 1 FROM information_schema.statistics
+                   WHERE table_schema = DATABASE() AND table_name = 'vehicles' AND index_name = 'idx_vehicles_year_id') THEN
+        ALTER TABLE vehicles ADD INDEX idx_vehicles_year_id (vehicle_year, vehicle_id);
+    END IF;
+    IF NOT EXISTS (SELECT 1 FROM information_schema.statistics
+                   WHERE table_schema = DATABASE() AND table_name = 'vehicles' AND index_name = 'idx_vehicles_brand_id') THEN
+        ALTER TABLE vehicles ADD INDEX idx_vehicles_brand_id (brand_id, vehicle_id);
+    END IF;
+    IF NOT EXISTS (SELECT 1 FROM information_schema.referential_constraints
+                   WHERE constraint_schema = DATABASE() AND table_name = 'vehicles') THEN
+        ALTER TABLE vehicles
+            ADD CONSTRAINT FKx0jx9pfbo7fwm4l2f90qktjd FOREIGN KEY (brand_id) REFERENCES brands (brand_id);
+    END IF;
+END //
+
+DELIMITER ;
+
+CALL migrate_binary_ids();
+
+DROP PROCEDURE migrate_binary_ids;
+DROP FUNCTION migrate_column_type;
@@ -0,0 +1,8 @@
+-- Names the unique constraints of the license plates and the brand names of an existing MySQL vehicle_inventory_db.
+-- The services insert straight away and tell a duplicate from any other failed write by the name of the constraint.
+-- Run it once, before starting the version that names them, or Hibernate adds the named constraints next to these.
+--
+-- The old names are the ones Hibernate generated for the unique columns, the same on every database.
+
+ALTER TABLE vehicles RENAME INDEX UK_jdo065biwiel5nx33cqya4atb TO uk_vehicles_license_plate;
+ALTER TABLE brands RENAME INDEX UK_gds2u6k2vfeo1tkrtgwcyqj36 TO uk_brands_name;
@@ -0,0 +1,191 @@
+package com.technicaltest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.technicaltest.models.BrandEntity;
+import com.technicaltest.models.VehicleEntity;
+import com.technicaltest.repositories.BrandRepository;
+import com.technicaltest.repositories.VehicleRepository;
+import com.technicaltest.services.VehicleExportService;
+import com.technicaltest.utils.Ids;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.cache.CacheManager;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that the vehicles, the brands, the vehicles of a brand and the brand lookups by name are served from the
+ * second-level cache, and that no write leaves a stale entry behind. Every step runs in its own transaction,
+ * as the cache is only written once a transaction commits.
+ */
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "entity-cache.regions.vehicles.maximum-size=500",
+        "entity-cache.regions.vehicles.expire-after-write=PT5M"
+})
+@Import(EntityCacheConfiguration.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class EntityCacheConfigurationTest {
+
+    @Autowired
+    private VehicleRepository vehicleRepository;
+
+    @Autowired
+    private BrandRepository brandRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private CacheManager entityCacheManager;
+
+    private TransactionTemplate transaction;
+    private Statistics statistics;
+    private String brandId;
+    private String vehicleId;
+
+    @BeforeEach
+    void setUp() {
+        transaction = new TransactionTemplate(transactionManager);
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        brandId = Ids.newId();
+        vehicleId = Ids.newId();
+        transaction.executeWithoutResult(status -> {
+            BrandEntity brand = brandRepository.save(BrandEntity.builder().id(brandId).name("Cached brand").build());
+            vehicleRepository.save(VehicleEntity.builder().id(vehicleId).model("Corolla").licensePlate("CAC001")
+                    .color("Red").year("2020").brandEntity(brand).build());
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        transaction.executeWithoutResult(status -> brandRepository.findById(brandId).ifPresent(brandRepository::delete));
+    }
+
+    @Test
+    @DisplayName("Should read a vehicle and its brand again without any statement")
+    void shouldReadVehicleAndItsBrandAgainWithoutAnyStatement() {
+        inTransaction(() -> vehicleRepository.findById(vehicleId).orElseThrow().getBrandEntity().getName());
+
+        assertEquals("Cached brand", inTransaction(() -> vehicleRepository.findById(vehicleId).orElseThrow().getBrandEntity().getName()));
+        assertEquals(0, statistics.getPrepareStatementCount());
+        assertEquals(2, statistics.getSecondLevelCacheHitCount());
+    }
+
+    @Test
+    @DisplayName("Should read the updated vehicle once the update commits")
+    void shouldReadUpdatedVehicleOnceTheUpdateCommits() {
+        inTransaction(() -> vehicleRepository.findById(vehicleId).orElseThrow());
+        transaction.executeWithoutResult(status -> vehicleRepository.findById(vehicleId).orElseThrow().setColor("Blue"));
+
+        assertEquals("Blue", inTransaction(() -> vehicleRepository.findById(vehicleId).orElseThrow().getColor()));
+        assertEquals(0, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    @DisplayName("Should not find a deleted vehicle in the cache nor among the vehicles of its brand")
+    void shouldNotFindDeletedVehicleInCacheNorAmongVehiclesOfItsBrand() {
+        assertEquals(List.of(vehicleId), vehicleIdsOfBrand());
+        transaction.executeWithoutResult(status -> vehicleRepository.deleteById(vehicleId));
+
+        assertTrue(inTransaction(() -> vehicleRepository.findById(vehicleId)).isEmpty());
+        assertEquals(List.of(), vehicleIdsOfBrand());
+    }
+
+    @Test
+    @DisplayName("Should cache the vehicles of a brand and evict them when a vehicle joins the brand")
+    void shouldCacheVehiclesOfBrandAndEvictThemWhenVehicleJoinsTheBrand() {
+        vehicleIdsOfBrand();
+        assertEquals(List.of(vehicleId), vehicleIdsOfBrand());
+        assertEquals(0, statistics.getPrepareStatementCount());
+
+        String otherId = Ids.newId();
+        transaction.executeWithoutResult(status -> vehicleRepository.save(VehicleEntity.builder().id(otherId)
+                .model("Yaris").licensePlate("CAC002").color("Red").year("2021")
+                .brandEntity(brandRepository.getReferenceById(brandId)).build()));
+
+        assertEquals(Set.of(vehicleId, otherId), Set.copyOf(vehicleIdsOfBrand()));
+    }
+
+    @Test
+    @DisplayName("Should neither read nor fill the vehicles region when exporting or re-reading vehicles in bulk")
+    void shouldNeitherReadNorFillVehiclesRegionWhenExportingOrReReadingVehiclesInBulk() {
+        entityManagerFactory.getCache().evictAll();
+        statistics.clear();
+
+        VehicleExportService exportService = new VehicleExportService(vehicleRepository, entityManager, new ObjectMapper());
+        inTransaction(() -> {
+            try {
+                exportService.exportVehicles(VehicleExportService.Format.NDJSON, new ByteArrayOutputStream());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return null;
+        });
+        assertEquals(0, statistics.getSecondLevelCachePutCount());
+        inTransaction(() -> vehicleRepository.findAllWithBrandByIdIn(List.of(vehicleId)));
+        assertEquals(0, statistics.getSecondLevelCachePutCount());
+        assertFalse(entityManagerFactory.getCache().contains(VehicleEntity.class, vehicleId));
+
+        inTransaction(() -> vehicleRepository.findById(vehicleId).orElseThrow());
+        inTransaction(() -> vehicleRepository.findAllWithBrandByIdIn(List.of(vehicleId)));
+        assertEquals(0, statistics.getSecondLevelCacheHitCount());
+    }
+
+    @Test
+    @DisplayName("Should size each region from its properties")
+    void shouldSizeEachRegionFromItsProperties() {
+        CaffeineConfiguration<?, ?> vehicles = entityCacheManager.getCache(EntityCacheConfiguration.VEHICLES)
+                .getConfiguration(CaffeineConfiguration.class);
+        CaffeineConfiguration<?, ?> brands = entityCacheManager.getCache(EntityCacheConfiguration.BRANDS)
+                .getConfiguration(CaffeineConfiguration.class);
+
+        assertEquals(500, vehicles.getMaximumSize().orElseThrow());
+        assertEquals(300_000_000_000L, vehicles.getExpireAfterWrite().orElseThrow());
+        assertEquals(10_000, brands.getMaximumSize().orElseThrow());
+    }
+
+    private List<String> vehicleIdsOfBrand() {
+        return inTransaction(() -> brandRepository.findById(brandId).orElseThrow().getVehicles().stream()
+                .map(VehicleEntity::getId)
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * Runs a read in its own transaction, after clearing the statistics of the previous steps.
+     */
+    private <T> T inTransaction(Supplier<T> read) {
+        statistics.clear();
+        return transaction.execute(status -> read.get());
+    }
+}
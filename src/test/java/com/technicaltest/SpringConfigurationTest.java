@@ -0,0 +1,85 @@
+package com.technicaltest;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class SpringConfigurationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    private Resource script;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        // The bundle name changes with every front end build
+        script = new PathMatchingResourcePatternResolver().getResources("classpath:static/assets/*.js")[0];
+    }
+
+    @Test
+    @DisplayName("Should serve the hashed assets as immutable for a year")
+    void shouldServeHashedAssetsAsImmutableForAYear() throws Exception {
+        MockHttpServletResponse response = mockMvc.perform(get("/assets/" + script.getFilename())).andReturn().getResponse();
+
+        assertEquals(200, response.getStatus());
+        assertEquals("max-age=31536000, public, immutable", response.getHeader(HttpHeaders.CACHE_CONTROL));
+        assertNull(response.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(script.contentLength(), response.getContentAsByteArray().length);
+    }
+
+    @Test
+    @DisplayName("Should serve the precompressed variant of an asset to clients accepting gzip")
+    void shouldServePrecompressedVariantOfAssetToClientsAcceptingGzip() throws Exception {
+        MockHttpServletResponse response = mockMvc.perform(get("/assets/" + script.getFilename())
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate")).andReturn().getResponse();
+
+        assertEquals(200, response.getStatus());
+        assertEquals("gzip", response.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(HttpHeaders.ACCEPT_ENCODING, response.getHeader(HttpHeaders.VARY));
+        assertTrue(response.getContentAsByteArray().length < script.contentLength());
+        try (InputStream original = script.getInputStream();
+             InputStream decompressed = new GZIPInputStream(new ByteArrayInputStream(response.getContentAsByteArray()))) {
+            assertArrayEquals(original.readAllBytes(), decompressed.readAllBytes());
+        }
+    }
+
+    @Test
+    @DisplayName("Should answer 404 for a missing asset instead of the index.html fallback")
+    void shouldAnswerNotFoundForMissingAssetInsteadOfIndexFallback() throws Exception {
+        MockHttpServletResponse response = mockMvc.perform(get("/assets/index-missing.js")).andReturn().getResponse();
+
+        assertEquals(404, response.getStatus());
+    }
+
+    @Test
+    @DisplayName("Should fall back to index.html for the routes of the SPA and have it revalidated")
+    void shouldFallBackToIndexForRoutesOfSpaAndHaveItRevalidated() throws Exception {
+        MockHttpServletResponse index = mockMvc.perform(get("/index.html")).andReturn().getResponse();
+        MockHttpServletResponse route = mockMvc.perform(get("/vehicles")).andReturn().getResponse();
+        MockHttpServletResponse again = mockMvc.perform(get("/brands")).andReturn().getResponse();
+
+        assertEquals(200, route.getStatus());
+        assertEquals("no-cache", route.getHeader(HttpHeaders.CACHE_CONTROL));
+        assertEquals(index.getContentAsString(), route.getContentAsString());
+        assertEquals(index.getContentAsString(), again.getContentAsString());
+    }
+}
@@ -2,6 +2,7 @@ package com.technicaltest.controllers;
 import com.technicaltest.controllers.request.BrandDTO;
 import com.technicaltest.controllers.request.ResponseDTO;
 import com.technicaltest.models.BrandEntity;
+import com.technicaltest.services.BrandDeletionService;
 import com.technicaltest.services.BrandService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -9,10 +10,12 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 
 import java.util.Collections;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.Mockito.*;
@@ -25,6 +28,12 @@ class BrandControllerTest {
     @Mock
     private BrandService brandService;
 
+    @Mock
+    private BrandDeletionService brandDeletionService;
+
+    @Spy
+    private RequestExecutor requestExecutor = RequestExecutor.blocking();
+
     @BeforeEach
     public void setup() {
         MockitoAnnotations.openMocks(this);
@@ -36,7 +45,7 @@ class BrandControllerTest {
         ResponseDTO responseDTO = ResponseDTO.builder().response(Collections.singletonList(new BrandEntity())).error(false).build();
         when(brandService.getBrands()).thenReturn(responseDTO);
 
-        ResponseEntity<Object> response = brandController.getBrands();
+        ResponseEntity<Object> response = brandController.getBrands().join();
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
         verify(brandService, times(1)).getBrands();
@@ -50,7 +59,7 @@ class BrandControllerTest {
 
         when(brandService.addBrand(any(BrandDTO.class))).thenReturn(new ResponseDTO());
 
-        ResponseEntity<ResponseDTO> response = brandController.addBrand(brandDTO);
+        ResponseEntity<ResponseDTO> response = brandController.addBrand(brandDTO).join();
 
         assertEquals(HttpStatus.CREATED, response.getStatusCode());
         verify(brandService, times(1)).addBrand(any(BrandDTO.class));
@@ -62,12 +71,36 @@ class BrandControllerTest {
         BrandDTO brandDTO = new BrandDTO();
         brandDTO.setName("Updated Brand");
 
-        when(brandService.updateBrand(anyString(), any(BrandDTO.class))).thenReturn(new ResponseDTO());
+        when(brandService.updateBrand(anyString(), any(BrandDTO.class), any())).thenReturn(ResponseDTO.builder().version(2L).build());
+
+        ResponseEntity<ResponseDTO> response = brandController.updateBrand("1", brandDTO, "\"1\"").join();
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("\"2\"", response.getHeaders().getETag());
+        verify(brandService, times(1)).updateBrand("1", brandDTO, 1L);
+    }
+
+    @Test
+    @DisplayName("Should patch brand with the version of the If-Match header and tag the response")
+    void shouldPatchBrandWithVersionOfIfMatchHeaderAndTagTheResponse() {
+        Map<String, Object> patch = Collections.singletonMap("name", "Lexus");
+        when(brandService.patchBrand("1", patch, null)).thenReturn(ResponseDTO.builder().version(2L).build());
+
+        ResponseEntity<ResponseDTO> response = brandController.patchBrand("1", patch, null).join();
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("\"2\"", response.getHeaders().getETag());
+    }
+
+    @Test
+    @DisplayName("Should tag a brand with its version")
+    void shouldTagBrandWithItsVersion() {
+        when(brandService.getBrandById("1")).thenReturn(ResponseDTO.builder().error(false).version(2L).build());
 
-        ResponseEntity<ResponseDTO> response = brandController.updateBrand("1", brandDTO);
+        ResponseEntity<ResponseDTO> response = brandController.getBrandById("1", null).join();
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
-        verify(brandService, times(1)).updateBrand(anyString(), any(BrandDTO.class));
+        assertEquals("\"2\"", response.getHeaders().getETag());
     }
 
     @Test
@@ -75,9 +108,31 @@ class BrandControllerTest {
     void shouldDeleteBrandWhenValidIdIsProvided() {
         when(brandService.deleteBrand(anyString())).thenReturn(new ResponseDTO());
 
-        ResponseEntity<ResponseDTO> response = brandController.deleteBrand("1");
+        ResponseEntity<ResponseDTO> response = brandController.deleteBrand("1").join();
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
         verify(brandService, times(1)).deleteBrand(anyString());
     }
+
+    @Test
+    @DisplayName("Should accept brand deletion when valid id is provided")
+    void shouldAcceptBrandDeletionWhenValidIdIsProvided() {
+        when(brandDeletionService.startDeletion(anyString())).thenReturn(new ResponseDTO());
+
+        ResponseEntity<ResponseDTO> response = brandController.startBrandDeletion("1").join();
+
+        assertEquals(HttpStatus.ACCEPTED, response.getStatusCode());
+        verify(brandDeletionService, times(1)).startDeletion("1");
+    }
+
+    @Test
+    @DisplayName("Should return brand deletion when valid id is provided")
+    void shouldReturnBrandDeletionWhenValidIdIsProvided() {
+        when(brandDeletionService.getDeletion(anyString())).thenReturn(new ResponseDTO());
+
+        ResponseEntity<ResponseDTO> response = brandController.getBrandDeletion("1").join();
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        verify(brandDeletionService, times(1)).getDeletion("1");
+    }
 }
\ No newline at end of file
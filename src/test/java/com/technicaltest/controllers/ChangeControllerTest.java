@@ -0,0 +1,62 @@
+package com.technicaltest.controllers;
+
+import com.technicaltest.controllers.request.ResponseDTO;
+import com.technicaltest.services.ChangeFeedService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.*;
+
+class ChangeControllerTest {
+
+    @InjectMocks
+    private ChangeController changeController;
+
+    @Mock
+    private ChangeFeedService changeFeedService;
+
+    @Spy
+    private RequestExecutor requestExecutor = RequestExecutor.blocking();
+
+    @BeforeEach
+    public void setup() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    @DisplayName("Should return the changes after the cursor once the long poll completes")
+    void shouldReturnChangesAfterCursorOnceLongPollCompletes() {
+        ResponseDTO responseDTO = ResponseDTO.builder().error(false).build();
+        CompletableFuture<ResponseDTO> changes = new CompletableFuture<>();
+        when(changeFeedService.getChanges(5L, 100, Duration.ofSeconds(20))).thenReturn(changes);
+
+        CompletableFuture<ResponseEntity<ResponseDTO>> response = changeController.getChanges(5L, 100, 20);
+        changes.complete(responseDTO);
+
+        assertEquals(HttpStatus.OK, response.join().getStatusCode());
+        assertSame(responseDTO, response.join().getBody());
+    }
+
+    @Test
+    @DisplayName("Should resume the stream after the last event the client received")
+    void shouldResumeStreamAfterLastEventClientReceived() {
+        SseEmitter emitter = new SseEmitter();
+        when(changeFeedService.streamChanges(9L)).thenReturn(emitter);
+
+        assertSame(emitter, changeController.streamChanges(5L, 9L));
+        verify(changeFeedService, times(1)).streamChanges(9L);
+    }
+}
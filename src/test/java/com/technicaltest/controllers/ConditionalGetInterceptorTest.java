@@ -0,0 +1,113 @@
+package com.technicaltest.controllers;
+
+import com.technicaltest.controllers.request.BrandDTO;
+import com.technicaltest.datasource.DataSourceContext;
+import com.technicaltest.repositories.OutboxEventRepository;
+import com.technicaltest.services.BrandService;
+import com.technicaltest.services.InventoryVersion;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+
+import javax.servlet.DispatcherType;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+class ConditionalGetInterceptorTest {
+
+    @Mock
+    private BrandService brandService;
+
+    @Mock
+    private OutboxEventRepository outboxEventRepository;
+
+    private InventoryVersion inventoryVersion;
+    private ConditionalGetInterceptor interceptor;
+    private HandlerMethod getBrands;
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+
+    @BeforeEach
+    void setUp() throws NoSuchMethodException {
+        MockitoAnnotations.openMocks(this);
+        when(outboxEventRepository.countChanges()).thenReturn(5L);
+        inventoryVersion = new InventoryVersion(outboxEventRepository);
+        interceptor = new ConditionalGetInterceptor(inventoryVersion, CacheControl.noCache());
+        getBrands = new HandlerMethod(new BrandController(brandService, null, RequestExecutor.blocking()), "getBrands");
+        request = new MockHttpServletRequest("GET", "/api/v1/brand/get-brands");
+        response = new MockHttpServletResponse();
+    }
+
+    @AfterEach
+    void tearDown() {
+        DataSourceContext.clear();
+    }
+
+    @Test
+    @DisplayName("Should tag a versioned response with its ETag and Cache-Control")
+    void shouldTagVersionedResponseWithItsETagAndCacheControl() {
+        assertTrue(interceptor.preHandle(request, response, getBrands));
+
+        assertEquals(200, response.getStatus());
+        assertEquals("\"inventory-5\"", response.getHeader(HttpHeaders.ETAG));
+        assertEquals("no-cache", response.getHeader(HttpHeaders.CACHE_CONTROL));
+    }
+
+    @Test
+    @DisplayName("Should answer 304 without running the handler when the ETag is current")
+    void shouldAnswerNotModifiedWithoutRunningHandlerWhenETagIsCurrent() {
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, inventoryVersion.etag());
+
+        assertFalse(interceptor.preHandle(request, response, getBrands));
+        assertEquals(304, response.getStatus());
+        assertEquals("no-cache", response.getHeader(HttpHeaders.CACHE_CONTROL));
+    }
+
+    @Test
+    @DisplayName("Should run the handler when a change was committed since the ETag was taken")
+    void shouldRunHandlerWhenChangeWasCommittedSinceETagWasTaken() {
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, inventoryVersion.etag());
+        // Committed by any instance, the outbox is shared
+        when(outboxEventRepository.countChanges()).thenReturn(6L);
+
+        assertTrue(interceptor.preHandle(request, response, getBrands));
+        assertEquals(200, response.getStatus());
+        assertEquals("\"inventory-6\"", response.getHeader(HttpHeaders.ETAG));
+    }
+
+    @Test
+    @DisplayName("Should pin versioned responses to the replica picked first until the request completes")
+    void shouldPinVersionedResponsesToReplicaPickedFirstUntilRequestCompletes() {
+        interceptor.preHandle(request, response, getBrands);
+        assertFalse(DataSourceContext.isPrimaryRequired());
+        assertEquals(1, DataSourceContext.replica(() -> 1));
+        assertEquals(1, DataSourceContext.replica(() -> 0));
+
+        interceptor.afterCompletion(request, response, getBrands, null);
+        assertEquals(0, DataSourceContext.replica(() -> 0));
+    }
+
+    @Test
+    @DisplayName("Should leave unversioned endpoints and async dispatches alone")
+    void shouldLeaveUnversionedEndpointsAndAsyncDispatchesAlone() throws NoSuchMethodException {
+        HandlerMethod addBrand = new HandlerMethod(new BrandController(brandService, null, RequestExecutor.blocking()), "addBrand", BrandDTO.class);
+        assertTrue(interceptor.preHandle(request, response, addBrand));
+
+        request.setDispatcherType(DispatcherType.ASYNC);
+        assertTrue(interceptor.preHandle(request, response, getBrands));
+
+        assertNull(response.getHeader(HttpHeaders.ETAG));
+        assertNull(response.getHeader(HttpHeaders.CACHE_CONTROL));
+        DataSourceContext.replica(() -> 1);
+        assertEquals(0, DataSourceContext.replica(() -> 0));
+    }
+}
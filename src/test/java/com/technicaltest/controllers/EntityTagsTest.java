@@ -0,0 +1,78 @@
+package com.technicaltest.controllers;
+
+import com.technicaltest.controllers.request.ResponseDTO;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class EntityTagsTest {
+
+    @Test
+    @DisplayName("Should read the version of a strong If-Match tag")
+    void shouldReadVersionOfStrongIfMatchTag() {
+        assertEquals(7L, EntityTags.expectedVersion("\"7\""));
+        assertEquals(7L, EntityTags.expectedVersion(" \"7\" "));
+    }
+
+    @Test
+    @DisplayName("Should require no version when the If-Match header is missing or matches any")
+    void shouldRequireNoVersionWhenIfMatchHeaderIsMissingOrMatchesAny() {
+        assertNull(EntityTags.expectedVersion(null));
+        assertNull(EntityTags.expectedVersion("*"));
+    }
+
+    @Test
+    @DisplayName("Should require a version no entity has for weak or malformed tags")
+    void shouldRequireVersionNoEntityHasForWeakOrMalformedTags() {
+        assertEquals(EntityTags.NO_VERSION, EntityTags.expectedVersion("W/\"7\""));
+        assertEquals(EntityTags.NO_VERSION, EntityTags.expectedVersion("7"));
+        assertEquals(EntityTags.NO_VERSION, EntityTags.expectedVersion("\"\""));
+        assertEquals(EntityTags.NO_VERSION, EntityTags.expectedVersion("\"abc\""));
+    }
+
+    @Test
+    @DisplayName("Should tag the response of an update with the version it wrote")
+    void shouldTagResponseOfUpdateWithVersionItWrote() {
+        ResponseEntity<ResponseDTO> response = EntityTags.tagged(ResponseDTO.builder().error(false).version(3L).build());
+
+        assertEquals("\"3\"", response.getHeaders().getETag());
+    }
+
+    @Test
+    @DisplayName("Should tag a read with the version an update accepts")
+    void shouldTagReadWithVersionAnUpdateAccepts() {
+        ResponseEntity<ResponseDTO> response = EntityTags.tagged(ResponseDTO.builder().error(false).version(3L).build(), null);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(3L, EntityTags.expectedVersion(response.getHeaders().getETag()));
+    }
+
+    @Test
+    @DisplayName("Should answer 304 when the If-None-Match header holds the version, even as a weak tag")
+    void shouldAnswerNotModifiedWhenIfNoneMatchHeaderHoldsVersionEvenAsWeakTag() {
+        ResponseDTO read = ResponseDTO.builder().error(false).version(3L).build();
+
+        assertEquals(HttpStatus.NOT_MODIFIED, EntityTags.tagged(read, "\"2\", W/\"3\"").getStatusCode());
+        assertEquals(HttpStatus.NOT_MODIFIED, EntityTags.tagged(read, "*").getStatusCode());
+        assertEquals(HttpStatus.OK, EntityTags.tagged(read, "\"2\"").getStatusCode());
+        assertEquals(HttpStatus.OK, EntityTags.tagged(read, "\"inventory-3\"").getStatusCode());
+    }
+
+    @Test
+    @DisplayName("Should tag a vehicle read weakly with the versions of the vehicle and its brand")
+    void shouldTagVehicleReadWeaklyWithVersionsOfVehicleAndItsBrand() {
+        ResponseDTO read = ResponseDTO.builder().error(false).version(3L).brandVersion(1L).build();
+
+        ResponseEntity<ResponseDTO> response = EntityTags.tagged(read, null);
+
+        assertEquals("W/\"3-1\"", response.getHeaders().getETag());
+        assertEquals(EntityTags.NO_VERSION, EntityTags.expectedVersion(response.getHeaders().getETag()));
+        assertEquals(HttpStatus.NOT_MODIFIED, EntityTags.tagged(read, "W/\"3-1\"").getStatusCode());
+        assertEquals(HttpStatus.OK, EntityTags.tagged(read, "\"3\"").getStatusCode());
+        assertEquals(HttpStatus.OK, EntityTags.tagged(read, "W/\"3-0\"").getStatusCode());
+    }
+}
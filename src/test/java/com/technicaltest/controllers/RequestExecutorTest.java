@@ -0,0 +1,79 @@
+package com.technicaltest.controllers;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestExecutorTest {
+
+    private ThreadPoolTaskExecutor pool;
+
+    @AfterEach
+    void tearDown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Should run the call on the calling thread in the blocking mode")
+    void shouldRunCallOnCallingThreadInBlockingMode() {
+        CompletableFuture<Thread> future = RequestExecutor.blocking().execute(Thread::currentThread);
+
+        assertTrue(future.isDone());
+        assertSame(Thread.currentThread(), future.join());
+        assertThrows(IllegalStateException.class, () -> RequestExecutor.blocking().execute(() -> {
+            throw new IllegalStateException();
+        }));
+    }
+
+    @Test
+    @DisplayName("Should run the call on the pool in the async mode")
+    void shouldRunCallOnPoolInAsyncMode() {
+        RequestExecutor requestExecutor = new RequestExecutor(pool(1, 1));
+
+        assertTrue(requestExecutor.execute(() -> Thread.currentThread().getName()).join().startsWith("request-"));
+    }
+
+    @Test
+    @DisplayName("Should reject calls once the pool and its queue are full")
+    void shouldRejectCallsOncePoolAndItsQueueAreFull() {
+        RequestExecutor requestExecutor = new RequestExecutor(pool(1, 1));
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<Boolean> running = requestExecutor.execute(() -> await(release));
+        CompletableFuture<Boolean> queued = requestExecutor.execute(() -> await(release));
+        assertThrows(RejectedExecutionException.class, () -> requestExecutor.execute(() -> true));
+
+        release.countDown();
+        assertTrue(running.join());
+        assertTrue(queued.join());
+    }
+
+    private ThreadPoolTaskExecutor pool(int size, int queueCapacity) {
+        pool = new ThreadPoolTaskExecutor();
+        pool.setCorePoolSize(size);
+        pool.setMaxPoolSize(size);
+        pool.setQueueCapacity(queueCapacity);
+        pool.setThreadNamePrefix("request-");
+        pool.initialize();
+        return pool;
+    }
+
+    private static boolean await(CountDownLatch latch) {
+        try {
+            return latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
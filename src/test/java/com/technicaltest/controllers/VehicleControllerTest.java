@@ -1,7 +1,12 @@
 package com.technicaltest.controllers;
 
 import com.technicaltest.controllers.request.ResponseDTO;
+import com.technicaltest.controllers.request.VehicleBulkDTO;
 import com.technicaltest.controllers.request.VehicleDTO;
+import com.technicaltest.controllers.request.VehicleFilterDTO;
+import com.technicaltest.services.VehicleBulkService;
+import com.technicaltest.services.VehicleExportService;
+import com.technicaltest.services.VehicleImportService;
 import com.technicaltest.services.VehicleService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -9,10 +14,24 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.*;
 
 class VehicleControllerTest {
@@ -23,6 +42,18 @@ class VehicleControllerTest {
     @Mock
     VehicleService vehicleService;
 
+    @Mock
+    VehicleImportService vehicleImportService;
+
+    @Mock
+    VehicleExportService vehicleExportService;
+
+    @Mock
+    VehicleBulkService vehicleBulkService;
+
+    @Spy
+    RequestExecutor requestExecutor = RequestExecutor.blocking();
+
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
@@ -32,9 +63,9 @@ class VehicleControllerTest {
     @DisplayName("Should return correct response when getting vehicles")
     void shouldReturnCorrectResponseWhenGettingVehicles() {
         ResponseDTO responseDTO = new ResponseDTO();
-        when(vehicleService.getVehicles(anyInt(), anyInt(), anyString(), anyString())).thenReturn(responseDTO);
+        when(vehicleService.getVehicles(anyInt(), anyInt(), anyString(), anyString(), anyBoolean())).thenReturn(responseDTO);
 
-        ResponseEntity<ResponseDTO> response = vehicleController.getVehicles("brand", "asc", 1);
+        ResponseEntity<ResponseDTO> response = vehicleController.getVehicles("brand", "asc", 1, false).join();
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertEquals(responseDTO, response.getBody());
@@ -44,9 +75,46 @@ class VehicleControllerTest {
     @DisplayName("Should return correct response when searching vehicles")
     void shouldReturnCorrectResponseWhenSearchingVehicles() {
         ResponseDTO responseDTO = new ResponseDTO();
-        when(vehicleService.searchVehicles(anyString(), anyInt(), anyInt())).thenReturn(responseDTO);
+        when(vehicleService.searchVehicles(anyString(), anyInt(), anyInt(), anyBoolean())).thenReturn(responseDTO);
+
+        ResponseEntity<ResponseDTO> response = vehicleController.searchVehicles("searchTerm", 1, false).join();
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(responseDTO, response.getBody());
+    }
+
+    @Test
+    @DisplayName("Should pass the facet filter when searching vehicles by facets")
+    void shouldPassFacetFilterWhenSearchingVehiclesByFacets() {
+        ResponseDTO responseDTO = new ResponseDTO();
+        VehicleFilterDTO filter = new VehicleFilterDTO(Set.of("1"), "2015", null, Set.of("Red"));
+        when(vehicleService.searchVehiclesByFacets(filter, 0, 10, false)).thenReturn(responseDTO);
+
+        ResponseEntity<ResponseDTO> response = vehicleController.searchVehiclesByFacets(-1, Set.of("1"), "2015", null, Set.of("Red"), false).join();
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(responseDTO, response.getBody());
+    }
+
+    @Test
+    @DisplayName("Should map the brand sort field when getting vehicles with a cursor")
+    void shouldMapBrandSortFieldWhenGettingVehiclesWithCursor() {
+        ResponseDTO responseDTO = new ResponseDTO();
+        when(vehicleService.getVehiclesAfter("token", 10, "brandEntity.name", "asc", false)).thenReturn(responseDTO);
+
+        ResponseEntity<ResponseDTO> response = vehicleController.getVehiclesAfter("brand", "asc", "token", false).join();
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(responseDTO, response.getBody());
+    }
+
+    @Test
+    @DisplayName("Should return correct response when searching vehicles with a cursor")
+    void shouldReturnCorrectResponseWhenSearchingVehiclesWithCursor() {
+        ResponseDTO responseDTO = new ResponseDTO();
+        when(vehicleService.searchVehiclesAfter("searchTerm", null, 10, true)).thenReturn(responseDTO);
 
-        ResponseEntity<ResponseDTO> response = vehicleController.searchVehicles("searchTerm", 1);
+        ResponseEntity<ResponseDTO> response = vehicleController.searchVehiclesAfter("searchTerm", null, true).join();
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertEquals(responseDTO, response.getBody());
@@ -55,13 +123,26 @@ class VehicleControllerTest {
     @Test
     @DisplayName("Should return correct response when getting vehicle by id")
     void shouldReturnCorrectResponseWhenGettingVehicleById() {
-        ResponseDTO responseDTO = new ResponseDTO();
+        ResponseDTO responseDTO = ResponseDTO.builder().error(false).version(3L).build();
         when(vehicleService.getVehicleById(anyString())).thenReturn(responseDTO);
 
-        ResponseEntity<ResponseDTO> response = vehicleController.getVehicle("id");
+        ResponseEntity<ResponseDTO> response = vehicleController.getVehicle("id", null).join();
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertEquals(responseDTO, response.getBody());
+        // The ETag an update accepts in its If-Match header
+        assertEquals("\"3\"", response.getHeaders().getETag());
+    }
+
+    @Test
+    @DisplayName("Should answer 304 when the vehicle still has the version of the If-None-Match header")
+    void shouldAnswerNotModifiedWhenVehicleStillHasVersionOfIfNoneMatchHeader() {
+        when(vehicleService.getVehicleById(anyString())).thenReturn(ResponseDTO.builder().error(false).version(3L).build());
+
+        ResponseEntity<ResponseDTO> response = vehicleController.getVehicle("id", "\"3\"").join();
+
+        assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+        assertNull(response.getBody());
     }
 
     @Test
@@ -71,23 +152,81 @@ class VehicleControllerTest {
         VehicleDTO vehicleDTO = new VehicleDTO();
         when(vehicleService.addVehicle(vehicleDTO)).thenReturn(responseDTO);
 
-        ResponseEntity<ResponseDTO> response = vehicleController.addVehicle(vehicleDTO);
+        ResponseEntity<ResponseDTO> response = vehicleController.addVehicle(vehicleDTO).join();
 
         assertEquals(HttpStatus.CREATED, response.getStatusCode());
         assertEquals(responseDTO, response.getBody());
     }
 
+    @Test
+    @DisplayName("Should return correct response when importing vehicles")
+    void shouldReturnCorrectResponseWhenImportingVehicles() {
+        ResponseDTO responseDTO = new ResponseDTO();
+        InputStream content = new ByteArrayInputStream("[]".getBytes());
+        when(vehicleImportService.importVehicles(content)).thenReturn(responseDTO);
+
+        ResponseEntity<ResponseDTO> response = vehicleController.importVehicles(content);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(responseDTO, response.getBody());
+    }
+
+    @Test
+    @DisplayName("Should stream the export in the requested format")
+    void shouldStreamExportInRequestedFormat() throws IOException {
+        ResponseEntity<StreamingResponseBody> response = vehicleController.exportVehicles("csv");
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        response.getBody().writeTo(output);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("text/csv;charset=UTF-8", response.getHeaders().getContentType().toString());
+        assertEquals("attachment; filename=vehicles.csv", response.getHeaders().getFirst(HttpHeaders.CONTENT_DISPOSITION));
+        verify(vehicleExportService).exportVehicles(VehicleExportService.Format.CSV, output);
+    }
+
+    @Test
+    @DisplayName("Should reject unknown export formats")
+    void shouldRejectUnknownExportFormats() {
+        assertThrows(IllegalArgumentException.class, () -> vehicleController.exportVehicles("xml"));
+    }
+
     @Test
     @DisplayName("Should return correct response when updating vehicle")
     void shouldReturnCorrectResponseWhenUpdatingVehicle() {
-        ResponseDTO responseDTO = new ResponseDTO();
+        ResponseDTO responseDTO = ResponseDTO.builder().error(false).version(4L).build();
         VehicleDTO vehicleDTO = new VehicleDTO();
-        when(vehicleService.updateVehicle(anyString(), eq(vehicleDTO))).thenReturn(responseDTO);
+        when(vehicleService.updateVehicle(anyString(), eq(vehicleDTO), isNull(), eq(false))).thenReturn(responseDTO);
 
-        ResponseEntity<ResponseDTO> response = vehicleController.updateVehicle("id", vehicleDTO);
+        ResponseEntity<ResponseDTO> response = vehicleController.updateVehicle("id", vehicleDTO, null, false).join();
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertEquals(responseDTO, response.getBody());
+        assertEquals("\"4\"", response.getHeaders().getETag());
+    }
+
+    @Test
+    @DisplayName("Should pass the version of the If-Match header and the merge flag to the update")
+    void shouldPassVersionOfIfMatchHeaderAndMergeFlagToTheUpdate() {
+        VehicleDTO vehicleDTO = new VehicleDTO();
+        when(vehicleService.updateVehicle(anyString(), any(), any(), anyBoolean())).thenReturn(ResponseDTO.builder().version(4L).build());
+
+        vehicleController.updateVehicle("id", vehicleDTO, "\"3\"", true).join();
+        vehicleController.updateVehicle("id", vehicleDTO, "W/\"3\"", false).join();
+
+        verify(vehicleService).updateVehicle("id", vehicleDTO, 3L, true);
+        verify(vehicleService).updateVehicle("id", vehicleDTO, EntityTags.NO_VERSION, false);
+    }
+
+    @Test
+    @DisplayName("Should patch a vehicle with the version of the If-Match header and tag the response")
+    void shouldPatchVehicleWithVersionOfIfMatchHeaderAndTagTheResponse() {
+        Map<String, Object> patch = Collections.singletonMap("color", "Red");
+        when(vehicleService.patchVehicle("id", patch, 3L)).thenReturn(ResponseDTO.builder().error(false).version(4L).build());
+
+        ResponseEntity<ResponseDTO> response = vehicleController.patchVehicle("id", patch, "\"3\"").join();
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("\"4\"", response.getHeaders().getETag());
     }
 
     @Test
@@ -96,9 +235,38 @@ class VehicleControllerTest {
         ResponseDTO responseDTO = new ResponseDTO();
         when(vehicleService.deleteVehicle(anyString())).thenReturn(responseDTO);
 
-        ResponseEntity<ResponseDTO> response = vehicleController.deleteVehicle("id");
+        ResponseEntity<ResponseDTO> response = vehicleController.deleteVehicle("id").join();
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(responseDTO, response.getBody());
+    }
+
+    @Test
+    @DisplayName("Should return correct response when updating vehicles in bulk")
+    void shouldReturnCorrectResponseWhenUpdatingVehiclesInBulk() {
+        VehicleBulkDTO bulkDTO = VehicleBulkDTO.builder()
+                .filter(VehicleFilterDTO.builder().brandIds(Set.of("1")).build())
+                .changes(Collections.singletonMap("color", "Red"))
+                .build();
+        ResponseDTO responseDTO = new ResponseDTO();
+        when(vehicleBulkService.updateVehicles(bulkDTO)).thenReturn(responseDTO);
+
+        ResponseEntity<ResponseDTO> response = vehicleController.updateVehicles(bulkDTO).join();
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(responseDTO, response.getBody());
+    }
+
+    @Test
+    @DisplayName("Should return correct response when deleting vehicles in bulk")
+    void shouldReturnCorrectResponseWhenDeletingVehiclesInBulk() {
+        VehicleBulkDTO bulkDTO = VehicleBulkDTO.builder().ids(List.of("a", "b")).build();
+        ResponseDTO responseDTO = new ResponseDTO();
+        when(vehicleBulkService.deleteVehicles(bulkDTO)).thenReturn(responseDTO);
+
+        ResponseEntity<ResponseDTO> response = vehicleController.deleteVehicles(bulkDTO).join();
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertEquals(responseDTO, response.getBody());
     }
-}
\ No newline at end of file
+}
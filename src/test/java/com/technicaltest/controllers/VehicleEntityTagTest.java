@@ -0,0 +1,78 @@
+package com.technicaltest.controllers;
+
+import com.technicaltest.models.BrandEntity;
+import com.technicaltest.models.VehicleEntity;
+import com.technicaltest.repositories.BrandRepository;
+import com.technicaltest.repositories.VehicleRepository;
+import com.technicaltest.utils.Ids;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+
+/**
+ * Checks that the ETag of a single vehicle read follows its brand, whose name the read returns.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class VehicleEntityTagTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private BrandRepository brandRepository;
+
+    @Autowired
+    private VehicleRepository vehicleRepository;
+
+    private String brandId;
+    private String vehicleId;
+
+    @BeforeEach
+    void setUp() {
+        brandId = Ids.newId();
+        vehicleId = Ids.newId();
+        BrandEntity brand = brandRepository.save(BrandEntity.builder().id(brandId).name("Etag brand").build());
+        vehicleRepository.save(VehicleEntity.builder().id(vehicleId).model("Corolla").licensePlate("ETG001")
+                .color("Red").year("2020").brandEntity(brand).build());
+    }
+
+    @Test
+    @DisplayName("Should answer 200 with the new brand name once the brand of the vehicle is renamed")
+    void shouldAnswerOkWithNewBrandNameOnceBrandOfVehicleIsRenamed() throws Exception {
+        String etag = perform(get("/api/v1/vehicle/get-vehicle/" + vehicleId)).getHeader(HttpHeaders.ETAG);
+        assertEquals(304, perform(get("/api/v1/vehicle/get-vehicle/" + vehicleId)
+                .header(HttpHeaders.IF_NONE_MATCH, etag)).getStatus());
+
+        assertEquals(200, perform(put("/api/v1/brand/update-brand/" + brandId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\":\"Renamed brand\"}")).getStatus());
+        MockHttpServletResponse read = perform(get("/api/v1/vehicle/get-vehicle/" + vehicleId)
+                .header(HttpHeaders.IF_NONE_MATCH, etag));
+
+        assertEquals(200, read.getStatus());
+        assertTrue(read.getContentAsString().contains("Renamed brand"));
+        assertNotEquals(etag, read.getHeader(HttpHeaders.ETAG));
+    }
+
+    /**
+     * Performs a request and, if its handler returned a future, its async dispatch.
+     */
+    private MockHttpServletResponse perform(RequestBuilder request) throws Exception {
+        MvcResult result = mockMvc.perform(request).andReturn();
+        return (result.getRequest().isAsyncStarted() ? mockMvc.perform(asyncDispatch(result)).andReturn() : result)
+                .getResponse();
+    }
+}
@@ -0,0 +1,173 @@
+package com.technicaltest.datasource;
+
+import com.technicaltest.controllers.request.VehicleDTO;
+import com.technicaltest.services.VehicleService;
+import com.technicaltest.utils.Ids;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityNotFoundException;
+import javax.servlet.http.Cookie;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+
+/**
+ * Runs the application on three in-memory H2 databases standing in for the primary and two replicas.
+ * The replicas are only brought up to date when a test copies the primary into them.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=" + ReplicaRoutingDataSourceTest.PRIMARY_URL,
+        "replica.datasource.urls=" + ReplicaRoutingDataSourceTest.REPLICA_1_URL + "," + ReplicaRoutingDataSourceTest.REPLICA_2_URL,
+        "replica.read-your-writes.window=PT5S",
+        "vehicle.search.index.enabled=false",
+        "vehicle.attribute-index.enabled=false",
+        "entity-cache.enabled=false"
+})
+@AutoConfigureMockMvc
+class ReplicaRoutingDataSourceTest {
+
+    static final String PRIMARY_URL = "jdbc:h2:mem:routing_primary;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1;IGNORECASE=TRUE";
+    static final String REPLICA_1_URL = "jdbc:h2:mem:routing_replica_1;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1;IGNORECASE=TRUE";
+    static final String REPLICA_2_URL = "jdbc:h2:mem:routing_replica_2;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1;IGNORECASE=TRUE";
+
+    @Autowired
+    private VehicleService vehicleService;
+
+    @Autowired
+    private ReplicaRoutingDataSource replicaRoutingDataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    private final JdbcTemplate primary = jdbc(PRIMARY_URL);
+    private final List<JdbcTemplate> replicas = List.of(jdbc(REPLICA_1_URL), jdbc(REPLICA_2_URL));
+
+    @BeforeEach
+    void setUp() {
+        primary.update("DELETE FROM vehicles");
+        replicate();
+    }
+
+    @Test
+    @DisplayName("Should write to the primary and read from the replicas in read-only transactions")
+    void shouldWriteToPrimaryAndReadFromReplicasInReadOnlyTransactions() {
+        vehicleService.addVehicle(new VehicleDTO("Corolla", "ABC123", "Red", "2020", "01900000-0000-7000-8000-000000000001"));
+        String id = vehicleId("ABC123");
+
+        assertThrows(EntityNotFoundException.class, () -> vehicleService.getVehicleById(id));
+        assertThrows(EntityNotFoundException.class, () -> vehicleService.getVehicleById(id));
+
+        replicate();
+        assertFalse(vehicleService.getVehicleById(id).getError());
+    }
+
+    @Test
+    @DisplayName("Should take the replicas in turn")
+    void shouldTakeReplicasInTurn() {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+
+        List<Object> keys = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            keys.add(readOnly.execute(status -> replicaRoutingDataSource.determineCurrentLookupKey()));
+        }
+
+        assertNotEquals(keys.get(0), keys.get(1));
+        assertEquals(keys.subList(0, 2), keys.subList(2, 4));
+        assertEquals(ReplicaRoutingDataSource.PRIMARY, new TransactionTemplate(transactionManager)
+                .execute(status -> replicaRoutingDataSource.determineCurrentLookupKey()));
+    }
+
+    @Test
+    @DisplayName("Should read from the primary after a write while the read-your-writes cookie lasts")
+    void shouldReadFromPrimaryAfterWriteWhileReadYourWritesCookieLasts() throws Exception {
+        MvcResult added = perform(post("/api/v1/vehicle/add-vehicle")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"model\":\"Roma\",\"licensePlate\":\"XYZ789\",\"color\":\"Red\",\"year\":\"2021\",\"brandId\":\"01900000-0000-7000-8000-000000000002\"}"));
+        Cookie readPrimary = added.getResponse().getCookie(ReadYourWritesInterceptor.COOKIE_NAME);
+        assertNotNull(readPrimary);
+        assertEquals(5, readPrimary.getMaxAge());
+        String id = vehicleId("XYZ789");
+
+        assertFalse(perform(get("/api/v1/vehicle/export-vehicles")).getResponse().getContentAsString().contains("XYZ789"));
+        assertTrue(perform(get("/api/v1/vehicle/export-vehicles").cookie(readPrimary)).getResponse().getContentAsString().contains("XYZ789"));
+    }
+
+    @Test
+    @DisplayName("Should read the version and the versioned response from the same replica")
+    void shouldReadVersionAndVersionedResponseFromSameReplica() throws Exception {
+        vehicleService.addVehicle(new VehicleDTO("Corolla", "VER123", "Red", "2020", "01900000-0000-7000-8000-000000000001"));
+        // Only the first replica catches up, the second one lags behind
+        replicate(replicas.get(0));
+
+        Map<Boolean, Set<String>> etagsBySeen = new HashMap<>();
+        for (int i = 0; i < 4; i++) {
+            MvcResult search = perform(get("/api/v1/vehicle/search-vehicles-cursor/VER123"));
+            etagsBySeen.computeIfAbsent(search.getResponse().getContentAsString().contains("VER123"), seen -> new HashSet<>())
+                    .add(search.getResponse().getHeader("ETag"));
+        }
+
+        // Both replicas answered, each with its own version
+        assertEquals(1, etagsBySeen.get(true).size());
+        assertEquals(1, etagsBySeen.get(false).size());
+        assertNotEquals(etagsBySeen.get(true), etagsBySeen.get(false));
+    }
+
+    /**
+     * Performs a request and, if its handler returned a future, its async dispatch.
+     */
+    private MvcResult perform(RequestBuilder request) throws Exception {
+        MvcResult result = mockMvc.perform(request).andReturn();
+        return result.getRequest().isAsyncStarted() ? mockMvc.perform(asyncDispatch(result)).andReturn() : result;
+    }
+
+    /**
+     * Reads the ID of a vehicle from the primary.
+     */
+    private String vehicleId(String licensePlate) {
+        return Ids.fromBytes(primary.queryForObject("SELECT vehicle_id FROM vehicles WHERE vehicle_license_plate = ?",
+                byte[].class, licensePlate));
+    }
+
+    /**
+     * Copies the schema and the rows of the primary into the replicas.
+     */
+    private void replicate() {
+        replicas.forEach(this::replicate);
+    }
+
+    /**
+     * Copies the schema and the rows of the primary into a replica.
+     */
+    private void replicate(JdbcTemplate replica) {
+        List<String> script = primary.queryForList("SCRIPT", String.class);
+        replica.execute("DROP ALL OBJECTS");
+        script.forEach(replica::execute);
+    }
+
+    private static JdbcTemplate jdbc(String url) {
+        return new JdbcTemplate(new DriverManagerDataSource(url, "sa", ""));
+    }
+}
@@ -0,0 +1,74 @@
+package com.technicaltest.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class StatementMetricsInterceptorTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private StatementCounter statementCounter;
+    private StatementMetricsInterceptor interceptor;
+    private MockHttpServletRequest request;
+    private final MockHttpServletResponse response = new MockHttpServletResponse();
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        statementCounter = new StatementCounter();
+        interceptor = new StatementMetricsInterceptor(statementCounter, meterRegistry);
+        request = new MockHttpServletRequest("GET", "/api/v1/vehicle/get-vehicle/1");
+        request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/api/v1/vehicle/get-vehicle/{id}");
+    }
+
+    @Test
+    @DisplayName("Should record the statements of a request under its URI pattern")
+    void shouldRecordStatementsOfRequestUnderItsUriPattern() {
+        statementCounter.inspect("select 1");
+
+        interceptor.preHandle(request, response, null);
+        statementCounter.inspect("select 2");
+        statementCounter.inspect("select 3");
+        interceptor.afterCompletion(request, response, null, null);
+        statementCounter.inspect("select 4");
+
+        DistributionSummary summary = summary();
+        assertEquals(1, summary.count());
+        assertEquals(2, summary.totalAmount());
+    }
+
+    @Test
+    @DisplayName("Should count the statements run on another thread once when the request is handled asynchronously")
+    void shouldCountStatementsRunOnAnotherThreadOnceWhenRequestIsHandledAsynchronously() {
+        interceptor.preHandle(request, response, null);
+        statementCounter.inspect("select 1");
+        Runnable task = statementCounter.decorate(() -> statementCounter.inspect("select 2"));
+        interceptor.afterConcurrentHandlingStarted(request, response, null);
+        statementCounter.inspect("select 3");
+        CompletableFuture.runAsync(task).join();
+
+        interceptor.preHandle(request, response, null);
+        statementCounter.inspect("select 4");
+        interceptor.afterCompletion(request, response, null, null);
+
+        DistributionSummary summary = summary();
+        assertEquals(1, summary.count());
+        assertEquals(3, summary.totalAmount());
+    }
+
+    private DistributionSummary summary() {
+        return meterRegistry.find(StatementMetricsInterceptor.METRIC_NAME)
+                .tag("method", "GET")
+                .tag("uri", "/api/v1/vehicle/get-vehicle/{id}")
+                .summary();
+    }
+}
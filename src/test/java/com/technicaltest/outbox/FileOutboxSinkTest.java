@@ -0,0 +1,40 @@
+package com.technicaltest.outbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.technicaltest.controllers.request.ChangeEventDTO;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FileOutboxSinkTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    @DisplayName("Should append every batch to the file, one change per line")
+    void shouldAppendEveryBatchToFileOneChangePerLine(@TempDir Path directory) throws Exception {
+        Path file = directory.resolve("changes.ndjson");
+        FileOutboxSink sink = new FileOutboxSink(file, objectMapper);
+
+        sink.deliver(Arrays.asList(change(1, "{\"color\":\"Red\"}"), change(2, null)));
+        sink.deliver(Collections.singletonList(change(3, "{\"color\":\"Blue\"}")));
+
+        List<String> lines = Files.readAllLines(file);
+        assertEquals(3, lines.size());
+        assertEquals(1, objectMapper.readTree(lines.get(0)).get("sequence").asLong());
+        assertEquals("Red", objectMapper.readTree(lines.get(0)).get("data").get("color").asText());
+        assertEquals(3, objectMapper.readTree(lines.get(2)).get("sequence").asLong());
+    }
+
+    private static ChangeEventDTO change(long sequence, String data) {
+        return ChangeEventDTO.builder().sequence(sequence).entityType("VEHICLE").entityId("a").type("UPDATED").data(data).build();
+    }
+}
@@ -0,0 +1,44 @@
+package com.technicaltest.outbox;
+
+import com.technicaltest.controllers.request.ChangeEventDTO;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocalBrokerOutboxSinkTest {
+
+    private final LocalBrokerOutboxSink sink = new LocalBrokerOutboxSink(3);
+
+    @Test
+    @DisplayName("Should hand the changes out to the consumers in order")
+    void shouldHandChangesOutToConsumersInOrder() throws Exception {
+        sink.deliver(Arrays.asList(change(1), change(2), change(3)));
+
+        assertEquals(Arrays.asList(1L, 2L), sequences(sink.poll(2, Duration.ZERO)));
+        assertEquals(Arrays.asList(3L), sequences(sink.poll(2, Duration.ZERO)));
+        assertTrue(sink.poll(2, Duration.ofMillis(10)).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should reject a whole batch that does not fit in the queue")
+    void shouldRejectWholeBatchThatDoesNotFitInQueue() throws Exception {
+        sink.deliver(Arrays.asList(change(1), change(2)));
+
+        assertThrows(IllegalStateException.class, () -> sink.deliver(Arrays.asList(change(3), change(4))));
+        assertEquals(Arrays.asList(1L, 2L), sequences(sink.poll(10, Duration.ZERO)));
+    }
+
+    private static ChangeEventDTO change(long sequence) {
+        return ChangeEventDTO.builder().sequence(sequence).entityType("VEHICLE").entityId("a").type("DELETED").build();
+    }
+
+    private static List<Long> sequences(List<ChangeEventDTO> changes) {
+        return changes.stream().map(ChangeEventDTO::getSequence).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,147 @@
+package com.technicaltest.repositories;
+
+import com.technicaltest.controllers.request.VehicleResponseDTO;
+import com.technicaltest.utils.Ids;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Explains on H2 the statements that read a page of vehicles for every allowed sort, and fails if one of them
+ * scans a whole table or sorts rows that are not read in index order. The pages are also checked against
+ * a plain sort of the whole table.
+ * H2 only reads indexes forwards, so the plans are checked in ascending order. MySQL reads the same indexes
+ * backwards for the descending sorts.
+ * The statements that read the vehicles of one brand are only checked for scans: H2 gives each foreign key an index
+ * of its own and may pick it, then sorts the vehicles of that brand. MySQL uses the (brand, ID) index for the key.
+ */
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector=" +
+        "com.technicaltest.repositories.VehicleRepositoryQueryPlanTest$RecordingInspector")
+class VehicleRepositoryQueryPlanTest {
+
+    /**
+     * The first 12 bytes of the IDs of the seeded vehicles and of the brands of data.sql, in hex. The last 4 bytes
+     * are the number of the vehicle or brand.
+     */
+    private static final String VEHICLE_ID_PREFIX = "019000000000700080010000";
+    private static final String BRAND_ID_PREFIX = "019000000000700080000000";
+
+    private static final List<String> STATEMENTS = Collections.synchronizedList(new ArrayList<>());
+
+    @Autowired
+    private VehicleRepository vehicleRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Records the SQL of every statement Hibernate prepares.
+     */
+    public static class RecordingInspector implements StatementInspector {
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql);
+            return sql;
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("INSERT INTO vehicles (vehicle_id, vehicle_model, vehicle_license_plate, vehicle_color, " +
+                "vehicle_year, vehicle_created_date, brand_id) " +
+                "SELECT X'" + VEHICLE_ID_PREFIX + "' || CAST(CAST(\"X\" AS INT) AS BINARY(4)), 'Model ' || MOD(\"X\", 100), " +
+                "'P' || LPAD(CAST(\"X\" AS VARCHAR), 5, '0'), 'Red', '20' || LPAD(CAST(MOD(\"X\", 25) AS VARCHAR), 2, '0'), " +
+                "NOW(), X'" + BRAND_ID_PREFIX + "' || CAST(CAST(1 + MOD(\"X\", 6) AS INT) AS BINARY(4)) FROM SYSTEM_RANGE(0, 4999)");
+        STATEMENTS.clear();
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @ValueSource(strings = {"model", "year", "licensePlate", "brandEntity.name"})
+    @DisplayName("Should read a page at an offset in the order of an index")
+    void shouldReadPageAtOffsetInOrderOfIndex(String sortField) {
+        assertEquals(10, vehicleRepository.findResponsePage(sortField, true, 1500, 10).size());
+
+        assertEveryStatementUsesIndexes();
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @CsvSource({"model, Model 50", "year, 2010", "licensePlate, P00500", "brandEntity.name, Toyota"})
+    @DisplayName("Should seek the page after a cursor in the order of an index")
+    void shouldSeekPageAfterCursorInOrderOfIndex(String sortField, String lastKey) {
+        assertEquals(10, vehicleRepository.findResponsePageAfter(sortField, true, lastKey, "01900000-0000-7000-8001-0000000001f4", 10).size());
+
+        assertEveryStatementUsesIndexes();
+    }
+
+    @ParameterizedTest(name = "{0} {1}")
+    @CsvSource({"model, v.vehicle_model", "year, v.vehicle_year", "licensePlate, v.vehicle_license_plate",
+            "brandEntity.name, b.brand_name"})
+    @DisplayName("Should read the same vehicles as a sort of the whole table, at an offset and after a cursor")
+    void shouldReadSameVehiclesAsSortOfWholeTable(String sortField, String column) {
+        for (boolean ascending : new boolean[]{true, false}) {
+            String direction = ascending ? "ASC" : "DESC";
+            List<String> expected = jdbcTemplate.queryForList("SELECT v.vehicle_id FROM vehicles v " +
+                    "JOIN brands b ON b.brand_id = v.brand_id ORDER BY " + column + " " + direction +
+                    ", v.vehicle_id " + direction + " LIMIT 20 OFFSET 1660", byte[].class)
+                    .stream().map(Ids::fromBytes).collect(Collectors.toList());
+
+            List<VehicleResponseDTO> page = vehicleRepository.findResponsePage(sortField, ascending, 1660, 10);
+            VehicleResponseDTO last = page.get(page.size() - 1);
+            page = new ArrayList<>(page);
+            page.addAll(vehicleRepository.findResponsePageAfter(sortField, ascending, sortKey(last, sortField), last.getId(), 10));
+
+            assertEquals(expected, page.stream().map(VehicleResponseDTO::getId).collect(Collectors.toList()), direction);
+        }
+    }
+
+    private static String sortKey(VehicleResponseDTO vehicle, String sortField) {
+        switch (sortField) {
+            case "model":
+                return vehicle.getModel();
+            case "year":
+                return vehicle.getYear();
+            case "licensePlate":
+                return vehicle.getLicensePlate();
+            default:
+                return vehicle.getBrand().getName();
+        }
+    }
+
+    private void assertEveryStatementUsesIndexes() {
+        assertFalse(STATEMENTS.isEmpty());
+        for (String sql : new ArrayList<>(STATEMENTS)) {
+            String plan = explain(sql);
+            assertFalse(plan.contains(".tableScan"), () -> "Full scan in\n" + plan);
+            String statement = sql.toLowerCase(Locale.ROOT);
+            if (statement.contains(" order by ") && !statement.contains(".brand_id=?")) {
+                assertTrue(plan.contains("/* index sorted */"), () -> "Sort not read from an index in\n" + plan);
+            }
+        }
+    }
+
+    /**
+     * Explains a statement with every parameter bound to a string, H2 converts it to the type of the column.
+     */
+    private String explain(String sql) {
+        Object[] parameters = new Object[(int) sql.chars().filter(c -> c == '?').count()];
+        Arrays.fill(parameters, "1");
+        return jdbcTemplate.queryForObject("EXPLAIN " + sql, String.class, parameters);
+    }
+}
@@ -0,0 +1,243 @@
+package com.technicaltest.repositories;
+
+import com.technicaltest.controllers.request.VehicleFilterDTO;
+import com.technicaltest.controllers.request.VehicleResponseDTO;
+import com.technicaltest.models.BrandEntity;
+import com.technicaltest.models.VehicleEntity;
+import com.technicaltest.repositories.projections.VehicleFacetCount;
+import com.technicaltest.utils.Ids;
+import org.hibernate.SessionFactory;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that the queries which return vehicles to the client load their brands in the same statement,
+ * whatever the number of distinct brands on the page, and without loading any entity.
+ * Also checks that a chunk of the vehicles of a brand is deleted, and a chunk of the vehicles matching a filter
+ * updated, without loading them either, and that updating a vehicle sets only the columns that changed.
+ */
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                + "com.technicaltest.repositories.VehicleRepositoryStatementsTest$RecordingInspector"
+})
+class VehicleRepositoryStatementsTest {
+
+    private static final int VEHICLES = 10;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private VehicleRepository vehicleRepository;
+
+    @ParameterizedTest(name = "{0} brands")
+    @ValueSource(ints = {1, 10})
+    @DisplayName("Should list a page of vehicles and their brands in one statement")
+    void shouldListPageOfVehiclesAndTheirBrandsInOneStatement(int brands) {
+        saveVehicles(brands);
+
+        assertEquals(1, statementsToLoad(() -> vehicleRepository.findResponsesBy(
+                PageRequest.of(0, VEHICLES, Sort.by("brandEntity.name").and(Sort.by("id"))))));
+    }
+
+    @ParameterizedTest(name = "{0} brands")
+    @ValueSource(ints = {1, 10})
+    @DisplayName("Should search a page of vehicles and their brands in one statement")
+    void shouldSearchPageOfVehiclesAndTheirBrandsInOneStatement(int brands) {
+        saveVehicles(brands);
+
+        assertEquals(1, statementsToLoad(() -> vehicleRepository.findResponsePageByBrandModelOrLicensePlate(
+                "Model", PageRequest.of(0, VEHICLES, Sort.by("id")))));
+        assertEquals(1, statementsToLoad(() -> vehicleRepository.findResponsesByBrandModelOrLicensePlateAfter(
+                "Brand", "", PageRequest.of(0, VEHICLES))));
+    }
+
+    @ParameterizedTest(name = "{0} brands")
+    @ValueSource(ints = {1, 10})
+    @DisplayName("Should read keyset pages and vehicles by IDs with their brands in one statement")
+    void shouldReadKeysetPagesAndVehiclesByIdsWithTheirBrandsInOneStatement(int brands) {
+        List<String> ids = saveVehicles(brands);
+
+        assertEquals(1, statementsToLoad(() -> vehicleRepository.findResponsePageAfter("model", true, null, null, VEHICLES)));
+        assertEquals(1, statementsToLoad(() -> vehicleRepository.findResponsesByIdIn(ids)));
+    }
+
+    @ParameterizedTest(name = "{0} brands")
+    @ValueSource(ints = {1, 10})
+    @DisplayName("Should read a page sorted by brand name with one statement per brand on the page")
+    void shouldReadPageSortedByBrandNameWithOneStatementPerBrandOnPage(int brands) {
+        saveVehicles(brands);
+
+        // The brands in name order, then the vehicles of each brand on the page with their brand
+        assertEquals(1 + brands, statementsToLoad(() -> vehicleRepository.findResponsePageAfter("brandEntity.name", true, null, null, VEHICLES)));
+        assertEquals(1 + brands, statementsToLoad(() -> vehicleRepository.findResponsePage("brandEntity.name", true, 0, VEHICLES)));
+    }
+
+    @ParameterizedTest(name = "{0} brands")
+    @ValueSource(ints = {1, 10})
+    @DisplayName("Should read a filtered page in one statement and count every combination of the facets in another")
+    void shouldReadFilteredPageInOneStatementAndCountEveryCombinationOfFacetsInAnother(int brands) {
+        saveVehicles(brands);
+
+        assertEquals(1, statementsToLoad(() -> vehicleRepository.findResponsePageByFilter(
+                new VehicleFilterDTO(null, "2020", "2020", Set.of("blue")), 0, VEHICLES)));
+        List<VehicleFacetCount> counts = vehicleRepository.countByBrandYearAndColor();
+        assertEquals(brands, counts.size());
+        assertEquals(VEHICLES, counts.stream().mapToLong(VehicleFacetCount::getCount).sum());
+    }
+
+    @ParameterizedTest(name = "chunks of {0}")
+    @ValueSource(ints = {3, 10})
+    @DisplayName("Should delete a chunk of the vehicles of a brand in two statements")
+    void shouldDeleteChunkOfVehiclesOfBrandInTwoStatements(int chunkSize) {
+        saveVehicles(2);
+        String brandId = vehicleRepository.findAll().get(0).getBrandEntity().getId();
+        entityManager.clear();
+        Statistics statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        List<String> ids = vehicleRepository.findIdsByBrandId(brandId, PageRequest.of(0, chunkSize));
+        int deleted = vehicleRepository.deleteByIdIn(ids);
+
+        assertEquals(Math.min(chunkSize, VEHICLES / 2), deleted);
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+        assertEquals(VEHICLES / 2 - deleted, vehicleRepository.countByBrandId(brandId));
+        assertEquals(VEHICLES - deleted, vehicleRepository.count());
+    }
+
+    @Test
+    @DisplayName("Should update only the columns of a vehicle that changed")
+    void shouldUpdateOnlyColumnsOfVehicleThatChanged() {
+        VehicleEntity vehicle = vehicleRepository.findById(saveVehicles(1).get(0)).orElseThrow();
+        RecordingInspector.STATEMENTS.clear();
+
+        vehicle.setColor("Red");
+        entityManager.flush();
+
+        List<String> updates = RecordingInspector.STATEMENTS.stream()
+                .filter(sql -> sql.startsWith("update vehicles"))
+                .collect(Collectors.toList());
+        assertEquals(1, updates.size());
+        assertTrue(updates.get(0).contains("vehicle_color"));
+        assertTrue(updates.get(0).contains("vehicle_version"));
+        assertFalse(updates.get(0).contains("vehicle_model"));
+        assertFalse(updates.get(0).contains("brand_id"));
+    }
+
+    @Test
+    @DisplayName("Should update a chunk of the vehicles matching a filter in two statements and bump their versions")
+    void shouldUpdateChunkOfVehiclesMatchingFilterInTwoStatementsAndBumpTheirVersions() {
+        saveVehicles(2);
+        VehicleFilterDTO filter = new VehicleFilterDTO(null, "2020", null, Set.of("Blue"));
+        List<String> first = vehicleRepository.findIdsByFilterAfter(filter, "", 4);
+        Statistics statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        RecordingInspector.STATEMENTS.clear();
+
+        List<String> second = vehicleRepository.findIdsByFilterAfter(filter, first.get(first.size() - 1), 4);
+        int updated = vehicleRepository.updateByIdIn(second, Map.of("color", "Red"));
+
+        assertEquals(4, updated);
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+        assertTrue(first.get(first.size() - 1).compareTo(second.get(0)) < 0);
+        String update = RecordingInspector.STATEMENTS.get(1);
+        assertTrue(update.contains("vehicle_color") && update.contains("vehicle_version"));
+        assertFalse(update.contains("vehicle_model") || update.contains("brand_id"));
+        entityManager.clear();
+        vehicleRepository.findAllWithBrandByIdIn(second).forEach(vehicle -> {
+            assertEquals("Red", vehicle.getColor());
+            assertEquals(1L, vehicle.getVersion());
+        });
+        assertEquals(VEHICLES - 4, vehicleRepository.findIdsByFilterAfter(filter, "", VEHICLES).size());
+    }
+
+    /**
+     * Saves VEHICLES vehicles spread over the given number of brands and clears the persistence context.
+     *
+     * @param brands the number of distinct brands
+     * @return the IDs of the vehicles
+     */
+    private List<String> saveVehicles(int brands) {
+        List<String> brandIds = new ArrayList<>();
+        for (int i = 0; i < brands; i++) {
+            brandIds.add(Ids.newId());
+            entityManager.persist(BrandEntity.builder().id(brandIds.get(i)).name("Brand " + i).build());
+        }
+        for (int i = 0; i < VEHICLES; i++) {
+            entityManager.persist(VehicleEntity.builder()
+                    .id(Ids.newId())
+                    .model("Model " + i)
+                    .licensePlate("A" + (10000 + i))
+                    .color("Blue")
+                    .year("2020")
+                    .brandEntity(entityManager.find(BrandEntity.class, brandIds.get(i % brands)))
+                    .build());
+        }
+        entityManager.flush();
+        entityManager.clear();
+        return vehicleRepository.findAll().stream().map(VehicleEntity::getId).collect(Collectors.toList());
+    }
+
+    /**
+     * Runs a query, reads the brand name of every vehicle it returns and counts the statements prepared.
+     * The vehicles are projections, so no entity should be left in the persistence context.
+     *
+     * @param query the query
+     * @return the number of statements
+     */
+    private long statementsToLoad(Supplier<List<VehicleResponseDTO>> query) {
+        entityManager.clear();
+        Statistics statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        List<VehicleResponseDTO> vehicles = query.get();
+        vehicles.forEach(vehicle -> assertNotNull(vehicle.getBrand().getName()));
+
+        assertEquals(false, vehicles.isEmpty());
+        assertEquals(0, statistics.getEntityLoadCount());
+        return statistics.getPrepareStatementCount();
+    }
+
+    /**
+     * Keeps the SQL of every statement Hibernate prepares.
+     */
+    public static class RecordingInspector implements StatementInspector {
+        static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql);
+            return sql;
+        }
+    }
+}
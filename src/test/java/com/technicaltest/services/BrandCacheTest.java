@@ -0,0 +1,52 @@
+package com.technicaltest.services;
+
+import com.technicaltest.controllers.request.BrandResponseDTO;
+import com.technicaltest.events.BrandChangeEvent;
+import com.technicaltest.models.BrandEntity;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BrandCacheTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final BrandCache brandCache = new BrandCache(Duration.ofMinutes(10), meterRegistry);
+
+    @Test
+    @DisplayName("Should load the brand list once and publish the cache statistics")
+    void shouldLoadBrandListOnceAndPublishCacheStatistics() {
+        brandCache.getAll(() -> Collections.singletonList(new BrandResponseDTO("1", "Toyota")));
+
+        List<BrandResponseDTO> brands = brandCache.getAll(() -> fail("The list should be cached"));
+
+        assertEquals("Toyota", brands.get(0).getName());
+        assertEquals(1, meterRegistry.get("cache.gets").tag("cache", "brands.all").tag("result", "hit").functionCounter().count());
+    }
+
+    @Test
+    @DisplayName("Should drop the brand list when a brand changes")
+    void shouldDropBrandListWhenBrandChanges() {
+        brandCache.getAll(() -> Collections.singletonList(new BrandResponseDTO("1", "Toyota")));
+
+        brandCache.onBrandChange(BrandChangeEvent.updated(BrandEntity.builder().id("1").name("Lexus").build()));
+
+        List<BrandResponseDTO> brands = brandCache.getAll(() -> Collections.singletonList(new BrandResponseDTO("1", "Lexus")));
+        assertEquals("Lexus", brands.get(0).getName());
+    }
+
+    @Test
+    @DisplayName("Should hand out a read-only brand list")
+    void shouldHandOutReadOnlyBrandList() {
+        List<BrandResponseDTO> brands = brandCache.getAll(() -> new ArrayList<>(Collections.singletonList(new BrandResponseDTO("1", "Toyota"))));
+
+        assertThrows(UnsupportedOperationException.class, () -> brands.add(new BrandResponseDTO("2", "Lexus")));
+    }
+}
@@ -0,0 +1,178 @@
+package com.technicaltest.services;
+
+import com.technicaltest.controllers.request.BrandDeletionDTO;
+import com.technicaltest.controllers.request.ResponseDTO;
+import com.technicaltest.events.BrandChangeEvent;
+import com.technicaltest.events.VehiclesDeletedEvent;
+import com.technicaltest.models.BrandEntity;
+import com.technicaltest.repositories.BrandRepository;
+import com.technicaltest.repositories.VehicleRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.persistence.EntityNotFoundException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class BrandDeletionServiceTest {
+
+    @Mock
+    private VehicleRepository vehicleRepository;
+
+    @Mock
+    private BrandRepository brandRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final Clock clock = Clock.fixed(Instant.parse("2024-01-01T00:00:00Z"), ZoneOffset.UTC);
+    private final List<Runnable> background = new ArrayList<>();
+    private final BrandEntity brand = BrandEntity.builder().id("1").name("Toyota").build();
+    private BrandDeletionService brandDeletionService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        brandDeletionService = new BrandDeletionService(vehicleRepository, brandRepository, transactionManager,
+                eventPublisher, background::add, meterRegistry, 2, Duration.ofMinutes(5), clock);
+
+        when(brandRepository.existsById("1")).thenReturn(true);
+        when(brandRepository.findById("1")).thenReturn(Optional.of(brand));
+        when(vehicleRepository.countByBrandId("1")).thenReturn(5L);
+        when(vehicleRepository.findIdsByBrandId(eq("1"), any(Pageable.class))).thenReturn(
+                Arrays.asList("a", "b"), Arrays.asList("c", "d"), Collections.singletonList("e"));
+        when(vehicleRepository.deleteByIdIn(any())).thenAnswer(invocation -> invocation.<List<String>>getArgument(0).size());
+    }
+
+    @Test
+    @DisplayName("Should delete the vehicles in chunks until a chunk comes back short, then the brand")
+    void shouldDeleteVehiclesInChunksUntilChunkComesBackShortThenTheBrand() {
+        BrandDeletionDTO deletion = brandDeletionService.deleteBrand("1");
+
+        verify(vehicleRepository).deleteByIdIn(Arrays.asList("a", "b"));
+        verify(vehicleRepository).deleteByIdIn(Arrays.asList("c", "d"));
+        verify(vehicleRepository).deleteByIdIn(Collections.singletonList("e"));
+        verify(vehicleRepository, times(3)).findIdsByBrandId(eq("1"), any(Pageable.class));
+        verify(brandRepository).delete(brand);
+        verify(transactionManager, times(4)).commit(any());
+        assertEquals(BrandDeletionService.COMPLETED, deletion.getStatus());
+        assertEquals(5, deletion.getTotalVehicles());
+        assertEquals(5, deletion.getDeletedVehicles());
+        assertEquals(clock.instant(), deletion.getFinishedAt());
+        assertNull(deletion.getError());
+        assertEquals(5, meterRegistry.get("brand.delete.vehicles").counter().count());
+    }
+
+    @Test
+    @DisplayName("Should publish the deletion of every chunk of vehicles and of the brand")
+    void shouldPublishDeletionOfEveryChunkOfVehiclesAndOfTheBrand() {
+        brandDeletionService.deleteBrand("1");
+
+        ArgumentCaptor<Object> events = ArgumentCaptor.forClass(Object.class);
+        verify(eventPublisher, times(4)).publishEvent(events.capture());
+        assertEquals(Arrays.asList(Arrays.asList("a", "b"), Arrays.asList("c", "d"), Collections.singletonList("e")),
+                events.getAllValues().stream()
+                        .filter(VehiclesDeletedEvent.class::isInstance)
+                        .map(event -> ((VehiclesDeletedEvent) event).getVehicleIds())
+                        .collect(Collectors.toList()));
+        BrandChangeEvent brandEvent = (BrandChangeEvent) events.getAllValues().get(3);
+        assertEquals(BrandChangeEvent.Type.DELETED, brandEvent.getType());
+        assertEquals("1", brandEvent.getBrandId());
+    }
+
+    @Test
+    @DisplayName("Should stop at the failing chunk, publish the chunks already deleted, keep the brand and rethrow the failure")
+    void shouldStopAtFailingChunkKeepTheBrandAndRethrowTheFailure() {
+        when(vehicleRepository.deleteByIdIn(Arrays.asList("c", "d"))).thenThrow(new QueryTimeoutException("timeout"));
+
+        assertThrows(QueryTimeoutException.class, () -> brandDeletionService.deleteBrand("1"));
+
+        verify(brandRepository, never()).delete(any());
+        ArgumentCaptor<Object> events = ArgumentCaptor.forClass(Object.class);
+        verify(eventPublisher).publishEvent(events.capture());
+        assertEquals(Arrays.asList("a", "b"), ((VehiclesDeletedEvent) events.getValue()).getVehicleIds());
+        verify(transactionManager).rollback(any());
+        assertEquals(2, meterRegistry.get("brand.delete.vehicles").counter().count());
+    }
+
+    @Test
+    @DisplayName("Should run a started deletion in the background and report its progress by its ID")
+    void shouldRunStartedDeletionInBackgroundAndReportItsProgressByItsId() {
+        BrandDeletionDTO started = (BrandDeletionDTO) brandDeletionService.startDeletion("1").getResponse();
+
+        assertEquals(BrandDeletionService.RUNNING, started.getStatus());
+        assertEquals(0, started.getDeletedVehicles());
+        assertEquals(started, brandDeletionService.getDeletion(started.getId()).getResponse());
+        verify(vehicleRepository, never()).deleteByIdIn(any());
+
+        background.get(0).run();
+
+        BrandDeletionDTO finished = (BrandDeletionDTO) brandDeletionService.getDeletion(started.getId()).getResponse();
+        assertEquals(BrandDeletionService.COMPLETED, finished.getStatus());
+        assertEquals(5, finished.getDeletedVehicles());
+    }
+
+    @Test
+    @DisplayName("Should return the running deletion instead of starting another one for the same brand")
+    void shouldReturnRunningDeletionInsteadOfStartingAnotherOneForTheSameBrand() {
+        ResponseDTO first = brandDeletionService.startDeletion("1");
+        ResponseDTO second = brandDeletionService.startDeletion("1");
+
+        assertEquals(((BrandDeletionDTO) first.getResponse()).getId(), ((BrandDeletionDTO) second.getResponse()).getId());
+        assertEquals(1, background.size());
+    }
+
+    @Test
+    @DisplayName("Should report a failed background deletion without its exception")
+    void shouldReportFailedBackgroundDeletionWithoutItsException() {
+        when(vehicleRepository.deleteByIdIn(Arrays.asList("c", "d"))).thenThrow(new QueryTimeoutException("timeout"));
+        BrandDeletionDTO started = (BrandDeletionDTO) brandDeletionService.startDeletion("1").getResponse();
+
+        background.get(0).run();
+
+        BrandDeletionDTO failed = (BrandDeletionDTO) brandDeletionService.getDeletion(started.getId()).getResponse();
+        assertEquals(BrandDeletionService.FAILED, failed.getStatus());
+        assertEquals(2, failed.getDeletedVehicles());
+        assertEquals(BrandDeletionService.DELETION_FAILED, failed.getError());
+    }
+
+    @Test
+    @DisplayName("Should throw EntityNotFoundException for an unknown brand or deletion")
+    void shouldThrowEntityNotFoundExceptionForUnknownBrandOrDeletion() {
+        EntityNotFoundException brandNotFound = assertThrows(EntityNotFoundException.class,
+                () -> brandDeletionService.startDeletion("2"));
+        EntityNotFoundException deletionNotFound = assertThrows(EntityNotFoundException.class,
+                () -> brandDeletionService.getDeletion("unknown"));
+
+        assertEquals(BrandService.DELETE_BRAND_NOT_FOUND, brandNotFound.getMessage());
+        assertEquals(BrandDeletionService.DELETION_DOES_NOT_EXIST, deletionNotFound.getMessage());
+        assertTrue(background.isEmpty());
+    }
+}
@@ -3,24 +3,40 @@ package com.technicaltest.services;
 import com.technicaltest.controllers.request.BrandDTO;
 import com.technicaltest.controllers.request.ResponseDTO;
 import com.technicaltest.exceptions.EntityAlreadyExistsException;
+import com.technicaltest.exceptions.EntityConflictException;
+import com.technicaltest.exceptions.PreconditionFailedException;
 import com.technicaltest.models.BrandEntity;
 import com.technicaltest.repositories.BrandRepository;
 import com.technicaltest.utils.Constants;
+import org.hibernate.exception.ConstraintViolationException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 
 import javax.persistence.EntityNotFoundException;
+import javax.validation.Validator;
+import java.time.Duration;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 class BrandServiceTest {
@@ -31,6 +47,18 @@ class BrandServiceTest {
     @Mock
     private BrandRepository brandRepository;
 
+    @Mock
+    private BrandDeletionService brandDeletionService;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private Validator validator;
+
+    @Spy
+    private BrandCache brandCache = new BrandCache(Duration.ofMinutes(10), new SimpleMeterRegistry());
+
     @BeforeEach
     public void setup() {
         MockitoAnnotations.openMocks(this);
@@ -50,11 +78,12 @@ class BrandServiceTest {
     @Test
     @DisplayName("Should return brand when brand exists")
     void shouldReturnBrandWhenBrandExists() {
-        when(brandRepository.findById(anyString())).thenReturn(Optional.of(new BrandEntity()));
+        when(brandRepository.findById(anyString())).thenReturn(Optional.of(BrandEntity.builder().id("1").name("Toyota").version(2L).build()));
 
         ResponseDTO response = brandService.getBrandById("1");
 
         assertEquals(false, response.getError());
+        assertEquals(2L, response.getVersion());
     }
 
     @Test
@@ -68,12 +97,11 @@ class BrandServiceTest {
     @Test
     @DisplayName("Should add brand when brand does not exist")
     void shouldAddBrandWhenBrandDoesNotExist() {
-        when(brandRepository.findByName(anyString())).thenReturn(Optional.empty());
-
         ResponseDTO response = brandService.addBrand(new BrandDTO());
 
         assertEquals(Constants.SUCCESS, response.getResponse());
         assertEquals(false, response.getError());
+        verify(brandRepository, times(1)).saveAndFlush(any(BrandEntity.class));
     }
 
     @Test
@@ -82,9 +110,26 @@ class BrandServiceTest {
         BrandDTO brandDTO = new BrandDTO();
         brandDTO.setName("Existing Brand");
 
-        when(brandRepository.findByName(brandDTO.getName())).thenReturn(Optional.of(new BrandEntity()));
+        when(brandRepository.saveAndFlush(any(BrandEntity.class))).thenThrow(violationOf("PUBLIC.UK_BRANDS_NAME_INDEX_A"));
+
+        EntityAlreadyExistsException exception = assertThrows(EntityAlreadyExistsException.class,
+                () -> brandService.addBrand(brandDTO));
+        assertEquals(BrandService.BRAND_ALREADY_EXISTS, exception.getMessage());
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    @DisplayName("Should throw EntityAlreadyExistsException when renaming brand to an existing name")
+    void shouldThrowEntityAlreadyExistsExceptionWhenRenamingBrandToAnExistingName() {
+        BrandDTO brandDTO = new BrandDTO();
+        brandDTO.setName("Existing Brand");
+        BrandEntity brandEntity = BrandEntity.builder().id("1").name("Brand").build();
+
+        when(brandRepository.findById("1")).thenReturn(Optional.of(brandEntity));
+        when(brandRepository.saveAndFlush(brandEntity)).thenThrow(violationOf("brands.uk_brands_name"));
 
-        assertThrows(EntityAlreadyExistsException.class, () -> brandService.addBrand(brandDTO));
+        assertThrows(EntityAlreadyExistsException.class, () -> brandService.updateBrand("1", brandDTO));
+        verifyNoInteractions(eventPublisher);
     }
 
     @Test
@@ -106,6 +151,50 @@ class BrandServiceTest {
         assertThrows(EntityNotFoundException.class, () -> brandService.updateBrand("1", new BrandDTO()));
     }
 
+    @Test
+    @DisplayName("Should throw PreconditionFailedException when the brand no longer has the expected version")
+    void shouldThrowPreconditionFailedExceptionWhenBrandNoLongerHasExpectedVersion() {
+        BrandDTO brandDTO = new BrandDTO();
+        brandDTO.setName("Lexus");
+        when(brandRepository.findById("1")).thenReturn(Optional.of(BrandEntity.builder().id("1").name("Toyota").version(2L).build()));
+
+        assertThrows(PreconditionFailedException.class, () -> brandService.updateBrand("1", brandDTO, 1L));
+
+        verify(brandRepository, never()).saveAndFlush(any());
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    @DisplayName("Should throw EntityConflictException when a concurrent update of the brand commits first")
+    void shouldThrowEntityConflictExceptionWhenConcurrentUpdateOfBrandCommitsFirst() {
+        BrandDTO brandDTO = new BrandDTO();
+        brandDTO.setName("Lexus");
+        BrandEntity brandEntity = BrandEntity.builder().id("1").name("Toyota").version(1L).build();
+        when(brandRepository.findById("1")).thenReturn(Optional.of(brandEntity));
+        when(brandRepository.saveAndFlush(brandEntity)).thenThrow(new ObjectOptimisticLockingFailureException(BrandEntity.class, "1"));
+
+        EntityConflictException exception = assertThrows(EntityConflictException.class,
+                () -> brandService.updateBrand("1", brandDTO, 1L));
+
+        assertEquals(BrandService.BRAND_CHANGED_CONCURRENTLY, exception.getMessage());
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    @DisplayName("Should patch the name of a brand and keep it when the patch is empty")
+    void shouldPatchNameOfBrandAndKeepItWhenPatchIsEmpty() {
+        BrandEntity brandEntity = BrandEntity.builder().id("1").name("Toyota").version(1L).build();
+        when(brandRepository.findById("1")).thenReturn(Optional.of(brandEntity));
+
+        brandService.patchBrand("1", Collections.emptyMap(), 1L);
+        assertEquals("Toyota", brandEntity.getName());
+
+        ResponseDTO response = brandService.patchBrand("1", Collections.singletonMap("name", "Lexus"), 1L);
+        assertEquals("Lexus", brandEntity.getName());
+        assertEquals(1L, response.getVersion());
+        verify(validator).validateValue(BrandDTO.class, "name", "Lexus");
+    }
+
     @Test
     @DisplayName("Should delete brand when brand exists")
     void shouldDeleteBrandWhenBrandExists() {
@@ -113,6 +202,7 @@ class BrandServiceTest {
 
         ResponseDTO response = brandService.deleteBrand("1");
 
+        verify(brandDeletionService, times(1)).deleteBrand("1");
         assertEquals(Constants.SUCCESS, response.getResponse());
         assertEquals(false, response.getError());
     }
@@ -123,5 +213,22 @@ class BrandServiceTest {
         when(brandRepository.existsById(anyString())).thenReturn(false);
 
         assertThrows(EntityNotFoundException.class, () -> brandService.deleteBrand("1"));
+        verifyNoInteractions(brandDeletionService);
+    }
+
+    @Test
+    @DisplayName("Should read the brand list from the cache after the first lookup")
+    void shouldReadBrandListFromCacheAfterFirstLookup() {
+        when(brandRepository.findAll()).thenReturn(Arrays.asList(new BrandEntity(), new BrandEntity()));
+
+        brandService.getBrands();
+        brandService.getBrands();
+
+        verify(brandRepository, times(1)).findAll();
+    }
+
+    private static DataIntegrityViolationException violationOf(String constraintName) {
+        return new DataIntegrityViolationException("could not execute statement",
+                new ConstraintViolationException("could not execute statement", null, constraintName));
     }
-}
\ No newline at end of file
+}
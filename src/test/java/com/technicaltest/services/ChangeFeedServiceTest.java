@@ -0,0 +1,125 @@
+package com.technicaltest.services;
+
+import com.technicaltest.controllers.request.ChangeEventDTO;
+import com.technicaltest.controllers.request.ResponseDTO;
+import com.technicaltest.exceptions.CursorExpiredException;
+import com.technicaltest.models.OutboxEventEntity;
+import com.technicaltest.repositories.OutboxEventRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+class ChangeFeedServiceTest {
+
+    @Mock
+    private OutboxEventRepository outboxEventRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private ChangeFeedService changeFeedService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        changeFeedService = new ChangeFeedService(outboxEventRepository, transactionManager, Runnable::run,
+                Duration.ofSeconds(30), Duration.ofMinutes(30));
+
+        when(outboxEventRepository.findRelayedAfter(anyLong(), any(Pageable.class))).thenReturn(Collections.emptyList());
+        when(outboxEventRepository.findFirstSequence()).thenReturn(1L);
+    }
+
+    @Test
+    @DisplayName("Should return the changes after the cursor and the cursor of the last one")
+    void shouldReturnChangesAfterCursorAndCursorOfLastOne() {
+        when(outboxEventRepository.findRelayedAfter(5L, PageRequest.of(0, 2))).thenReturn(Arrays.asList(event(6), event(7)));
+
+        ResponseDTO response = changeFeedService.getChanges(5L, 2, Duration.ZERO).join();
+
+        assertEquals(Arrays.asList(6L, 7L), sequences(response));
+        assertEquals(7L, response(response).get("nextCursor"));
+        assertEquals("{\"color\":\"Red\"}", changes(response).get(0).getData());
+    }
+
+    @Test
+    @DisplayName("Should start from the oldest change kept when there is no cursor and cap the limit")
+    void shouldStartFromOldestChangeKeptWhenThereIsNoCursorAndCapTheLimit() {
+        ResponseDTO response = changeFeedService.getChanges(null, 5000, Duration.ZERO).join();
+
+        assertNull(response(response).get("nextCursor"));
+
+        verify(outboxEventRepository).findRelayedAfter(0L, PageRequest.of(0, ChangeFeedService.MAX_LIMIT));
+        verify(outboxEventRepository, never()).findFirstSequence();
+    }
+
+    @Test
+    @DisplayName("Should reject a cursor whose next changes are no longer kept")
+    void shouldRejectCursorWhoseNextChangesAreNoLongerKept() {
+        when(outboxEventRepository.findRelayedAfter(5L, PageRequest.of(0, 100))).thenReturn(Collections.singletonList(event(9)));
+        when(outboxEventRepository.findFirstSequence()).thenReturn(9L);
+
+        CursorExpiredException exception = assertThrows(CursorExpiredException.class,
+                () -> changeFeedService.getChanges(5L, 100, Duration.ofSeconds(10)));
+
+        assertEquals(ChangeFeedService.CURSOR_EXPIRED, exception.getMessage());
+    }
+
+    @Test
+    @DisplayName("Should answer a long poll as soon as the relay hands the next changes out")
+    void shouldAnswerLongPollAsSoonAsRelayHandsNextChangesOut() {
+        CompletableFuture<ResponseDTO> future = changeFeedService.getChanges(5L, 100, Duration.ofSeconds(10));
+        assertFalse(future.isDone());
+
+        when(outboxEventRepository.findRelayedAfter(5L, PageRequest.of(0, 100))).thenReturn(Collections.singletonList(event(6)));
+        changeFeedService.onRelayed();
+
+        assertEquals(Collections.singletonList(6L), sequences(future.join()));
+    }
+
+    @Test
+    @DisplayName("Should answer a long poll with no changes and the same cursor when the wait runs out")
+    void shouldAnswerLongPollWithNoChangesAndSameCursorWhenWaitRunsOut() {
+        ResponseDTO response = changeFeedService.getChanges(5L, 100, Duration.ofMillis(50)).join();
+
+        assertTrue(changes(response).isEmpty());
+        assertEquals(5L, response(response).get("nextCursor"));
+        verify(outboxEventRepository, times(2)).findRelayedAfter(5L, PageRequest.of(0, 100));
+    }
+
+    private static OutboxEventEntity event(long sequence) {
+        return OutboxEventEntity.builder().id("e" + sequence).sequence(sequence).entityType(OutboxWriter.VEHICLE)
+                .entityId("a").type("UPDATED").payload("{\"color\":\"Red\"}").build();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> response(ResponseDTO response) {
+        return (Map<String, Object>) response.getResponse();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<ChangeEventDTO> changes(ResponseDTO response) {
+        return (List<ChangeEventDTO>) response(response).get("changes");
+    }
+
+    private static List<Long> sequences(ResponseDTO response) {
+        return changes(response).stream().map(ChangeEventDTO::getSequence).collect(Collectors.toList());
+    }
+}
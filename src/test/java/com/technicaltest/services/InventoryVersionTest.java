@@ -0,0 +1,45 @@
+package com.technicaltest.services;
+
+import com.technicaltest.repositories.OutboxEventRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+class InventoryVersionTest {
+
+    @Mock
+    private OutboxEventRepository outboxEventRepository;
+
+    private InventoryVersion inventoryVersion;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        inventoryVersion = new InventoryVersion(outboxEventRepository);
+    }
+
+    @Test
+    @DisplayName("Should make the ETag of the changes recorded in the outbox")
+    void shouldMakeETagOfChangesRecordedInOutbox() {
+        when(outboxEventRepository.countChanges()).thenReturn(0L, 3L);
+
+        String empty = inventoryVersion.etag();
+        String changed = inventoryVersion.etag();
+
+        assertEquals("\"inventory-0\"", empty);
+        assertEquals("\"inventory-3\"", changed);
+    }
+
+    @Test
+    @DisplayName("Should not make ETags an If-Match reads as an entity version")
+    void shouldNotMakeETagsAnIfMatchReadsAsEntityVersion() {
+        when(outboxEventRepository.countChanges()).thenReturn(3L);
+
+        assertNotEquals("\"3\"", inventoryVersion.etag());
+    }
+}
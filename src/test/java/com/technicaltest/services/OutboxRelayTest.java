@@ -0,0 +1,118 @@
+package com.technicaltest.services;
+
+import com.technicaltest.controllers.request.ChangeEventDTO;
+import com.technicaltest.models.OutboxEventEntity;
+import com.technicaltest.outbox.OutboxSink;
+import com.technicaltest.repositories.OutboxEventRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+class OutboxRelayTest {
+
+    @Mock
+    private OutboxEventRepository outboxEventRepository;
+
+    @Mock
+    private OutboxSink outboxSink;
+
+    @Mock
+    private ChangeFeedService changeFeedService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final Instant now = Instant.parse("2024-01-01T00:00:00Z");
+    private final OutboxEventEntity a = event("a");
+    private final OutboxEventEntity b = event("b");
+    private final OutboxEventEntity c = event("c");
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(outboxEventRepository.findUnrelayed(any(Pageable.class))).thenReturn(
+                Arrays.asList(a, b), Collections.singletonList(c), Collections.emptyList());
+        when(outboxEventRepository.findLastSequence()).thenReturn(7L, 9L, 10L);
+    }
+
+    @Test
+    @DisplayName("Should number the changes after the last sequence and deliver them in batches until a batch comes back short")
+    @SuppressWarnings("unchecked")
+    void shouldNumberChangesAfterLastSequenceAndDeliverThemInBatchesUntilBatchComesBackShort() {
+        relay(true, 100).relay();
+
+        ArgumentCaptor<List<ChangeEventDTO>> captor = ArgumentCaptor.forClass(List.class);
+        verify(outboxSink, times(2)).deliver(captor.capture());
+        assertEquals(Arrays.asList(8L, 9L), sequences(captor.getAllValues().get(0)));
+        assertEquals(Collections.singletonList(10L), sequences(captor.getAllValues().get(1)));
+        assertEquals(now, c.getRelayedDate());
+        verify(outboxEventRepository, times(2)).findUnrelayed(any(Pageable.class));
+        verify(changeFeedService, times(2)).onRelayed();
+        assertEquals(3, meterRegistry.counter("outbox.relay.events").count());
+        verify(transactionManager, times(3)).commit(any());
+    }
+
+    @Test
+    @DisplayName("Should delete the changes before the retained ones")
+    void shouldDeleteChangesBeforeRetainedOnes() {
+        relay(true, 4).relay();
+
+        verify(outboxEventRepository).deleteRelayedUpTo(6L);
+    }
+
+    @Test
+    @DisplayName("Should roll the batch back and count the failure when the sink fails")
+    void shouldRollBatchBackAndCountFailureWhenSinkFails() {
+        doThrow(new IllegalStateException("La cola de cambios esta llena")).when(outboxSink).deliver(any());
+
+        relay(true, 100).relay();
+
+        verify(transactionManager).rollback(any());
+        verify(transactionManager, never()).commit(any());
+        verify(changeFeedService, never()).onRelayed();
+        verify(outboxEventRepository, never()).deleteRelayedUpTo(anyLong());
+        assertEquals(1, meterRegistry.counter("outbox.relay.failures").count());
+    }
+
+    @Test
+    @DisplayName("Should not hand anything out when the relay is disabled")
+    void shouldNotHandAnythingOutWhenRelayIsDisabled() {
+        relay(false, 100).relay();
+
+        verifyNoInteractions(outboxEventRepository, outboxSink, changeFeedService, transactionManager);
+    }
+
+    private OutboxRelay relay(boolean enabled, long retainedEvents) {
+        return new OutboxRelay(outboxEventRepository, outboxSink, changeFeedService, transactionManager, meterRegistry,
+                enabled, 2, retainedEvents, Clock.fixed(now, ZoneOffset.UTC));
+    }
+
+    private static OutboxEventEntity event(String id) {
+        return OutboxEventEntity.builder().id(id).entityType(OutboxWriter.VEHICLE).entityId(id).type("CREATED").build();
+    }
+
+    private static List<Long> sequences(List<ChangeEventDTO> changes) {
+        return changes.stream().map(ChangeEventDTO::getSequence).collect(Collectors.toList());
+    }
+}
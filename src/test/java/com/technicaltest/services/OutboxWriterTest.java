@@ -0,0 +1,107 @@
+package com.technicaltest.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.technicaltest.events.BrandChangeEvent;
+import com.technicaltest.events.VehicleChangeEvent;
+import com.technicaltest.events.VehiclesDeletedEvent;
+import com.technicaltest.models.BrandEntity;
+import com.technicaltest.models.OutboxEventEntity;
+import com.technicaltest.models.VehicleEntity;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.persistence.EntityManager;
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class OutboxWriterTest {
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final BrandEntity brand = BrandEntity.builder().id("1").name("Toyota").version(3L).build();
+    private OutboxWriter outboxWriter;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        outboxWriter = new OutboxWriter(entityManager, objectMapper, transactionManager);
+    }
+
+    @Test
+    @DisplayName("Should record the vehicle after the change in the transaction of the write")
+    void shouldRecordVehicleAfterChangeInTransactionOfWrite() throws Exception {
+        VehicleEntity vehicle = VehicleEntity.builder().id("a").model("Corolla").licensePlate("ABC123").color("Red")
+                .year("2020").brandEntity(brand).version(2L).build();
+
+        outboxWriter.onVehicleChange(VehicleChangeEvent.updated(vehicle));
+
+        OutboxEventEntity event = persistedEvent();
+        assertNotNull(event.getId());
+        assertNull(event.getSequence());
+        assertEquals(OutboxWriter.VEHICLE, event.getEntityType());
+        assertEquals("a", event.getEntityId());
+        assertEquals("UPDATED", event.getType());
+        assertEquals(objectMapper.readTree("{\"id\":\"a\",\"model\":\"Corolla\",\"licensePlate\":\"ABC123\","
+                        + "\"color\":\"Red\",\"year\":\"2020\",\"brandEntity\":{\"id\":\"1\",\"name\":\"Toyota\"},\"version\":2}"),
+                objectMapper.readTree(event.getPayload()));
+        verify(transactionManager).commit(any());
+    }
+
+    @Test
+    @DisplayName("Should record a deleted vehicle without its state")
+    void shouldRecordDeletedVehicleWithoutItsState() {
+        outboxWriter.onVehicleChange(VehicleChangeEvent.deleted("a"));
+
+        OutboxEventEntity event = persistedEvent();
+        assertEquals("a", event.getEntityId());
+        assertEquals("DELETED", event.getType());
+        assertNull(event.getPayload());
+    }
+
+    @Test
+    @DisplayName("Should record the deletion of every vehicle of a chunk")
+    void shouldRecordDeletionOfEveryVehicleOfChunk() {
+        outboxWriter.onVehiclesDeleted(new VehiclesDeletedEvent(Arrays.asList("a", "b")));
+
+        ArgumentCaptor<OutboxEventEntity> captor = ArgumentCaptor.forClass(OutboxEventEntity.class);
+        verify(entityManager, times(2)).persist(captor.capture());
+        assertEquals(Arrays.asList("a", "b"), captor.getAllValues().stream()
+                .map(OutboxEventEntity::getEntityId)
+                .collect(Collectors.toList()));
+        assertTrue(captor.getAllValues().stream()
+                .allMatch(event -> "DELETED".equals(event.getType()) && event.getPayload() == null));
+    }
+
+    @Test
+    @DisplayName("Should record the brand after the change with its version")
+    void shouldRecordBrandAfterChangeWithItsVersion() throws Exception {
+        outboxWriter.onBrandChange(BrandChangeEvent.created(brand));
+
+        OutboxEventEntity event = persistedEvent();
+        assertEquals(OutboxWriter.BRAND, event.getEntityType());
+        assertEquals("1", event.getEntityId());
+        assertEquals("CREATED", event.getType());
+        assertEquals(objectMapper.readTree("{\"id\":\"1\",\"name\":\"Toyota\",\"version\":3}"),
+                objectMapper.readTree(event.getPayload()));
+    }
+
+    private OutboxEventEntity persistedEvent() {
+        ArgumentCaptor<OutboxEventEntity> captor = ArgumentCaptor.forClass(OutboxEventEntity.class);
+        verify(entityManager).persist(captor.capture());
+        return captor.getValue();
+    }
+}
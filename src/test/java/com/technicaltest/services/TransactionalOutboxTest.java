@@ -0,0 +1,135 @@
+package com.technicaltest.services;
+
+import com.technicaltest.controllers.request.ChangeEventDTO;
+import com.technicaltest.controllers.request.VehicleDTO;
+import com.technicaltest.models.BrandEntity;
+import com.technicaltest.models.OutboxEventEntity;
+import com.technicaltest.repositories.BrandRepository;
+import com.technicaltest.repositories.OutboxEventRepository;
+import com.technicaltest.repositories.VehicleRepository;
+import com.technicaltest.utils.Ids;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Writes vehicles through the service and checks that the outbox records a change exactly when the write commits,
+ * and that the relay hands it out to the changes endpoint.
+ */
+@SpringBootTest
+class TransactionalOutboxTest {
+
+    @Autowired
+    private VehicleService vehicleService;
+
+    @Autowired
+    private OutboxRelay outboxRelay;
+
+    @Autowired
+    private ChangeFeedService changeFeedService;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private VehicleRepository vehicleRepository;
+
+    @Autowired
+    private BrandRepository brandRepository;
+
+    private BrandEntity brand;
+    private Set<String> recorded;
+
+    @BeforeEach
+    void setUp() {
+        brand = brandRepository.save(BrandEntity.builder().id(Ids.newId()).name("Outbox brand").build());
+        recorded = outboxEventRepository.findAll().stream().map(OutboxEventEntity::getId).collect(Collectors.toSet());
+        vehicleService.addVehicle(new VehicleDTO("Corolla", "OUT001", "Red", "2020", brand.getId()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        newEvents().forEach(event -> vehicleRepository.deleteById(event.getEntityId()));
+        brandRepository.deleteById(brand.getId());
+    }
+
+    @Test
+    @DisplayName("Should record a committed write and hand it out to the changes endpoint")
+    void shouldRecordCommittedWriteAndHandItOutToChangesEndpoint() {
+        List<OutboxEventEntity> events = newEvents();
+        assertEquals(1, events.size());
+        assertEquals(OutboxWriter.VEHICLE, events.get(0).getEntityType());
+        assertEquals("CREATED", events.get(0).getType());
+
+        outboxRelay.relay();
+
+        Long sequence = outboxEventRepository.findById(events.get(0).getId())
+                .map(OutboxEventEntity::getSequence)
+                .orElseThrow(IllegalStateException::new);
+        List<ChangeEventDTO> changes = changes(changeFeedService.getChanges(sequence - 1, 1, Duration.ZERO).join().getResponse());
+        assertEquals(1, changes.size());
+        assertEquals(events.get(0).getEntityId(), changes.get(0).getEntityId());
+        assertTrue(changes.get(0).getData().contains("OUT001"));
+    }
+
+    @Test
+    @DisplayName("Should not record a write that is rolled back")
+    void shouldNotRecordWriteThatIsRolledBack() {
+        long recorded = outboxEventRepository.count();
+        long changes = outboxEventRepository.countChanges();
+
+        assertThrows(DataIntegrityViolationException.class,
+                () -> vehicleService.addVehicle(new VehicleDTO("Yaris", "OUT001", "Blue", "2021", brand.getId())));
+
+        assertEquals(recorded, outboxEventRepository.count());
+        assertEquals(changes, outboxEventRepository.countChanges());
+    }
+
+    @Test
+    @DisplayName("Should count a committed write once, before and after it is handed out")
+    void shouldCountCommittedWriteOnceBeforeAndAfterItIsHandedOut() {
+        long changes = outboxEventRepository.countChanges();
+
+        vehicleService.addVehicle(new VehicleDTO("Yaris", "OUT002", "Blue", "2021", brand.getId()));
+        assertEquals(changes + 1, outboxEventRepository.countChanges());
+
+        outboxRelay.relay();
+        assertEquals(changes + 1, outboxEventRepository.countChanges());
+    }
+
+    @Test
+    @DisplayName("Should fail the numbering of a relay that read the events before another relay handed them out")
+    void shouldFailNumberingOfRelayThatReadEventsBeforeAnotherRelayHandedThemOut() {
+        OutboxEventEntity readByOtherRelay = newEvents().get(0);
+
+        outboxRelay.relay();
+        readByOtherRelay.setRelayedDate(Instant.now());
+
+        assertThrows(OptimisticLockingFailureException.class, () -> outboxEventRepository.save(readByOtherRelay));
+    }
+
+    private List<OutboxEventEntity> newEvents() {
+        return outboxEventRepository.findAll().stream()
+                .filter(event -> !recorded.contains(event.getId()))
+                .collect(Collectors.toList());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<ChangeEventDTO> changes(Object response) {
+        return (List<ChangeEventDTO>) ((Map<String, Object>) response).get("changes");
+    }
+}
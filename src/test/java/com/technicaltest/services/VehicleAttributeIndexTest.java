@@ -0,0 +1,208 @@
+package com.technicaltest.services;
+
+import com.technicaltest.controllers.request.FacetCountDTO;
+import com.technicaltest.controllers.request.VehicleFilterDTO;
+import com.technicaltest.events.BrandChangeEvent;
+import com.technicaltest.events.VehicleChangeEvent;
+import com.technicaltest.events.VehiclesDeletedEvent;
+import com.technicaltest.models.BrandEntity;
+import com.technicaltest.models.VehicleEntity;
+import com.technicaltest.repositories.BrandRepository;
+import com.technicaltest.repositories.VehicleRepository;
+import com.technicaltest.repositories.projections.VehicleAttributeView;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.*;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+class VehicleAttributeIndexTest {
+
+    @Mock
+    private VehicleRepository vehicleRepository;
+
+    @Mock
+    private BrandRepository brandRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private VehicleAttributeIndex vehicleAttributeIndex;
+
+    private final BrandEntity toyota = BrandEntity.builder().id("1").name("Toyota").build();
+    private final BrandEntity ferrari = BrandEntity.builder().id("2").name("Ferrari").build();
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        vehicleAttributeIndex = new VehicleAttributeIndex(vehicleRepository, brandRepository, transactionManager,
+                meterRegistry, true, 2);
+
+        when(brandRepository.findAll()).thenReturn(Arrays.asList(toyota, ferrari));
+        when(vehicleRepository.streamAttributeViews()).thenAnswer(invocation -> Stream.of(
+                view("a", "2010", "Red", "1"),
+                view("b", "2015", "blue", "1"),
+                view("c", "2020", "RED", "2"),
+                view("d", "2020", "Blue", "2"),
+                view("e", "2022", "Red", "1")));
+        vehicleAttributeIndex.rebuild();
+    }
+
+    @Test
+    @DisplayName("Should not answer filters until the index is built")
+    void shouldNotAnswerFiltersUntilIndexIsBuilt() {
+        VehicleAttributeIndex notBuilt = new VehicleAttributeIndex(vehicleRepository, brandRepository,
+                transactionManager, meterRegistry, true, 2);
+
+        assertFalse(notBuilt.filter(new VehicleFilterDTO(), 0, 10).isPresent());
+        assertTrue(vehicleAttributeIndex.isReady());
+    }
+
+    @Test
+    @DisplayName("Should AND the facets, OR the values of each facet and page the matches in index order")
+    void shouldAndFacetsOrValuesOfEachFacetAndPageMatchesInIndexOrder() {
+        VehicleFilterDTO filter = new VehicleFilterDTO(Set.of("1", "2"), "2012", "2021", Set.of("red", "BLUE"));
+
+        VehicleAttributeIndex.Matches matches = vehicleAttributeIndex.filter(filter, 1, 2).orElseThrow();
+
+        assertEquals(3, matches.getTotal());
+        assertEquals(Arrays.asList("c", "d"), matches.getIds());
+        assertEquals(Collections.emptyList(),
+                vehicleAttributeIndex.filter(new VehicleFilterDTO(null, "2021", "2012", null), 0, 10)
+                        .orElseThrow().getIds());
+    }
+
+    @Test
+    @DisplayName("Should count each facet value with the filters of the other facets only")
+    void shouldCountEachFacetValueWithFiltersOfOtherFacetsOnly() {
+        VehicleFilterDTO filter = new VehicleFilterDTO(Set.of("1"), "2012", null, Set.of("red"));
+
+        VehicleAttributeIndex.Matches matches = vehicleAttributeIndex.filter(filter, 0, 10).orElseThrow();
+
+        assertEquals(Collections.singletonList("e"), matches.getIds());
+        assertEquals(Map.of("1", new FacetCountDTO("1", "Toyota", 1), "2", new FacetCountDTO("2", "Ferrari", 1)),
+                matches.getBrands());
+        assertEquals(Map.of("2010", new FacetCountDTO("2010", "2010", 1), "2022", new FacetCountDTO("2022", "2022", 1)),
+                matches.getYears());
+        assertEquals(Map.of("red", new FacetCountDTO("red", "Red", 1), "blue", new FacetCountDTO("blue", "blue", 1)),
+                matches.getColors());
+    }
+
+    @Test
+    @DisplayName("Should move updated vehicles between values and drop deleted ones")
+    void shouldMoveUpdatedVehiclesBetweenValuesAndDropDeletedOnes() {
+        vehicleAttributeIndex.onVehicleChange(VehicleChangeEvent.created(vehicle("f", "2024", "Green", toyota)));
+        vehicleAttributeIndex.onVehicleChange(VehicleChangeEvent.updated(vehicle("a", "2024", "Green", ferrari)));
+        vehicleAttributeIndex.onVehicleChange(VehicleChangeEvent.deleted("b"));
+
+        VehicleAttributeIndex.Matches green = vehicleAttributeIndex.filter(
+                VehicleFilterDTO.builder().colors(Set.of("green")).build(), 0, 10).orElseThrow();
+        assertEquals(Arrays.asList("a", "f"), green.getIds());
+        assertEquals(Map.of("1", new FacetCountDTO("1", "Toyota", 1), "2", new FacetCountDTO("2", "Ferrari", 1)),
+                green.getBrands());
+        assertFalse(green.getYears().containsKey("2010"));
+        assertEquals(new FacetCountDTO("blue", "blue", 1), green.getColors().get("blue"));
+        assertEquals(5, vehicleAttributeIndex.footprint().getVehicles());
+    }
+
+    @Test
+    @DisplayName("Should drop a chunk of deleted vehicles")
+    void shouldDropChunkOfDeletedVehicles() {
+        vehicleAttributeIndex.onVehiclesDeleted(new VehiclesDeletedEvent(Arrays.asList("a", "b")));
+
+        VehicleAttributeIndex.Matches matches = vehicleAttributeIndex.filter(new VehicleFilterDTO(), 0, 10).orElseThrow();
+
+        assertEquals(Arrays.asList("c", "d", "e"), matches.getIds());
+        assertEquals(3, vehicleAttributeIndex.footprint().getVehicles());
+    }
+
+    @Test
+    @DisplayName("Should follow brand renames and remove the vehicles of deleted brands")
+    void shouldFollowBrandRenamesAndRemoveVehiclesOfDeletedBrands() {
+        vehicleAttributeIndex.onBrandChange(BrandChangeEvent.updated(BrandEntity.builder().id("1").name("Lexus").build()));
+        vehicleAttributeIndex.onBrandChange(BrandChangeEvent.deleted("2"));
+
+        VehicleAttributeIndex.Matches matches = vehicleAttributeIndex.filter(new VehicleFilterDTO(), 0, 10).orElseThrow();
+
+        assertEquals(Arrays.asList("a", "b", "e"), matches.getIds());
+        assertEquals(Map.of("1", new FacetCountDTO("1", "Lexus", 3)), matches.getBrands());
+        assertFalse(matches.getYears().containsKey("2020"));
+    }
+
+    @Test
+    @DisplayName("Should renumber the vehicles without the slots of removed ones and keep their order")
+    void shouldRenumberVehiclesWithoutSlotsOfRemovedOnesAndKeepTheirOrder() {
+        int removed = VehicleAttributeIndex.MIN_COMPACTION_SLOTS;
+        for (int i = 0; i < removed; i++) {
+            vehicleAttributeIndex.put(vehicle("r" + i, "2024", "Green", toyota));
+        }
+        vehicleAttributeIndex.put(vehicle("f", "2024", "Green", ferrari));
+        for (int i = 0; i < removed - 1; i++) {
+            vehicleAttributeIndex.remove("r" + i);
+        }
+        assertEquals(removed - 1, vehicleAttributeIndex.footprint().getEmptySlots());
+
+        vehicleAttributeIndex.onBrandChange(BrandChangeEvent.deleted("2"));
+
+        VehicleAttributeIndex.Footprint footprint = vehicleAttributeIndex.footprint();
+        assertEquals(0, footprint.getEmptySlots());
+        assertEquals(4, footprint.getVehicles());
+        VehicleAttributeIndex.Matches matches = vehicleAttributeIndex.filter(new VehicleFilterDTO(), 0, 10).orElseThrow();
+        assertEquals(Arrays.asList("a", "b", "e", "r" + (removed - 1)), matches.getIds());
+        assertEquals(Map.of("1", new FacetCountDTO("1", "Toyota", 4)), matches.getBrands());
+        assertEquals(Collections.singletonList("r" + (removed - 1)), vehicleAttributeIndex.filter(
+                VehicleFilterDTO.builder().colors(Set.of("green")).build(), 0, 10).orElseThrow().getIds());
+    }
+
+    @Test
+    @DisplayName("Should report the memory footprint of the index")
+    void shouldReportMemoryFootprintOfTheIndex() {
+        VehicleAttributeIndex.Footprint footprint = vehicleAttributeIndex.footprint();
+
+        assertEquals(5, footprint.getVehicles());
+        assertEquals(2, footprint.getBrandValues());
+        assertEquals(4, footprint.getYearValues());
+        assertEquals(2, footprint.getColorValues());
+        assertTrue(footprint.getBitmapBytes() > 0);
+        assertEquals(5 * VehicleAttributeIndex.ID_ENTRY_BYTES, footprint.getIdBytes());
+        assertEquals(5, meterRegistry.get("vehicle.attribute.index.size").gauge().value());
+    }
+
+    private static VehicleEntity vehicle(String id, String year, String color, BrandEntity brand) {
+        return VehicleEntity.builder().id(id).year(year).color(color).brandEntity(brand).build();
+    }
+
+    private static VehicleAttributeView view(String id, String year, String color, String brandId) {
+        return new VehicleAttributeView() {
+            @Override
+            public String getId() {
+                return id;
+            }
+
+            @Override
+            public String getYear() {
+                return year;
+            }
+
+            @Override
+            public String getColor() {
+                return color;
+            }
+
+            @Override
+            public String getBrandId() {
+                return brandId;
+            }
+        };
+    }
+}
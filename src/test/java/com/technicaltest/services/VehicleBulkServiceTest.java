@@ -0,0 +1,183 @@
+package com.technicaltest.services;
+
+import com.technicaltest.controllers.request.ResponseDTO;
+import com.technicaltest.controllers.request.VehicleBulkDTO;
+import com.technicaltest.controllers.request.VehicleBulkResultDTO;
+import com.technicaltest.controllers.request.VehicleFilterDTO;
+import com.technicaltest.events.VehicleChangeEvent;
+import com.technicaltest.models.BrandEntity;
+import com.technicaltest.models.VehicleEntity;
+import com.technicaltest.repositories.VehicleRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.persistence.EntityNotFoundException;
+import javax.validation.ConstraintViolationException;
+import javax.validation.Validation;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class VehicleBulkServiceTest {
+
+    @Mock
+    private VehicleRepository vehicleRepository;
+
+    @Mock
+    private BrandService brandService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private final BrandEntity brand = BrandEntity.builder().id("1").name("Toyota").build();
+    private final VehicleFilterDTO filter = VehicleFilterDTO.builder().yearFrom("2000").yearTo("2010").build();
+    private VehicleBulkService vehicleBulkService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        vehicleBulkService = new VehicleBulkService(vehicleRepository, brandService,
+                Validation.buildDefaultValidatorFactory().getValidator(), transactionManager, eventPublisher, 2);
+
+        when(brandService.findBrandById("1")).thenReturn(brand);
+        when(vehicleRepository.findIdsByFilterAfter(filter, "", 2)).thenReturn(Arrays.asList("a", "b"));
+        when(vehicleRepository.findIdsByFilterAfter(filter, "b", 2)).thenReturn(Collections.singletonList("c"));
+        when(vehicleRepository.deleteByIdIn(any())).thenAnswer(invocation -> invocation.<List<String>>getArgument(0).size());
+        when(vehicleRepository.updateByIdIn(any(), anyMap())).thenAnswer(invocation -> invocation.<List<String>>getArgument(0).size());
+        when(vehicleRepository.findAllWithBrandByIdIn(any())).thenAnswer(invocation -> invocation.<List<String>>getArgument(0)
+                .stream()
+                .map(id -> VehicleEntity.builder().id(id).color("Red").brandEntity(brand).build())
+                .collect(Collectors.toList()));
+    }
+
+    @Test
+    @DisplayName("Should delete the requested vehicles that exist in chunks, in ID order")
+    void shouldDeleteRequestedVehiclesThatExistInChunksInIdOrder() {
+        when(vehicleRepository.findIdsByIdIn(Arrays.asList("a", "b"))).thenReturn(Arrays.asList("a", "b"));
+        when(vehicleRepository.findIdsByIdIn(Arrays.asList("c", "d"))).thenReturn(Collections.singletonList("c"));
+        when(vehicleRepository.findIdsByIdIn(Collections.singletonList("e"))).thenReturn(Collections.singletonList("e"));
+
+        ResponseDTO response = vehicleBulkService.deleteVehicles(VehicleBulkDTO.builder()
+                .ids(Arrays.asList("e", "c", "a", "d", "b", "a"))
+                .build());
+
+        verify(vehicleRepository).deleteByIdIn(Arrays.asList("a", "b"));
+        verify(vehicleRepository).deleteByIdIn(Collections.singletonList("c"));
+        verify(vehicleRepository).deleteByIdIn(Collections.singletonList("e"));
+        verify(transactionManager, times(3)).commit(any());
+        assertEquals(new VehicleBulkResultDTO(4, 3), response.getResponse());
+        assertEquals(Arrays.asList("a", "b", "c", "e"), publishedVehicleIds(4));
+    }
+
+    @Test
+    @DisplayName("Should delete the vehicles matching the filter in chunks until a chunk comes back short")
+    void shouldDeleteVehiclesMatchingFilterInChunksUntilChunkComesBackShort() {
+        ResponseDTO response = vehicleBulkService.deleteVehicles(VehicleBulkDTO.builder().filter(filter).build());
+
+        verify(vehicleRepository).deleteByIdIn(Arrays.asList("a", "b"));
+        verify(vehicleRepository).deleteByIdIn(Collections.singletonList("c"));
+        verify(vehicleRepository, never()).findIdsByIdIn(any());
+        assertEquals(new VehicleBulkResultDTO(3, 2), response.getResponse());
+        assertEquals(Arrays.asList("a", "b", "c"), publishedVehicleIds(3));
+    }
+
+    @Test
+    @DisplayName("Should set the changes on the vehicles matching the filter and publish their new state")
+    void shouldSetChangesOnVehiclesMatchingFilterAndPublishTheirNewState() {
+        Map<String, Object> changes = new HashMap<>();
+        changes.put("color", "Red");
+        changes.put("brandId", "1");
+
+        ResponseDTO response = vehicleBulkService.updateVehicles(VehicleBulkDTO.builder().filter(filter).changes(changes).build());
+
+        Map<String, Object> fields = new HashMap<>();
+        fields.put("color", "Red");
+        fields.put("brandEntity", brand);
+        verify(vehicleRepository).updateByIdIn(Arrays.asList("a", "b"), fields);
+        verify(vehicleRepository).updateByIdIn(Collections.singletonList("c"), fields);
+        verify(brandService, times(1)).findBrandById("1");
+        assertEquals(new VehicleBulkResultDTO(3, 2), response.getResponse());
+        assertEquals(Arrays.asList("a", "b", "c"), publishedVehicleIds(3));
+    }
+
+    @Test
+    @DisplayName("Should stop at the failing chunk, keeping the events of the chunks already committed")
+    void shouldStopAtFailingChunkKeepingEventsOfChunksAlreadyCommitted() {
+        when(vehicleRepository.deleteByIdIn(Collections.singletonList("c"))).thenThrow(new QueryTimeoutException("timeout"));
+
+        assertThrows(QueryTimeoutException.class,
+                () -> vehicleBulkService.deleteVehicles(VehicleBulkDTO.builder().filter(filter).build()));
+
+        verify(transactionManager).commit(any());
+        verify(transactionManager).rollback(any());
+        assertEquals(Arrays.asList("a", "b"), publishedVehicleIds(2));
+    }
+
+    @Test
+    @DisplayName("Should reject a selection without IDs or criteria, or with both")
+    void shouldRejectSelectionWithoutIdsOrCriteriaOrWithBoth() {
+        List<VehicleBulkDTO> selections = Arrays.asList(
+                VehicleBulkDTO.builder().build(),
+                VehicleBulkDTO.builder().ids(Collections.emptyList()).build(),
+                VehicleBulkDTO.builder().ids(Collections.singletonList(null)).build(),
+                VehicleBulkDTO.builder().filter(new VehicleFilterDTO(Collections.emptySet(), null, null, null)).build(),
+                VehicleBulkDTO.builder().ids(Collections.singletonList("a")).filter(filter).build());
+
+        for (VehicleBulkDTO selection : selections) {
+            assertThrows(IllegalArgumentException.class, () -> vehicleBulkService.deleteVehicles(selection));
+        }
+        verifyNoInteractions(vehicleRepository, transactionManager);
+    }
+
+    @Test
+    @DisplayName("Should reject changes that are missing, change the license plate or break the constraints")
+    void shouldRejectChangesThatAreMissingChangeTheLicensePlateOrBreakTheConstraints() {
+        VehicleBulkDTO.VehicleBulkDTOBuilder bulk = VehicleBulkDTO.builder().ids(Collections.singletonList("a"));
+
+        assertThrows(IllegalArgumentException.class, () -> vehicleBulkService.updateVehicles(bulk.build()));
+        assertThrows(IllegalArgumentException.class, () -> vehicleBulkService.updateVehicles(
+                bulk.changes(Collections.singletonMap("licensePlate", "ABC123")).build()));
+        assertThrows(ConstraintViolationException.class, () -> vehicleBulkService.updateVehicles(
+                bulk.changes(Collections.singletonMap("year", "20")).build()));
+        verifyNoInteractions(vehicleRepository, transactionManager);
+    }
+
+    @Test
+    @DisplayName("Should not update any vehicle when the new brand does not exist")
+    void shouldNotUpdateAnyVehicleWhenNewBrandDoesNotExist() {
+        when(brandService.findBrandById("2")).thenThrow(new EntityNotFoundException("La marca no existe"));
+
+        assertThrows(EntityNotFoundException.class, () -> vehicleBulkService.updateVehicles(VehicleBulkDTO.builder()
+                .filter(filter)
+                .changes(Collections.singletonMap("brandId", "2"))
+                .build()));
+
+        verify(vehicleRepository, never()).updateByIdIn(any(), anyMap());
+        verify(vehicleRepository, never()).findIdsByFilterAfter(eq(filter), any(), anyInt());
+    }
+
+    private List<String> publishedVehicleIds(int events) {
+        ArgumentCaptor<VehicleChangeEvent> captor = ArgumentCaptor.forClass(VehicleChangeEvent.class);
+        verify(eventPublisher, times(events)).publishEvent(captor.capture());
+        return captor.getAllValues().stream().map(VehicleChangeEvent::getVehicleId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,194 @@
+package com.technicaltest.services;
+
+import com.technicaltest.events.BrandChangeEvent;
+import com.technicaltest.events.VehicleChangeEvent;
+import com.technicaltest.events.VehiclesDeletedEvent;
+import com.technicaltest.models.BrandEntity;
+import com.technicaltest.models.VehicleEntity;
+import com.technicaltest.repositories.VehicleRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class VehicleCountCacheTest {
+
+    @Mock
+    private VehicleRepository vehicleRepository;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final MutableClock clock = new MutableClock();
+    private VehicleCountCache vehicleCountCache;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        vehicleCountCache = new VehicleCountCache(vehicleRepository, meterRegistry, 100, Duration.ofSeconds(30), true, clock);
+    }
+
+    @Test
+    @DisplayName("Should count once and serve the cached count until the TTL expires")
+    void shouldCountOnceAndServeCachedCountUntilTtlExpires() {
+        when(vehicleRepository.count()).thenReturn(42L, 43L);
+
+        assertEquals(42, vehicleCountCache.countAll(false).getValue());
+        assertEquals(42, vehicleCountCache.countAll(false).getValue());
+        clock.advance(Duration.ofSeconds(31));
+        assertEquals(43, vehicleCountCache.countAll(false).getValue());
+
+        verify(vehicleRepository, times(2)).count();
+        assertEquals(1, meterRegistry.counter("vehicle.count.cache.requests", "result", "hit").count());
+        assertEquals(2, meterRegistry.counter("vehicle.count.cache.requests", "result", "miss").count());
+    }
+
+    @Test
+    @DisplayName("Should return a stale count flagged as approximate without counting again")
+    void shouldReturnStaleCountFlaggedAsApproximateWithoutCountingAgain() {
+        when(vehicleRepository.countByBrandModelOrLicensePlate("Toy")).thenReturn(7L);
+        vehicleCountCache.countSearch("Toy", false);
+        clock.advance(Duration.ofMinutes(1));
+
+        VehicleCountCache.Count count = vehicleCountCache.countSearch("toy", true);
+
+        assertEquals(7, count.getValue());
+        assertTrue(count.isApproximate());
+        verify(vehicleRepository, times(1)).countByBrandModelOrLicensePlate(anyString());
+    }
+
+    @Test
+    @DisplayName("Should adjust the counts in place when vehicles are created and deleted")
+    void shouldAdjustCountsInPlaceWhenVehiclesAreCreatedAndDeleted() {
+        when(vehicleRepository.count()).thenReturn(10L);
+        when(vehicleRepository.countByBrandModelOrLicensePlate("yaris")).thenReturn(3L);
+        when(vehicleRepository.countByBrandModelOrLicensePlate("roma")).thenReturn(1L);
+        vehicleCountCache.countAll(false);
+        vehicleCountCache.countSearch("yaris", false);
+        vehicleCountCache.countSearch("roma", false);
+
+        BrandEntity toyota = BrandEntity.builder().id("1").name("Toyota").build();
+        vehicleCountCache.onVehicleChange(VehicleChangeEvent.created(
+                VehicleEntity.builder().id("a").model("Yaris").licensePlate("ABC123").brandEntity(toyota).build()));
+
+        assertEquals(11, vehicleCountCache.countAll(false).getValue());
+        assertEquals(4, vehicleCountCache.countSearch("yaris", false).getValue());
+        assertEquals(1, vehicleCountCache.countSearch("roma", false).getValue());
+
+        vehicleCountCache.onVehicleChange(VehicleChangeEvent.deleted("a"));
+
+        assertEquals(10, vehicleCountCache.countAll(false).getValue());
+        verify(vehicleRepository, times(1)).count();
+        assertEquals(4, vehicleCountCache.countSearch("yaris", true).getValue());
+        assertTrue(vehicleCountCache.countSearch("yaris", true).isApproximate());
+    }
+
+    @Test
+    @DisplayName("Should move the count of all vehicles by a chunk of deleted vehicles")
+    void shouldMoveCountOfAllVehiclesByChunkOfDeletedVehicles() {
+        when(vehicleRepository.count()).thenReturn(10L);
+        when(vehicleRepository.countByBrandModelOrLicensePlate("yaris")).thenReturn(4L);
+        vehicleCountCache.countAll(false);
+        vehicleCountCache.countSearch("yaris", false);
+
+        vehicleCountCache.onVehiclesDeleted(new VehiclesDeletedEvent(Arrays.asList("a", "b", "c")));
+
+        assertEquals(7, vehicleCountCache.countAll(false).getValue());
+        verify(vehicleRepository, times(1)).count();
+        assertTrue(vehicleCountCache.countSearch("yaris", true).isApproximate());
+    }
+
+    @Test
+    @DisplayName("Should recount the stale entries in the background refresh")
+    void shouldRecountStaleEntriesInBackgroundRefresh() {
+        when(vehicleRepository.count()).thenReturn(10L, 12L);
+        vehicleCountCache.countAll(false);
+        vehicleCountCache.onBrandChange(BrandChangeEvent.deleted("1"));
+
+        vehicleCountCache.refreshStale();
+
+        VehicleCountCache.Count count = vehicleCountCache.countAll(false);
+        assertEquals(12, count.getValue());
+        assertFalse(count.isApproximate());
+        verify(vehicleRepository, times(2)).count();
+    }
+
+    @Test
+    @DisplayName("Should keep the adjusted count when a vehicle is created while counting")
+    void shouldKeepAdjustedCountWhenVehicleIsCreatedWhileCounting() {
+        when(vehicleRepository.count()).thenReturn(10L).thenAnswer(invocation -> {
+            // The create commits after the COUNT read the table
+            vehicleCountCache.onVehicleChange(VehicleChangeEvent.created(VehicleEntity.builder().model("Yaris").build()));
+            return 10L;
+        });
+        vehicleCountCache.countAll(false);
+        clock.advance(Duration.ofSeconds(31));
+
+        assertEquals(10, vehicleCountCache.countAll(false).getValue());
+
+        VehicleCountCache.Count count = vehicleCountCache.countAll(true);
+        assertEquals(11, count.getValue());
+        assertTrue(count.isApproximate());
+        verify(vehicleRepository, times(2)).count();
+    }
+
+    @Test
+    @DisplayName("Should store a first count as stale when a vehicle is deleted while counting")
+    void shouldStoreFirstCountAsStaleWhenVehicleIsDeletedWhileCounting() {
+        when(vehicleRepository.count()).thenAnswer(invocation -> {
+            vehicleCountCache.onVehicleChange(VehicleChangeEvent.deleted("a"));
+            return 10L;
+        }).thenReturn(9L);
+
+        assertEquals(10, vehicleCountCache.countAll(false).getValue());
+
+        assertTrue(vehicleCountCache.countAll(true).isApproximate());
+        assertEquals(9, vehicleCountCache.countAll(false).getValue());
+        verify(vehicleRepository, times(2)).count();
+    }
+
+    @Test
+    @DisplayName("Should count on every request when the cache is disabled")
+    void shouldCountOnEveryRequestWhenCacheIsDisabled() {
+        VehicleCountCache disabled = new VehicleCountCache(vehicleRepository, meterRegistry, 100, Duration.ofSeconds(30), false, clock);
+        when(vehicleRepository.count()).thenReturn(10L, 11L);
+
+        assertEquals(10, disabled.countAll(true).getValue());
+        assertEquals(11, disabled.countAll(true).getValue());
+        verify(vehicleRepository, times(2)).count();
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now = Instant.parse("2024-01-01T00:00:00Z");
+
+        private void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
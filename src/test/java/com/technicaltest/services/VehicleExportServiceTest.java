@@ -0,0 +1,113 @@
+package com.technicaltest.services;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.technicaltest.controllers.request.VehicleDTO;
+import com.technicaltest.models.BrandEntity;
+import com.technicaltest.models.VehicleEntity;
+import com.technicaltest.repositories.VehicleRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import javax.persistence.EntityManager;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class VehicleExportServiceTest {
+
+    @Mock
+    private VehicleRepository vehicleRepository;
+
+    @Mock
+    private EntityManager entityManager;
+
+    private VehicleExportService vehicleExportService;
+
+    private final BrandEntity toyota = BrandEntity.builder().id("1").name("Toyota").build();
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        vehicleExportService = new VehicleExportService(vehicleRepository, entityManager, new ObjectMapper().registerModule(new JavaTimeModule()));
+    }
+
+    @Test
+    @DisplayName("Should write one JSON vehicle per line and close the stream")
+    void shouldWriteOneJsonVehiclePerLineAndCloseStream() throws IOException {
+        AtomicBoolean closed = new AtomicBoolean();
+        when(vehicleRepository.streamAllWithBrand()).thenReturn(Stream.of(vehicle("a", "Corolla"), vehicle("b", "Yaris"))
+                .onClose(() -> closed.set(true)));
+
+        String[] lines = export(VehicleExportService.Format.NDJSON).split("\n");
+
+        assertEquals(2, lines.length);
+        assertEquals("{\"model\":\"Corolla\",\"licensePlate\":\"ABC123\",\"color\":\"Rojo\",\"year\":\"2020\",\"brandId\":\"1\"}", lines[0]);
+        assertTrue(closed.get());
+    }
+
+    @Test
+    @DisplayName("Should write NDJSON rows the import reads back")
+    void shouldWriteNdjsonRowsTheImportReadsBack() throws IOException {
+        when(vehicleRepository.streamAllWithBrand()).thenReturn(Stream.of(vehicle("a", "Corolla"), vehicle("b", "Yaris")));
+
+        // The import reads the rows as VehicleDTOs, a strict mapper fails on any field the import does not know
+        try (MappingIterator<VehicleDTO> rows = new ObjectMapper().readerFor(VehicleDTO.class)
+                .readValues(export(VehicleExportService.Format.NDJSON))) {
+            List<VehicleDTO> vehicles = rows.readAll();
+
+            assertEquals(Arrays.asList(new VehicleDTO("Corolla", "ABC123", "Rojo", "2020", "1"),
+                    new VehicleDTO("Yaris", "ABC123", "Rojo", "2020", "1")), vehicles);
+        }
+    }
+
+    @Test
+    @DisplayName("Should write a CSV header and quote the fields that need it")
+    void shouldWriteCsvHeaderAndQuoteFieldsThatNeedIt() throws IOException {
+        when(vehicleRepository.streamAllWithBrand()).thenReturn(Stream.of(vehicle("a", "Corolla, \"GR\"")));
+
+        String[] lines = export(VehicleExportService.Format.CSV).split("\n");
+
+        assertEquals("id,model,licensePlate,color,year,createdDate,brandId,brandName", lines[0]);
+        assertEquals("a,\"Corolla, \"\"GR\"\"\",ABC123,Rojo,2020,,1,Toyota", lines[1]);
+    }
+
+    @Test
+    @DisplayName("Should clear the persistence context while exporting")
+    void shouldClearPersistenceContextWhileExporting() throws IOException {
+        when(vehicleRepository.streamAllWithBrand()).thenReturn(IntStream.range(0, 2500).mapToObj(i -> vehicle("v" + i, "Corolla")));
+
+        export(VehicleExportService.Format.CSV);
+
+        verify(entityManager, times(2)).clear();
+    }
+
+    @Test
+    @DisplayName("Should reject unknown export formats")
+    void shouldRejectUnknownExportFormats() {
+        assertEquals(VehicleExportService.Format.CSV, VehicleExportService.Format.of("Csv"));
+        assertThrows(IllegalArgumentException.class, () -> VehicleExportService.Format.of("xml"));
+    }
+
+    private String export(VehicleExportService.Format format) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        vehicleExportService.exportVehicles(format, output);
+        return output.toString(StandardCharsets.UTF_8);
+    }
+
+    private VehicleEntity vehicle(String id, String model) {
+        return VehicleEntity.builder().id(id).model(model).licensePlate("ABC123").color("Rojo").year("2020").brandEntity(toyota).build();
+    }
+}
@@ -0,0 +1,138 @@
+package com.technicaltest.services;
+
+import com.technicaltest.events.BrandChangeEvent;
+import com.technicaltest.events.VehicleChangeEvent;
+import com.technicaltest.models.BrandEntity;
+import com.technicaltest.models.VehicleEntity;
+import com.technicaltest.repositories.VehicleRepository;
+import com.technicaltest.repositories.projections.VehicleFacetCount;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class VehicleFacetCacheTest {
+
+    @Mock
+    private VehicleRepository vehicleRepository;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final MutableClock clock = new MutableClock();
+    private VehicleFacetCache vehicleFacetCache;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        vehicleFacetCache = new VehicleFacetCache(vehicleRepository, meterRegistry, Duration.ofSeconds(30), clock);
+    }
+
+    @Test
+    @DisplayName("Should count the combinations once and serve them until the TTL expires")
+    void shouldCountCombinationsOnceAndServeThemUntilTtlExpires() {
+        when(vehicleRepository.countByBrandYearAndColor())
+                .thenReturn(Collections.singletonList(new VehicleFacetCount("1", "Toyota", "2020", "Red", 5)));
+
+        vehicleFacetCache.counts(false);
+        vehicleFacetCache.counts(false);
+        clock.advance(Duration.ofSeconds(31));
+        VehicleFacetCache.Counts counts = vehicleFacetCache.counts(true);
+
+        assertTrue(counts.isApproximate());
+        assertEquals(5, counts.getCombinations().get(0).getCount());
+        verify(vehicleRepository, times(1)).countByBrandYearAndColor();
+        assertEquals(1, meterRegistry.counter("vehicle.facet.cache.requests", "result", "hit").count());
+        assertEquals(1, meterRegistry.counter("vehicle.facet.cache.requests", "result", "approximate").count());
+    }
+
+    @Test
+    @DisplayName("Should add a created vehicle to its combination ignoring the case of the color")
+    void shouldAddCreatedVehicleToItsCombinationIgnoringCaseOfColor() {
+        when(vehicleRepository.countByBrandYearAndColor())
+                .thenReturn(Collections.singletonList(new VehicleFacetCount("1", "Toyota", "2020", "Red", 5)));
+        vehicleFacetCache.counts(false);
+        BrandEntity toyota = BrandEntity.builder().id("1").name("Toyota").build();
+
+        vehicleFacetCache.onVehicleChange(VehicleChangeEvent.created(
+                VehicleEntity.builder().id("a").year("2020").color("RED").brandEntity(toyota).build()));
+        vehicleFacetCache.onVehicleChange(VehicleChangeEvent.created(
+                VehicleEntity.builder().id("b").year("2021").color("Blue").brandEntity(toyota).build()));
+
+        VehicleFacetCache.Counts counts = vehicleFacetCache.counts(false);
+        Map<String, Long> byColor = counts.getCombinations().stream()
+                .collect(Collectors.toMap(VehicleFacetCount::getColor, VehicleFacetCount::getCount));
+        assertEquals(Map.of("Red", 6L, "Blue", 1L), byColor);
+        assertFalse(counts.isApproximate());
+        verify(vehicleRepository, times(1)).countByBrandYearAndColor();
+    }
+
+    @Test
+    @DisplayName("Should recount after an update in the background refresh")
+    void shouldRecountAfterUpdateInBackgroundRefresh() {
+        when(vehicleRepository.countByBrandYearAndColor()).thenReturn(
+                Collections.singletonList(new VehicleFacetCount("1", "Toyota", "2020", "Red", 5)),
+                Arrays.asList(new VehicleFacetCount("1", "Toyota", "2020", "Red", 4),
+                        new VehicleFacetCount("1", "Toyota", "2020", "Blue", 1)));
+        vehicleFacetCache.counts(false);
+        vehicleFacetCache.onVehicleChange(VehicleChangeEvent.updated(VehicleEntity.builder().id("a").build()));
+
+        assertTrue(vehicleFacetCache.counts(true).isApproximate());
+        vehicleFacetCache.refreshStale();
+
+        VehicleFacetCache.Counts counts = vehicleFacetCache.counts(false);
+        assertEquals(2, counts.getCombinations().size());
+        assertFalse(counts.isApproximate());
+        verify(vehicleRepository, times(2)).countByBrandYearAndColor();
+    }
+
+    @Test
+    @DisplayName("Should mark the counts stale when a brand is renamed but not when one is created")
+    void shouldMarkCountsStaleWhenBrandIsRenamedButNotWhenOneIsCreated() {
+        when(vehicleRepository.countByBrandYearAndColor()).thenReturn(Collections.emptyList());
+        vehicleFacetCache.counts(false);
+
+        vehicleFacetCache.onBrandChange(BrandChangeEvent.created(BrandEntity.builder().id("7").name("Kia").build()));
+        assertFalse(vehicleFacetCache.counts(true).isApproximate());
+
+        vehicleFacetCache.onBrandChange(BrandChangeEvent.updated(BrandEntity.builder().id("1").name("Toyota").build()));
+        assertTrue(vehicleFacetCache.counts(true).isApproximate());
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now = Instant.parse("2024-01-01T00:00:00Z");
+
+        private void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
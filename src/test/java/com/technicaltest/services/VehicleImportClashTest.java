@@ -0,0 +1,122 @@
+package com.technicaltest.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.technicaltest.controllers.request.ImportErrorDTO;
+import com.technicaltest.controllers.request.ResponseDTO;
+import com.technicaltest.models.BrandEntity;
+import com.technicaltest.models.VehicleEntity;
+import com.technicaltest.repositories.BrandRepository;
+import com.technicaltest.repositories.VehicleRepository;
+import com.technicaltest.utils.Ids;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.persistence.EntityManager;
+import javax.validation.Validator;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Imports a chunk whose license plate is taken by a concurrent write between the check of the chunk and its insert,
+ * so the database rejects the chunk and the import stores its rows one by one.
+ */
+@SpringBootTest
+class VehicleImportClashTest {
+
+    private static final List<String> PLATES = Arrays.asList("IMP001", "IMP002", "IMP003");
+
+    @Autowired
+    private VehicleRepository vehicleRepository;
+
+    @Autowired
+    private BrandRepository brandRepository;
+
+    @Autowired
+    private BrandService brandService;
+
+    @Autowired
+    private Validator validator;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    private BrandEntity brand;
+    private VehicleImportService vehicleImportService;
+
+    @BeforeEach
+    void setUp() {
+        brand = brandRepository.save(BrandEntity.builder().id(Ids.newId()).name("Import brand").build());
+
+        // The check of the chunk finds no plate taken, and the concurrent write takes one right after it
+        VehicleRepository checkedRepository = mock(VehicleRepository.class);
+        doAnswer(invocation -> {
+            vehicleRepository.save(VehicleEntity.builder().id(Ids.newId()).model("Corolla").licensePlate("IMP002")
+                    .color("Red").year("2020").brandEntity(brand).build());
+            return Collections.emptyList();
+        }).when(checkedRepository).findExistingLicensePlates(anyCollection());
+
+        vehicleImportService = new VehicleImportService(checkedRepository, brandService, validator, objectMapper,
+                entityManager, transactionManager, eventPublisher, PLATES.size());
+    }
+
+    @AfterEach
+    void tearDown() {
+        vehicleRepository.findIdsByBrandId(brand.getId(), PageRequest.of(0, PLATES.size()))
+                .forEach(vehicleRepository::deleteById);
+        brandRepository.deleteById(brand.getId());
+    }
+
+    @Test
+    @DisplayName("Should store the other rows of a chunk rejected by the unique license plate")
+    void shouldStoreOtherRowsOfChunkRejectedByUniqueLicensePlate() {
+        StringBuilder content = new StringBuilder();
+        PLATES.forEach(plate -> content.append("{\"model\":\"Yaris\",\"licensePlate\":\"").append(plate)
+                .append("\",\"color\":\"Blue\",\"year\":\"2021\",\"brandId\":\"").append(brand.getId()).append("\"}\n"));
+
+        ResponseDTO response = vehicleImportService.importVehicles(
+                new ByteArrayInputStream(content.toString().getBytes(StandardCharsets.UTF_8)));
+
+        Map<String, Object> result = result(response);
+        assertEquals(2, result.get("imported"));
+        List<ImportErrorDTO> errors = errors(result);
+        assertEquals(1, errors.size());
+        assertEquals(1, errors.get(0).getRow());
+        assertEquals(VehicleImportService.ROW_NOT_SAVED, errors.get(0).getErrors().get(0));
+        assertEquals(3, vehicleRepository.findExistingLicensePlates(PLATES).size());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> result(ResponseDTO response) {
+        return (Map<String, Object>) response.getResponse();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<ImportErrorDTO> errors(Map<String, Object> result) {
+        return (List<ImportErrorDTO>) result.get("errors");
+    }
+}
@@ -0,0 +1,159 @@
+package com.technicaltest.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.technicaltest.controllers.request.ImportErrorDTO;
+import com.technicaltest.controllers.request.ResponseDTO;
+import com.technicaltest.events.VehicleChangeEvent;
+import com.technicaltest.models.BrandEntity;
+import com.technicaltest.models.VehicleEntity;
+import com.technicaltest.repositories.VehicleRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityNotFoundException;
+import javax.persistence.PersistenceException;
+import javax.validation.Validation;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+class VehicleImportServiceTest {
+
+    @Mock
+    private VehicleRepository vehicleRepository;
+
+    @Mock
+    private BrandService brandService;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private VehicleImportService vehicleImportService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        vehicleImportService = new VehicleImportService(vehicleRepository, brandService,
+                Validation.buildDefaultValidatorFactory().getValidator(), new ObjectMapper(), entityManager,
+                transactionManager, eventPublisher, 2);
+
+        when(brandService.findBrandById("1")).thenReturn(BrandEntity.builder().id("1").name("Toyota").build());
+        when(brandService.findBrandById("2")).thenThrow(new EntityNotFoundException("La marca no existe"));
+        when(vehicleRepository.findExistingLicensePlates(anyCollection())).thenReturn(Collections.emptyList());
+    }
+
+    @Test
+    @DisplayName("Should import every vehicle of a JSON array in chunks")
+    void shouldImportEveryVehicleOfJsonArrayInChunks() {
+        ResponseDTO response = vehicleImportService.importVehicles(content("[" +
+                vehicle("ABC123", "1") + "," + vehicle("ABC124", "1") + "," + vehicle("ABC125", "1") + "]"));
+
+        assertEquals(3, result(response).get("imported"));
+        assertEquals(0, result(response).get("failed"));
+        verify(vehicleRepository, times(2)).findExistingLicensePlates(anyCollection());
+        verify(entityManager, times(3)).persist(any(VehicleEntity.class));
+        verify(entityManager, times(2)).flush();
+        verify(eventPublisher, times(3)).publishEvent(any(VehicleChangeEvent.class));
+        // The events of a chunk are published in its transaction, so the outbox records them with the vehicles
+        InOrder order = inOrder(eventPublisher, transactionManager);
+        order.verify(eventPublisher, times(2)).publishEvent(any(VehicleChangeEvent.class));
+        order.verify(transactionManager).commit(any());
+        order.verify(eventPublisher).publishEvent(any(VehicleChangeEvent.class));
+        order.verify(transactionManager).commit(any());
+    }
+
+    @Test
+    @DisplayName("Should import an NDJSON stream and report the errors of each row")
+    void shouldImportNdjsonStreamAndReportErrorsOfEachRow() {
+        when(vehicleRepository.findExistingLicensePlates(anyCollection())).thenReturn(Collections.singletonList("abc124"));
+
+        ResponseDTO response = vehicleImportService.importVehicles(content(
+                vehicle("ABC123", "1") + "\n" +
+                vehicle("ABC124", "1") + "\n" +
+                vehicle("ABC125", "2") + "\n" +
+                vehicle("1BC126", "1") + "\n" +
+                vehicle("abc123", "1") + "\n" +
+                "{\"model\": [1]}\n"));
+
+        List<ImportErrorDTO> errors = errors(response);
+        assertEquals(1, result(response).get("imported"));
+        assertEquals(5, result(response).get("failed"));
+        assertEquals(Arrays.asList(1, 2, 3, 4, 5), errors.stream().map(ImportErrorDTO::getRow).collect(Collectors.toList()));
+        assertEquals(VehicleImportService.DUPLICATED_LICENSE_PLATE, errors.get(0).getErrors().get(0));
+        assertEquals(VehicleImportService.BRAND_DOES_NOT_EXIST, errors.get(1).getErrors().get(0));
+        assertTrue(errors.get(2).getErrors().get(0).startsWith("licensePlate: "));
+        assertEquals(VehicleImportService.DUPLICATED_LICENSE_PLATE, errors.get(3).getErrors().get(0));
+        assertEquals(VehicleImportService.INVALID_ROW, errors.get(4).getErrors().get(0));
+        verify(brandService, times(1)).findBrandById("1");
+    }
+
+    @Test
+    @DisplayName("Should store the rows of a failed chunk one by one")
+    void shouldStoreRowsOfFailedChunkOneByOne() {
+        ArgumentCaptor<VehicleEntity> persisted = ArgumentCaptor.forClass(VehicleEntity.class);
+        doNothing().doThrow(new PersistenceException("duplicate")).doNothing().doThrow(new PersistenceException("duplicate"))
+                .when(entityManager).persist(persisted.capture());
+        doNothing().doThrow(new PersistenceException("duplicate")).doNothing()
+                .when(entityManager).flush();
+
+        ResponseDTO response = vehicleImportService.importVehicles(content("[" +
+                vehicle("ABC123", "1") + "," + vehicle("ABC124", "1") + "]"));
+
+        assertEquals(1, result(response).get("imported"));
+        assertEquals(1, errors(response).get(0).getRow());
+        assertEquals(VehicleImportService.ROW_NOT_SAVED, errors(response).get(0).getErrors().get(0));
+        verify(eventPublisher, times(1)).publishEvent(any(VehicleChangeEvent.class));
+        // The retry does not reuse the entities of the rolled-back chunk
+        assertNotSame(persisted.getAllValues().get(0), persisted.getAllValues().get(2));
+        assertEquals("ABC123", persisted.getAllValues().get(2).getLicensePlate());
+    }
+
+    @Test
+    @DisplayName("Should keep the rows read before malformed content")
+    void shouldKeepRowsReadBeforeMalformedContent() {
+        ResponseDTO response = vehicleImportService.importVehicles(content(vehicle("ABC123", "1") + "\n{\"model\": "));
+
+        assertEquals(1, result(response).get("imported"));
+        assertEquals(1, errors(response).get(0).getRow());
+        assertEquals(VehicleImportService.INVALID_ROW, errors(response).get(0).getErrors().get(0));
+    }
+
+    private static ByteArrayInputStream content(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String vehicle(String licensePlate, String brandId) {
+        return "{\"model\": \"Corolla\", \"licensePlate\": \"" + licensePlate + "\", \"color\": \"Rojo\", " +
+                "\"year\": \"2020\", \"brandId\": \"" + brandId + "\"}";
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> result(ResponseDTO response) {
+        return (Map<String, Object>) response.getResponse();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<ImportErrorDTO> errors(ResponseDTO response) {
+        return (List<ImportErrorDTO>) result(response).get("errors");
+    }
+}
@@ -0,0 +1,163 @@
+package com.technicaltest.services;
+
+import com.technicaltest.events.BrandChangeEvent;
+import com.technicaltest.events.VehicleChangeEvent;
+import com.technicaltest.events.VehiclesDeletedEvent;
+import com.technicaltest.models.BrandEntity;
+import com.technicaltest.models.VehicleEntity;
+import com.technicaltest.repositories.BrandRepository;
+import com.technicaltest.repositories.VehicleRepository;
+import com.technicaltest.repositories.projections.VehicleSearchView;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Pageable;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+class VehicleSearchIndexTest {
+
+    @Mock
+    private VehicleRepository vehicleRepository;
+
+    @Mock
+    private BrandRepository brandRepository;
+
+    private VehicleSearchIndex vehicleSearchIndex;
+
+    private final BrandEntity toyota = BrandEntity.builder().id("1").name("Toyota").build();
+    private final BrandEntity ferrari = BrandEntity.builder().id("2").name("Ferrari").build();
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        vehicleSearchIndex = new VehicleSearchIndex(vehicleRepository, brandRepository, true, 2);
+
+        when(brandRepository.findAll()).thenReturn(Arrays.asList(toyota, ferrari));
+        when(vehicleRepository.findSearchViewsAfter(eq(""), any(Pageable.class)))
+                .thenReturn(Arrays.asList(view("a", "Corolla", "ABC123", "1"), view("b", "Roma", "XYZ789", "2")));
+        when(vehicleRepository.findSearchViewsAfter(eq("b"), any(Pageable.class)))
+                .thenReturn(Collections.singletonList(view("c", "Purosangue", "QWE456", "2")));
+        vehicleSearchIndex.rebuild();
+    }
+
+    @Test
+    @DisplayName("Should load every chunk of vehicles when the index is rebuilt")
+    void shouldLoadEveryChunkOfVehiclesWhenIndexIsRebuilt() {
+        assertTrue(vehicleSearchIndex.isReady());
+        assertEquals(3, vehicleSearchIndex.size());
+    }
+
+    @Test
+    @DisplayName("Should match model, license plate and brand name ignoring case and accents")
+    void shouldMatchModelLicensePlateAndBrandNameIgnoringCaseAndAccents() {
+        assertEquals(Optional.of(Collections.singletonList("a")), search("orol"));
+        assertEquals(Optional.of(Collections.singletonList("b")), search("xyz7"));
+        assertEquals(Optional.of(Arrays.asList("b", "c")), search("FERRÁRI"));
+        assertEquals(Optional.of(Collections.emptyList()), search("tesla"));
+    }
+
+    @Test
+    @DisplayName("Should not answer terms shorter than a trigram")
+    void shouldNotAnswerTermsShorterThanTrigram() {
+        assertFalse(vehicleSearchIndex.search("ro", 0, 10).isPresent());
+    }
+
+    @Test
+    @DisplayName("Should reflect created, updated and deleted vehicles")
+    void shouldReflectCreatedUpdatedAndDeletedVehicles() {
+        VehicleEntity yaris = vehicle("d", "Yaris", "JKL321", toyota);
+        vehicleSearchIndex.onVehicleChange(VehicleChangeEvent.created(yaris));
+        assertEquals(Optional.of(Arrays.asList("a", "d")), search("toyota"));
+
+        vehicleSearchIndex.onVehicleChange(VehicleChangeEvent.updated(vehicle("d", "Portofino", "JKL321", ferrari)));
+        assertEquals(Optional.of(Collections.emptyList()), search("yaris"));
+        assertEquals(Optional.of(Collections.singletonList("a")), search("toyota"));
+        assertEquals(Optional.of(Collections.singletonList("d")), search("porto"));
+
+        vehicleSearchIndex.onVehicleChange(VehicleChangeEvent.deleted("d"));
+        assertEquals(Optional.of(Collections.emptyList()), search("porto"));
+        assertEquals(3, vehicleSearchIndex.size());
+    }
+
+    @Test
+    @DisplayName("Should remove a chunk of deleted vehicles")
+    void shouldRemoveChunkOfDeletedVehicles() {
+        vehicleSearchIndex.onVehiclesDeleted(new VehiclesDeletedEvent(Arrays.asList("b", "c")));
+
+        assertEquals(Optional.of(Collections.emptyList()), search("ferrari"));
+        assertEquals(Optional.of(Collections.singletonList("a")), search("orol"));
+        assertEquals(1, vehicleSearchIndex.size());
+    }
+
+    @Test
+    @DisplayName("Should follow brand renames and remove the vehicles of deleted brands")
+    void shouldFollowBrandRenamesAndRemoveVehiclesOfDeletedBrands() {
+        vehicleSearchIndex.onBrandChange(BrandChangeEvent.updated(BrandEntity.builder().id("1").name("Lexus").build()));
+        assertEquals(Optional.of(Collections.emptyList()), search("toyota"));
+        assertEquals(Optional.of(Collections.singletonList("a")), search("lexus"));
+
+        vehicleSearchIndex.onBrandChange(BrandChangeEvent.deleted("2"));
+        assertEquals(Optional.of(Collections.emptyList()), search("roma"));
+        assertEquals(1, vehicleSearchIndex.size());
+    }
+
+    @Test
+    @DisplayName("Should return only the requested page of matches in ID order with the total of every match")
+    void shouldReturnOnlyRequestedPageOfMatchesInIdOrderWithTotalOfEveryMatch() {
+        vehicleSearchIndex.onVehicleChange(VehicleChangeEvent.created(vehicle("0", "Enzo", "FER000", ferrari)));
+        vehicleSearchIndex.onVehicleChange(VehicleChangeEvent.created(vehicle("d", "Portofino", "FER001", ferrari)));
+
+        VehicleSearchIndex.Matches second = vehicleSearchIndex.search("ferrari", 1, 2).orElseThrow();
+        assertEquals(4, second.getTotal());
+        assertEquals(Arrays.asList("b", "c"), second.getIds());
+        assertEquals(Collections.singletonList("d"), vehicleSearchIndex.search("ferrari", 3, 2).orElseThrow().getIds());
+        assertEquals(Collections.emptyList(), vehicleSearchIndex.search("ferrari", 4, 2).orElseThrow().getIds());
+
+        VehicleSearchIndex.Matches afterB = vehicleSearchIndex.searchAfter("ferrari", "b", 3).orElseThrow();
+        assertEquals(4, afterB.getTotal());
+        assertEquals(Arrays.asList("c", "d"), afterB.getIds());
+    }
+
+    /**
+     * Returns every vehicle the index matches for the term, or empty when it can not answer it.
+     */
+    private Optional<List<String>> search(String term) {
+        return vehicleSearchIndex.search(term, 0, Integer.MAX_VALUE).map(VehicleSearchIndex.Matches::getIds);
+    }
+
+    private static VehicleEntity vehicle(String id, String model, String licensePlate, BrandEntity brand) {
+        return VehicleEntity.builder().id(id).model(model).licensePlate(licensePlate).brandEntity(brand).build();
+    }
+
+    private static VehicleSearchView view(String id, String model, String licensePlate, String brandId) {
+        return new VehicleSearchView() {
+            @Override
+            public String getId() {
+                return id;
+            }
+
+            @Override
+            public String getModel() {
+                return model;
+            }
+
+            @Override
+            public String getLicensePlate() {
+                return licensePlate;
+            }
+
+            @Override
+            public String getBrandId() {
+                return brandId;
+            }
+        };
+    }
+}
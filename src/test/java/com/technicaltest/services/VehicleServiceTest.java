@@ -1,36 +1,49 @@
 package com.technicaltest.services;
 
 
+import com.technicaltest.controllers.request.FacetCountDTO;
 import com.technicaltest.controllers.request.ResponseDTO;
 import com.technicaltest.controllers.request.VehicleDTO;
+import com.technicaltest.controllers.request.VehicleFilterDTO;
+import com.technicaltest.controllers.request.VehicleResponseDTO;
+import com.technicaltest.events.VehicleChangeEvent;
+import com.technicaltest.exceptions.EntityConflictException;
 import com.technicaltest.exceptions.GlobalException;
+import com.technicaltest.exceptions.PreconditionFailedException;
 import com.technicaltest.models.BrandEntity;
 import com.technicaltest.models.VehicleEntity;
 import com.technicaltest.repositories.BrandRepository;
 import com.technicaltest.repositories.VehicleRepository;
+import com.technicaltest.repositories.projections.VehicleFacetCount;
+import com.technicaltest.utils.PageCursor;
+import com.technicaltest.utils.UniqueConstraints;
+import org.hibernate.exception.ConstraintViolationException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DataIntegrityViolationException;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
-import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import javax.persistence.EntityNotFoundException;
+import javax.validation.Validator;
 import java.util.*;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
 import static org.mockito.Mockito.*;
 
 class VehicleServiceTest {
 
     private static final String VEHICLES = "vehicles";
     private static final String TOTAL_PAGES = "totalPages";
+    private static final String APPROXIMATE_COUNT = "approximateCount";
 
     @Mock
     private VehicleRepository vehicleRepository;
@@ -38,6 +51,30 @@ class VehicleServiceTest {
     @Mock
     private BrandRepository brandRepository;
 
+    @Mock
+    private VehicleSearchIndex vehicleSearchIndex;
+
+    @Mock
+    private VehicleCountCache vehicleCountCache;
+
+    @Mock
+    private VehicleFacetCache vehicleFacetCache;
+
+    @Mock
+    private VehicleAttributeIndex vehicleAttributeIndex;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private BrandService vehicleBrandService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private Validator validator;
+
     @InjectMocks
     private VehicleService vehicleService;
 
@@ -67,11 +104,182 @@ class VehicleServiceTest {
         VehicleDTO vehicleDTO = new VehicleDTO("Model", "A12345", "Blue", "2000", "1");
         VehicleEntity vehicleEntity = new VehicleEntity();
         vehicleEntity.setLicensePlate("B12345");
+        vehicleEntity.setBrandEntity(BrandEntity.builder().id("1").name("Toyota").build());
 
         when(vehicleRepository.findById(id)).thenReturn(Optional.of(vehicleEntity));
-        when(vehicleRepository.existsByLicensePlate(vehicleDTO.getLicensePlate())).thenReturn(true);
+        when(vehicleRepository.saveAndFlush(vehicleEntity)).thenThrow(violationOf("PUBLIC.UK_VEHICLES_LICENSE_PLATE_INDEX_B"));
+
+        DataIntegrityViolationException exception = assertThrows(DataIntegrityViolationException.class,
+                () -> vehicleService.updateVehicle(id, vehicleDTO));
+        assertEquals(VehicleService.LICENSE_PLATE_ALREADY_EXISTS, exception.getMessage());
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    @DisplayName("Should insert a new vehicle without checking its license plate first")
+    void shouldInsertNewVehicleWithoutCheckingItsLicensePlateFirst() {
+        VehicleDTO vehicleDTO = new VehicleDTO("Model", "A12345", "Blue", "2000", "1");
+        when(vehicleBrandService.findBrandById("1")).thenReturn(BrandEntity.builder().id("1").name("Toyota").build());
+
+        ResponseDTO response = vehicleService.addVehicle(vehicleDTO);
+
+        assertFalse(response.getError());
+        verify(vehicleRepository, times(1)).saveAndFlush(any(VehicleEntity.class));
+        verify(eventPublisher, times(1)).publishEvent(any(VehicleChangeEvent.class));
+    }
+
+    @Test
+    @DisplayName("Should report a duplicated license plate only when its unique constraint is violated")
+    void shouldReportDuplicatedLicensePlateOnlyWhenItsUniqueConstraintIsViolated() {
+        VehicleDTO vehicleDTO = new VehicleDTO("Model", "A12345", "Blue", "2000", "1");
+        DataIntegrityViolationException otherViolation = violationOf("vehicles.fkx0jx9pfbo7fwm4l2f90qktjd");
+        when(vehicleRepository.saveAndFlush(any(VehicleEntity.class)))
+                .thenThrow(violationOf("vehicles." + UniqueConstraints.VEHICLE_LICENSE_PLATE))
+                .thenThrow(otherViolation);
+
+        assertEquals(VehicleService.LICENSE_PLATE_ALREADY_EXISTS, assertThrows(DataIntegrityViolationException.class,
+                () -> vehicleService.addVehicle(vehicleDTO)).getMessage());
+        assertSame(otherViolation, assertThrows(DataIntegrityViolationException.class,
+                () -> vehicleService.addVehicle(vehicleDTO)));
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    @DisplayName("Should update a vehicle that still has the expected version and return the new one")
+    void shouldUpdateVehicleThatStillHasExpectedVersionAndReturnTheNewOne() {
+        VehicleEntity vehicleEntity = vehicle("Corolla", "Red", 3L);
+        when(vehicleRepository.findById("a")).thenReturn(Optional.of(vehicleEntity));
+        when(vehicleBrandService.findBrandById("1")).thenReturn(vehicleEntity.getBrandEntity());
+        when(vehicleRepository.saveAndFlush(vehicleEntity)).thenAnswer(invocation -> {
+            vehicleEntity.setVersion(4L);
+            return vehicleEntity;
+        });
+
+        ResponseDTO response = vehicleService.updateVehicle("a", new VehicleDTO("Corolla", "A12345", "Blue", "2020", "1"), 3L, false);
+
+        assertEquals(4L, response.getVersion());
+        assertEquals("Blue", vehicleEntity.getColor());
+        verify(eventPublisher, times(1)).publishEvent(any(VehicleChangeEvent.class));
+    }
+
+    @Test
+    @DisplayName("Should throw PreconditionFailedException when the vehicle no longer has the expected version")
+    void shouldThrowPreconditionFailedExceptionWhenVehicleNoLongerHasExpectedVersion() {
+        when(vehicleRepository.findById("a")).thenReturn(Optional.of(vehicle("Corolla", "Red", 4L)));
 
-        assertThrows(DataIntegrityViolationException.class, () -> vehicleService.updateVehicle(id, vehicleDTO));
+        assertThrows(PreconditionFailedException.class, () -> vehicleService.updateVehicle("a",
+                new VehicleDTO("Corolla", "A12345", "Blue", "2020", "1"), 3L, true));
+
+        verify(vehicleRepository, never()).saveAndFlush(any());
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    @DisplayName("Should throw EntityConflictException without retrying when a concurrent update wins and merge is off")
+    void shouldThrowEntityConflictExceptionWithoutRetryingWhenConcurrentUpdateWinsAndMergeIsOff() {
+        when(vehicleRepository.findById("a")).thenReturn(Optional.of(vehicle("Corolla", "Red", 3L)));
+        when(vehicleRepository.saveAndFlush(any())).thenThrow(new ObjectOptimisticLockingFailureException(VehicleEntity.class, "a"));
+
+        EntityConflictException exception = assertThrows(EntityConflictException.class, () -> vehicleService.updateVehicle("a",
+                new VehicleDTO("Corolla", "A12345", "Blue", "2020", "1"), null, false));
+
+        assertEquals(VehicleService.VEHICLE_CHANGED_CONCURRENTLY, exception.getMessage());
+        verify(vehicleRepository, times(1)).findById("a");
+        verify(transactionManager, times(1)).rollback(any());
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    @DisplayName("Should merge an update with a concurrent one that changed other fields")
+    void shouldMergeUpdateWithConcurrentOneThatChangedOtherFields() {
+        VehicleEntity concurrentlyUpdated = vehicle("Yaris", "Red", 4L);
+        when(vehicleRepository.findById("a")).thenReturn(Optional.of(vehicle("Corolla", "Red", 3L)), Optional.of(concurrentlyUpdated));
+        when(vehicleBrandService.findBrandById("1")).thenReturn(concurrentlyUpdated.getBrandEntity());
+        when(vehicleRepository.saveAndFlush(any()))
+                .thenThrow(new ObjectOptimisticLockingFailureException(VehicleEntity.class, "a"))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+
+        ResponseDTO response = vehicleService.updateVehicle("a", new VehicleDTO("Corolla", "A12345", "Blue", "2020", "1"), 3L, true);
+
+        assertFalse(response.getError());
+        assertEquals("Yaris", concurrentlyUpdated.getModel());
+        assertEquals("Blue", concurrentlyUpdated.getColor());
+        verify(vehicleRepository, times(2)).findById("a");
+        verify(eventPublisher, times(1)).publishEvent(any(VehicleChangeEvent.class));
+    }
+
+    @Test
+    @DisplayName("Should throw EntityConflictException when a concurrent update changed the same field to another value")
+    void shouldThrowEntityConflictExceptionWhenConcurrentUpdateChangedSameFieldToAnotherValue() {
+        when(vehicleRepository.findById("a")).thenReturn(Optional.of(vehicle("Corolla", "Red", 3L)), Optional.of(vehicle("Corolla", "Green", 4L)));
+        when(vehicleBrandService.findBrandById("1")).thenReturn(BrandEntity.builder().id("1").name("Toyota").build());
+        when(vehicleRepository.saveAndFlush(any())).thenThrow(new ObjectOptimisticLockingFailureException(VehicleEntity.class, "a"));
+
+        assertThrows(EntityConflictException.class, () -> vehicleService.updateVehicle("a",
+                new VehicleDTO("Corolla", "A12345", "Blue", "2020", "1"), null, true));
+
+        verify(vehicleRepository, times(1)).saveAndFlush(any());
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    @DisplayName("Should give up merging after the last attempt")
+    void shouldGiveUpMergingAfterTheLastAttempt() {
+        when(vehicleRepository.findById("a")).thenAnswer(invocation -> Optional.of(vehicle("Corolla", "Red", 3L)));
+        when(vehicleBrandService.findBrandById("1")).thenReturn(BrandEntity.builder().id("1").name("Toyota").build());
+        when(vehicleRepository.saveAndFlush(any())).thenThrow(new ObjectOptimisticLockingFailureException(VehicleEntity.class, "a"));
+
+        assertThrows(EntityConflictException.class, () -> vehicleService.updateVehicle("a",
+                new VehicleDTO("Corolla", "A12345", "Blue", "2020", "1"), null, true));
+
+        verify(vehicleRepository, times(VehicleService.MERGE_ATTEMPTS)).saveAndFlush(any());
+    }
+
+    @Test
+    @DisplayName("Should patch only the fields present without looking the unchanged brand up")
+    void shouldPatchOnlyFieldsPresentWithoutLookingUnchangedBrandUp() {
+        VehicleEntity vehicleEntity = vehicle("Corolla", "Red", 3L);
+        when(vehicleRepository.findById("a")).thenReturn(Optional.of(vehicleEntity));
+        Map<String, Object> patch = new HashMap<>();
+        patch.put("color", "Blue");
+        patch.put("brandId", "1");
+
+        ResponseDTO response = vehicleService.patchVehicle("a", patch, 3L);
+
+        assertFalse(response.getError());
+        assertEquals("Blue", vehicleEntity.getColor());
+        assertEquals("Corolla", vehicleEntity.getModel());
+        verify(validator).validateValue(VehicleDTO.class, "color", "Blue");
+        verify(validator, never()).validateValue(VehicleDTO.class, "model", "Corolla");
+        verifyNoInteractions(vehicleBrandService);
+        verify(vehicleRepository, times(1)).saveAndFlush(vehicleEntity);
+        verify(eventPublisher, times(1)).publishEvent(any(VehicleChangeEvent.class));
+    }
+
+    @Test
+    @DisplayName("Should look the brand up when a patch moves the vehicle to another one")
+    void shouldLookBrandUpWhenPatchMovesVehicleToAnotherOne() {
+        VehicleEntity vehicleEntity = vehicle("Corolla", "Red", 3L);
+        BrandEntity lexus = BrandEntity.builder().id("2").name("Lexus").build();
+        when(vehicleRepository.findById("a")).thenReturn(Optional.of(vehicleEntity));
+        when(vehicleBrandService.findBrandById("2")).thenReturn(lexus);
+
+        vehicleService.patchVehicle("a", Collections.singletonMap("brandId", "2"), null);
+
+        assertSame(lexus, vehicleEntity.getBrandEntity());
+    }
+
+    @Test
+    @DisplayName("Should reject a patch when the vehicle no longer has the expected version or changed concurrently")
+    void shouldRejectPatchWhenVehicleNoLongerHasExpectedVersionOrChangedConcurrently() {
+        when(vehicleRepository.findById("a")).thenAnswer(invocation -> Optional.of(vehicle("Corolla", "Red", 4L)));
+        when(vehicleRepository.saveAndFlush(any())).thenThrow(new ObjectOptimisticLockingFailureException(VehicleEntity.class, "a"));
+        Map<String, Object> patch = Collections.singletonMap("color", "Blue");
+
+        assertThrows(PreconditionFailedException.class, () -> vehicleService.patchVehicle("a", patch, 3L));
+        assertEquals(VehicleService.VEHICLE_CHANGED_CONCURRENTLY, assertThrows(EntityConflictException.class,
+                () -> vehicleService.patchVehicle("a", patch, 4L)).getMessage());
+        verifyNoInteractions(eventPublisher);
     }
 
     @Test
@@ -90,44 +298,249 @@ class VehicleServiceTest {
     @DisplayName("Should return vehicles successfully when search for vehicles does not fail")
     void shouldReturnVehiclesSuccessfullyWhenSearchForVehiclesDoesNotFail() {
         // Arrange
-        Pageable pageable = PageRequest.of(0, 10);
-        Page<VehicleEntity> vehiclePage = new PageImpl<>(new ArrayList<>());
-        when(vehicleRepository.findByBrandModelOrLicensePlate(anyString(), any(Pageable.class))).thenReturn(vehiclePage);
+        List<VehicleResponseDTO> vehicles = Collections.singletonList(new VehicleResponseDTO());
+        when(vehicleRepository.findResponsePageByBrandModelOrLicensePlate(anyString(), any(Pageable.class))).thenReturn(vehicles);
+        when(vehicleCountCache.countSearch("search", false)).thenReturn(new VehicleCountCache.Count(1, false));
 
         // Act
-        ResponseDTO responseDTO = vehicleService.searchVehicles("search", 0, 10);
+        ResponseDTO responseDTO = vehicleService.searchVehicles("search", 0, 10, false);
 
         // Assert
         assertFalse(responseDTO.getError());
-        assertEquals(vehiclePage.getContent(), ((Map) responseDTO.getResponse()).get(VEHICLES));
-        assertEquals(vehiclePage.getTotalPages() - 1, ((Map) responseDTO.getResponse()).get(TOTAL_PAGES));
+        assertEquals(vehicles, ((Map) responseDTO.getResponse()).get(VEHICLES));
+        assertEquals(0, ((Map) responseDTO.getResponse()).get(TOTAL_PAGES));
+        assertEquals(false, ((Map) responseDTO.getResponse()).get(APPROXIMATE_COUNT));
     }
 
     @Test
     @DisplayName("Should return empty list when no vehicles found")
     void shouldReturnEmptyListWhenNoVehiclesFound() {
         // Arrange
-        Pageable pageable = PageRequest.of(0, 10);
-        Page<VehicleEntity> vehiclePage = new PageImpl<>(Collections.emptyList());
-        when(vehicleRepository.findByBrandModelOrLicensePlate(anyString(), any(Pageable.class))).thenReturn(vehiclePage);
+        when(vehicleRepository.findResponsePageByBrandModelOrLicensePlate(anyString(), any(Pageable.class))).thenReturn(Collections.emptyList());
+        when(vehicleCountCache.countSearch("search", false)).thenReturn(new VehicleCountCache.Count(0, false));
 
         // Act
-        ResponseDTO responseDTO = vehicleService.searchVehicles("search", 0, 10);
+        ResponseDTO responseDTO = vehicleService.searchVehicles("search", 0, 10, false);
 
         // Assert
         assertFalse(responseDTO.getError());
         assertTrue(((List) ((Map) responseDTO.getResponse()).get(VEHICLES)).isEmpty());
-        assertEquals(vehiclePage.getTotalPages() - 1, ((Map) responseDTO.getResponse()).get(TOTAL_PAGES));
+        assertEquals(-1, ((Map) responseDTO.getResponse()).get(TOTAL_PAGES));
     }
 
     @Test
     @DisplayName("Should throw exception when search for vehicles fails")
     void shouldThrowExceptionWhenSearchForVehiclesFails() {
         // Arrange
-        Pageable pageable = PageRequest.of(0, 10);
-        when(vehicleRepository.findByBrandModelOrLicensePlate(anyString(), any(Pageable.class))).thenThrow(new IllegalArgumentException());
+        when(vehicleRepository.findResponsePageByBrandModelOrLicensePlate(anyString(), any(Pageable.class))).thenThrow(new IllegalArgumentException());
 
         // Act & Assert
-        assertThrows(IllegalArgumentException.class, () -> vehicleService.searchVehicles("search", 0, 10));
+        assertThrows(IllegalArgumentException.class, () -> vehicleService.searchVehicles("search", 0, 10, false));
+    }
+
+    @Test
+    @DisplayName("Should flag the total pages when the count cache returns an approximate count")
+    void shouldFlagTotalPagesWhenCountCacheReturnsApproximateCount() {
+        when(vehicleRepository.findResponsePage(anyString(), anyBoolean(), anyInt(), anyInt())).thenReturn(Collections.emptyList());
+        when(vehicleCountCache.countAll(true)).thenReturn(new VehicleCountCache.Count(25, true));
+
+        ResponseDTO responseDTO = vehicleService.getVehicles(0, 10, "model", "asc", true);
+
+        assertEquals(2, ((Map) responseDTO.getResponse()).get(TOTAL_PAGES));
+        assertEquals(true, ((Map) responseDTO.getResponse()).get(APPROXIMATE_COUNT));
+        verify(vehicleRepository, never()).count();
+    }
+
+    @Test
+    @DisplayName("Should read the page of vehicles at the offset of its number")
+    void shouldReadPageOfVehiclesAtOffsetOfItsNumber() {
+        when(vehicleCountCache.countAll(false)).thenReturn(new VehicleCountCache.Count(100, false));
+
+        vehicleService.getVehicles(3, 10, "brandEntity.name", "desc", false);
+
+        verify(vehicleRepository).findResponsePage("brandEntity.name", false, 30, 10);
+    }
+
+    @Test
+    @DisplayName("Should count each facet value with the filters of the other facets only")
+    void shouldCountEachFacetValueWithFiltersOfOtherFacetsOnly() {
+        when(vehicleFacetCache.counts(false)).thenReturn(new VehicleFacetCache.Counts(Arrays.asList(
+                new VehicleFacetCount("1", "Toyota", "2020", "Red", 5),
+                new VehicleFacetCount("1", "Toyota", "2020", "blue", 2),
+                new VehicleFacetCount("1", "Toyota", "2010", "Red", 4),
+                new VehicleFacetCount("2", "Ferrari", "2020", "RED", 3)), false));
+        VehicleFilterDTO filter = new VehicleFilterDTO(Set.of("1"), "2015", null, Set.of("red"));
+        List<VehicleResponseDTO> vehicles = Collections.singletonList(VehicleResponseDTO.builder().id("a").build());
+        when(vehicleRepository.findResponsePageByFilter(filter, 10, 10)).thenReturn(vehicles);
+
+        Map response = (Map) vehicleService.searchVehiclesByFacets(filter, 1, 10, false).getResponse();
+
+        Map facets = (Map) response.get("facets");
+        assertEquals(Arrays.asList(new FacetCountDTO("2", "Ferrari", 3), new FacetCountDTO("1", "Toyota", 5)), facets.get("brands"));
+        assertEquals(Arrays.asList(new FacetCountDTO("2010", "2010", 4), new FacetCountDTO("2020", "2020", 5)), facets.get("years"));
+        assertEquals(Arrays.asList(new FacetCountDTO("blue", "blue", 2), new FacetCountDTO("red", "Red", 5)), facets.get("colors"));
+        assertEquals(5L, response.get("totalElements"));
+        assertEquals(0, response.get(TOTAL_PAGES));
+        assertEquals(vehicles, response.get(VEHICLES));
+    }
+
+    @Test
+    @DisplayName("Should not read a page when the exact facet total is zero")
+    void shouldNotReadPageWhenExactFacetTotalIsZero() {
+        when(vehicleFacetCache.counts(true)).thenReturn(new VehicleFacetCache.Counts(
+                Collections.singletonList(new VehicleFacetCount("1", "Toyota", "2020", "Red", 5)), false));
+
+        Map response = (Map) vehicleService.searchVehiclesByFacets(
+                VehicleFilterDTO.builder().colors(Set.of("Green")).build(), 0, 10, true).getResponse();
+
+        assertEquals(Collections.emptyList(), response.get(VEHICLES));
+        assertEquals(0L, response.get("totalElements"));
+        assertEquals(false, response.get(APPROXIMATE_COUNT));
+        verify(vehicleRepository, never()).findResponsePageByFilter(any(), anyInt(), anyInt());
+    }
+
+    @Test
+    @DisplayName("Should answer the facets from the attribute index and load only the vehicles of the page")
+    void shouldAnswerFacetsFromAttributeIndexAndLoadOnlyVehiclesOfThePage() {
+        VehicleFilterDTO filter = VehicleFilterDTO.builder().colors(Set.of("red")).build();
+        when(vehicleAttributeIndex.filter(filter, 10, 10)).thenReturn(Optional.of(new VehicleAttributeIndex.Matches(
+                12, Arrays.asList("k", "l"),
+                Map.of("1", new FacetCountDTO("1", "Toyota", 12)),
+                Map.of("2020", new FacetCountDTO("2020", "2020", 12)),
+                Map.of("red", new FacetCountDTO("red", "Red", 12), "blue", new FacetCountDTO("blue", "Blue", 3)))));
+        VehicleResponseDTO k = VehicleResponseDTO.builder().id("k").build();
+        VehicleResponseDTO l = VehicleResponseDTO.builder().id("l").build();
+        when(vehicleRepository.findResponsesByIdIn(Arrays.asList("k", "l"))).thenReturn(Arrays.asList(l, k));
+
+        Map response = (Map) vehicleService.searchVehiclesByFacets(filter, 1, 10, true).getResponse();
+
+        assertEquals(Arrays.asList(k, l), response.get(VEHICLES));
+        assertEquals(Arrays.asList(new FacetCountDTO("blue", "Blue", 3), new FacetCountDTO("red", "Red", 12)),
+                ((Map) response.get("facets")).get("colors"));
+        assertEquals(12L, response.get("totalElements"));
+        assertEquals(1, response.get(TOTAL_PAGES));
+        assertEquals(false, response.get(APPROXIMATE_COUNT));
+        verifyNoInteractions(vehicleFacetCache);
+        verify(vehicleRepository, never()).findResponsePageByFilter(any(), anyInt(), anyInt());
+    }
+
+    @Test
+    @DisplayName("Should page the search index results in index order when the index can answer the term")
+    void shouldPageSearchIndexResultsInIndexOrderWhenIndexCanAnswerTheTerm() {
+        // Arrange
+        VehicleResponseDTO d = VehicleResponseDTO.builder().id("d").build();
+        VehicleResponseDTO c = VehicleResponseDTO.builder().id("c").build();
+        when(vehicleSearchIndex.search("search", 2, 2))
+                .thenReturn(Optional.of(new VehicleSearchIndex.Matches(5, Arrays.asList("c", "d"))));
+        when(vehicleRepository.findResponsesByIdIn(Arrays.asList("c", "d"))).thenReturn(Arrays.asList(d, c));
+
+        // Act
+        ResponseDTO responseDTO = vehicleService.searchVehicles("search", 1, 2, false);
+
+        // Assert
+        assertFalse(responseDTO.getError());
+        assertEquals(Arrays.asList(c, d), ((Map) responseDTO.getResponse()).get(VEHICLES));
+        assertEquals(2, ((Map) responseDTO.getResponse()).get(TOTAL_PAGES));
+        verify(vehicleRepository, never()).findResponsePageByBrandModelOrLicensePlate(anyString(), any(Pageable.class));
+        verify(vehicleCountCache, never()).countSearch(anyString(), anyBoolean());
+    }
+
+    @Test
+    @DisplayName("Should return a cursor to the last vehicle and skip the count when there is a next page")
+    void shouldReturnCursorToLastVehicleAndSkipCountWhenThereIsNextPage() {
+        List<VehicleResponseDTO> vehicles = Arrays.asList(
+                new VehicleResponseDTO("a", null, null, null, null, "1", "Toyota"),
+                new VehicleResponseDTO("b", null, null, null, null, "1", "Toyota"),
+                new VehicleResponseDTO("c", null, null, null, null, "1", "Toyota"));
+        when(vehicleRepository.findResponsePageAfter("brandEntity.name", false, "Ferrari", "z", 3)).thenReturn(vehicles);
+
+        ResponseDTO responseDTO = vehicleService.getVehiclesAfter(new PageCursor("brandEntity.name:desc", "Ferrari", "z").encode(),
+                2, "brandEntity.name", "desc", false);
+
+        Map response = (Map) responseDTO.getResponse();
+        assertEquals(vehicles.subList(0, 2), response.get(VEHICLES));
+        PageCursor next = PageCursor.decode((String) response.get("nextCursor"));
+        assertEquals("brandEntity.name:desc", next.getOrder());
+        assertEquals("Toyota", next.getKey());
+        assertEquals("b", next.getId());
+        assertFalse(response.containsKey(TOTAL_PAGES));
+        verify(vehicleRepository, never()).count();
+    }
+
+    @Test
+    @DisplayName("Should seek after the cursor in the search index and count only when asked")
+    void shouldSeekAfterCursorInSearchIndexAndCountOnlyWhenAsked() {
+        VehicleResponseDTO c = VehicleResponseDTO.builder().id("c").build();
+        when(vehicleSearchIndex.searchAfter("search", "b", 3))
+                .thenReturn(Optional.of(new VehicleSearchIndex.Matches(3, Collections.singletonList("c"))));
+        when(vehicleRepository.findResponsesByIdIn(Collections.singletonList("c"))).thenReturn(Collections.singletonList(c));
+
+        ResponseDTO responseDTO = vehicleService.searchVehiclesAfter("search", new PageCursor(PageCursor.ID_ORDER, null, "b").encode(), 2, true);
+
+        Map response = (Map) responseDTO.getResponse();
+        assertEquals(Collections.singletonList(c), response.get(VEHICLES));
+        assertNull(response.get("nextCursor"));
+        assertEquals(3L, response.get("totalElements"));
+        assertEquals(1, response.get(TOTAL_PAGES));
+    }
+
+    @Test
+    @DisplayName("Should throw IllegalArgumentException when the cursor was issued for another order")
+    void shouldThrowIllegalArgumentExceptionWhenCursorWasIssuedForAnotherOrder() {
+        String cursor = new PageCursor("model:asc", "Corolla", "z").encode();
+
+        assertThrows(IllegalArgumentException.class, () -> vehicleService.getVehiclesAfter(cursor, 2, "year", "desc", false));
+        assertThrows(IllegalArgumentException.class, () -> vehicleService.getVehiclesAfter(cursor, 2, "model", "desc", false));
+        assertThrows(IllegalArgumentException.class, () -> vehicleService.searchVehiclesAfter("search", cursor, 2, false));
+        verifyNoInteractions(vehicleRepository, vehicleSearchIndex);
+    }
+
+    @Test
+    @DisplayName("Should throw IllegalArgumentException when getting vehicles with an invalid sort field")
+    void shouldThrowIllegalArgumentExceptionWhenGettingVehiclesWithInvalidSortField() {
+        assertThrows(IllegalArgumentException.class, () -> vehicleService.getVehiclesAfter(null, 10, "color", "asc", false));
+    }
+
+    @Test
+    @DisplayName("Should publish a change event when a vehicle is deleted")
+    void shouldPublishChangeEventWhenVehicleIsDeleted() {
+        String id = UUID.randomUUID().toString();
+
+        when(vehicleRepository.existsById(id)).thenReturn(true);
+
+        vehicleService.deleteVehicle(id);
+
+        verify(eventPublisher, times(1)).publishEvent(any(VehicleChangeEvent.class));
+    }
+
+    @Test
+    @DisplayName("Should load the vehicle entity, which the second-level cache can serve, when getting a vehicle by ID")
+    void shouldLoadVehicleEntityWhenGettingVehicleById() {
+        BrandEntity toyota = BrandEntity.builder().id("1").name("Toyota").build();
+        when(vehicleRepository.findById("a")).thenReturn(Optional.of(VehicleEntity.builder().id("a").model("Corolla")
+                .licensePlate("ABC123").color("Rojo").year("2020").brandEntity(toyota).build()));
+
+        ResponseDTO responseDTO = vehicleService.getVehicleById("a");
+
+        assertEquals(new VehicleResponseDTO("a", "Corolla", "ABC123", "Rojo", "2020", "1", "Toyota"), responseDTO.getResponse());
+        verify(vehicleRepository).findById("a");
+    }
+
+    @Test
+    @DisplayName("Should throw EntityNotFoundException when getting a vehicle that does not exist")
+    void shouldThrowEntityNotFoundExceptionWhenGettingVehicleThatDoesNotExist() {
+        when(vehicleRepository.findById("a")).thenReturn(Optional.empty());
+
+        assertThrows(EntityNotFoundException.class, () -> vehicleService.getVehicleById("a"));
+    }
+
+    private static VehicleEntity vehicle(String model, String color, Long version) {
+        return VehicleEntity.builder().id("a").model(model).licensePlate("A12345").color(color).year("2020")
+                .brandEntity(BrandEntity.builder().id("1").name("Toyota").build()).version(version).build();
+    }
+
+    private static DataIntegrityViolationException violationOf(String constraintName) {
+        return new DataIntegrityViolationException("could not execute statement",
+                new ConstraintViolationException("could not execute statement", null, constraintName));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,160 @@
+package com.technicaltest.services;
+
+import com.technicaltest.controllers.request.ResponseDTO;
+import com.technicaltest.controllers.request.VehicleDTO;
+import com.technicaltest.exceptions.EntityConflictException;
+import com.technicaltest.exceptions.PreconditionFailedException;
+import com.technicaltest.models.BrandEntity;
+import com.technicaltest.models.VehicleEntity;
+import com.technicaltest.repositories.BrandRepository;
+import com.technicaltest.repositories.VehicleRepository;
+import com.technicaltest.utils.Ids;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Updates the same vehicle from several threads at once, each update in its own transaction, and checks that no
+ * update is lost: every committed update leaves a version of its own behind, and the vehicle ends up with the last
+ * committed value of every field.
+ */
+@SpringBootTest
+class VehicleUpdateContentionTest {
+
+    private static final int UPDATES_PER_WRITER = 20;
+
+    @Autowired
+    private VehicleService vehicleService;
+
+    @Autowired
+    private VehicleRepository vehicleRepository;
+
+    @Autowired
+    private BrandRepository brandRepository;
+
+    private BrandEntity brand;
+    private VehicleEntity vehicle;
+
+    @BeforeEach
+    void setUp() {
+        brand = brandRepository.save(BrandEntity.builder().id(Ids.newId()).name("Contention brand").build());
+        vehicle = vehicleRepository.save(VehicleEntity.builder().id(Ids.newId()).model("Corolla").licensePlate("CON001")
+                .color("Red").year("2020").brandEntity(brand).build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        vehicleRepository.deleteById(vehicle.getId());
+        brandRepository.deleteById(brand.getId());
+    }
+
+    @Test
+    @DisplayName("Should merge concurrent updates of different fields without losing any of them")
+    void shouldMergeConcurrentUpdatesOfDifferentFieldsWithoutLosingAnyOfThem() throws Exception {
+        List<BiConsumer<VehicleDTO, Integer>> fields = new ArrayList<>();
+        fields.add((dto, value) -> dto.setModel("M" + value));
+        fields.add((dto, value) -> dto.setColor("C" + value));
+        fields.add((dto, value) -> dto.setYear(String.format("%04d", value)));
+
+        List<Future<Integer>> lastCommitted = concurrently(fields.size(), writer -> {
+            int last = -1;
+            for (int i = 0; i < UPDATES_PER_WRITER; i++) {
+                VehicleEntity read = vehicleRepository.findById(vehicle.getId()).orElseThrow(IllegalStateException::new);
+                VehicleDTO vehicleDTO = new VehicleDTO(read.getModel(), read.getLicensePlate(), read.getColor(),
+                        read.getYear(), brand.getId());
+                fields.get(writer).accept(vehicleDTO, i);
+                try {
+                    vehicleService.updateVehicle(vehicle.getId(), vehicleDTO, read.getVersion(), true);
+                    last = i;
+                } catch (PreconditionFailedException | EntityConflictException e) {
+                    // Another writer committed first, the vehicle keeps the previous value of the field
+                }
+            }
+            return last;
+        });
+
+        VehicleEntity updated = vehicleRepository.findById(vehicle.getId()).orElseThrow(IllegalStateException::new);
+        VehicleDTO expected = new VehicleDTO("Corolla", "CON001", "Red", "2020", brand.getId());
+        for (int writer = 0; writer < fields.size(); writer++) {
+            int last = lastCommitted.get(writer).get();
+            if (last >= 0) {
+                fields.get(writer).accept(expected, last);
+            }
+        }
+        assertEquals(expected.getModel(), updated.getModel());
+        assertEquals(expected.getColor(), updated.getColor());
+        assertEquals(expected.getYear(), updated.getYear());
+        assertTrue(updated.getVersion() > vehicle.getVersion());
+    }
+
+    @Test
+    @DisplayName("Should let only one of the updates made from the same version commit")
+    void shouldLetOnlyOneOfTheUpdatesMadeFromTheSameVersionCommit() throws Exception {
+        int writers = 4;
+        List<Future<List<Long>>> versions = concurrently(writers, writer -> {
+            List<Long> written = new ArrayList<>();
+            for (int i = 0; i < UPDATES_PER_WRITER; i++) {
+                Long read = vehicleRepository.findById(vehicle.getId()).orElseThrow(IllegalStateException::new).getVersion();
+                try {
+                    ResponseDTO response = vehicleService.updateVehicle(vehicle.getId(),
+                            new VehicleDTO("Corolla", "CON001", "C" + writer + "-" + i, "2020", brand.getId()), read, false);
+                    written.add(response.getVersion());
+                } catch (PreconditionFailedException | EntityConflictException e) {
+                    // Another writer committed since the version was read
+                }
+            }
+            return written;
+        });
+
+        Set<Long> distinct = new HashSet<>();
+        int committed = 0;
+        for (Future<List<Long>> future : versions) {
+            committed += future.get().size();
+            distinct.addAll(future.get());
+        }
+        long finalVersion = vehicleRepository.findById(vehicle.getId()).orElseThrow(IllegalStateException::new).getVersion();
+        assertEquals(committed, distinct.size());
+        assertEquals(vehicle.getVersion() + committed, finalVersion);
+    }
+
+    private <T> List<Future<T>> concurrently(int writers, Writer<T> write) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(writers);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<T>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < writers; i++) {
+                int writer = i;
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return write.run(writer);
+                }));
+            }
+            start.countDown();
+            for (Future<T> result : results) {
+                result.get();
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private interface Writer<T> {
+        T run(int writer);
+    }
+}
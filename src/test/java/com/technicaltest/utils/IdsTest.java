@@ -0,0 +1,64 @@
+package com.technicaltest.utils;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdsTest {
+
+    @Test
+    @DisplayName("Should generate version 7 UUIDs starting with the time")
+    void shouldGenerateVersion7UuidsStartingWithTime() {
+        long millis = 1700000000000L;
+
+        UUID uuid = UUID.fromString(Ids.newId(millis));
+
+        assertEquals(7, uuid.version());
+        assertEquals(2, uuid.variant());
+        assertEquals(millis, uuid.getMostSignificantBits() >>> 16);
+    }
+
+    @Test
+    @DisplayName("Should generate IDs in the order of their time, as strings and as bytes")
+    void shouldGenerateIdsInOrderOfTheirTime() {
+        List<String> ids = new ArrayList<>();
+        for (long millis = 1700000000000L; millis < 1700000000100L; millis++) {
+            ids.add(Ids.newId(millis));
+        }
+
+        for (int i = 1; i < ids.size(); i++) {
+            assertTrue(ids.get(i - 1).compareTo(ids.get(i)) < 0);
+            assertTrue(Arrays.compareUnsigned(Ids.toBytes(ids.get(i - 1)), Ids.toBytes(ids.get(i))) < 0);
+        }
+    }
+
+    @Test
+    @DisplayName("Should convert an ID to bytes and back")
+    void shouldConvertIdToBytesAndBack() {
+        String id = Ids.newId();
+
+        byte[] bytes = Ids.toBytes(id);
+
+        assertEquals(16, bytes.length);
+        assertEquals(id, Ids.fromBytes(bytes));
+        assertEquals(id, Ids.fromBytes(Ids.toBytes(id.toUpperCase())));
+    }
+
+    @Test
+    @DisplayName("Should convert strings that are not UUIDs to the lowest ID")
+    void shouldConvertStringsThatAreNotUuidsToLowestId() {
+        String lowest = "00000000-0000-0000-0000-000000000000";
+
+        assertEquals(lowest, Ids.fromBytes(Ids.toBytes("")));
+        assertEquals(lowest, Ids.fromBytes(Ids.toBytes("2")));
+        assertEquals(lowest, Ids.fromBytes(Ids.toBytes("1-1-1-1-1")));
+        assertEquals(lowest, Ids.fromBytes(Ids.toBytes("not-a-uuid-not-a-uuid-not-a-uuid-abc")));
+        assertEquals(lowest, Ids.fromBytes(Ids.toBytes(null)));
+    }
+}
@@ -0,0 +1,72 @@
+package com.technicaltest.utils;
+
+import com.technicaltest.controllers.request.VehicleDTO;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.ConstraintViolationException;
+import javax.validation.Validation;
+import javax.validation.Validator;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MergePatchTest {
+
+    private final Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
+    @Test
+    @DisplayName("Should read only the fields present in the patch")
+    void shouldReadOnlyFieldsPresentInPatch() {
+        Map<String, Object> patch = new LinkedHashMap<>();
+        patch.put("color", "Red");
+        patch.put("year", 2021);
+
+        Map<String, String> fields = MergePatch.read(patch, VehicleDTO.class, validator);
+
+        assertEquals(List.of("color", "year"), List.copyOf(fields.keySet()));
+        assertEquals("Red", fields.get("color"));
+        assertEquals("2021", fields.get("year"));
+    }
+
+    @Test
+    @DisplayName("Should validate only the fields present in the patch")
+    void shouldValidateOnlyFieldsPresentInPatch() {
+        Map<String, Object> patch = new HashMap<>();
+        patch.put("color", "R3d");
+        patch.put("licensePlate", null);
+
+        ConstraintViolationException exception = assertThrows(ConstraintViolationException.class,
+                () -> MergePatch.read(patch, VehicleDTO.class, validator));
+
+        assertEquals(List.of("color", "licensePlate"), exception.getConstraintViolations().stream()
+                .map(ConstraintViolation::getPropertyPath)
+                .map(Object::toString)
+                .distinct()
+                .sorted()
+                .collect(Collectors.toList()));
+    }
+
+    @Test
+    @DisplayName("Should reject fields the DTO does not have and values that are not scalars")
+    void shouldRejectFieldsTheDtoDoesNotHaveAndValuesThatAreNotScalars() {
+        assertThrows(IllegalArgumentException.class,
+                () -> MergePatch.read(Collections.singletonMap("id", "1"), VehicleDTO.class, validator));
+        assertThrows(IllegalArgumentException.class,
+                () -> MergePatch.read(Collections.singletonMap("class", "x"), VehicleDTO.class, validator));
+        assertThrows(IllegalArgumentException.class,
+                () -> MergePatch.read(Collections.singletonMap("color", List.of("Red")), VehicleDTO.class, validator));
+    }
+
+    @Test
+    @DisplayName("Should read an empty patch as no change")
+    void shouldReadEmptyPatchAsNoChange() {
+        assertTrue(MergePatch.read(Collections.emptyMap(), VehicleDTO.class, validator).isEmpty());
+    }
+}
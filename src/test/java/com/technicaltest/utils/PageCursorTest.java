@@ -0,0 +1,46 @@
+package com.technicaltest.utils;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PageCursorTest {
+
+    @Test
+    @DisplayName("Should decode the order, key and id of an encoded cursor")
+    void shouldDecodeOrderKeyAndIdOfEncodedCursor() {
+        PageCursor cursor = PageCursor.decode(new PageCursor("model:asc", "Corolla\n2", "123").encode());
+
+        assertEquals("model:asc", cursor.getOrder());
+        assertEquals("Corolla\n2", cursor.getKey());
+        assertEquals("123", cursor.getId());
+    }
+
+    @Test
+    @DisplayName("Should decode an empty key when the cursor has no sort key")
+    void shouldDecodeEmptyKeyWhenCursorHasNoSortKey() {
+        PageCursor cursor = PageCursor.decode(new PageCursor(PageCursor.ID_ORDER, null, "123").encode());
+
+        assertEquals("", cursor.getKey());
+        assertEquals("123", cursor.getId());
+    }
+
+    @Test
+    @DisplayName("Should throw IllegalArgumentException when the token is not a cursor")
+    void shouldThrowIllegalArgumentExceptionWhenTokenIsNotCursor() {
+        assertThrows(IllegalArgumentException.class, () -> PageCursor.decode("not a cursor"));
+        assertThrows(IllegalArgumentException.class, () -> PageCursor.decode("YWJj"));
+        assertThrows(IllegalArgumentException.class, () -> PageCursor.decode("YQpi"));
+    }
+
+    @Test
+    @DisplayName("Should throw IllegalArgumentException when the cursor was issued for another order")
+    void shouldThrowIllegalArgumentExceptionWhenCursorWasIssuedForAnotherOrder() {
+        String token = new PageCursor(PageCursor.order("model", true), "Corolla", "123").encode();
+
+        assertEquals("123", PageCursor.decode(token, "model:asc").getId());
+        assertThrows(IllegalArgumentException.class, () -> PageCursor.decode(token, PageCursor.order("model", false)));
+        assertThrows(IllegalArgumentException.class, () -> PageCursor.decode(token, PageCursor.ID_ORDER));
+    }
+}
@@ -0,0 +1,158 @@
+package com.technicaltest.utils;
+
+import com.technicaltest.models.BrandEntity;
+import com.technicaltest.models.VehicleEntity;
+import com.technicaltest.repositories.BrandRepository;
+import com.technicaltest.repositories.VehicleRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that new vehicles and brands are inserted without being selected first, and that the unique constraints
+ * alone keep concurrent writers from storing duplicates, every rejected writer being told which constraint failed.
+ */
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class UniqueConstraintsTest {
+
+    private static final int WRITERS = 8;
+
+    @Autowired
+    private VehicleRepository vehicleRepository;
+
+    @Autowired
+    private BrandRepository brandRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transaction;
+    private BrandEntity brand;
+
+    @BeforeEach
+    void setUp() {
+        transaction = new TransactionTemplate(transactionManager);
+        brand = transaction.execute(status -> brandRepository.save(BrandEntity.builder().id(Ids.newId()).name("Unique brand").build()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        transaction.executeWithoutResult(status -> {
+            vehicleRepository.deleteAll();
+            brandRepository.deleteAll();
+        });
+    }
+
+    @Test
+    @DisplayName("Should insert a new vehicle with a single statement")
+    void shouldInsertNewVehicleWithSingleStatement() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        transaction.executeWithoutResult(status -> vehicleRepository.saveAndFlush(vehicle("UNI001")));
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(1, statistics.getEntityInsertCount());
+        Boolean loadedIsNew = transaction.execute(status -> vehicleRepository.findAll().get(0).isNew());
+        assertEquals(false, loadedIsNew);
+    }
+
+    @Test
+    @DisplayName("Should let only one of many concurrent writers insert a license plate")
+    void shouldLetOnlyOneOfManyConcurrentWritersInsertLicensePlate() throws Exception {
+        List<Boolean> inserted = concurrently(() -> vehicleRepository.saveAndFlush(vehicle("UNI002")),
+                UniqueConstraints.VEHICLE_LICENSE_PLATE);
+
+        assertEquals(1, inserted.stream().filter(Boolean::booleanValue).count());
+        assertEquals(1, vehicleRepository.count());
+    }
+
+    @Test
+    @DisplayName("Should let only one of many concurrent writers insert a brand name")
+    void shouldLetOnlyOneOfManyConcurrentWritersInsertBrandName() throws Exception {
+        List<Boolean> inserted = concurrently(() -> brandRepository.saveAndFlush(
+                BrandEntity.builder().id(Ids.newId()).name("Concurrent brand").build()), UniqueConstraints.BRAND_NAME);
+
+        assertEquals(1, inserted.stream().filter(Boolean::booleanValue).count());
+        assertEquals(2, brandRepository.count());
+    }
+
+    @Test
+    @DisplayName("Should not take a violation of another constraint for a duplicate")
+    void shouldNotTakeViolationOfAnotherConstraintForDuplicate() {
+        transaction.executeWithoutResult(status -> vehicleRepository.saveAndFlush(vehicle("UNI003")));
+
+        DataIntegrityViolationException exception = assertThrows(DataIntegrityViolationException.class,
+                () -> transaction.executeWithoutResult(status -> vehicleRepository.saveAndFlush(vehicle("UNI003"))));
+
+        assertTrue(UniqueConstraints.isViolated(exception, UniqueConstraints.VEHICLE_LICENSE_PLATE));
+        assertFalse(UniqueConstraints.isViolated(exception, UniqueConstraints.BRAND_NAME));
+    }
+
+    /**
+     * Runs the same write from WRITERS threads at once, each in its own transaction.
+     *
+     * @param write the write
+     * @param constraintName the constraint the rejected writes must violate
+     * @return whether each write was committed
+     */
+    private List<Boolean> concurrently(Supplier<?> write, String constraintName) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(WRITERS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> writes = new ArrayList<>();
+        try {
+            for (int i = 0; i < WRITERS; i++) {
+                writes.add(executor.submit(() -> {
+                    start.await();
+                    try {
+                        transaction.executeWithoutResult(status -> write.get());
+                        return true;
+                    } catch (DataIntegrityViolationException e) {
+                        assertTrue(UniqueConstraints.isViolated(e, constraintName), e.getMessage());
+                        return false;
+                    }
+                }));
+            }
+            start.countDown();
+            List<Boolean> inserted = new ArrayList<>();
+            for (Future<Boolean> future : writes) {
+                inserted.add(future.get());
+            }
+            return inserted;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private VehicleEntity vehicle(String licensePlate) {
+        return VehicleEntity.builder().id(Ids.newId()).model("Corolla").licensePlate(licensePlate)
+                .color("Red").year("2020").brandEntity(brand).build();
+    }
+}